@@ -0,0 +1,46 @@
+/*
+ * Copyright (c) 2022 Vitasystems GmbH and Hannover Medical School.
+ *
+ * This file is part of project EHRbase
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.ehrbase.api.definitions;
+
+/**
+ * How the total number of rows of a paged query is determined.
+ */
+public enum QueryCountMode {
+    /** no count */
+    NONE,
+    /** exact count, selected along with the page with <code>count(*) OVER ()</code> */
+    EXACT,
+    /** estimate of the database planner, the query is not executed */
+    ESTIMATED;
+
+    /**
+     * @param value the case insensitive name of a mode, may be null
+     * @return the mode, {@link #NONE} if the value is null or empty
+     * @throws IllegalArgumentException if the value is not a mode
+     */
+    public static QueryCountMode fromValue(String value) {
+        if (value == null || value.isBlank())
+            return NONE;
+        try {
+            return valueOf(value.trim().toUpperCase());
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Invalid count mode:" + value + ", expected one of exact, estimated, none");
+        }
+    }
+}
@@ -18,5 +18,7 @@ public interface ServerConfig {
 
     void setUseJsQuery(boolean b);
 
+    Integer getAqlStreamFetchSize();
+
     public boolean isDisableStrictValidation();
 }
@@ -0,0 +1,79 @@
+/*
+ * Copyright (c) 2022 Vitasystems GmbH and Hannover Medical School.
+ *
+ * This file is part of project EHRbase
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.ehrbase.api.dto;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+import java.util.UUID;
+
+/**
+ * Outcome of one line of a bulk composition import.
+ */
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class CompositionImportResult {
+
+    @JsonProperty("line")
+    private final long line;
+
+    @JsonProperty("ehr_id")
+    private final UUID ehrId;
+
+    @JsonProperty("composition_uid")
+    private final UUID compositionUid;
+
+    @JsonProperty("error")
+    private final String error;
+
+    private CompositionImportResult(long line, UUID ehrId, UUID compositionUid, String error) {
+        this.line = line;
+        this.ehrId = ehrId;
+        this.compositionUid = compositionUid;
+        this.error = error;
+    }
+
+    public static CompositionImportResult created(long line, UUID ehrId, UUID compositionUid) {
+        return new CompositionImportResult(line, ehrId, compositionUid, null);
+    }
+
+    public static CompositionImportResult failed(long line, UUID ehrId, String error) {
+        return new CompositionImportResult(line, ehrId, null, error);
+    }
+
+    public long getLine() {
+        return line;
+    }
+
+    public UUID getEhrId() {
+        return ehrId;
+    }
+
+    public UUID getCompositionUid() {
+        return compositionUid;
+    }
+
+    public String getError() {
+        return error;
+    }
+
+    @JsonProperty("success")
+    public boolean isSuccess() {
+        return error == null;
+    }
+}
@@ -0,0 +1,64 @@
+/*
+ * Copyright (c) 2022 Vitasystems GmbH and Hannover Medical School.
+ *
+ * This file is part of project EHRbase
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.ehrbase.api.dto;
+
+import org.ehrbase.response.ehrscape.QueryResultDto;
+
+/**
+ * A page of an AQL query result, see <code>QueryService.queryPage</code>.
+ */
+public class QueryResultPage {
+
+    private final QueryResultDto result;
+
+    private final String continuationToken;
+
+    private final Long totalCount;
+
+    private final boolean totalCountEstimated;
+
+    public QueryResultPage(QueryResultDto result, String continuationToken, Long totalCount, boolean totalCountEstimated) {
+        this.result = result;
+        this.continuationToken = continuationToken;
+        this.totalCount = totalCount;
+        this.totalCountEstimated = totalCountEstimated;
+    }
+
+    public QueryResultDto getResult() {
+        return result;
+    }
+
+    /**
+     * @return the opaque token to pass to retrieve the next page, null if this is the last page
+     */
+    public String getContinuationToken() {
+        return continuationToken;
+    }
+
+    /**
+     * @return the number of rows of the whole result, null if not requested
+     */
+    public Long getTotalCount() {
+        return totalCount;
+    }
+
+    public boolean isTotalCountEstimated() {
+        return totalCountEstimated;
+    }
+}
@@ -22,15 +22,18 @@ import com.nedap.archie.rm.changecontrol.OriginalVersion;
 import com.nedap.archie.rm.composition.Composition;
 import com.nedap.archie.rm.ehr.VersionedComposition;
 import com.nedap.archie.rm.generic.RevisionHistory;
+import org.ehrbase.api.dto.CompositionImportResult;
 import org.ehrbase.api.exception.InternalServerException;
 import org.ehrbase.api.exception.ObjectNotFoundException;
 import org.ehrbase.response.ehrscape.CompositionDto;
 import org.ehrbase.response.ehrscape.CompositionFormat;
 import org.ehrbase.response.ehrscape.StructuredString;
 
+import java.io.BufferedReader;
 import java.time.LocalDateTime;
 import java.util.Optional;
 import java.util.UUID;
+import java.util.function.Consumer;
 
 public interface CompositionService extends BaseService, VersionedObjectService<Composition, CompositionDto> {
     /**
@@ -41,6 +44,14 @@ public interface CompositionService extends BaseService, VersionedObjectService<
      */
     Optional<CompositionDto> retrieve(UUID compositionId, Integer version);
 
+    /**
+     * Reads only the template ID of the latest version of a composition, without loading it.
+     *
+     * @param compositionId The {@link UUID} of the composition
+     * @return The template ID, or empty if the composition doesn't exist or is deleted
+     */
+    Optional<String> retrieveTemplateId(UUID compositionId);
+
     /**
      * TODO: untested because not needed, yet
      *
@@ -112,6 +123,17 @@ public interface CompositionService extends BaseService, VersionedObjectService<
      */
     void adminDelete(UUID compositionId);
 
+    /**
+     * Admin method to import compositions in bulk. Each line of the input is a JSON object holding the target
+     * <code>ehr_id</code> and the <code>composition</code> in canonical JSON. Lines are parsed and validated in
+     * parallel and the valid compositions are written in transactions of <code>batchSize</code> compositions.
+     * A line that can not be parsed, validated or written fails on its own, the import continues with the next one.
+     * @param ndjson Newline delimited input
+     * @param batchSize Number of compositions per transaction
+     * @param results Receives the result of each non blank line in input order, once the line has been written
+     */
+    void importCompositions(BufferedReader ndjson, int batchSize, Consumer<CompositionImportResult> results);
+
     /**
      * Gets version container Composition associated with given EHR and Composition ID.
      * @param ehrUid Given EHR ID
@@ -0,0 +1,50 @@
+/*
+ * Copyright (c) 2022 Vitasystems GmbH and Hannover Medical School.
+ *
+ * This file is part of project EHRbase
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.ehrbase.api.service;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Receives a streamed query result, see {@link QueryService#queryStream(String, Map, QueryResultConsumer)}.
+ */
+public interface QueryResultConsumer {
+
+    /**
+     * Called once, before the first row.
+     *
+     * @param variables column names mapped to their path
+     */
+    void columns(Map<String, String> variables);
+
+    /**
+     * Called for each row, values are in the same order as the columns.
+     *
+     * @param values row values
+     */
+    void row(List<Object> values);
+
+    /**
+     * Called once, after the last row.
+     *
+     * @param auditResultMap the audit related values of the result (e.g. the EHR ids), by path
+     */
+    void completed(Map<String, Set<Object>> auditResultMap);
+}
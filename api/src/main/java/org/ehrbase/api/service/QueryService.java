@@ -18,7 +18,9 @@
 
 package org.ehrbase.api.service;
 
+import org.ehrbase.api.definitions.QueryCountMode;
 import org.ehrbase.api.definitions.QueryMode;
+import org.ehrbase.api.dto.QueryResultPage;
 import org.ehrbase.response.ehrscape.QueryDefinitionResultDto;
 import org.ehrbase.response.ehrscape.QueryResultDto;
 
@@ -39,6 +41,41 @@ public interface QueryService extends BaseService {
 
     QueryResultDto query(String queryString, Map<String, Object> parameters, QueryMode queryMode, boolean explain);
 
+    /**
+     * same as {@link #query(String, Map, QueryMode, boolean)}, with an analyze mode
+     * @param parameters optional query parameters, may be null
+     * @param analyze if true (AQL only), the explain details also contain the database plan, as run with
+     *                <code>EXPLAIN (ANALYZE, BUFFERS, FORMAT JSON)</code>, and the duration of each processing phase
+     *                (parse, containment resolution, sql build, execution, post-processing). NB. the query is then
+     *                executed twice.
+     */
+    QueryResultDto query(String queryString, Map<String, Object> parameters, QueryMode queryMode, boolean explain, boolean analyze);
+
+    /**
+     * execute an AQL query and pass the result rows to the consumer as they are read from the database, the result
+     * set is never held in memory as a whole
+     * @param queryString
+     * @param parameters optional query parameters, may be null
+     * @param consumer
+     */
+    void queryStream(String queryString, Map<String, Object> parameters, QueryResultConsumer consumer);
+
+    /**
+     * execute a page of an AQL query.
+     * <p>
+     * With a continuation token, the page starts after the last row of the previous page (keyset pagination): the
+     * rows preceding it are not computed again, unlike with OFFSET. This requires an ORDER BY whose columns identify a
+     * row, the page size is given by LIMIT (resp. TOP).
+     * </p>
+     * @param queryString the AQL query
+     * @param parameters optional query parameters, may be null
+     * @param continuationToken the token returned with the previous page, null for the first page
+     * @param countMode whether to return the total number of rows
+     * @return the page, with the token of the next page if another page follows
+     * @throws IllegalArgumentException if the ORDER BY does not identify the last row of the page
+     */
+    QueryResultPage queryPage(String queryString, Map<String, Object> parameters, String continuationToken, QueryCountMode countMode);
+
     //=== DEFINITION: manage stored queries
     List<QueryDefinitionResultDto> retrieveStoredQueries(String fullyQualifiedName);
 
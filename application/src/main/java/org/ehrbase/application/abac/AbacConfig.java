@@ -24,15 +24,23 @@ import org.apache.http.client.HttpClient;
 import org.apache.http.client.methods.HttpPost;
 import org.apache.http.entity.ContentType;
 import org.apache.http.entity.StringEntity;
+import org.apache.http.util.EntityUtils;
 import org.ehrbase.api.exception.InternalServerException;
+import org.ehrbase.application.config.cache.CacheConfiguration;
+import org.springframework.boot.autoconfigure.cache.JCacheManagerCustomizer;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.boot.context.properties.ConfigurationProperties;
 import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 
 import java.io.IOException;
 import java.net.URI;
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 
 @ConditionalOnProperty(name = "abac.enabled")
@@ -42,6 +50,8 @@ import java.util.Map;
 @SuppressWarnings("java:S6212")
 public class AbacConfig {
 
+  public static final String DECISION_CACHE = "abacDecisionCache";
+
   public enum AbacType {
     EHR, EHR_STATUS, COMPOSITION, CONTRIBUTION, QUERY
   }
@@ -75,10 +85,34 @@ public class AbacConfig {
   private String organizationClaim;
   private String patientClaim;
   private Map<AbacType, Policy> policy;
+  /**
+   * How long a decision of the ABAC server is reused for the same policy and attributes. Zero
+   * disables the cache.
+   */
+  private Duration decisionCacheTtl = Duration.ofSeconds(30);
+  /**
+   * Maximum number of cached decisions.
+   */
+  private int decisionCacheSize = 10000;
+  /**
+   * Maximum number of concurrent requests to the ABAC server, when one operation needs several
+   * decisions (e.g. one per template of a contribution).
+   */
+  private int maxParallelRequests = 4;
+
+  /**
+   * Creates the {@link #DECISION_CACHE}, unless the TTL or size of the decision cache is zero.
+   */
+  @Bean
+  public JCacheManagerCustomizer abacDecisionCacheCustomizer() {
+    boolean enabled = !decisionCacheTtl.isZero() && !decisionCacheTtl.isNegative();
+    return cacheManager -> CacheConfiguration.createHeapCache(cacheManager, DECISION_CACHE,
+        enabled ? decisionCacheSize : 0, decisionCacheTtl);
+  }
 
   @Bean
-  public AbacCheck abacCheck(HttpClient httpClient) {
-    return new AbacCheck(httpClient);
+  public AbacCheck abacCheck(HttpClient httpClient, CacheManager cacheManager) {
+    return new AbacCheck(httpClient, cacheManager.getCache(DECISION_CACHE));
   }
 
   public URI getServer() {
@@ -114,20 +148,56 @@ public class AbacConfig {
     this.policy = policy;
   }
 
+  public Duration getDecisionCacheTtl() {
+    return decisionCacheTtl;
+  }
+
+  public void setDecisionCacheTtl(Duration decisionCacheTtl) {
+    this.decisionCacheTtl = decisionCacheTtl;
+  }
+
+  public int getDecisionCacheSize() {
+    return decisionCacheSize;
+  }
+
+  public void setDecisionCacheSize(int decisionCacheSize) {
+    this.decisionCacheSize = decisionCacheSize;
+  }
+
+  public int getMaxParallelRequests() {
+    return maxParallelRequests;
+  }
+
+  public void setMaxParallelRequests(int maxParallelRequests) {
+    this.maxParallelRequests = maxParallelRequests;
+  }
+
   /*
   This class has only some extracted methods to handle ABAC server connection and requests.
   It is mainly a separate class so it can be overwritten by a MockBean in the context of tests.
+  Decisions are held in the DECISION_CACHE, keyed by the request URL (i.e. the policy) and the
+  attributes (organization, patient, template).
  */
   public static class AbacCheck {
 
     private final HttpClient httpClient;
+    // null if disabled
+    private final Cache decisions;
 
     public AbacCheck(HttpClient httpClient) {
+      this(httpClient, null);
+    }
+
+    public AbacCheck(HttpClient httpClient, Cache decisions) {
       this.httpClient = httpClient;
+      this.decisions = decisions;
     }
 
     /**
-     * Helper to build and send the actual HTTP request to the ABAC server.
+     * Helper to build and send the actual HTTP request to the ABAC server, unless the decision for
+     * the same request is cached.
+     * <p>
+     * Thread safe, the attributes of several requests can be checked concurrently.
      *
      * @param url     URL for ABAC server request
      * @param bodyMap Map of attributes for the request
@@ -136,7 +206,17 @@ public class AbacConfig {
      */
     public boolean execute(String url, Map<String, String> bodyMap)
         throws IOException {
-      return evaluateResponse(send(url, bodyMap));
+      if (decisions == null) {
+        return evaluateResponse(send(url, bodyMap));
+      }
+
+      List<Object> key = List.of(url, new HashMap<>(bodyMap));
+      Boolean allowed = decisions.get(key, Boolean.class);
+      if (allowed == null) {
+        allowed = evaluateResponse(send(url, bodyMap));
+        decisions.put(key, allowed);
+      }
+      return allowed;
     }
 
     private HttpResponse send(String url, Map<String, String> bodyMap)
@@ -157,7 +237,9 @@ public class AbacConfig {
       }
     }
 
-    private boolean evaluateResponse(HttpResponse response) {
+    private boolean evaluateResponse(HttpResponse response) throws IOException {
+      // release the connection, the decision is given by the status alone
+      EntityUtils.consume(response.getEntity());
       return response.getStatusLine().getStatusCode() == 200;
     }
   }
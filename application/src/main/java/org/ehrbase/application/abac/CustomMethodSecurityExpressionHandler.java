@@ -18,6 +18,9 @@
 
 package org.ehrbase.application.abac;
 
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import javax.annotation.PreDestroy;
 import org.aopalliance.intercept.MethodInvocation;
 import org.ehrbase.api.service.CompositionService;
 import org.ehrbase.api.service.ContributionService;
@@ -30,6 +33,7 @@ import org.springframework.security.access.expression.method.MethodSecurityExpre
 import org.springframework.security.authentication.AuthenticationTrustResolver;
 import org.springframework.security.authentication.AuthenticationTrustResolverImpl;
 import org.springframework.security.core.Authentication;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
 import org.springframework.stereotype.Component;
 
 @ConditionalOnProperty(name = "abac.enabled")
@@ -43,6 +47,8 @@ public class CustomMethodSecurityExpressionHandler extends DefaultMethodSecurity
   private final ContributionService contributionService;
   private final EhrService ehrService;
   private final AbacCheck abacCheck;
+  // shared by all requests, so that the load on the ABAC server stays bounded
+  private final ExecutorService abacExecutor;
 
   @Lazy
   public CustomMethodSecurityExpressionHandler(AbacConfig abacConfig,
@@ -54,6 +60,15 @@ public class CustomMethodSecurityExpressionHandler extends DefaultMethodSecurity
     this.contributionService = contributionService;
     this.ehrService = ehrService;
     this.abacCheck = abacCheck;
+    CustomizableThreadFactory threadFactory = new CustomizableThreadFactory("abac-");
+    threadFactory.setDaemon(true);
+    this.abacExecutor = Executors.newFixedThreadPool(
+        Math.max(1, abacConfig.getMaxParallelRequests()), threadFactory);
+  }
+
+  @PreDestroy
+  public void shutdown() {
+    abacExecutor.shutdownNow();
   }
 
   @Override
@@ -64,6 +79,7 @@ public class CustomMethodSecurityExpressionHandler extends DefaultMethodSecurity
     root.setCompositionService(this.compositionService);
     root.setContributionService(this.contributionService);
     root.setEhrService(this.ehrService);
+    root.setAbacExecutor(this.abacExecutor);
     root.setPermissionEvaluator(getPermissionEvaluator());
     root.setTrustResolver(this.trustResolver);
     root.setRoleHierarchy(getRoleHierarchy());
@@ -21,7 +21,10 @@ package org.ehrbase.application.abac;
 import com.nedap.archie.rm.composition.Composition;
 import com.nedap.archie.rm.support.identification.ObjectVersionId;
 import java.io.IOException;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
@@ -30,6 +33,11 @@ import java.util.Objects;
 import java.util.Optional;
 import java.util.Set;
 import java.util.UUID;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
 import org.ehrbase.api.exception.InternalServerException;
 import org.ehrbase.api.service.CompositionService;
 import org.ehrbase.api.service.ContributionService;
@@ -39,7 +47,6 @@ import org.ehrbase.application.abac.AbacConfig.AbacType;
 import org.ehrbase.application.abac.AbacConfig.Policy;
 import org.ehrbase.application.abac.AbacConfig.PolicyParameter;
 import org.ehrbase.aql.compiler.AuditVariables;
-import org.ehrbase.response.ehrscape.CompositionDto;
 import org.ehrbase.response.ehrscape.CompositionFormat;
 import org.ehrbase.response.openehr.OriginalVersionResponseData;
 import org.ehrbase.rest.BaseController;
@@ -70,6 +77,7 @@ public class CustomMethodSecurityExpressionRoot extends SecurityExpressionRoot i
   private CompositionService compositionService;
   private ContributionService contributionService;
   private EhrService ehrService;
+  private ExecutorService abacExecutor;
   private Object filterObject;
   private Object returnObject;
 
@@ -92,6 +100,10 @@ public class CustomMethodSecurityExpressionRoot extends SecurityExpressionRoot i
     this.ehrService = ehrService;
   }
 
+  public void setAbacExecutor(ExecutorService abacExecutor) {
+    this.abacExecutor = abacExecutor;
+  }
+
   /**
    * Custom SpEL expression to be used to check if the remote ABAC allows the operation by given
    * data. For @PostAuthorize cases.
@@ -366,10 +378,10 @@ public class CustomMethodSecurityExpressionRoot extends SecurityExpressionRoot i
             // try if this is the Delete composition case. Payload would contain the UUID of the compo.
             ObjectVersionId versionId = new ObjectVersionId((String) payload);
             UUID compositionUid = UUID.fromString(versionId.getRoot().getValue());
-            Optional<CompositionDto> compoDto = compositionService.retrieve(compositionUid, null);
-            if (compoDto.isPresent()) {
-              Composition c = compoDto.get().getComposition();
-              requestMap.put(TEMPLATE, c.getArchetypeDetails().getTemplateId().getValue());
+            // only the template ID is needed, so don't load the composition
+            Optional<String> compoTemplateId = compositionService.retrieveTemplateId(compositionUid);
+            if (compoTemplateId.isPresent()) {
+              requestMap.put(TEMPLATE, compoTemplateId.get());
               break; // special case, so done here, exit
             } else {
               throw new InternalServerException(
@@ -435,74 +447,93 @@ public class CustomMethodSecurityExpressionRoot extends SecurityExpressionRoot i
     if (bodyMap.containsKey(ORGANIZATION)) {
       request.put(ORGANIZATION, (String) bodyMap.get(ORGANIZATION));
     }
-    // check if patient attribues are available and see if it contains a Set or simple String
-    if (bodyMap.containsKey(PATIENT)) {
-      if (bodyMap.get(PATIENT) instanceof Set) {
-        // check if templates are also configured
-        if (bodyMap.containsKey(TEMPLATE)) {
-          if (bodyMap.get(TEMPLATE) instanceof Set) {
-            // multiple templates possible: need cartesian product of n patients and m templates
-            // so: for each patient, go through templates and do a request each
-            Set<String> setP = (Set<String>) bodyMap.get(PATIENT);
-            for (String p : setP) {
-              request.put(PATIENT, p);
-              boolean success = sendRequestForEach(TEMPLATE, url, bodyMap, request);
-              if (!success) {
-                return false;
-              }
-            }
-            // in case all combinations were validated successfully
-            return true;
-          }
-        } else {
-          // only patients (or + orga) set. So run request for each patient, without template.
-          return sendRequestForEach(PATIENT, url, bodyMap, request);
+    // patient and template attributes can contain a Set or simple String
+    Collection<String> patients = attributeValues(PATIENT, bodyMap);
+    Collection<String> templates = attributeValues(TEMPLATE, bodyMap);
+
+    // multiple patients and templates possible: need cartesian product of n patients and
+    // m templates, so one request each
+    List<Map<String, String>> requests = new ArrayList<>();
+    for (String p : patients) {
+      for (String t : templates) {
+        Map<String, String> combination = new HashMap<>(request);
+        if (p != null) {
+          combination.put(PATIENT, p);
         }
-      } else if (bodyMap.get(PATIENT) instanceof String) {
-        request.put(PATIENT, (String) bodyMap.get(PATIENT));
-      } else {
-        // if it is just a String, set it and continue normal
-        throw new InternalServerException("ABAC: Invalid patient attribute content.");
+        if (t != null) {
+          combination.put(TEMPLATE, t);
+        }
+        requests.add(combination);
       }
     }
-    // check if template attributes are available and see if it contains a Set or simple String
-    if (bodyMap.containsKey(TEMPLATE)) {
-      if (bodyMap.get(TEMPLATE) instanceof Set) {
-        // set each template and send separate ABAC requests
-        return sendRequestForEach(TEMPLATE, url, bodyMap, request);
-      } else if (bodyMap.get(TEMPLATE) instanceof String) {
-        // if it is just a String, set it and continue normal
-        request.put(TEMPLATE, (String) bodyMap.get(TEMPLATE));
-      } else {
-        throw new InternalServerException("ABAC: Invalid template attribute content.");
-      }
+    return sendRequests(url, requests);
+  }
+
+  /**
+   * Reads a patient or template attribute.
+   * @param type Type, either TEMPLATE or PATIENT
+   * @param bodyMap Unprocessed attributes for the request
+   * @return The values of the attribute, a single null if the attribute is not set
+   */
+  private Collection<String> attributeValues(String type, Map<String, Object> bodyMap) {
+    if (!bodyMap.containsKey(type)) {
+      return Collections.singletonList(null);
+    }
+    Object value = bodyMap.get(type);
+    if (value instanceof Set) {
+      return (Set<String>) value;
+    } else if (value instanceof String) {
+      return Collections.singletonList((String) value);
+    } else {
+      throw new InternalServerException("ABAC: Invalid " + type + " attribute content.");
     }
-    return abacCheck.execute(url, request);
   }
 
   /**
-   * Goes through all template IDs and sends an ABAC request for each.
-   * @param type Type, either ORGANIZATION, TEMPLATE, PATIENT
+   * Sends an ABAC request for each combination of attributes. Several combinations are checked
+   * concurrently, the first rejected one cancels the remaining requests.
    * @param url ABAC server request URL
-   * @param bodyMap Unprocessed attributes for the request
-   * @param request Processed attributes for the request
+   * @param requests Processed attributes for each request
    * @return True on success, False if one combinations is rejected by the ABAC server
    * @throws IOException On error during attribute or HTTP handling
    * @throws InterruptedException On error during HTTP handling
    */
-  private boolean sendRequestForEach(String type, String url, Map<String, Object> bodyMap,
-      Map<String, String> request) throws IOException, InterruptedException {
-    Set<String> set = (Set<String>) bodyMap.get(type);
-    for (String s : set) {
-      request.put(type, s);
-      boolean allowed = abacCheck.execute(url, request);
-      if (!allowed) {
-        // if only one combination of attributes is rejected by ABAC return false for all
-        return false;
+  private boolean sendRequests(String url, List<Map<String, String>> requests)
+      throws IOException, InterruptedException {
+    if (requests.size() == 1 || abacExecutor == null) {
+      for (Map<String, String> request : requests) {
+        if (!abacCheck.execute(url, request)) {
+          return false;
+        }
       }
+      return true;
+    }
+
+    CompletionService<Boolean> completionService = new ExecutorCompletionService<>(abacExecutor);
+    List<Future<Boolean>> futures = new ArrayList<>(requests.size());
+    try {
+      for (Map<String, String> request : requests) {
+        futures.add(completionService.submit(() -> abacCheck.execute(url, request)));
+      }
+      for (int i = 0; i < futures.size(); i++) {
+        if (!completionService.take().get()) {
+          // if only one combination of attributes is rejected by ABAC return false for all
+          return false;
+        }
+      }
+      // in case all combinations were validated successfully
+      return true;
+    } catch (ExecutionException e) {
+      Throwable cause = e.getCause();
+      if (cause instanceof IOException) {
+        throw (IOException) cause;
+      } else if (cause instanceof RuntimeException) {
+        throw (RuntimeException) cause;
+      }
+      throw new InternalServerException("ABAC: Request to ABAC server failed: " + cause.getMessage());
+    } finally {
+      futures.forEach(f -> f.cancel(true));
     }
-    // in case all combinations were validated successfully
-    return true;
   }
 
   /**
@@ -70,6 +70,11 @@ public class ServerConfigImp implements org.ehrbase.api.definitions.ServerConfig
         aqlConfig.setUseJsQuery(b);
     }
 
+    @Override
+    public Integer getAqlStreamFetchSize() {
+        return aqlConfig.getStreamFetchSize();
+    }
+
     public AqlConfig getAqlConfig() {
         return aqlConfig;
     }
@@ -83,6 +88,7 @@ public class ServerConfigImp implements org.ehrbase.api.definitions.ServerConfig
         private Boolean useJsQuery;
         private String ignoreIterativeNodeList;
         private Integer iterationScanDepth = 1;
+        private Integer streamFetchSize = 1000;
 
         public Boolean getUseJsQuery() {
             return useJsQuery;
@@ -96,6 +102,10 @@ public class ServerConfigImp implements org.ehrbase.api.definitions.ServerConfig
             return iterationScanDepth;
         }
 
+        public Integer getStreamFetchSize() {
+            return streamFetchSize;
+        }
+
         public void setUseJsQuery(Boolean useJsQuery) {
             this.useJsQuery = useJsQuery;
         }
@@ -107,6 +117,10 @@ public class ServerConfigImp implements org.ehrbase.api.definitions.ServerConfig
         public void setIterationScanDepth(Integer iterationScanDepth) {
             this.iterationScanDepth = iterationScanDepth;
         }
+
+        public void setStreamFetchSize(Integer streamFetchSize) {
+            this.streamFetchSize = streamFetchSize;
+        }
     }
 
     @Override
@@ -16,8 +16,17 @@
 
 package org.ehrbase.application.config.cache;
 
+import java.time.Duration;
+import javax.cache.CacheManager;
+import org.ehcache.config.builders.CacheConfigurationBuilder;
+import org.ehcache.config.builders.ExpiryPolicyBuilder;
+import org.ehcache.config.builders.ResourcePoolsBuilder;
+import org.ehcache.jsr107.Eh107Configuration;
 import org.ehrbase.cache.CacheOptions;
+import org.ehrbase.dao.access.jooq.party.PartyIdCache;
 import org.ehrbase.service.KnowledgeCacheService;
+import org.springframework.boot.actuate.autoconfigure.health.ConditionalOnEnabledHealthIndicator;
+import org.springframework.boot.autoconfigure.cache.JCacheManagerCustomizer;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.boot.context.properties.EnableConfigurationProperties;
 import org.springframework.cache.annotation.EnableCaching;
@@ -40,12 +49,75 @@ public class CacheConfiguration {
     var options = new CacheOptions();
     options.setPreBuildQueries(properties.isPreBuildQueries());
     options.setPreBuildQueriesDepth(properties.getPreBuildQueriesDepth());
+    options.setSnapshotDirectory(properties.getSnapshotDirectory());
+    options.setTerminologyCacheRefreshAfter(properties.getTerminologyCacheRefreshAfter());
+    options.setStoredQueryReloadInterval(properties.getStoredQueryReloadInterval());
+    options.setTemplateRescanInterval(properties.getTemplateRescanInterval());
+    options.setFlatFormatCacheSize(properties.getFlatFormatCacheSize());
     return options;
   }
 
+  /**
+   * Creates the heap caches sized by the {@link CacheProperties}, next to the caches of
+   * <code>ehcache.xml</code>.
+   */
+  @Bean
+  public JCacheManagerCustomizer heapCachesCustomizer(CacheProperties properties) {
+    return cacheManager -> {
+      createHeapCache(cacheManager, CacheOptions.AQL_PLAN_CACHE, properties.getAqlPlanCacheSize(),
+          null);
+      createHeapCache(cacheManager, CacheOptions.OPERATIONAL_TEMPLATE_CACHE,
+          properties.getOperationalTemplateCacheSize(), null);
+      createHeapCache(cacheManager, CacheOptions.PARTY_ID_CACHE, properties.getPartyIdCacheSize(),
+          properties.getPartyIdCacheTtl());
+      createHeapCache(cacheManager, CacheOptions.EHR_ID_CACHE, properties.getEhrIdCacheSize(),
+          null);
+      // the responses are cached for a limited time only
+      Duration terminologyCacheTtl = properties.getTerminologyCacheTtl();
+      boolean terminologyCacheExpires = terminologyCacheTtl != null && !terminologyCacheTtl.isZero()
+          && !terminologyCacheTtl.isNegative();
+      createHeapCache(cacheManager, CacheOptions.TERMINOLOGY_CACHE,
+          terminologyCacheExpires ? properties.getTerminologyCacheSize() : 0, terminologyCacheTtl);
+    };
+  }
+
+  @Bean
+  public PartyIdCache partyIdCache(org.springframework.cache.CacheManager cacheManager) {
+    return new PartyIdCache(cacheManager);
+  }
+
+  /**
+   * Creates a cache holding its entries by reference on heap, with statistics enabled so that
+   * its hits and misses are published as <code>cache.*</code> metrics.
+   *
+   * @param size maximum number of entries, the cache is not created if not positive
+   * @param ttl  time to live of an entry, entries do not expire if null or zero
+   */
+  public static void createHeapCache(CacheManager cacheManager, String name, long size,
+      Duration ttl) {
+    if (size <= 0) {
+      return;
+    }
+
+    var configuration = CacheConfigurationBuilder.newCacheConfigurationBuilder(Object.class,
+        Object.class, ResourcePoolsBuilder.heap(size));
+    if (ttl != null && !ttl.isZero() && !ttl.isNegative()) {
+      configuration = configuration.withExpiry(ExpiryPolicyBuilder.timeToLiveExpiration(ttl));
+    }
+    cacheManager.createCache(name, Eh107Configuration.fromEhcacheCacheConfiguration(configuration));
+    cacheManager.enableStatistics(name, true);
+  }
+
   @Bean
   @ConditionalOnProperty(prefix = "cache", name = "init-on-startup", havingValue = "true")
   public CacheInitializer cacheInitializer(KnowledgeCacheService knowledgeCacheService) {
     return new CacheInitializer(knowledgeCacheService);
   }
+
+  @Bean
+  @ConditionalOnEnabledHealthIndicator("cacheWarmUp")
+  public CacheWarmUpHealthIndicator cacheWarmUpHealthIndicator(
+      KnowledgeCacheService knowledgeCacheService) {
+    return new CacheWarmUpHealthIndicator(knowledgeCacheService);
+  }
 }
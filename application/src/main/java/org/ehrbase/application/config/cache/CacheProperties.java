@@ -16,6 +16,7 @@
 
 package org.ehrbase.application.config.cache;
 
+import java.time.Duration;
 import org.springframework.boot.context.properties.ConfigurationProperties;
 
 /**
@@ -42,6 +43,72 @@ public class CacheProperties {
    */
   private Integer preBuildQueriesDepth = 4;
 
+  /**
+   * The maximum number of compiled AQL queries kept in memory, 0 disables the plan cache.
+   */
+  private int aqlPlanCacheSize = 1000;
+
+  /**
+   * The maximum number of parsed operational templates kept in memory, 0 disables the cache.
+   */
+  private int operationalTemplateCacheSize = 500;
+
+  /**
+   * The directory where the parsed templates are persisted to speed up restarts, not persisted if
+   * empty.
+   */
+  private String snapshotDirectory;
+
+  /**
+   * The maximum number of party, user and system ids kept in memory, 0 disables the cache.
+   */
+  private int partyIdCacheSize = 10000;
+
+  /**
+   * How long a party, user or system id is kept in memory. Kept until evicted if empty.
+   */
+  private Duration partyIdCacheTtl;
+
+  /**
+   * The maximum number of ids of existing EHRs kept in memory, 0 disables the cache.
+   */
+  private int ehrIdCacheSize = 100000;
+
+  /**
+   * The maximum number of terminology server responses (value set expansions, code validations)
+   * kept in memory, 0 disables the cache.
+   */
+  private int terminologyCacheSize = 1000;
+
+  /**
+   * How long a terminology server response is used before it is requested again.
+   */
+  private Duration terminologyCacheTtl = Duration.ofHours(1);
+
+  /**
+   * Age after which a used terminology server response is reloaded in the background, before it
+   * expires. Not reloaded if empty.
+   */
+  private Duration terminologyCacheRefreshAfter;
+
+  /**
+   * Interval in which the stored queries held in memory are reloaded from the DB, to pick up
+   * changes made through other instances. Not reloaded if empty.
+   */
+  private Duration storedQueryReloadInterval = Duration.ofMinutes(5);
+
+  /**
+   * Minimum interval in which a CONTAINS without a matching template lists the stored templates, to
+   * pick up templates uploaded through other instances. Listed on each such query if empty.
+   */
+  private Duration templateRescanInterval = Duration.ofSeconds(30);
+
+  /**
+   * The maximum number of templates and formats whose FLAT and STRUCTURED marshallers are kept in
+   * memory for reuse, 0 disables the cache.
+   */
+  private int flatFormatCacheSize = 1000;
+
   public boolean isInitOnStartup() {
     return initOnStartup;
   }
@@ -65,4 +132,100 @@ public class CacheProperties {
   public void setPreBuildQueriesDepth(Integer preBuildQueriesDepth) {
     this.preBuildQueriesDepth = preBuildQueriesDepth;
   }
+
+  public int getAqlPlanCacheSize() {
+    return aqlPlanCacheSize;
+  }
+
+  public void setAqlPlanCacheSize(int aqlPlanCacheSize) {
+    this.aqlPlanCacheSize = aqlPlanCacheSize;
+  }
+
+  public int getOperationalTemplateCacheSize() {
+    return operationalTemplateCacheSize;
+  }
+
+  public void setOperationalTemplateCacheSize(int operationalTemplateCacheSize) {
+    this.operationalTemplateCacheSize = operationalTemplateCacheSize;
+  }
+
+  public String getSnapshotDirectory() {
+    return snapshotDirectory;
+  }
+
+  public void setSnapshotDirectory(String snapshotDirectory) {
+    this.snapshotDirectory = snapshotDirectory;
+  }
+
+  public int getPartyIdCacheSize() {
+    return partyIdCacheSize;
+  }
+
+  public void setPartyIdCacheSize(int partyIdCacheSize) {
+    this.partyIdCacheSize = partyIdCacheSize;
+  }
+
+  public Duration getPartyIdCacheTtl() {
+    return partyIdCacheTtl;
+  }
+
+  public void setPartyIdCacheTtl(Duration partyIdCacheTtl) {
+    this.partyIdCacheTtl = partyIdCacheTtl;
+  }
+
+  public int getEhrIdCacheSize() {
+    return ehrIdCacheSize;
+  }
+
+  public void setEhrIdCacheSize(int ehrIdCacheSize) {
+    this.ehrIdCacheSize = ehrIdCacheSize;
+  }
+
+  public int getTerminologyCacheSize() {
+    return terminologyCacheSize;
+  }
+
+  public void setTerminologyCacheSize(int terminologyCacheSize) {
+    this.terminologyCacheSize = terminologyCacheSize;
+  }
+
+  public Duration getTerminologyCacheTtl() {
+    return terminologyCacheTtl;
+  }
+
+  public void setTerminologyCacheTtl(Duration terminologyCacheTtl) {
+    this.terminologyCacheTtl = terminologyCacheTtl;
+  }
+
+  public Duration getTerminologyCacheRefreshAfter() {
+    return terminologyCacheRefreshAfter;
+  }
+
+  public void setTerminologyCacheRefreshAfter(Duration terminologyCacheRefreshAfter) {
+    this.terminologyCacheRefreshAfter = terminologyCacheRefreshAfter;
+  }
+
+  public Duration getStoredQueryReloadInterval() {
+    return storedQueryReloadInterval;
+  }
+
+  public void setStoredQueryReloadInterval(Duration storedQueryReloadInterval) {
+    this.storedQueryReloadInterval = storedQueryReloadInterval;
+  }
+
+  public Duration getTemplateRescanInterval() {
+    return templateRescanInterval;
+  }
+
+  public void setTemplateRescanInterval(Duration templateRescanInterval) {
+    this.templateRescanInterval = templateRescanInterval;
+  }
+
+  public int getFlatFormatCacheSize() {
+    return flatFormatCacheSize;
+  }
+
+  public void setFlatFormatCacheSize(int flatFormatCacheSize) {
+    this.flatFormatCacheSize = flatFormatCacheSize;
+  }
 }
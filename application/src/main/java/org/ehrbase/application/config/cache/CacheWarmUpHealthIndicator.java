@@ -0,0 +1,57 @@
+/*
+ * Copyright 2022 vitasystems GmbH and Hannover Medical School.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.ehrbase.application.config.cache;
+
+import org.ehrbase.cache.CacheWarmUpProgress;
+import org.ehrbase.service.KnowledgeCacheService;
+import org.springframework.boot.actuate.health.AbstractHealthIndicator;
+import org.springframework.boot.actuate.health.Health;
+
+/**
+ * {@link org.springframework.boot.actuate.health.HealthIndicator} reporting the progress of the
+ * cache warm-up.
+ *
+ * <p>The application is OUT_OF_SERVICE while the templates are cached, and UP while queries are
+ * pre-built, the progress is given in the details. Only the progress is reported, the template
+ * store is covered by the health indicator of the DB.
+ */
+public class CacheWarmUpHealthIndicator extends AbstractHealthIndicator {
+
+  private final KnowledgeCacheService knowledgeCacheService;
+
+  public CacheWarmUpHealthIndicator(KnowledgeCacheService knowledgeCacheService) {
+    super("Cache warm-up health check failed");
+    this.knowledgeCacheService = knowledgeCacheService;
+  }
+
+  @Override
+  protected void doHealthCheck(Health.Builder builder) {
+    CacheWarmUpProgress progress = knowledgeCacheService.getWarmUpProgress();
+
+    builder.withDetail("state", progress.getState())
+        .withDetail("templates", progress.getTemplates())
+        .withDetail("cachedTemplates", progress.getCachedTemplates())
+        .withDetail("failedTemplates", progress.getFailedTemplates())
+        .withDetail("preBuiltTemplates", progress.getPreBuiltTemplates());
+
+    if (progress.getState() == CacheWarmUpProgress.State.CACHING_TEMPLATES) {
+      builder.outOfService();
+    } else {
+      builder.up();
+    }
+  }
+}
@@ -28,6 +28,8 @@ import org.apache.http.impl.client.BasicCredentialsProvider;
 import org.apache.http.impl.client.HttpClientBuilder;
 import org.apache.http.impl.client.HttpClients;
 import org.apache.http.ssl.SSLContextBuilder;
+import org.ehrbase.application.abac.AbacConfig;
+import org.springframework.beans.factory.ObjectProvider;
 import org.springframework.boot.context.properties.EnableConfigurationProperties;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
@@ -50,11 +52,18 @@ import java.security.cert.CertificateException;
 public class HttpClientConfiguration {
 
     @Bean
-    public HttpClient httpClient(HttpClientProperties properties) throws UnrecoverableKeyException, CertificateException,
-            NoSuchAlgorithmException, KeyStoreException, IOException, KeyManagementException {
+    public HttpClient httpClient(HttpClientProperties properties, ObjectProvider<AbacConfig> abacConfig)
+            throws UnrecoverableKeyException, CertificateException, NoSuchAlgorithmException, KeyStoreException,
+            IOException, KeyManagementException {
 
         HttpClientBuilder builder = HttpClients.custom();
 
+        // the ABAC checks of an operation are sent concurrently, the pool must not limit them to fewer connections
+        int abacRequests = abacConfig.stream().mapToInt(AbacConfig::getMaxParallelRequests).max().orElse(0);
+        int maxConnectionsPerRoute = Math.max(properties.getMaxConnectionsPerRoute(), abacRequests);
+        builder.setMaxConnPerRoute(maxConnectionsPerRoute);
+        builder.setMaxConnTotal(Math.max(properties.getMaxConnectionsTotal(), maxConnectionsPerRoute));
+
         if (properties.getSsl().isEnabled()) {
             builder.setSSLContext(buildSSLContext(properties.getSsl()));
             builder.setSSLHostnameVerifier(NoopHostnameVerifier.INSTANCE);
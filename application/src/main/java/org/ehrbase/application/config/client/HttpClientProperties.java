@@ -29,6 +29,17 @@ public class HttpClientProperties {
 
     private final Ssl ssl = new Ssl();
 
+    /**
+     * Maximum number of pooled connections to one server (route), raised to the number of concurrent ABAC requests
+     * if lower.
+     */
+    private int maxConnectionsPerRoute = 20;
+
+    /**
+     * Maximum number of pooled connections to all servers.
+     */
+    private int maxConnectionsTotal = 50;
+
     public Proxy getProxy() {
         return proxy;
     }
@@ -37,6 +48,22 @@ public class HttpClientProperties {
         return ssl;
     }
 
+    public int getMaxConnectionsPerRoute() {
+        return maxConnectionsPerRoute;
+    }
+
+    public void setMaxConnectionsPerRoute(int maxConnectionsPerRoute) {
+        this.maxConnectionsPerRoute = maxConnectionsPerRoute;
+    }
+
+    public int getMaxConnectionsTotal() {
+        return maxConnectionsTotal;
+    }
+
+    public void setMaxConnectionsTotal(int maxConnectionsTotal) {
+        this.maxConnectionsTotal = maxConnectionsTotal;
+    }
+
     public static class Proxy {
 
         private String host;
@@ -0,0 +1,118 @@
+/*
+ * Copyright (c) 2022 Vitasystems GmbH and Hannover Medical School.
+ *
+ * This file is part of project EHRbase
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.ehrbase.application.abac;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.sun.net.httpserver.HttpServer;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.time.Duration;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicInteger;
+import javax.cache.Caching;
+import org.apache.http.impl.client.CloseableHttpClient;
+import org.apache.http.impl.client.HttpClients;
+import org.ehcache.jsr107.EhcacheCachingProvider;
+import org.ehrbase.application.abac.AbacConfig.AbacCheck;
+import org.ehrbase.application.config.cache.CacheConfiguration;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.cache.Cache;
+import org.springframework.cache.jcache.JCacheCacheManager;
+
+/**
+ * Runs {@link AbacCheck} against a local stub policy server, which allows every template but
+ * "denied" and counts the requests.
+ */
+class AbacCheckTest {
+
+  private HttpServer server;
+  private CloseableHttpClient httpClient;
+  private final AtomicInteger requestCount = new AtomicInteger();
+  private String url;
+  private javax.cache.CacheManager cacheManager;
+
+  @BeforeEach
+  void setUp() throws IOException {
+    server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+    server.createContext("/policy/has_consent_template", exchange -> {
+      requestCount.incrementAndGet();
+      String body = new String(exchange.getRequestBody().readAllBytes());
+      exchange.sendResponseHeaders(body.contains("\"denied\"") ? 403 : 200, -1);
+      exchange.close();
+    });
+    server.start();
+    httpClient = HttpClients.createDefault();
+    url = "http://localhost:" + server.getAddress().getPort() + "/policy/has_consent_template";
+    cacheManager = Caching.getCachingProvider(EhcacheCachingProvider.class.getName())
+        .getCacheManager(URI.create("urn:abac-check-test:" + UUID.randomUUID()),
+            getClass().getClassLoader());
+  }
+
+  @AfterEach
+  void tearDown() throws IOException {
+    cacheManager.close();
+    httpClient.close();
+    server.stop(0);
+  }
+
+  private Cache decisionCache(Duration ttl) {
+    CacheConfiguration.createHeapCache(cacheManager, AbacConfig.DECISION_CACHE, 100, ttl);
+    return new JCacheCacheManager(cacheManager).getCache(AbacConfig.DECISION_CACHE);
+  }
+
+  @Test
+  void cachesDecisions() throws IOException {
+    AbacCheck cut = new AbacCheck(httpClient, decisionCache(Duration.ofMinutes(1)));
+
+    assertTrue(cut.execute(url, Map.of("patient", "p1", "template", "t1")));
+    assertTrue(cut.execute(url, Map.of("patient", "p1", "template", "t1")));
+    assertFalse(cut.execute(url, Map.of("patient", "p1", "template", "denied")));
+    assertFalse(cut.execute(url, Map.of("patient", "p1", "template", "denied")));
+    assertEquals(2, requestCount.get());
+
+    assertTrue(cut.execute(url, Map.of("patient", "p2", "template", "t1")));
+    assertEquals(3, requestCount.get());
+  }
+
+  @Test
+  void cacheDisabled() throws IOException {
+    AbacCheck cut = new AbacCheck(httpClient);
+
+    assertTrue(cut.execute(url, Map.of("patient", "p1", "template", "t1")));
+    assertTrue(cut.execute(url, Map.of("patient", "p1", "template", "t1")));
+    assertEquals(2, requestCount.get());
+  }
+
+  @Test
+  void decisionsExpire() throws IOException, InterruptedException {
+    AbacCheck cut = new AbacCheck(httpClient, decisionCache(Duration.ofMillis(50)));
+
+    assertTrue(cut.execute(url, Map.of("patient", "p1", "template", "t1")));
+    Thread.sleep(100);
+    assertTrue(cut.execute(url, Map.of("patient", "p1", "template", "t1")));
+    assertEquals(2, requestCount.get());
+  }
+}
@@ -0,0 +1,88 @@
+/*
+ * Copyright 2022 vitasystems GmbH and Hannover Medical School.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.ehrbase.application.config.cache;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import org.ehrbase.cache.CacheWarmUpProgress;
+import org.ehrbase.service.KnowledgeCacheService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.actuate.health.Health;
+import org.springframework.boot.actuate.health.Status;
+
+class CacheWarmUpHealthIndicatorTest {
+
+  private final KnowledgeCacheService knowledgeCacheService = mock(KnowledgeCacheService.class);
+
+  private final CacheWarmUpProgress progress = new CacheWarmUpProgress();
+
+  private final CacheWarmUpHealthIndicator cut =
+      new CacheWarmUpHealthIndicator(knowledgeCacheService);
+
+  @BeforeEach
+  void setUp() {
+    when(knowledgeCacheService.getWarmUpProgress()).thenReturn(progress);
+  }
+
+  @Test
+  void outOfServiceWhileCachingTemplates() {
+    progress.start(2);
+    progress.templateCached();
+
+    Health health = cut.health();
+
+    assertEquals(Status.OUT_OF_SERVICE, health.getStatus());
+    assertEquals(1, health.getDetails().get("cachedTemplates"));
+  }
+
+  @Test
+  void upWhilePreBuildingQueries() {
+    progress.start(2);
+    progress.templateCached();
+    progress.templateCached();
+    progress.setState(CacheWarmUpProgress.State.PRE_BUILDING_QUERIES);
+
+    Health health = cut.health();
+
+    assertEquals(Status.UP, health.getStatus());
+    assertEquals(2, health.getDetails().get("cachedTemplates"));
+  }
+
+  @Test
+  void upWithoutWarmUp() {
+    assertEquals(Status.UP, cut.health().getStatus());
+  }
+
+  @Test
+  void upWhenReady() {
+    progress.start(1);
+    progress.templateFailed();
+    progress.setState(CacheWarmUpProgress.State.READY);
+
+    Health health = cut.health();
+
+    // a template that could not be cached does not take the application out of service
+    assertEquals(Status.UP, health.getStatus());
+    assertEquals(1, health.getDetails().get("failedTemplates"));
+    verify(knowledgeCacheService, never()).getAllTemplateIds();
+  }
+}
@@ -0,0 +1,8 @@
+-- Look up the versions of an object by (id, sys_transaction): the version number of a history row is its position by
+-- sys_transaction, and the entries, event context and participations of a composition version share its sys_transaction
+CREATE INDEX IF NOT EXISTS composition_history_version_idx ON ehr.composition_history (id, sys_transaction);
+CREATE INDEX IF NOT EXISTS entry_history_version_idx ON ehr.entry_history (composition_id, sys_transaction);
+CREATE INDEX IF NOT EXISTS event_context_history_version_idx ON ehr.event_context_history (composition_id, sys_transaction);
+CREATE INDEX IF NOT EXISTS participation_history_version_idx ON ehr.participation_history (event_context, sys_transaction);
+CREATE INDEX IF NOT EXISTS folder_history_version_idx ON ehr.folder_history (id, sys_transaction);
+CREATE INDEX IF NOT EXISTS status_history_version_idx ON ehr.status_history (id, sys_transaction);
@@ -0,0 +1,54 @@
+-- Materialize the version number of a composition, so that the current version is read from the row instead of
+-- counting its history rows (see c/uid/value in AQL and CompositionAccess.getLastVersionNumber)
+ALTER TABLE ehr.composition
+    ADD COLUMN version INTEGER NOT NULL DEFAULT 1;
+
+ALTER TABLE ehr.composition_history
+    ADD COLUMN version INTEGER NOT NULL DEFAULT 1;
+
+-- the version of a history row is its position by sys_transaction
+UPDATE ehr.composition_history h
+SET version = v.version
+FROM (SELECT ctid,
+             row_number() OVER (PARTITION BY id ORDER BY sys_transaction) AS version
+      FROM ehr.composition_history) v
+WHERE h.ctid = v.ctid
+  AND v.version > 1;
+
+-- the backfill must not create history rows
+ALTER TABLE ehr.composition DISABLE TRIGGER versioning_trigger;
+
+UPDATE ehr.composition c
+SET version = 1 + h.versions
+FROM (SELECT id, count(*) AS versions FROM ehr.composition_history GROUP BY id) h
+WHERE c.id = h.id;
+
+ALTER TABLE ehr.composition ENABLE TRIGGER versioning_trigger;
+
+-- every update moves the old row to the history (versioning_trigger), hence adds a version
+CREATE OR REPLACE FUNCTION ehr.composition_version()
+    RETURNS TRIGGER AS
+$$
+BEGIN
+    NEW.version := OLD.version + 1;
+    RETURN NEW;
+END
+$$
+    LANGUAGE plpgsql;
+
+CREATE TRIGGER composition_version_trigger
+    BEFORE UPDATE
+    ON ehr.composition
+    FOR EACH ROW
+EXECUTE PROCEDURE ehr.composition_version();
+
+CREATE OR REPLACE FUNCTION ehr.composition_uid(composition_uid UUID, server_id TEXT)
+    RETURNS TEXT AS
+$$
+BEGIN
+    RETURN (SELECT composition.id || '::' || server_id || '::' || composition.version
+            FROM ehr.composition
+            WHERE composition.id = composition_uid);
+END
+$$
+    LANGUAGE plpgsql;
@@ -47,6 +47,7 @@ public class QueryController extends BaseController {
 
     @PostMapping
     public ResponseEntity<QueryResponseData> query(@RequestParam(value = "explain", defaultValue = "false") Boolean explain,
+                                                   @RequestParam(value = "analyze", defaultValue = "false") Boolean analyze,
                                                    @RequestBody() String content) {
 
         Map<String, String> kvPairs = extractQuery(new String(content.getBytes()));
@@ -62,7 +63,7 @@ public class QueryController extends BaseController {
         } else {
             throw new InvalidApiParameterException("No query parameter supplied");
         }
-        QueryResponseData responseData = new QueryResponseData(queryService.query(queryString, queryMode, explain));
+        QueryResponseData responseData = new QueryResponseData(queryService.query(queryString, null, queryMode, explain, analyze));
         responseData.setAction(Action.EXECUTE);
         return ResponseEntity.ok(responseData);
     }
@@ -28,6 +28,8 @@ public class AdminApiConfiguration {
 
     private boolean allowDeleteAll;
 
+    private int importBatchSize = 100;
+
     public boolean getActive() {
         return this.active;
     }
@@ -43,4 +45,12 @@ public class AdminApiConfiguration {
     public void setAllowDeleteAll(boolean allowDeleteAll) {
         this.allowDeleteAll = allowDeleteAll;
     }
+
+    public int getImportBatchSize() {
+        return this.importBatchSize;
+    }
+
+    public void setImportBatchSize(int importBatchSize) {
+        this.importBatchSize = importBatchSize;
+    }
 }
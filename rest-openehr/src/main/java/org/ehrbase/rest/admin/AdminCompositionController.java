@@ -17,12 +17,14 @@
  */
 package org.ehrbase.rest.admin;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
 import io.swagger.v3.oas.annotations.Parameter;
 import io.swagger.v3.oas.annotations.headers.Header;
 import io.swagger.v3.oas.annotations.media.Schema;
 import io.swagger.v3.oas.annotations.responses.ApiResponse;
 import io.swagger.v3.oas.annotations.responses.ApiResponses;
 import io.swagger.v3.oas.annotations.tags.Tag;
+import org.ehrbase.api.exception.InvalidApiParameterException;
 import org.ehrbase.api.exception.ObjectNotFoundException;
 import org.ehrbase.api.service.CompositionService;
 import org.ehrbase.api.service.EhrService;
@@ -34,14 +36,25 @@ import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.DeleteMapping;
 import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
 import java.util.Objects;
+import java.util.Optional;
 import java.util.UUID;
 
 /**
- * Admin API controller for Composition related data. Provides endpoint to remove compositions physically from database.
+ * Admin API controller for Composition related data. Provides endpoints to remove compositions physically from database
+ * and to import compositions in bulk.
  */
 @Tag(name = "Admin - Composition")
 @ConditionalOnProperty(prefix = "admin-api", name = "active")
@@ -49,13 +62,73 @@ import java.util.UUID;
 @RequestMapping(path = "${admin-api.context-path:/rest/admin}/ehr", produces = {MediaType.APPLICATION_JSON_VALUE, MediaType.APPLICATION_XML_VALUE})
 public class AdminCompositionController extends BaseController {
 
+    private static final String APPLICATION_NDJSON = "application/x-ndjson";
+
     private final EhrService ehrService;
     private final CompositionService compositionService;
+    private final AdminApiConfiguration adminApiConfiguration;
+    private final ObjectMapper objectMapper;
 
     @Autowired
-    public AdminCompositionController(EhrService ehrService, CompositionService compositionService) {
+    public AdminCompositionController(EhrService ehrService, CompositionService compositionService,
+                                      AdminApiConfiguration adminApiConfiguration, ObjectMapper objectMapper) {
         this.ehrService = Objects.requireNonNull(ehrService);
         this.compositionService = Objects.requireNonNull(compositionService);
+        this.adminApiConfiguration = Objects.requireNonNull(adminApiConfiguration);
+        this.objectMapper = Objects.requireNonNull(objectMapper);
+    }
+
+    @PostMapping(path = "/composition/import", consumes = {APPLICATION_NDJSON, MediaType.TEXT_PLAIN_VALUE},
+            produces = APPLICATION_NDJSON)
+    @ApiResponses(value = {
+            @ApiResponse(
+                    responseCode = "200",
+                    description = "Import is processed, the body holds the result of each line, one JSON object per line "
+                            + "written as soon as the line has been stored.",
+                    headers = {
+                            @Header(
+                                    name = CONTENT_TYPE,
+                                    description = RESP_CONTENT_TYPE_DESC,
+                                    schema = @Schema(implementation = MediaType.class)
+                            )
+                    }
+            ),
+            @ApiResponse(
+                    responseCode = "400",
+                    description = "Batch size is invalid."
+            ),
+            @ApiResponse(
+                    responseCode = "401",
+                    description = "Client credentials are invalid or have been expired."
+            ),
+            @ApiResponse(
+                    responseCode = "403",
+                    description = "Client has not permission to access this resource since admin role is missing."
+            )
+    })
+    public ResponseEntity<StreamingResponseBody> importCompositions(
+            @Parameter(description = "Number of compositions written per transaction, defaults to admin-api.import-batch-size")
+            @RequestParam(value = "batch_size", required = false)
+                    Integer batchSize,
+            @Parameter(description = "One JSON object per line, holding the target ehr_id and the composition in canonical JSON", required = true)
+                    InputStream body
+    ) {
+        int size = Optional.ofNullable(batchSize).orElse(adminApiConfiguration.getImportBatchSize());
+        if (size < 1) {
+            throw new InvalidApiParameterException("Batch size must be at least 1, but was " + size);
+        }
+        var reader = new BufferedReader(new InputStreamReader(body, StandardCharsets.UTF_8));
+
+        StreamingResponseBody results = outputStream -> compositionService.importCompositions(reader, size, result -> {
+            try {
+                outputStream.write(objectMapper.writeValueAsBytes(result));
+                outputStream.write('\n');
+                outputStream.flush();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        });
+        return ResponseEntity.ok().contentType(MediaType.parseMediaType(APPLICATION_NDJSON)).body(results);
     }
 
     @DeleteMapping(path = "/{ehr_id}/composition/{composition_id}")
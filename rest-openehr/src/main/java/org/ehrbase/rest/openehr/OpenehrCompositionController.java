@@ -106,11 +106,10 @@ public class OpenehrCompositionController extends BaseController implements
 
     var compoObj = compositionService.buildComposition(composition, compositionFormat, null);
 
-    Optional<CompositionDto> optionalCompositionDto = compositionService.create(ehrId, compoObj);
+    CompositionDto compositionDto = compositionService.create(ehrId, compoObj)
+        .orElseThrow(() -> new InternalServerException("Failed to create composition"));
 
-    var compositionUuid = optionalCompositionDto.orElseThrow(() ->
-            new InternalServerException("Failed to create composition"))
-        .getUuid();
+    var compositionUuid = compositionDto.getUuid();
 
     var uri = URI.create(this.encodePath(
         getBaseEnvLinkURL() + "/rest/openehr/v1/ehr/" + ehrId.toString() + "/composition/"
@@ -123,10 +122,10 @@ public class OpenehrCompositionController extends BaseController implements
 
     if (Optional.ofNullable(prefer).map(i -> i.equals(RETURN_REPRESENTATION))
         .orElse(false)) {      // null safe way to test prefer header
-      respData = buildCompositionResponseData(compositionUuid, 0, accept, uri, headerList,
+      respData = buildCompositionResponseData(compositionDto, accept, uri, headerList,
           () -> new CompositionResponseData(null, null));
     } else {    // "minimal" is default fallback
-      respData = buildCompositionResponseData(compositionUuid, 0, accept, uri, headerList,
+      respData = buildCompositionResponseData(compositionDto, accept, uri, headerList,
           () -> null);
     }
 
@@ -419,6 +418,32 @@ public class OpenehrCompositionController extends BaseController implements
   private <T extends CompositionResponseData> Optional<InternalResponse<T>> buildCompositionResponseData(
       UUID compositionId, Integer version, String accept, URI uri, List<String> headerList,
       Supplier<T> factory) {
+    return buildCompositionResponseData(compositionId, version, null, accept, uri, headerList,
+        factory);
+  }
+
+  /**
+   * Builder method to prepare the HTTP response of a newly created composition, without reading it
+   * back from the database.
+   *
+   * @param <T>         Type of the response body
+   * @param created     The created composition, in its first version
+   * @param accept      Format the response should be delivered in, as given by request
+   * @param uri         Location of resource
+   * @param headerList  List of headers to be set for response
+   * @param factory     Lambda function to constructor of desired object
+   * @return
+   */
+  private <T extends CompositionResponseData> Optional<InternalResponse<T>> buildCompositionResponseData(
+      CompositionDto created, String accept, URI uri, List<String> headerList,
+      Supplier<T> factory) {
+    return buildCompositionResponseData(created.getUuid(), 1, created, accept, uri, headerList,
+        factory);
+  }
+
+  private <T extends CompositionResponseData> Optional<InternalResponse<T>> buildCompositionResponseData(
+      UUID compositionId, Integer version, CompositionDto created, String accept, URI uri,
+      List<String> headerList, Supplier<T> factory) {
     // create either CompositionResponseData or null (means no body, only headers incl. link to resource), via lambda request
     T minimalOrRepresentation = factory.get();
 
@@ -433,7 +458,8 @@ public class OpenehrCompositionController extends BaseController implements
         case ETAG:
           respHeaders.setETag(
               "\"" + compositionId + "::" + compositionService.getServerConfig().getNodename()
-                  + "::" + compositionService.getLastVersionNumber(compositionId) + "\"");
+                  + "::" + (created != null ? version
+                  : compositionService.getLastVersionNumber(compositionId)) + "\"");
           break;
         case LAST_MODIFIED:
           // TODO should be VERSION.commit_audit.time_committed.value which is not implemented yet - mock for now
@@ -458,8 +484,8 @@ public class OpenehrCompositionController extends BaseController implements
         versionNumber = compositionService.getLastVersionNumber(compositionId);
       }
 
-      Optional<CompositionDto> compositionDto = compositionService.retrieve(compositionId,
-          versionNumber);
+      Optional<CompositionDto> compositionDto = created != null ? Optional.of(created)
+          : compositionService.retrieve(compositionId, versionNumber);
       // TODO how to handle error situation here only with Optional? is there a better way without java 9 Optional.ifPresentOrElse()?
       if (compositionDto.isPresent()) {
         StructuredString ss = compositionService.serialize(compositionDto.get(), format);
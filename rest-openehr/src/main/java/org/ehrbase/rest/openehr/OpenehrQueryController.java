@@ -16,23 +16,35 @@
 
 package org.ehrbase.rest.openehr;
 
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.text.MessageFormat;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import javax.servlet.http.HttpServletRequest;
+import org.ehrbase.api.definitions.QueryCountMode;
 import org.ehrbase.api.definitions.QueryMode;
 import org.ehrbase.api.exception.InvalidApiParameterException;
 import org.ehrbase.api.exception.ObjectNotFoundException;
+import org.ehrbase.api.service.QueryResultConsumer;
 import org.ehrbase.api.service.QueryService;
 import org.ehrbase.response.ehrscape.QueryDefinitionResultDto;
+import org.ehrbase.response.ehrscape.StructuredString;
 import org.ehrbase.response.openehr.QueryResponseData;
 import org.ehrbase.rest.BaseController;
 import org.ehrbase.rest.openehr.audit.OpenEhrAuditInterceptor;
 import org.ehrbase.rest.openehr.audit.QueryAuditInterceptor;
+import org.ehrbase.rest.openehr.responsedata.QueryAnalyzeResponseData;
+import org.ehrbase.rest.openehr.responsedata.QueryPageResponseData;
 import org.ehrbase.rest.openehr.specification.QueryApiSpecification;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PostAuthorize;
 import org.springframework.util.CollectionUtils;
@@ -44,6 +56,7 @@ import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 /**
  * Controller for openEHR REST API QUERY resource.
@@ -60,13 +73,22 @@ public class OpenehrQueryController extends BaseController
   private static final String EHR_ID_VALUE = "ehr_id/value";
   private static final String LATEST = "LATEST";
   private static final String QUERY_PARAMETERS = "query_parameters";
+  private static final String CONTINUATION_TOKEN = "continuation_token";
+  private static final String COUNT = "count";
+  private static final String ANALYZE = "analyze";
 
   private final Logger logger = LoggerFactory.getLogger(getClass());
 
   private final QueryService queryService;
 
-  public OpenehrQueryController(QueryService queryService) {
+  private final ObjectMapper objectMapper;
+
+  @Value("${abac.enabled:false}")
+  private boolean abacEnabled;
+
+  public OpenehrQueryController(QueryService queryService, ObjectMapper objectMapper) {
     this.queryService = queryService;
+    this.objectMapper = objectMapper;
   }
 
   /**
@@ -80,6 +102,9 @@ public class OpenehrQueryController extends BaseController
       @RequestParam(name = "offset", required = false) Integer offset,
       @RequestParam(name = "fetch", required = false) Integer fetch,
       @RequestParam(name = "query_parameters", required = false) Map<String, Object> queryParameters,
+      @RequestParam(name = CONTINUATION_TOKEN, required = false) String continuationToken,
+      @RequestParam(name = COUNT, required = false) String count,
+      @RequestParam(name = ANALYZE, defaultValue = "false") boolean analyze,
       @RequestHeader(name = ACCEPT, required = false) String accept,
       HttpServletRequest request) {
 
@@ -95,7 +120,7 @@ public class OpenehrQueryController extends BaseController
     // Enriches request attributes with aql for later audit processing
     request.setAttribute(QueryAuditInterceptor.QUERY_ATTRIBUTE, query);
 
-    var body = executeQuery(query, queryParameters, request);
+    var body = executeQuery(query, queryParameters, continuationToken, count, analyze, request);
 
     if (!CollectionUtils.isEmpty(body.getRows())) {
       return ResponseEntity.ok(body);
@@ -130,7 +155,8 @@ public class OpenehrQueryController extends BaseController
 
     Map<String, Object> parameters = (Map<String, Object>) queryRequest.get(QUERY_PARAMETERS);
 
-    var body = executeQuery(aql, parameters, request);
+    var body = executeQuery(aql, parameters, (String) queryRequest.get(CONTINUATION_TOKEN),
+        (String) queryRequest.get(COUNT), isAnalyze(queryRequest), request);
     return ResponseEntity.ok(body);
   }
 
@@ -146,6 +172,9 @@ public class OpenehrQueryController extends BaseController
       @RequestParam(name = "offset", required = false) Integer offset,
       @RequestParam(name = "fetch", required = false) Integer fetch,
       @RequestParam(name = "query_parameters", required = false) Map<String, Object> queryParameter,
+      @RequestParam(name = CONTINUATION_TOKEN, required = false) String continuationToken,
+      @RequestParam(name = COUNT, required = false) String count,
+      @RequestParam(name = ANALYZE, defaultValue = "false") boolean analyze,
       @RequestHeader(name = ACCEPT, required = false) String accept,
       HttpServletRequest request) {
 
@@ -173,7 +202,8 @@ public class OpenehrQueryController extends BaseController
       query = withOffset(query, offset);
     }
 
-    QueryResponseData queryResponseData = invoke(query, queryParameter, request);
+    QueryResponseData queryResponseData = executeQuery(query, queryParameter, continuationToken,
+        count, analyze, request);
     queryResponseData.setName(queryDefinitionResultDto.getQualifiedName() + "/"
         + queryDefinitionResultDto.getVersion());
     return ResponseEntity.ok(queryResponseData);
@@ -217,28 +247,207 @@ public class OpenehrQueryController extends BaseController
     //retrieve the parameter from body
     //get the query and parameters if any
     Map<String, Object> queryParameter = null;
+    String continuationToken = null;
+    String count = null;
+    boolean analyze = false;
 
     if (queryRequest != null && !queryRequest.isEmpty()) {
       queryParameter = (Map<String, Object>) queryRequest.get(QUERY_PARAMETERS);
+      continuationToken = (String) queryRequest.get(CONTINUATION_TOKEN);
+      count = (String) queryRequest.get(COUNT);
+      analyze = isAnalyze(queryRequest);
 
       query = withOffsetLimit(query, queryRequest);
 
     }
-    QueryResponseData queryResponseData = invoke(query, queryParameter, request);
+    QueryResponseData queryResponseData = executeQuery(query, queryParameter, continuationToken,
+        count, analyze, request);
 
     queryResponseData.setName(queryDefinitionResultDto.getQualifiedName() + "/"
         + queryDefinitionResultDto.getVersion());
     return ResponseEntity.ok(queryResponseData);
   }
 
-  private QueryResponseData executeQuery(String aql, Map<String, Object> parameters,
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  @GetMapping(path = "/aql/stream")
+  public ResponseEntity<StreamingResponseBody> executeAdHocQueryStream(
+      @RequestParam(name = "q") String query,
+      @RequestParam(name = "offset", required = false) Integer offset,
+      @RequestParam(name = "fetch", required = false) Integer fetch,
+      @RequestParam(name = "query_parameters", required = false) Map<String, Object> queryParameters,
+      @RequestHeader(name = ACCEPT, required = false) String accept,
+      HttpServletRequest request) {
+
+    if (fetch != null) {
+      query = withFetch(query, fetch);
+    }
+
+    if (offset != null) {
+      query = withOffset(query, offset);
+    }
+
+    request.setAttribute(QueryAuditInterceptor.QUERY_ATTRIBUTE, query);
+
+    return ResponseEntity.ok()
+        .contentType(MediaType.APPLICATION_JSON)
+        .body(streamQuery(query, queryParameters, request));
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  @PostMapping(path = "/aql/stream")
+  @SuppressWarnings("unchecked")
+  public ResponseEntity<StreamingResponseBody> executeAdHocQueryStream(
+      @RequestBody Map<String, Object> queryRequest,
+      @RequestHeader(name = ACCEPT, required = false) String accept,
+      @RequestHeader(name = CONTENT_TYPE) String contentType,
+      HttpServletRequest request) {
+
+    String aql = (String) queryRequest.get("q");
+    if (aql == null) {
+      throw new InvalidApiParameterException("No aql query provided");
+    }
+
+    aql = withOffsetLimit(aql, queryRequest);
+    request.setAttribute(QueryAuditInterceptor.QUERY_ATTRIBUTE, aql);
+
+    Map<String, Object> parameters = (Map<String, Object>) queryRequest.get(QUERY_PARAMETERS);
+
+    return ResponseEntity.ok()
+        .contentType(MediaType.APPLICATION_JSON)
+        .body(streamQuery(aql, parameters, request));
+  }
+
+  /**
+   * Writes the result in the same layout as {@link QueryResponseData}, row by row as the records
+   * are read from the database.
+   * <p>
+   * The status is sent with the first rows: when the query fails afterwards, the JSON is left
+   * unterminated and the exception is rethrown to abort the response, so that a partial result
+   * cannot be taken for the whole result.
+   */
+  private StreamingResponseBody streamQuery(String aql, Map<String, Object> parameters,
       HttpServletRequest request) {
+    // results are written before a post authorization could take place
+    if (abacEnabled) {
+      throw new InvalidApiParameterException(
+          "Streamed query results are not available when ABAC is enabled");
+    }
+
+    return outputStream -> {
+      // not closed on failure, closing would terminate the JSON
+      JsonGenerator generator = objectMapper.getFactory().createGenerator(outputStream);
+      StreamedResult result = new StreamedResult(generator);
+
+      generator.writeStartObject();
+      generator.writeStringField("q", aql);
+
+      queryService.queryStream(aql, parameters, result);
+
+      generator.writeEndArray();
+      generator.writeEndObject();
+      generator.close();
+
+      // Enriches request attributes with EhrId(s) for later audit processing
+      request.setAttribute(OpenEhrAuditInterceptor.EHR_ID_ATTRIBUTE,
+          result.auditResultMap.get(EHR_ID_VALUE));
+    };
+  }
+
+  /**
+   * Writes the columns and rows of a streamed result, and keeps the audit data of this request.
+   */
+  private static class StreamedResult implements QueryResultConsumer {
+
+    private final JsonGenerator generator;
+    private Map<String, Set<Object>> auditResultMap = Map.of();
+
+    private StreamedResult(JsonGenerator generator) {
+      this.generator = generator;
+    }
+
+    @Override
+    public void columns(Map<String, String> variables) {
+      try {
+        generator.writeArrayFieldStart("columns");
+        for (Map.Entry<String, String> variable : variables.entrySet()) {
+          generator.writeStartObject();
+          generator.writeStringField("name", variable.getKey());
+          generator.writeStringField("path", variable.getValue());
+          generator.writeEndObject();
+        }
+        generator.writeEndArray();
+        generator.writeArrayFieldStart("rows");
+      } catch (IOException e) {
+        throw new UncheckedIOException(e);
+      }
+    }
+
+    @Override
+    public void row(List<Object> values) {
+      try {
+        generator.writeStartArray();
+        for (Object value : values) {
+          if (value instanceof StructuredString) {
+            generator.writeRawValue(((StructuredString) value).getValue());
+          } else {
+            generator.writeObject(value);
+          }
+        }
+        generator.writeEndArray();
+      } catch (IOException e) {
+        throw new UncheckedIOException(e);
+      }
+    }
+
+    @Override
+    public void completed(Map<String, Set<Object>> auditResultMap) {
+      this.auditResultMap = auditResultMap;
+    }
+  }
+
+  private static boolean isAnalyze(Map<String, Object> queryRequest) {
+    return Boolean.parseBoolean(String.valueOf(queryRequest.get(ANALYZE)));
+  }
+
+  /**
+   * Executes the query, or the page of the query following the continuation token when a token or
+   * a total count is requested.
+   *
+   * @param analyze if true, the result also contains the SQL, the PostgreSQL plan and the duration
+   *                of each processing phase, see {@link QueryAnalyzeResponseData}
+   */
+  private QueryResponseData executeQuery(String aql, Map<String, Object> parameters,
+      String continuationToken, String count, boolean analyze, HttpServletRequest request) {
     QueryResponseData queryResponseData;
 
+    QueryCountMode countMode;
+    try {
+      countMode = QueryCountMode.fromValue(count);
+    } catch (IllegalArgumentException e) {
+      throw new InvalidApiParameterException(e.getMessage());
+    }
+
+    if (analyze && (continuationToken != null || countMode != QueryCountMode.NONE)) {
+      throw new InvalidApiParameterException(
+          "analyze cannot be combined with continuation_token or count");
+    }
+
     //get the query and pass it to the service
-    if (parameters != null && !parameters.isEmpty()) {
+    if (analyze) {
+      queryResponseData = new QueryAnalyzeResponseData(queryService.query(aql,
+          parameters != null ? new HashMap<>(parameters) : null, QueryMode.AQL, true, true));
+    } else if (continuationToken != null || countMode != QueryCountMode.NONE) {
+      queryResponseData = new QueryPageResponseData(
+          queryService.queryPage(aql, parameters, continuationToken, countMode));
+    } else if (parameters != null && !parameters.isEmpty()) {
       queryResponseData = new QueryResponseData(
-          queryService.query(aql, parameters, QueryMode.AQL, false));
+          queryService.query(aql, new HashMap<>(parameters), QueryMode.AQL, false));
     } else {
       queryResponseData = new QueryResponseData(
           queryService.query(aql, QueryMode.AQL, false));
@@ -294,27 +503,6 @@ public class OpenehrQueryController extends BaseController
     return (Double.valueOf(value)).intValue();
   }
 
-  private QueryResponseData invoke(String query, Map<String, Object> queryParameter,
-      HttpServletRequest request) {
-    QueryResponseData queryResponseData;
-
-    if (queryParameter != null && !queryParameter.isEmpty()) {
-      Map<String, Object> parameters = new HashMap<>(queryParameter);
-      queryResponseData = new QueryResponseData(
-          queryService.query(query, parameters, QueryMode.AQL, false));
-    } else {
-      queryResponseData = new QueryResponseData(
-          queryService.query(query, QueryMode.AQL, false));
-    }
-
-    // Enriches request attributes with EhrId(s) for later audit processing
-    Map<String, Set<Object>> auditResultMap = queryService.getAuditResultMap();
-    request.setAttribute(OpenEhrAuditInterceptor.EHR_ID_ATTRIBUTE,
-        auditResultMap.get(EHR_ID_VALUE));
-
-    return queryResponseData;
-  }
-
   String withOffsetLimit(String query, Map<String, Object> mapped) {
     if (mapped.containsKey("fetch")) {
       //append LIMIT clause to aql
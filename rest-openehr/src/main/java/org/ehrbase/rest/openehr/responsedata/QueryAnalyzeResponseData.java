@@ -0,0 +1,45 @@
+/*
+ * Copyright (c) 2022 Vitasystems GmbH and Hannover Medical School.
+ *
+ * This file is part of project EHRbase
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.ehrbase.rest.openehr.responsedata;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+import java.util.List;
+import org.ehrbase.response.ehrscape.QueryResultDto;
+import org.ehrbase.response.openehr.QueryResponseData;
+
+/**
+ * {@link QueryResponseData} of a query executed in analyze mode, with the SQL and its bind values,
+ * the PostgreSQL plan and the duration of each processing phase, see
+ * {@link org.ehrbase.api.service.QueryService#query(String, java.util.Map,
+ * org.ehrbase.api.definitions.QueryMode, boolean, boolean)}.
+ */
+public class QueryAnalyzeResponseData extends QueryResponseData {
+
+  @JsonProperty("explain")
+  private final List<List<String>> explain;
+
+  public QueryAnalyzeResponseData(QueryResultDto dto) {
+    super(dto);
+    this.explain = dto.getExplain();
+  }
+
+  public List<List<String>> getExplain() {
+    return explain;
+  }
+}
@@ -0,0 +1,59 @@
+/*
+ * Copyright (c) 2022 Vitasystems GmbH and Hannover Medical School.
+ *
+ * This file is part of project EHRbase
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.ehrbase.rest.openehr.responsedata;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import org.ehrbase.api.dto.QueryResultPage;
+import org.ehrbase.response.openehr.QueryResponseData;
+
+/**
+ * {@link QueryResponseData} of a page, with the continuation token of the next page and the total number of rows.
+ */
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class QueryPageResponseData extends QueryResponseData {
+
+  @JsonProperty("continuation_token")
+  private final String continuationToken;
+
+  @JsonProperty("total_count")
+  private final Long totalCount;
+
+  @JsonProperty("total_count_estimated")
+  private final Boolean totalCountEstimated;
+
+  public QueryPageResponseData(QueryResultPage page) {
+    super(page.getResult());
+    this.continuationToken = page.getContinuationToken();
+    this.totalCount = page.getTotalCount();
+    this.totalCountEstimated = page.getTotalCount() != null ? page.isTotalCountEstimated() : null;
+  }
+
+  public String getContinuationToken() {
+    return continuationToken;
+  }
+
+  public Long getTotalCount() {
+    return totalCount;
+  }
+
+  public Boolean getTotalCountEstimated() {
+    return totalCountEstimated;
+  }
+}
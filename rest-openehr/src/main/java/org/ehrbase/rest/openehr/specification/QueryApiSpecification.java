@@ -23,6 +23,7 @@ import java.util.Map;
 import javax.servlet.http.HttpServletRequest;
 import org.ehrbase.response.openehr.QueryResponseData;
 import org.springframework.http.ResponseEntity;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 /**
  * OpenAPI specification for openEHR REST API QUERY resource.
@@ -49,6 +50,9 @@ public interface QueryApiSpecification {
       Integer offset,
       Integer fetch,
       Map<String, Object> queryParameters,
+      String continuationToken,
+      String count,
+      boolean analyze,
       String accept,
       HttpServletRequest request);
 
@@ -67,6 +71,32 @@ public interface QueryApiSpecification {
       String contentType,
       HttpServletRequest request);
 
+  /**
+   * Execute ad-hoc (non-stored) AQL query, the result is streamed row by row.
+   */
+  @Operation(
+      summary = "Execute ad-hoc (non-stored) AQL query and stream the result"
+  )
+  ResponseEntity<StreamingResponseBody> executeAdHocQueryStream(
+      String query,
+      Integer offset,
+      Integer fetch,
+      Map<String, Object> queryParameters,
+      String accept,
+      HttpServletRequest request);
+
+  /**
+   * Execute ad-hoc (non-stored) AQL query, the result is streamed row by row.
+   */
+  @Operation(
+      summary = "Execute ad-hoc (non-stored) AQL query and stream the result"
+  )
+  ResponseEntity<StreamingResponseBody> executeAdHocQueryStream(
+      Map<String, Object> queryRequest,
+      String accept,
+      String contentType,
+      HttpServletRequest request);
+
   /**
    * Execute stored query.
    */
@@ -83,6 +113,9 @@ public interface QueryApiSpecification {
       Integer offset,
       Integer fetch,
       Map<String, Object> queryParameter,
+      String continuationToken,
+      String count,
+      boolean analyze,
       String accept,
       HttpServletRequest request);
 
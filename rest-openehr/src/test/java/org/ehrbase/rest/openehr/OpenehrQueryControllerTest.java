@@ -0,0 +1,142 @@
+/*
+ * Copyright 2022 vitasystems GmbH and Hannover Medical School.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.ehrbase.rest.openehr;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyBoolean;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import org.ehrbase.api.definitions.QueryMode;
+import org.ehrbase.api.exception.InvalidApiParameterException;
+import org.ehrbase.api.service.QueryResultConsumer;
+import org.ehrbase.api.service.QueryService;
+import org.ehrbase.response.ehrscape.QueryResultDto;
+import org.ehrbase.response.openehr.QueryResponseData;
+import org.ehrbase.rest.openehr.audit.OpenEhrAuditInterceptor;
+import org.ehrbase.rest.openehr.responsedata.QueryAnalyzeResponseData;
+import org.junit.Test;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+public class OpenehrQueryControllerTest {
+
+  private static final String AQL = "SELECT e/ehr_id/value FROM EHR e";
+
+  private final QueryService queryService = mock(QueryService.class);
+
+  private final ObjectMapper objectMapper = new ObjectMapper();
+
+  private final OpenehrQueryController controller =
+      new OpenehrQueryController(queryService, objectMapper);
+
+  private final MockHttpServletRequest request = new MockHttpServletRequest();
+
+  @Test
+  public void streamTheRowsWithTheAuditDataOfTheRequest() throws IOException {
+    Set<Object> ehrIds = Set.of("ehr-1", "ehr-2");
+    doAnswer(invocation -> {
+      QueryResultConsumer consumer = invocation.getArgument(2);
+      consumer.columns(Map.of("#0", "/ehr_id/value"));
+      consumer.row(List.of("ehr-1"));
+      consumer.row(List.of("ehr-2"));
+      consumer.completed(Map.of("ehr_id/value", ehrIds));
+      return null;
+    }).when(queryService).queryStream(eq(AQL), any(), any());
+
+    JsonNode result = objectMapper.readTree(stream());
+
+    assertThat(result.get("q").asText()).isEqualTo(AQL);
+    assertThat(result.get("columns")).hasSize(1);
+    assertThat(result.get("rows")).hasSize(2);
+    assertThat(request.getAttribute(OpenEhrAuditInterceptor.EHR_ID_ATTRIBUTE)).isEqualTo(ehrIds);
+    // the audit data of the service is shared by concurrent requests
+    verify(queryService, never()).getAuditResultMap();
+  }
+
+  @Test
+  public void leaveTheResultUnterminatedOnAFailure() {
+    doAnswer(invocation -> {
+      QueryResultConsumer consumer = invocation.getArgument(2);
+      consumer.columns(Map.of("#0", "/ehr_id/value"));
+      // enough rows for the generator to flush its buffer
+      for (int i = 0; i < 1000; i++) {
+        consumer.row(List.of("ehr-" + i));
+      }
+      throw new IllegalStateException("connection lost");
+    }).when(queryService).queryStream(eq(AQL), any(), any());
+
+    ByteArrayOutputStream output = new ByteArrayOutputStream();
+    StreamingResponseBody body = controller
+        .executeAdHocQueryStream(AQL, null, null, null, null, request)
+        .getBody();
+
+    assertThatThrownBy(() -> body.writeTo(output))
+        .isInstanceOf(IllegalStateException.class)
+        .hasMessage("connection lost");
+    String written = output.toString(StandardCharsets.UTF_8);
+    assertThat(written).startsWith("{\"q\"");
+    assertThatThrownBy(() -> objectMapper.readTree(written))
+        .isInstanceOf(JsonProcessingException.class);
+    assertThat(request.getAttribute(OpenEhrAuditInterceptor.EHR_ID_ATTRIBUTE)).isNull();
+  }
+
+  @Test
+  public void analyzeTheQuery() {
+    QueryResultDto dto = new QueryResultDto();
+    dto.setExplain(List.of(List.of("select 1", "{\"Plan\": {}}")));
+    when(queryService.query(AQL, null, QueryMode.AQL, true, true)).thenReturn(dto);
+    when(queryService.getAuditResultMap()).thenReturn(Map.of());
+
+    QueryResponseData body = controller.executeAdHocQuery(
+        Map.<String, Object>of("q", AQL, "analyze", true), null, "application/json", request).getBody();
+
+    assertThat(body).isInstanceOf(QueryAnalyzeResponseData.class);
+    assertThat(((QueryAnalyzeResponseData) body).getExplain()).isEqualTo(dto.getExplain());
+  }
+
+  @Test
+  public void rejectAnAnalyzedPage() {
+    assertThatThrownBy(() -> controller.executeAdHocQuery(
+        AQL, null, null, null, null, "exact", true, null, request))
+        .isInstanceOf(InvalidApiParameterException.class);
+    verify(queryService, never()).query(any(), any(), any(), anyBoolean(), anyBoolean());
+  }
+
+  private String stream() throws IOException {
+    ByteArrayOutputStream output = new ByteArrayOutputStream();
+    controller.executeAdHocQueryStream(AQL, null, null, null, null, request)
+        .getBody()
+        .writeTo(output);
+    return output.toString(StandardCharsets.UTF_8);
+  }
+}
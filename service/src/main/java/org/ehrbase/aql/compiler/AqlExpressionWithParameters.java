@@ -21,7 +21,11 @@ package org.ehrbase.aql.compiler;
 import com.google.gson.Gson;
 import com.google.gson.GsonBuilder;
 
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import java.util.UUID;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
@@ -30,6 +34,9 @@ public class AqlExpressionWithParameters extends AqlExpression {
 
     public static final String PARAMETERS_KEY = "query-parameters";
 
+    //match a string starting with '$' and followed by a number of alphanumeric or '-' or '_'
+    private static final Pattern PARAMETER = Pattern.compile("\\$([\\w|\\-|_|]+)");
+
     public AqlExpressionWithParameters parse(String query, Map<String, Object> parameterValues){
         String query1 = substitute(query, parameterValues);
         super.parse(query1);
@@ -78,8 +85,7 @@ public class AqlExpressionWithParameters extends AqlExpression {
 
         StringBuffer stringBuffer = new StringBuffer();
 
-        //match a string starting with '$' and followed by a number of alphanumeric or '-' or '_'
-        Matcher matcher = Pattern.compile("\\$([\\w|\\-|_|]+)").matcher(query);
+        Matcher matcher = PARAMETER.matcher(query);
 
         while (matcher.find()){
             String variable = matcher.group();
@@ -97,7 +103,19 @@ public class AqlExpressionWithParameters extends AqlExpression {
         return stringBuffer.toString();
     }
 
-    private boolean isSingleQuotedArgument(Object parameterValue){
+    /**
+     * @param query
+     * @return the names of the parameters of the aql expression, without '$', in order of first occurrence
+     */
+    public static List<String> parameterNames(String query){
+        Set<String> names = new LinkedHashSet<>();
+        Matcher matcher = PARAMETER.matcher(query);
+        while (matcher.find())
+            names.add(matcher.group().substring(1));
+        return new ArrayList<>(names);
+    }
+
+    public static boolean isSingleQuotedArgument(Object parameterValue){
        return parameterValue instanceof UUID || parameterValue instanceof String;
     }
 }
@@ -45,8 +45,8 @@ public class Templates {
             return null;
 
         List<JsonPathQueryResult> jsonPathQueryResults = new ArrayList<>();
-        //traverse the templates and identify the ones satisfying the query
-        for (String templateId : knowledgeCache.getAllTemplateIds()) {
+        //traverse the templates containing all the nodes and identify the ones satisfying the query
+        for (String templateId : knowledgeCache.findTemplateIdsContaining(jsonQueryExpression)) {
             JsonPathQueryResult result = resolveForTemplate(templateId, jsonQueryExpression);
             if (result != null) {
                 jsonPathQueryResults.add(result);
@@ -0,0 +1,424 @@
+/*
+ * Copyright (c) 2022 Vitasystems GmbH and Hannover Medical School.
+ *
+ * This file is part of project EHRbase
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.ehrbase.aql.sql;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonNull;
+import com.google.gson.JsonParseException;
+import org.jooq.Condition;
+import org.jooq.DSLContext;
+import org.jooq.Field;
+import org.jooq.Param;
+import org.jooq.Record;
+import org.jooq.Result;
+import org.jooq.ResultQuery;
+import org.jooq.SelectQuery;
+import org.jooq.SortField;
+import org.jooq.SortOrder;
+import org.jooq.conf.ParamType;
+import org.jooq.impl.DSL;
+
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+
+import static org.ehrbase.aql.sql.binding.UntypedStringBinding.UNTYPED_STRING;
+
+/**
+ * The query of a plan without its LIMIT and OFFSET, used to page through the result with a continuation token and to
+ * count its rows.
+ * <p>
+ * A page following a continuation token is selected with a seek condition on the ORDER BY columns (keyset
+ * pagination): the rows preceding the page are filtered out instead of being computed, sorted and discarded as with
+ * OFFSET. A page is fetched with one row more than the LIMIT. The ORDER BY must identify the rows, since the rows
+ * sharing the key of the last row of a page would be skipped: a page, including the first one, is rejected as soon as
+ * two of its rows, or its last row and the additional one, have the same ORDER BY values.
+ * </p>
+ * <p>
+ * The exact number of rows is counted with <code>count(*) OVER ()</code> in the query of the page itself, before the
+ * seek condition and the LIMIT apply, so that the rows are only computed once.
+ * </p>
+ * <p>
+ * The continuation token keeps the ORDER BY values of the last row with their types, and a digest of the SQL and its
+ * bind values, so that a token is only accepted for the query it was returned with.
+ * </p>
+ * <p>
+ * Like the plan, it keeps the rendered SQL only and can be used concurrently.
+ * </p>
+ */
+public class AqlPagination {
+
+    private static final String PAGE_TABLE = "aql_page";
+    private static final String TOTAL_COUNT_COLUMN = "aql_total_count";
+    private static final Field<Long> TOTAL_COUNT = DSL.field(DSL.name(TOTAL_COUNT_COLUMN), Long.class);
+
+    private final String sql;
+    private final Param<?>[] bindValues;
+    private final List<String> keys;
+    private final boolean[] descending;
+    private final Integer limit;
+    private final Integer offset;
+    private final String fingerprint;
+
+    /**
+     * @param unpagedQuery the query, rendered before its LIMIT and OFFSET are set
+     * @param orderByFields the ORDER BY fields of the query, may be empty
+     * @param limit the LIMIT (resp. TOP) of the query, may be null
+     * @param offset the OFFSET of the query, may be null
+     */
+    AqlPagination(SelectQuery<?> unpagedQuery, List<SortField<Object>> orderByFields, Integer limit, Integer offset) {
+        this.sql = unpagedQuery.getSQL(ParamType.INDEXED);
+        this.bindValues = unpagedQuery.getParams().values().stream().filter(p -> !p.isInline()).toArray(Param<?>[]::new);
+
+        List<String> keyList = new ArrayList<>();
+        this.descending = new boolean[orderByFields.size()];
+        for (int i = 0; i < orderByFields.size(); i++) {
+            SortField<Object> orderByField = orderByFields.get(i);
+            //the ORDER BY fields are the quoted column names of the query
+            keyList.add(orderByField.getName().replaceAll("^\"|\"$", ""));
+            descending[i] = orderByField.getOrder() == SortOrder.DESC;
+        }
+        this.keys = Collections.unmodifiableList(keyList);
+        this.limit = limit;
+        this.offset = offset;
+        this.fingerprint = fingerprint(sql, bindValues);
+    }
+
+    private AqlPagination(AqlPagination pagination, Param<?>[] bindValues) {
+        this.sql = pagination.sql;
+        this.bindValues = bindValues;
+        this.keys = pagination.keys;
+        this.descending = pagination.descending;
+        this.limit = pagination.limit;
+        this.offset = pagination.offset;
+        this.fingerprint = fingerprint(sql, bindValues);
+    }
+
+    /**
+     * @see AqlQueryPlan#withBindValues(String, java.util.Map)
+     */
+    AqlPagination withBindValues(Map<String, Param<?>> bindValues) {
+        return new AqlPagination(this, AqlQueryPlan.substitute(this.bindValues, bindValues));
+    }
+
+    public boolean isOrdered() {
+        return !keys.isEmpty();
+    }
+
+    public Integer getLimit() {
+        return limit;
+    }
+
+    public Integer getOffset() {
+        return offset;
+    }
+
+    /**
+     * @return true if the query is ordered and limited, without OFFSET: its pages are selected with
+     * {@link #first(DSLContext, Field[])} and {@link #after(DSLContext, List, Field[])}
+     */
+    public boolean isPaged() {
+        return isOrdered() && limit != null && offset == null;
+    }
+
+    /**
+     * @param counted if true, the number of rows of the whole query is selected in an additional column, see
+     *                {@link #totalCountOf(Result)}
+     * @return the first page, in the order of the query and with one row more than its limit
+     */
+    ResultQuery<Record> first(DSLContext context, Field<?>[] fields, boolean counted) {
+        return page(context, DSL.noCondition(), fields, counted);
+    }
+
+    /**
+     * @param counted see {@link #first(DSLContext, Field[], boolean)}
+     * @return the rows following the given key, in the order of the query and with one row more than its limit
+     */
+    ResultQuery<Record> after(DSLContext context, List<?> key, Field<?>[] fields, boolean counted) {
+        return page(context, seek(key), fields, counted);
+    }
+
+    /**
+     * @return the query with its LIMIT and OFFSET, and the number of rows of the whole query in an additional column,
+     * see {@link #totalCountOf(Result)}
+     */
+    ResultQuery<Record> counted(DSLContext context, Field<?>[] fields) {
+        SelectQuery<Record> query = select(context, DSL.noCondition(), true);
+        if (offset != null)
+            query.addLimit(offset, limit != null ? limit : Integer.MAX_VALUE);
+        else if (limit != null)
+            query.addLimit(limit);
+        return query.coerce(withTotalCount(fields));
+    }
+
+    private ResultQuery<Record> page(DSLContext context, Condition seek, Field<?>[] fields, boolean counted) {
+        SelectQuery<Record> page = select(context, seek, counted);
+        //the additional row tells if a page follows and if the last row is tied with it
+        if (limit != null)
+            page.addLimit(limit + 1);
+        return page.coerce(counted ? withTotalCount(fields) : fields);
+    }
+
+    private SelectQuery<Record> select(DSLContext context, Condition seek, boolean counted) {
+        SelectQuery<Record> page = context.selectQuery();
+        page.addSelect(DSL.asterisk());
+        //the window is computed before the seek condition and the LIMIT of the outer query
+        String from = counted ?
+                "(select *, count(*) over () as \"" + TOTAL_COUNT_COLUMN + "\" from (" + sql + ") as \"aql_count\")" :
+                "(" + sql + ")";
+        page.addFrom(DSL.table(from, (Object[]) bindValues).as(PAGE_TABLE));
+        page.addConditions(seek);
+        for (int i = 0; i < keys.size(); i++) {
+            Field<Object> field = DSL.field(DSL.name(PAGE_TABLE, keys.get(i)));
+            page.addOrderBy(descending[i] ? field.desc() : field.asc());
+        }
+        return page;
+    }
+
+    private static Field<?>[] withTotalCount(Field<?>[] fields) {
+        Field<?>[] counted = Arrays.copyOf(fields, fields.length + 1);
+        counted[fields.length] = TOTAL_COUNT;
+        return counted;
+    }
+
+    /**
+     * @param result the result of a counted query, see {@link #first(DSLContext, Field[], boolean)}
+     * @return the number of rows of the whole query, null if the result is empty
+     */
+    static Long totalCountOf(Result<Record> result) {
+        return result.isEmpty() ? null : result.get(0).get(TOTAL_COUNT);
+    }
+
+    /**
+     * the rows sorted after the key: the first column differing from the key is after it in the ORDER BY direction.
+     * As in the ORDER BY, nulls are last in ascending order and first in descending order.
+     */
+    Condition seek(List<?> key) {
+        Condition seek = DSL.noCondition();
+        Condition equal = DSL.noCondition();
+
+        for (int i = 0; i < keys.size(); i++) {
+            Field<Object> field = DSL.field(DSL.name(PAGE_TABLE, keys.get(i)));
+            Object value = key.get(i);
+
+            Condition after;
+            Condition same;
+            if (value == null) {
+                after = descending[i] ? field.isNotNull() : DSL.falseCondition();
+                same = field.isNull();
+            } else {
+                //text is bound untyped and compared as the column type, the other values as read from the database
+                Field<?> param = value instanceof String ? DSL.val(value, UNTYPED_STRING) : DSL.val(value);
+                after = descending[i] ?
+                        DSL.condition("{0} < {1}", field, param) :
+                        DSL.condition("{0} > {1}", field, param).or(field.isNull());
+                same = DSL.condition("{0} = {1}", field, param);
+            }
+
+            seek = seek.or(equal.and(after));
+            equal = equal.and(same);
+        }
+        return seek;
+    }
+
+    /**
+     * @return the values of the ORDER BY columns of a record, as read from the database
+     */
+    List<Object> keyOf(Record record) {
+        List<Object> key = new ArrayList<>(keys.size());
+        for (String name : keys) {
+            Object value = record.get(name);
+            if (value instanceof Timestamp)
+                //a point in time, whatever the time zone of the JVM and of the column
+                key.add(((Timestamp) value).toInstant().atOffset(ZoneOffset.UTC));
+            else if (value instanceof java.sql.Date)
+                key.add(((java.sql.Date) value).toLocalDate());
+            else if (value == null || KeyType.of(value) != null)
+                key.add(value);
+            else
+                key.add(value.toString());
+        }
+        return key;
+    }
+
+    /**
+     * @return the exact number of rows of the query, without LIMIT and OFFSET, for a counted page without rows
+     */
+    long count(DSLContext context) {
+        Long count = context.resultQuery("select count(*) from (" + sql + ") as \"aql_count\"", (Object[]) bindValues)
+                .fetchOne(0, Long.class);
+        return count == null ? 0 : count;
+    }
+
+    /**
+     * @return the number of rows of the query, without LIMIT and OFFSET, as estimated by the planner: the query is
+     * not executed
+     */
+    long estimate(DSLContext context) {
+        Object plan = context.fetchValue("EXPLAIN (FORMAT JSON) " + sql, (Object[]) bindValues);
+        try {
+            JsonArray json = new Gson().fromJson(String.valueOf(plan), JsonArray.class);
+            return json.get(0).getAsJsonObject().getAsJsonObject("Plan").get("Plan Rows").getAsLong();
+        } catch (RuntimeException e) {
+            throw new IllegalArgumentException("Could not estimate the number of rows from plan:" + plan, e);
+        }
+    }
+
+    /**
+     * @return the opaque token of the page following the given key
+     */
+    String continuationToken(List<?> key) {
+        JsonArray token = new JsonArray();
+        token.add(fingerprint);
+        for (Object value : key) {
+            token.add(KeyType.encode(value));
+        }
+        return Base64.getUrlEncoder().withoutPadding()
+                .encodeToString(new Gson().toJson(token).getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * @return the key of the last row of the previous page
+     * @throws IllegalArgumentException if the token was not returned for this query
+     */
+    List<Object> keyOf(String continuationToken) {
+        if (offset != null)
+            throw new IllegalArgumentException("OFFSET cannot be combined with a continuation token");
+        if (!isOrdered())
+            throw new IllegalArgumentException("A continuation token requires a query with ORDER BY");
+
+        JsonArray token;
+        try {
+            token = new Gson().fromJson(new String(Base64.getUrlDecoder().decode(continuationToken), StandardCharsets.UTF_8), JsonArray.class);
+        } catch (IllegalArgumentException | JsonParseException e) {
+            throw new IllegalArgumentException("Invalid continuation token:" + continuationToken);
+        }
+        if (token == null || token.size() != keys.size() + 1 || !token.get(0).isJsonPrimitive() || !fingerprint.equals(token.get(0).getAsString()))
+            throw new IllegalArgumentException("Continuation token does not match the query:" + continuationToken);
+
+        List<Object> key = new ArrayList<>(keys.size());
+        try {
+            for (int i = 1; i < token.size(); i++) {
+                key.add(KeyType.decode(token.get(i)));
+            }
+        } catch (RuntimeException e) {
+            throw new IllegalArgumentException("Invalid continuation token:" + continuationToken);
+        }
+        return key;
+    }
+
+    /**
+     * @return a digest of the SQL and of its bind values: plans bound with different parameters share their SQL
+     */
+    private static String fingerprint(String sql, Param<?>[] bindValues) {
+        MessageDigest digest;
+        try {
+            digest = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+        digest.update(sql.getBytes(StandardCharsets.UTF_8));
+        for (Param<?> bindValue : bindValues) {
+            digest.update((byte) 0);
+            digest.update(bindValue.getDataType().getTypeName().getBytes(StandardCharsets.UTF_8));
+            digest.update((byte) 0);
+            digest.update(String.valueOf(bindValue.getValue()).getBytes(StandardCharsets.UTF_8));
+        }
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(digest.digest());
+    }
+
+    /**
+     * The types of the ORDER BY values kept in a continuation token, as <code>[type, text]</code>. A value of another
+     * type is kept as text.
+     */
+    private enum KeyType {
+        TEXT(String.class, text -> text),
+        INTEGER(Integer.class, Integer::valueOf),
+        BIGINT(Long.class, Long::valueOf),
+        SMALLINT(Short.class, Short::valueOf),
+        NUMERIC(BigDecimal.class, BigDecimal::new),
+        DOUBLE(Double.class, Double::valueOf),
+        REAL(Float.class, Float::valueOf),
+        BOOLEAN(Boolean.class, Boolean::valueOf),
+        UUID(java.util.UUID.class, java.util.UUID::fromString),
+        DATE(LocalDate.class, LocalDate::parse),
+        TIMESTAMP(LocalDateTime.class, LocalDateTime::parse),
+        TIMESTAMPTZ(OffsetDateTime.class, OffsetDateTime::parse),
+        JSONB(org.jooq.JSONB.class, org.jooq.JSONB::valueOf),
+        JSON(org.jooq.JSON.class, org.jooq.JSON::valueOf);
+
+        private final Class<?> type;
+        private final Function<String, Object> parse;
+
+        KeyType(Class<?> type, Function<String, Object> parse) {
+            this.type = type;
+            this.parse = parse;
+        }
+
+        static KeyType of(Object value) {
+            for (KeyType keyType : values()) {
+                if (keyType.type.isInstance(value))
+                    return keyType;
+            }
+            return null;
+        }
+
+        static JsonElement encode(Object value) {
+            if (value == null)
+                return JsonNull.INSTANCE;
+            KeyType keyType = KeyType.of(value);
+            JsonArray typed = new JsonArray();
+            typed.add(keyType == null ? TEXT.name() : keyType.name());
+            typed.add(text(value));
+            return typed;
+        }
+
+        static Object decode(JsonElement element) {
+            if (element.isJsonNull())
+                return null;
+            JsonArray typed = element.getAsJsonArray();
+            if (typed.size() != 2)
+                throw new IllegalArgumentException("Invalid key:" + typed);
+            return KeyType.valueOf(typed.get(0).getAsString()).parse.apply(typed.get(1).getAsString());
+        }
+
+        private static String text(Object value) {
+            if (value instanceof org.jooq.JSONB)
+                return ((org.jooq.JSONB) value).data();
+            if (value instanceof org.jooq.JSON)
+                return ((org.jooq.JSON) value).data();
+            return value.toString();
+        }
+    }
+}
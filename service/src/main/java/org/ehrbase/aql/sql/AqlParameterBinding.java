@@ -0,0 +1,175 @@
+/*
+ * Copyright (c) 2022 Vitasystems GmbH and Hannover Medical School.
+ *
+ * This file is part of project EHRbase
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.ehrbase.aql.sql;
+
+import org.ehrbase.aql.compiler.AqlExpressionWithParameters;
+import org.ehrbase.aql.sql.binding.WhereBinder;
+import org.ehrbase.aql.sql.queryimpl.value_field.ISODateTime;
+import org.jooq.Param;
+
+import java.math.BigDecimal;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The $parameters of an AQL query, bound to the SQL of a plan instead of being substituted into the AQL.
+ * <p>
+ * The query is compiled once per combination of parameter types, with a probe substituted for each parameter: a
+ * value of the same type, so that the same SQL is produced, that is recognized among the bind values of the plan.
+ * A probe never occurs in the text of the query, so that it cannot be mistaken for a literal of the query.
+ * The plan is then executed with the actual values bound in place of the probes, see {@link #bind(AqlQueryPlan)}.
+ * </p>
+ * <p>
+ * Only the parameters compiled into bind values of the WHERE clause (see {@link WhereBinder#literalParam(String)})
+ * can be bound: date/time values, which are converted during the compilation, or values ending up in the SQL text
+ * (e.g. in a jsquery expression) cannot, see {@link #isBound(AqlQueryPlan)}. The values are then substituted.
+ * </p>
+ */
+public class AqlParameterBinding {
+
+    private static final String STRING_PROBE = "ehrbase_aql_parameter_";
+
+    private final String aql;
+    private final Map<String, Object> parameters;
+    private final Map<String, Object> probes = new HashMap<>();
+    //the bind values of the parameters, by value of their probe
+    private final Map<String, Param<?>> bindValues = new HashMap<>();
+    private final StringBuilder signature = new StringBuilder();
+    private boolean bindable = true;
+
+    /**
+     * @param aql the AQL query
+     * @param parameters the values of its parameters, by name
+     */
+    public AqlParameterBinding(String aql, Map<String, Object> parameters) {
+        this.aql = aql;
+        this.parameters = parameters;
+
+        List<String> names = AqlExpressionWithParameters.parameterNames(aql);
+        for (int i = 0; i < names.size() && bindable; i++) {
+            String name = names.get(i);
+            Param<?> bindValue = bindValue(parameters.get(name));
+            Object probe = bindValue == null ? null : probe(bindValue, i, names.size());
+            if (probe == null) {
+                bindable = false;
+            } else {
+                probes.put(name, probe);
+                bindValues.put(String.valueOf(WhereBinder.literalParam(literal(probe)).getValue()), bindValue);
+                signature.append(name).append(':').append(bindValue.getType().getSimpleName()).append(';');
+            }
+        }
+    }
+
+    /**
+     * @return false if a parameter value is not of a type that can be bound, the values must be substituted
+     */
+    public boolean isBindable() {
+        return bindable;
+    }
+
+    /**
+     * @return the names and types of the parameters, the plans of the probes differ from one signature to another
+     */
+    public String getSignature() {
+        return signature.toString();
+    }
+
+    /**
+     * @return the query with the probes substituted to the parameters
+     */
+    public String getProbeAql() {
+        return new AqlExpressionWithParameters().substitute(aql, probes);
+    }
+
+    /**
+     * @return the query with the values substituted to the parameters
+     */
+    public String getSubstitutedAql() {
+        return new AqlExpressionWithParameters().substitute(aql, parameters);
+    }
+
+    /**
+     * @param plan the plan compiled from {@link #getProbeAql()}
+     * @return true if each probe is a bind value of the plan, and none is part of its SQL
+     */
+    public boolean isBound(AqlQueryPlan plan) {
+        for (String probe : bindValues.keySet()) {
+            if (plan.getSql().contains(probe) || plan.getBindValues().stream().noneMatch(p -> probe.equals(String.valueOf(p.getValue()))))
+                return false;
+        }
+        return true;
+    }
+
+    /**
+     * @param plan the plan compiled from {@link #getProbeAql()}, see {@link #isBound(AqlQueryPlan)}
+     * @return the plan with the values of the parameters bound in place of the probes
+     */
+    public AqlQueryPlan bind(AqlQueryPlan plan) {
+        return plan.withBindValues(getSubstitutedAql(), bindValues);
+    }
+
+    /**
+     * @return the bind value of the literal the parameter value is substituted with, null if it cannot be bound
+     */
+    private static Param<?> bindValue(Object value) {
+        if (value == null)
+            return null;
+        if (AqlExpressionWithParameters.isSingleQuotedArgument(value)) {
+            ISODateTime dateTime = new ISODateTime(value.toString());
+            if (dateTime.isValidDateTimeExpression() || dateTime.isValidDateExpression() || dateTime.isValidTimeExpression())
+                return null;
+            return WhereBinder.literalParam("'" + value.toString().replace("'", "''") + "'");
+        }
+        return WhereBinder.literalParam(String.valueOf(value));
+    }
+
+    /**
+     * @param index the index of the parameter, among <code>count</code> parameters
+     * @return a value not found in the query, compiled into a bind value of the same type as the given one
+     */
+    private Object probe(Param<?> bindValue, int index, int count) {
+        Object probe;
+        for (int i = index; (probe = probe(bindValue, i)) != null; i += count) {
+            if (!aql.contains(probe.toString()))
+                return probe;
+        }
+        return null;
+    }
+
+    private static Object probe(Param<?> bindValue, int index) {
+        if (bindValue.getType() == String.class)
+            return STRING_PROBE + index;
+
+        String[] candidates = {
+                String.valueOf(2000000000 + index),
+                String.valueOf(9000000000000000000L + index),
+                "2718281828.459045" + index
+        };
+        for (String candidate : candidates) {
+            if (WhereBinder.literalParam(candidate).getType() == bindValue.getType())
+                return new BigDecimal(candidate);
+        }
+        return null;
+    }
+
+    private static String literal(Object probe) {
+        return probe instanceof String ? "'" + probe + "'" : probe.toString();
+    }
+}
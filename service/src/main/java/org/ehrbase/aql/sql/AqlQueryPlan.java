@@ -0,0 +1,263 @@
+/*
+ * Copyright (c) 2022 Vitasystems GmbH and Hannover Medical School.
+ *
+ * This file is part of project EHRbase
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.ehrbase.aql.sql;
+
+import org.ehrbase.aql.definition.I_VariableDefinition;
+import org.ehrbase.aql.sql.postprocessing.RawJsonTransform;
+import org.ehrbase.aql.sql.queryimpl.DurationFormatter;
+import org.jooq.DSLContext;
+import org.jooq.Field;
+import org.jooq.Param;
+import org.jooq.Record;
+import org.jooq.Result;
+import org.jooq.ResultQuery;
+import org.jooq.SelectQuery;
+import org.jooq.conf.ParamType;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A compiled AQL query: the SQL rendered from the jOOQ query with its bind values and result fields, together with
+ * the variables needed to format the result.
+ * <p>
+ * A plan does not keep any reference to the jOOQ query it was rendered from, it is immutable and can be executed
+ * concurrently, which allows to cache it.
+ * </p>
+ */
+public class AqlQueryPlan {
+
+    private final String aql;
+    private final String sql;
+    private final Param<?>[] bindValues;
+    private final Field<?>[] fields;
+    private final List<I_VariableDefinition> variableDefinitions;
+    private final Map<String, String> variables;
+    private final AqlPagination pagination;
+
+    public AqlQueryPlan(String aql, QueryProcessor.AqlSelectQuery aqlSelectQuery, List<I_VariableDefinition> variableDefinitions, Map<String, String> variables) {
+        SelectQuery<Record> select = aqlSelectQuery.getSelectQuery();
+
+        this.aql = aql;
+        this.sql = select.getSQL(ParamType.INDEXED);
+        // keep the parameters rather than their values, so that they are bound as rendered (see UntypedStringBinding)
+        this.bindValues = select.getParams().values().stream().filter(p -> !p.isInline()).toArray(Param<?>[]::new);
+        this.fields = select.getSelect().toArray(new Field<?>[0]);
+        this.variableDefinitions = Collections.unmodifiableList(variableDefinitions);
+        this.variables = Collections.unmodifiableMap(variables);
+        this.pagination = aqlSelectQuery.getPagination();
+    }
+
+    private AqlQueryPlan(AqlQueryPlan plan, String aql, Param<?>[] bindValues, AqlPagination pagination) {
+        this.aql = aql;
+        this.sql = plan.sql;
+        this.bindValues = bindValues;
+        this.fields = plan.fields;
+        this.variableDefinitions = plan.variableDefinitions;
+        this.variables = plan.variables;
+        this.pagination = pagination;
+    }
+
+    /**
+     * @param aql the AQL query the values belong to
+     * @param bindValues the bind values to execute the plan with, in place of the bind values having the same value as
+     *                   the key (as {@link String#valueOf(Object)})
+     * @return a copy of the plan with its bind values substituted, see {@link AqlParameterBinding}
+     */
+    AqlQueryPlan withBindValues(String aql, Map<String, Param<?>> bindValues) {
+        return new AqlQueryPlan(this, aql, substitute(this.bindValues, bindValues), pagination == null ? null : pagination.withBindValues(bindValues));
+    }
+
+    static Param<?>[] substitute(Param<?>[] params, Map<String, Param<?>> bindValues) {
+        Param<?>[] substituted = new Param<?>[params.length];
+        for (int i = 0; i < params.length; i++) {
+            substituted[i] = bindValues.getOrDefault(String.valueOf(params[i].getValue()), params[i]);
+        }
+        return substituted;
+    }
+
+    /**
+     * @param context the context to execute the plan with
+     * @return the query, with its result coerced to the fields of the original jOOQ query
+     */
+    public ResultQuery<Record> query(DSLContext context) {
+        return context.resultQuery(sql, bindValues).coerce(fields);
+    }
+
+    /**
+     * execute the plan and transform the jsonb and interval values of the result
+     * @param timings records the execution and post-processing durations
+     */
+    public AqlResult execute(DSLContext context, AqlQueryTimings timings) {
+        return execute(query(context), null, false, timings);
+    }
+
+    /**
+     * execute a page of the plan, see {@link AqlPagination}
+     * @param continuationToken the token returned with the previous page, null for the first page
+     * @param count if true, the exact number of rows of the whole query is counted along with the page
+     * @param timings records the execution and post-processing durations
+     * @return the result, with the token of the next page if another page follows
+     * @throws IllegalArgumentException if the ORDER BY does not identify the rows of the page
+     */
+    public AqlResult executePage(DSLContext context, String continuationToken, boolean count, AqlQueryTimings timings) {
+        AqlResult result;
+        if (continuationToken != null)
+            result = execute(pagination.after(context, pagination.keyOf(continuationToken), fields, count), pagination, count, timings);
+        else if (pagination.isPaged())
+            result = execute(pagination.first(context, fields, count), pagination, count, timings);
+        else if (count)
+            result = execute(pagination.counted(context, fields), null, true, timings);
+        else
+            result = execute(query(context), null, false, timings);
+
+        //no row to read the count from: none at all, unless rows are skipped by the token or the OFFSET
+        if (count && result.getTotalCount() == null)
+            result.setTotalCount(continuationToken != null || pagination.getOffset() != null ? count(context, false) : 0L);
+        return result;
+    }
+
+    private AqlResult execute(ResultQuery<Record> query, AqlPagination page, boolean counted, AqlQueryTimings timings) {
+        Result<Record> result;
+        timings.reset();
+        try {
+            result = query.fetch();
+        } catch (Exception e) {
+            throw new IllegalArgumentException(sqlErrorReason(e));
+        }
+        timings.mark(AqlQueryTimings.EXECUTION);
+
+        Long totalCount = null;
+        if (counted) {
+            totalCount = AqlPagination.totalCountOf(result);
+            result = result.into(fields);
+        }
+
+        //a page is fetched with the first row of the next page, the token keeps the key of its last row
+        String nextToken = null;
+        if (page != null && page.getLimit() != null && page.getLimit() > 0) {
+            List<Object> lastKey = checkUniqueKeys(page, result);
+            if (result.size() > page.getLimit()) {
+                result.remove(page.getLimit().intValue());
+                nextToken = page.continuationToken(lastKey);
+            }
+        }
+
+        //if any jsonb data field transform them into raw json
+        RawJsonTransform.toRawJson(result);
+        DurationFormatter.toISO8601(result);
+        timings.mark(AqlQueryTimings.POST_PROCESSING);
+
+        AqlResult aqlResult = new AqlResult(result, this::getExplain);
+        aqlResult.setVariables(variables);
+        aqlResult.setContinuationToken(nextToken);
+        aqlResult.setTotalCount(totalCount);
+        return aqlResult;
+    }
+
+    /**
+     * @return the key of the last row of the page, without the additional row
+     * @throws IllegalArgumentException if two rows share their ORDER BY values
+     */
+    private List<Object> checkUniqueKeys(AqlPagination page, Result<Record> result) {
+        List<Object> previous = null;
+        List<Object> lastKey = null;
+        for (int i = 0; i < result.size(); i++) {
+            List<Object> key = page.keyOf(result.get(i));
+            if (key.equals(previous))
+                throw new IllegalArgumentException("The ORDER BY of the query does not identify a row, rows of the page share the key:" + key + ", AQL expression:" + aql);
+            if (i < page.getLimit())
+                lastKey = key;
+            previous = key;
+        }
+        return lastKey;
+    }
+
+    /**
+     * @param estimate if true, the number of rows is estimated by the planner instead of counted
+     * @return the number of rows of the query without its LIMIT and OFFSET
+     */
+    public long count(DSLContext context, boolean estimate) {
+        try {
+            return estimate ? pagination.estimate(context) : pagination.count(context);
+        } catch (Exception e) {
+            throw new IllegalArgumentException(sqlErrorReason(e));
+        }
+    }
+
+    /**
+     * run <code>EXPLAIN (ANALYZE, BUFFERS, FORMAT JSON)</code> on the SQL of the plan.
+     * <p>
+     * NB. ANALYZE actually executes the query (once more), this is only meant for diagnosis.
+     * </p>
+     * @return the PostgreSQL plan, as JSON
+     */
+    public String analyze(DSLContext context) {
+        try {
+            return String.valueOf(context.fetchValue("EXPLAIN (ANALYZE, BUFFERS, FORMAT JSON) " + sql, bindValues));
+        } catch (Exception e) {
+            throw new IllegalArgumentException(sqlErrorReason(e));
+        }
+    }
+
+    /**
+     * @return the SQL followed by its bind values
+     */
+    public List<List<String>> getExplain() {
+        List<String> details = new ArrayList<>();
+        details.add(sql);
+        for (Param<?> bindValue : bindValues) {
+            details.add(String.valueOf(bindValue.getValue()));
+        }
+        List<List<String>> explainList = new ArrayList<>();
+        explainList.add(details);
+        return explainList;
+    }
+
+    public String sqlErrorReason(Exception e) {
+        return "Could not perform SQL query:" + e.getCause() +
+                ", AQL expression:" +
+                aql +
+                ", Translated SQL:" +
+                sql;
+    }
+
+    public String getAql() {
+        return aql;
+    }
+
+    public String getSql() {
+        return sql;
+    }
+
+    List<Param<?>> getBindValues() {
+        return Arrays.asList(bindValues);
+    }
+
+    public List<I_VariableDefinition> getVariableDefinitions() {
+        return variableDefinitions;
+    }
+
+    public Map<String, String> getVariables() {
+        return variables;
+    }
+}
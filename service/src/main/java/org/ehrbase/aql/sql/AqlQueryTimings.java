@@ -0,0 +1,74 @@
+/*
+ * Copyright (c) 2022 Vitasystems GmbH and Hannover Medical School.
+ *
+ * This file is part of project EHRbase
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.ehrbase.aql.sql;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Elapsed time of the phases of an AQL query processing, in the order they are recorded.
+ * <p>
+ * Phases not performed (f.e. the compilation of a cached plan) are simply not recorded.
+ * </p>
+ */
+public class AqlQueryTimings {
+
+    public static final String PARSE = "parse";
+    public static final String CONTAINS = "containment resolution";
+    public static final String SQL_BUILD = "sql build";
+    public static final String EXECUTION = "execution";
+    public static final String POST_PROCESSING = "post-processing";
+
+    private final Map<String, Long> phases = new LinkedHashMap<>();
+
+    private long start = System.nanoTime();
+
+    /**
+     * record the time elapsed since the previous phase (or the creation) as the duration of the phase
+     */
+    public void mark(String phase) {
+        long now = System.nanoTime();
+        phases.merge(phase, now - start, Long::sum);
+        start = now;
+    }
+
+    /**
+     * restart the clock without recording a phase
+     */
+    public void reset() {
+        start = System.nanoTime();
+    }
+
+    public Map<String, Long> getPhases() {
+        return phases;
+    }
+
+    /**
+     * @return the phases as explain details, f.e. <code>["timings", "parse: 0.412 ms", ...]</code>
+     */
+    public List<String> toExplain() {
+        List<String> details = new ArrayList<>();
+        details.add("timings");
+        phases.forEach((phase, nanos) -> details.add(String.format(Locale.ROOT, "%s: %.3f ms", phase, nanos / 1_000_000d)));
+        return details;
+    }
+}
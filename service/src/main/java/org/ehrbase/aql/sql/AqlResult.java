@@ -25,17 +25,23 @@ import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.function.Supplier;
 
 /**
  * Wrapper calls for a query result
  */
 public class AqlResult {
     private final Result<Record> records;
-    private final List<List<String>> explain;
+    private Supplier<List<List<String>>> explain;
     private Map<String, String> aqlColumns;
     private Map<String, Set<Object>> auditResultMap = new HashMap<>();
+    private String continuationToken;
+    private Long totalCount;
 
-    AqlResult(Result<Record> records, List<List<String>> explain) {
+    /**
+     * @param explain supplies the explain details, only rendered when requested
+     */
+    AqlResult(Result<Record> records, Supplier<List<List<String>>> explain) {
         this.records = records;
         this.explain = explain;
     }
@@ -45,7 +51,11 @@ public class AqlResult {
     }
 
     public List<List<String>> getExplain() {
-        return explain;
+        return explain == null ? null : explain.get();
+    }
+
+    public void setExplain(List<List<String>> explain) {
+        this.explain = () -> explain;
     }
 
     public Map<String, String> getVariables() {
@@ -66,7 +76,33 @@ public class AqlResult {
     }
 
 
+    /**
+     * @return the token of the next page, null if not paged or if this is the last page
+     */
+    public String getContinuationToken() {
+        return continuationToken;
+    }
+
+    void setContinuationToken(String continuationToken) {
+        this.continuationToken = continuationToken;
+    }
+
+    /**
+     * @return the number of rows of the whole result, null if not requested
+     */
+    public Long getTotalCount() {
+        return totalCount;
+    }
+
+    public void setTotalCount(Long totalCount) {
+        this.totalCount = totalCount;
+    }
+
     public boolean variablesContains(String fieldName){
+        return variablesContains(aqlColumns, fieldName);
+    }
+
+    public static boolean variablesContains(Map<String, String> aqlColumns, String fieldName){
         if (aqlColumns.containsKey(fieldName))
             return true;
 
@@ -29,14 +29,12 @@ import org.ehrbase.aql.definition.I_VariableDefinition;
 import org.ehrbase.aql.definition.LateralJoinDefinition;
 import org.ehrbase.aql.definition.Variables;
 import org.ehrbase.aql.sql.binding.*;
-import org.ehrbase.aql.sql.postprocessing.RawJsonTransform;
 import org.ehrbase.aql.sql.queryimpl.*;
 import org.ehrbase.aql.sql.queryimpl.attribute.JoinSetup;
 import org.ehrbase.dao.access.interfaces.I_DomainAccess;
 import org.ehrbase.service.IntrospectService;
 import org.jooq.*;
 import org.jooq.Record;
-import org.jooq.conf.Settings;
 import org.jooq.impl.DSL;
 
 import java.util.*;
@@ -69,12 +67,14 @@ public class QueryProcessor extends TemplateMetaData {
         private final SelectQuery<Record> selectQuery;
         private final Collection<List<QuerySteps>> querySteps;
         private boolean outputWithJson;
+        private final AqlPagination pagination;
 
 
-        AqlSelectQuery(SelectQuery<Record> selectQuery, Collection<List<QuerySteps>> querySteps, boolean outputWithJson) {
+        AqlSelectQuery(SelectQuery<Record> selectQuery, Collection<List<QuerySteps>> querySteps, boolean outputWithJson, AqlPagination pagination) {
             this.selectQuery = selectQuery;
             this.querySteps = querySteps;
             this.outputWithJson = outputWithJson;
+            this.pagination = pagination;
         }
 
         public SelectQuery<Record> getSelectQuery() {
@@ -85,6 +85,10 @@ public class QueryProcessor extends TemplateMetaData {
             return outputWithJson;
         }
 
+        public AqlPagination getPagination() {
+            return pagination;
+        }
+
         Collection<List<QuerySteps>> getQuerySteps() {
             return querySteps;
         }
@@ -105,20 +109,6 @@ public class QueryProcessor extends TemplateMetaData {
     }
 
 
-    public AqlResult execute() {
-        AqlSelectQuery aqlSelectQuery = buildAqlSelectQuery();
-
-        Result<Record> result = fetchResultSet(aqlSelectQuery.getSelectQuery(), null);
-
-        //if any jsonb data field transform them into raw json
-        RawJsonTransform.toRawJson(result);
-        DurationFormatter.toISO8601(result);
-
-        List<List<String>> explainList = buildExplain(aqlSelectQuery.getSelectQuery());
-
-        return new AqlResult(result, explainList);
-    }
-
     public AqlSelectQuery buildAqlSelectQuery() {
 
         Map<String, List<QuerySteps>> cacheQuery = new HashMap<>();
@@ -193,14 +183,19 @@ public class QueryProcessor extends TemplateMetaData {
         }
 
         // Add Top , Limit or Offset; Top and Limit can not be both present.
-        LimitBinding limitBinding = new LimitBinding(Optional
+        Integer limit = Optional
                 .ofNullable(statements.getTopAttributes())
                 .map(TopAttributes::getWindow)
-                .orElse(statements.getLimitAttribute()), statements.getOffsetAttribute(), unionSetQuery);
+                .orElse(statements.getLimitAttribute());
+
+        //rendered before the limit is bound
+        AqlPagination pagination = new AqlPagination(unionSetQuery, superQuery.getOrderByFields(), limit, statements.getOffsetAttribute());
+
+        LimitBinding limitBinding = new LimitBinding(limit, statements.getOffsetAttribute(), unionSetQuery);
 
         unionSetQuery = limitBinding.bind();
 
-        return new AqlSelectQuery(unionSetQuery, cacheQuery.values(), containsJson);
+        return new AqlSelectQuery(unionSetQuery, cacheQuery.values(), containsJson, pagination);
     }
 
     private List<QuerySteps> buildQuerySteps(String templateId) {
@@ -354,41 +349,6 @@ public class QueryProcessor extends TemplateMetaData {
         return lateralJoinsList;
     }
 
-    private Result<Record> fetchResultSet(Select<?> select, Result<Record> result) {
-        Result<Record> intermediary;
-        try {
-            intermediary = (Result<Record>) select.fetch();
-        } catch (Exception e) {
-
-            String reason = "Could not perform SQL query:" + e.getCause() +
-                    ", AQL expression:" +
-                    statements.getParsedExpression() +
-                    ", Translated SQL:" +
-                    select.getSQL();
-            throw new IllegalArgumentException(reason);
-        }
-        if (result != null) {
-            result.addAll(intermediary);
-        } else if (intermediary != null) {
-            result = intermediary;
-        }
-        return result;
-    }
-
-    private List<List<String>> buildExplain(Select<?> select) {
-        List<List<String>> explainList = new ArrayList<>();
-
-        DSLContext pretty = DSL.using(domainAccess.getContext().dialect(), new Settings().withRenderFormatted(true));
-        String sql = pretty.render(select);
-        List<String> details = new ArrayList<>();
-        details.add(sql);
-        for (Param<?> parameter : select.getParams().values()) {
-            details.add(parameter.getValue().toString());
-        }
-        explainList.add(details);
-        return explainList;
-    }
-
     private List<QuerySteps> buildNullSelect(String templateId) {
 
         List<QuerySteps> queryStepsList = buildQuerySteps(templateId);
@@ -32,9 +32,11 @@ import org.ehrbase.dao.access.interfaces.I_DomainAccess;
 import org.jooq.DSLContext;
 import org.jooq.Field;
 import org.jooq.SelectQuery;
+import org.jooq.SortField;
 import org.jooq.impl.DSL;
 
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.Iterator;
 import java.util.List;
 
@@ -48,6 +50,7 @@ public class SuperQuery {
     private SelectQuery query;
     private DSLContext context;
     private boolean outputWithJson;
+    private List<SortField<Object>> orderByFields = Collections.emptyList();
 
     public SuperQuery(I_DomainAccess domainAccess, VariableDefinitions variableDefinitions, SelectQuery query, boolean containsJson) {
         this.context = domainAccess.getContext();
@@ -169,7 +172,17 @@ public class SuperQuery {
 
     @SuppressWarnings("unchecked")
     public SelectQuery setOrderBy(List<OrderAttribute> orderAttributes, SelectQuery selectQuery){
-        return new OrderByBinder(variableDefinitions, orderAttributes, selectQuery).bind();
+        orderByFields = new OrderByBinder(variableDefinitions, orderAttributes, selectQuery).getOrderByFields();
+        if (!orderByFields.isEmpty())
+            selectQuery.addOrderBy(orderByFields);
+        return selectQuery;
+    }
+
+    /**
+     * @return the ORDER BY fields set by {@link #setOrderBy(List, SelectQuery)}, empty if none
+     */
+    public List<SortField<Object>> getOrderByFields() {
+        return orderByFields;
     }
 
     public SelectQuery select() {
@@ -0,0 +1,115 @@
+/*
+ * Copyright (c) 2022 Vitasystems GmbH and Hannover Medical School.
+ *
+ * This file is part of project EHRbase
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.ehrbase.aql.sql.binding;
+
+import org.jooq.Binding;
+import org.jooq.BindingGetResultSetContext;
+import org.jooq.BindingGetSQLInputContext;
+import org.jooq.BindingGetStatementContext;
+import org.jooq.BindingRegisterContext;
+import org.jooq.BindingSQLContext;
+import org.jooq.BindingSetSQLOutputContext;
+import org.jooq.BindingSetStatementContext;
+import org.jooq.Converter;
+import org.jooq.DataType;
+import org.jooq.conf.ParamType;
+import org.jooq.impl.DSL;
+import org.jooq.impl.SQLDataType;
+
+import java.sql.SQLException;
+import java.sql.SQLFeatureNotSupportedException;
+import java.sql.Types;
+
+/**
+ * Binds a string literal as a parameter of unspecified type.
+ * <p>
+ * The WHERE clause compares AQL string literals with columns of various types (uuid, timestamp, text...). Like an
+ * inlined literal, the parameter is sent without type (see PgJDBC <code>setObject(index, value, Types.OTHER)</code>),
+ * so that PostgreSQL infers it from the other operand, whereas a varchar parameter would fail to compare with e.g. an
+ * uuid.
+ * </p>
+ */
+public class UntypedStringBinding implements Binding<String, String> {
+
+    public static final DataType<String> UNTYPED_STRING = SQLDataType.VARCHAR.asConvertedDataType(new UntypedStringBinding());
+
+    @Override
+    public Converter<String, String> converter() {
+        return new Converter<>() {
+
+            @Override
+            public String from(String databaseObject) {
+                return databaseObject;
+            }
+
+            @Override
+            public String to(String userObject) {
+                return userObject;
+            }
+
+            @Override
+            public Class<String> fromType() {
+                return String.class;
+            }
+
+            @Override
+            public Class<String> toType() {
+                return String.class;
+            }
+        };
+    }
+
+    @Override
+    public void sql(BindingSQLContext<String> ctx) throws SQLException {
+        if (ctx.render().paramType() == ParamType.INLINED)
+            ctx.render().visit(DSL.inline(ctx.value()));
+        else
+            ctx.render().sql(ctx.variable());
+    }
+
+    @Override
+    public void register(BindingRegisterContext<String> ctx) throws SQLException {
+        ctx.statement().registerOutParameter(ctx.index(), Types.VARCHAR);
+    }
+
+    @Override
+    public void set(BindingSetStatementContext<String> ctx) throws SQLException {
+        ctx.statement().setObject(ctx.index(), ctx.value(), Types.OTHER);
+    }
+
+    @Override
+    public void get(BindingGetResultSetContext<String> ctx) throws SQLException {
+        ctx.value(ctx.resultSet().getString(ctx.index()));
+    }
+
+    @Override
+    public void get(BindingGetStatementContext<String> ctx) throws SQLException {
+        ctx.value(ctx.statement().getString(ctx.index()));
+    }
+
+    @Override
+    public void get(BindingGetSQLInputContext<String> ctx) throws SQLException {
+        throw new SQLFeatureNotSupportedException();
+    }
+
+    @Override
+    public void set(BindingSetSQLOutputContext<String> ctx) throws SQLException {
+        throw new SQLFeatureNotSupportedException();
+    }
+}
@@ -34,7 +34,9 @@ import org.ehrbase.serialisation.dbencoding.CompositionSerializer;
 import org.jooq.*;
 import org.jooq.impl.DSL;
 
+import java.math.BigDecimal;
 import java.util.*;
+import java.util.regex.Pattern;
 
 import static org.ehrbase.aql.sql.queryimpl.IterativeNodeConstants.ENV_AQL_USE_JSQUERY;
 
@@ -47,6 +49,9 @@ import static org.ehrbase.aql.sql.queryimpl.IterativeNodeConstants.ENV_AQL_USE_J
 public class WhereBinder {
 
     private static final String VALUETYPE_EXPR_VALUE = "/value,value";
+    private static final Pattern STRING_LITERAL = Pattern.compile("'(?:[^']|'')*'");
+    private static final Pattern INTEGER_LITERAL = Pattern.compile("-?\\d+");
+    private static final Pattern FLOAT_LITERAL = Pattern.compile("-?\\d+\\.\\d+");
     public static final String EXISTS = "EXISTS";
     public static final String MATCHES = "MATCHES";
     public static final String NOT = "NOT";
@@ -144,10 +149,10 @@ public class WhereBinder {
         }
     }
 
-    private TaggedStringBuilder buildWhereCondition(int whereCursor, MultiFieldsMap multiFieldsMap, TaggedStringBuilder taggedBuffer, List<Object> item) {
+    private TaggedStringBuilder buildWhereCondition(int whereCursor, MultiFieldsMap multiFieldsMap, TaggedStringBuilder taggedBuffer, List<Object> item, List<QueryPart> bindings) {
         for (Object part : item) {
             if (part instanceof String)
-                taggedBuffer.append((String) part);
+                taggedBuffer.append(bindLiteral((String) part, bindings));
             else if (part instanceof VariableDefinition) {
                 //substitute the identifier
                 TaggedStringBuilder taggedStringBuilder = encodeWhereVariable(whereCursor, multiFieldsMap, (VariableDefinition) part, false, null);
@@ -156,7 +161,7 @@ public class WhereBinder {
                     taggedBuffer.setTagField(taggedStringBuilder.getTagField());
                 }
             } else if (part instanceof List) {
-                TaggedStringBuilder taggedStringBuilder = buildWhereCondition(whereCursor, multiFieldsMap, taggedBuffer, (List) part);
+                TaggedStringBuilder taggedStringBuilder = buildWhereCondition(whereCursor, multiFieldsMap, taggedBuffer, (List) part, bindings);
                 taggedBuffer.append(taggedStringBuilder.toString());
                 taggedBuffer.setTagField(taggedStringBuilder.getTagField());
             }
@@ -172,6 +177,8 @@ public class WhereBinder {
             return null;
 
         TaggedStringBuilder taggedBuffer = new TaggedStringBuilder();
+        //the literals substituted by bind variables, referenced as {index} in the condition
+        List<QueryPart> bindings = new ArrayList<>();
 
         //work on a copy since Exist is destructive
         List<Object> whereItems = new ArrayList<>(whereClause);
@@ -222,17 +229,17 @@ public class WhereBinder {
                             }
                             isFollowedBySQLConditionalOperator = true;
                             item = hackItem(taggedBuffer, Long.toString(timestamp), "numeric");
-                            taggedBuffer.append((String) item);
+                            taggedBuffer.append(bindLiteral((String) item, bindings));
                         } else {
                             item = hackItem(taggedBuffer, (String) item, null);
-                            taggedBuffer.append((String) item);
+                            taggedBuffer.append(bindLiteral((String) item, bindings));
                         }
                         break;
 
                 }
             } else if (item instanceof Long) {
                 item = hackItem(taggedBuffer, item.toString(), null);
-                taggedBuffer.append(item.toString());
+                taggedBuffer.append(bindLiteral(item.toString(), bindings));
             } else if (item instanceof I_VariableDefinition) {
                 //look ahead and check if followed by a sql operator
                 TaggedStringBuilder taggedStringBuilder = new TaggedStringBuilder();
@@ -289,7 +296,7 @@ public class WhereBinder {
                     taggedBuffer.setTagField(taggedStringBuilder.getTagField());
                 }
             } else if (item instanceof List) {
-                TaggedStringBuilder taggedStringBuilder = buildWhereCondition(whereCursor, multiWhereFieldsMap, taggedBuffer, (List) item);
+                TaggedStringBuilder taggedStringBuilder = buildWhereCondition(whereCursor, multiWhereFieldsMap, taggedBuffer, (List) item, bindings);
                 taggedBuffer.append(taggedStringBuilder.toString());
                 taggedBuffer.setTagField(taggedStringBuilder.getTagField());
             }
@@ -299,7 +306,7 @@ public class WhereBinder {
         if (!unresolvedVariable) {
             taggedBuffer = new WhereJsQueryExpression(taggedBuffer, requiresJSQueryClosure, isFollowedBySQLConditionalOperator).closure(); //termination
 
-            return DSL.condition(taggedBuffer.toString());
+            return DSL.condition(taggedBuffer.toString(), bindings.toArray(new QueryPart[0]));
         }
         else
             return DSL.falseCondition();
@@ -307,6 +314,57 @@ public class WhereBinder {
 
 
 
+    /**
+     * Substitutes a literal, or a substituted $parameter, by a bind variable so that queries differing only by their
+     * values render the same SQL and share a prepared statement. The literals of a jsquery expression are part of the
+     * jsquery string and are kept inline.
+     * @param item the literal as found in the AQL
+     * @param bindings the bind variables of the condition, the new variable is added to it
+     * @return the template placeholder of the variable, or the item itself if it is not a literal
+     */
+    private String bindLiteral(String item, List<QueryPart> bindings) {
+        if (requiresJSQueryClosure)
+            return item;
+
+        Param<?> param = literalParam(item);
+        if (param == null)
+            return item;
+
+        bindings.add(param);
+        return "{" + (bindings.size() - 1) + "}";
+    }
+
+    /**
+     * The bind variable has the type PostgreSQL gives the literal written into the SQL, so that
+     * comparisons and the resolution of overloaded operators and functions do not change: an integer
+     * is an integer if it fits, else a bigint or a numeric; a decimal is a numeric; a string is of
+     * unknown type (see {@link UntypedStringBinding}).
+     *
+     * @param literal a string or numeric literal, as found in the AQL
+     * @return the bind variable of the literal, null if it is not a string or numeric literal
+     */
+    public static Param<?> literalParam(String literal) {
+        if (STRING_LITERAL.matcher(literal).matches())
+            return DSL.val(literal.substring(1, literal.length() - 1).replace("''", "'"), UntypedStringBinding.UNTYPED_STRING);
+        else if (INTEGER_LITERAL.matcher(literal).matches())
+            return integerParam(new BigDecimal(literal));
+        else if (FLOAT_LITERAL.matcher(literal).matches())
+            return DSL.val(new BigDecimal(literal));
+        else
+            return null;
+    }
+
+    private static Param<?> integerParam(BigDecimal value) {
+        try {
+            long longValue = value.longValueExact();
+            if (longValue >= Integer.MIN_VALUE && longValue <= Integer.MAX_VALUE)
+                return DSL.val((int) longValue);
+            return DSL.val(longValue);
+        } catch (ArithmeticException e) {
+            return DSL.val(value);
+        }
+    }
+
     private String encodeForSubquery(String sqlExpression, boolean inSubqueryOperator){
         if (inSubqueryOperator)
             return "(SELECT " + sqlExpression+")";
@@ -22,17 +22,13 @@
 package org.ehrbase.aql.sql.postprocessing;
 
 import com.google.gson.JsonElement;
+import com.google.gson.JsonParseException;
 import org.ehrbase.serialisation.dbencoding.rawjson.LightRawJsonEncoder;
 import org.jooq.Field;
 import org.jooq.JSONB;
 import org.jooq.Record;
 import org.jooq.Result;
 
-import jakarta.json.Json;
-import jakarta.json.JsonException;
-import jakarta.json.JsonReader;
-import java.io.StringReader;
-
 /**
  * Created by christian on 2/21/2017.
  */
@@ -50,48 +46,72 @@ public class RawJsonTransform implements IRawJsonTransform {
             return;
 
         for (Record record : result) {
+            toRawJson(record);
+        }
+    }
+
+    /**
+     * transform the jsonb/json string fields of a single record into raw json, used when records are
+     * fetched one at a time from a cursor
+     * <p>
+     * The value is only parsed once, by the encoder: jsonb returned by the DB is always well formed, a
+     * string looking like a json object or array is encoded directly and kept as is if the encoder
+     * fails to parse it.
+     * </p>
+     * @param record
+     */
+    public static void toRawJson(Record record) {
 
-            for (Field field : record.fields()) {
-                //get associated value
-                if (record.getValue(field) instanceof String || record.getValue(field) instanceof JSONB) {
-                    String value = record.getValue(field).toString();
-                    String jsonbOrigin = null;
-                    if (value.startsWith("[")) {
-                        //check if this is a valid array
-                        JsonReader jsonReader =  Json.createReader(new StringReader(value));
-                        try {
-                            jsonReader.readArray();
-                            jsonbOrigin = "{\"$array$\":" + value + "}";
-                        } catch (JsonException e) {
-                            //not a json array, do nothing
-                        }
-                        finally {
-                            jsonReader.close();
-                        }
-                    } else if (value.startsWith("{")) {
-                        JsonReader jsonReader =  Json.createReader(new StringReader(value));
-                        try {
-                            jsonReader.readObject();
-                            jsonbOrigin = value;
-                        } catch (JsonException e) {
-                            //not a json object, do nothing
-                        }
-                        finally {
-                            jsonReader.close();
-                        }
-                    }
-                    //apply the transformation
-                    if (jsonbOrigin != null) {
-                        JsonElement jsonElement = new LightRawJsonEncoder(jsonbOrigin).encodeContentAsJson(null);
-                        if (jsonElement.getAsJsonObject().has(ARRAY_MARKER)) {
-                            jsonElement = jsonElement.getAsJsonObject().getAsJsonArray(ARRAY_MARKER);
-
-                        }
-                        record.setValue(field, jsonElement);
-                    }
+        for (Field field : record.fields()) {
+            //get associated value
+            Object value = record.getValue(field);
+
+            //apply the transformation
+            if (value instanceof JSONB) {
+                String jsonbOrigin = ((JSONB) value).data();
+                if (isStructure(jsonbOrigin))
+                    record.setValue(field, encode(jsonbOrigin));
+            } else if (value instanceof String && isStructure((String) value)) {
+                try {
+                    record.setValue(field, encode((String) value));
+                } catch (JsonParseException e) {
+                    //not json after all: keep the string
                 }
             }
         }
     }
 
+    /**
+     * the encoder only accepts an object as root, an array is wrapped into one
+     */
+    private static JsonElement encode(String jsonbOrigin) {
+        boolean isArray = jsonbOrigin.charAt(0) == '[';
+        if (isArray)
+            jsonbOrigin = "{\"" + ARRAY_MARKER + "\":" + jsonbOrigin + "}";
+
+        JsonElement jsonElement = new LightRawJsonEncoder(jsonbOrigin).encodeContentAsJson(null);
+        if (isArray) {
+            jsonElement = jsonElement.getAsJsonObject().getAsJsonArray(ARRAY_MARKER);
+        }
+        return jsonElement;
+    }
+
+    /**
+     * cheap check on the delimiters: a json object or array, possibly followed by whitespaces
+     */
+    private static boolean isStructure(String value) {
+        if (value == null || value.isEmpty())
+            return false;
+
+        char first = value.charAt(0);
+        if (first != '{' && first != '[')
+            return false;
+
+        int last = value.length() - 1;
+        while (last > 0 && Character.isWhitespace(value.charAt(last)))
+            last--;
+
+        return (first == '{' && value.charAt(last) == '}') || (first == '[' && value.charAt(last) == ']');
+    }
+
 }
@@ -32,11 +32,14 @@ public class DurationFormatter {
             return;
 
         for (Record record : result) {
+            toISO8601(record);
+        }
+    }
 
-            for (Field field : record.fields()) {
-                if (record.getValue(field) instanceof PGInterval) {
-                    record.setValue(field, new Iso8601Duration((PGInterval) record.getValue(field)).toIsoString());
-                }
+    public static void toISO8601(Record record){
+        for (Field field : record.fields()) {
+            if (record.getValue(field) instanceof PGInterval) {
+                record.setValue(field, new Iso8601Duration((PGInterval) record.getValue(field)).toIsoString());
             }
         }
     }
@@ -19,10 +19,11 @@
 package org.ehrbase.aql.sql.queryimpl;
 
 import org.ehrbase.dao.access.interfaces.I_DomainAccess;
-import org.ehrbase.ehr.util.LocatableHelper;
 import org.ehrbase.service.IntrospectService;
 
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.regex.Pattern;
 import java.util.stream.Collectors;
 
 import static org.ehrbase.aql.sql.queryimpl.EntryAttributeMapper.OTHER_PARTICIPATIONS;
@@ -36,14 +37,18 @@ import static org.ehrbase.aql.sql.queryimpl.QueryImplConstants.AQL_NODE_ITERATIV
 @SuppressWarnings({"java:S3776","java:S3740","java:S1452","java:S1075","java:S135"})
 public class IterativeNode implements IIterativeNode {
 
+    //compiled ignore patterns by configured list of ignored nodes, the list is in practice constant
+    private static final Map<List<String>, List<Pattern>> IGNORE_PATTERNS = new ConcurrentHashMap<>();
+
     private List<String> ignoreIterativeNode; //f.e. '/content' '/events' etc.
-    private final List<String> unbounded;
+    private List<Pattern> ignorePatterns;
+    private final MultiValuedPaths unbounded;
     private Integer depth;
     private final I_DomainAccess domainAccess;
 
     public IterativeNode(I_DomainAccess domainAccess, String templateId, IntrospectService introspectCache) {
         this.domainAccess = domainAccess;
-        unbounded = introspectCache.multiValued(templateId);
+        unbounded = introspectCache.multiValuedPaths(templateId);
         initAqlRuntimeParameters();
     }
 
@@ -62,33 +67,16 @@ public class IterativeNode implements IIterativeNode {
         } else {
             String path = "/" + String.join("/", compact(segmentedPath));
 
-            for (int i = unbounded.size() - 1; i >= 0; i--) {
-                String aqlPath = unbounded.get(i);
+            for (MultiValuedPaths.MultiValuedPath aqlPath : unbounded.prefixesOf(path)) {
 
                 //check if this path is not excluded
-                List<String> aqlPathSegments = LocatableHelper.dividePathIntoSegments(aqlPath);
-
-                boolean ignoreThisAqlPath = false;
-                if (ignoreIterativeNode != null && !ignoreIterativeNode.isEmpty()) {
-                    for (String ignoreItemRegex : ignoreIterativeNode) {
-                        if (aqlPathSegments.get(aqlPathSegments.size() - 1).matches("^" + ignoreItemRegex + ".*")) {
-                            ignoreThisAqlPath = true;
-                            break;
-                        }
-
-                    }
-                }
-
-                if (ignoreThisAqlPath)
+                if (isIgnored(aqlPath.getLastSegment()))
                     continue;
 
-                if (path.startsWith(aqlPath) && !aqlPath.matches("^.*(value|name)$")) {
-                    int pos = aqlPathInJsonbArray(aqlPathSegments, segmentedPath);
-                    retarray.add(pos);
-                    if (retarray.size() >= depth)
-                        break;
-                }
-
+                int pos = aqlPathInJsonbArray(aqlPath.getSegments(), segmentedPath);
+                retarray.add(pos);
+                if (retarray.size() >= depth)
+                    break;
             }
         }
 
@@ -96,6 +84,14 @@ public class IterativeNode implements IIterativeNode {
         return retarray.toArray(new Integer[0]);
     }
 
+    private boolean isIgnored(String lastSegment) {
+        for (Pattern ignorePattern : ignorePatterns) {
+            if (ignorePattern.matcher(lastSegment).matches())
+                return true;
+        }
+        return false;
+    }
+
     public List<String> clipInIterativeMarker(List<String> segmentedPath, Integer[] clipPos) {
 
         List<String> resultingPath = new ArrayList<>(segmentedPath);
@@ -188,6 +184,10 @@ public class IterativeNode implements IIterativeNode {
         else
             ignoreIterativeNode = Arrays.asList("^/content.*", "^/events.*");
 
+        ignorePatterns = IGNORE_PATTERNS.computeIfAbsent(List.copyOf(ignoreIterativeNode), list -> list.stream()
+                .map(ignoreItemRegex -> Pattern.compile("^" + ignoreItemRegex + ".*"))
+                .collect(Collectors.toList()));
+
         if (System.getenv(ENV_AQL_ARRAY_DEPTH) != null) {
             depth = Integer.parseInt(System.getenv(ENV_AQL_ARRAY_DEPTH));
         }
@@ -0,0 +1,137 @@
+/*
+ * Copyright (c) 2022 Vitasystems GmbH and Hannover Medical School.
+ *
+ * This file is part of project EHRbase
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.ehrbase.aql.sql.queryimpl;
+
+import org.ehrbase.ehr.util.LocatableHelper;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Prefix trie of the AQL paths of the multi valued nodes of a template, see {@link IterativeNode}.
+ * <p>
+ * The trie is built once per template (see <code>IntrospectService.multiValuedPaths</code>), the multi valued paths
+ * being a prefix of a query path are then found with a single walk along the characters of that path.
+ * </p>
+ */
+public class MultiValuedPaths {
+
+    private final Node root = new Node();
+    private final boolean empty;
+
+    /**
+     * @param aqlPaths the paths of the multi valued nodes, as returned by <code>IntrospectService.multiValued</code>
+     */
+    public MultiValuedPaths(List<String> aqlPaths) {
+        for (int i = 0; i < aqlPaths.size(); i++) {
+            String aqlPath = aqlPaths.get(i);
+            //the values and names themselves are never iterated
+            if (aqlPath.endsWith("value") || aqlPath.endsWith("name"))
+                continue;
+
+            Node node = root;
+            for (char c : aqlPath.toCharArray())
+                node = node.children.computeIfAbsent(c, k -> new Node());
+
+            if (node.paths == null)
+                node.paths = new ArrayList<>(1);
+            node.paths.add(new MultiValuedPath(i, aqlPath));
+        }
+        empty = aqlPaths.isEmpty();
+    }
+
+    /**
+     * @return true if the template has no multi valued node
+     */
+    public boolean isEmpty() {
+        return empty;
+    }
+
+    /**
+     * Returns the multi valued paths the given path starts with, in reverse order of their declaration (that is the
+     * order the paths used to be scanned in).
+     *
+     * @param path a compacted query path, f.e. <code>/content[openEHR-EHR-OBSERVATION.x.v1]/data[at0001]</code>
+     * @return the matching paths, may be empty
+     */
+    public List<MultiValuedPath> prefixesOf(String path) {
+        List<MultiValuedPath> matches = null;
+
+        Node node = root;
+        for (int i = 0; i <= path.length(); i++) {
+            if (node.paths != null) {
+                if (matches == null)
+                    matches = new ArrayList<>();
+                matches.addAll(node.paths);
+            }
+            if (i == path.length())
+                break;
+            node = node.children.get(path.charAt(i));
+            if (node == null)
+                break;
+        }
+
+        if (matches == null)
+            return Collections.emptyList();
+
+        matches.sort(Comparator.comparingInt(MultiValuedPath::getIndex).reversed());
+        return matches;
+    }
+
+    private static class Node {
+        private final Map<Character, Node> children = new HashMap<>();
+        private List<MultiValuedPath> paths;
+    }
+
+    /**
+     * a multi valued path with its segments, divided once when building the trie
+     */
+    public static class MultiValuedPath {
+
+        private final int index;
+        private final String aqlPath;
+        private final List<String> segments;
+
+        MultiValuedPath(int index, String aqlPath) {
+            this.index = index;
+            this.aqlPath = aqlPath;
+            this.segments = Collections.unmodifiableList(LocatableHelper.dividePathIntoSegments(aqlPath));
+        }
+
+        int getIndex() {
+            return index;
+        }
+
+        public String getAqlPath() {
+            return aqlPath;
+        }
+
+        public List<String> getSegments() {
+            return segments;
+        }
+
+        public String getLastSegment() {
+            return segments.get(segments.size() - 1);
+        }
+    }
+}
@@ -23,15 +23,12 @@ import org.ehrbase.aql.sql.queryimpl.attribute.FieldResolutionContext;
 import org.ehrbase.aql.sql.queryimpl.attribute.IRMObjectAttribute;
 import org.ehrbase.aql.sql.queryimpl.attribute.JoinSetup;
 import org.jooq.Field;
-import org.jooq.SelectQuery;
 import org.jooq.TableField;
 import org.jooq.impl.DSL;
 import org.jooq.impl.SQLDataType;
 
 import java.util.UUID;
 
-import static org.ehrbase.jooq.pg.Tables.COMPOSITION_HISTORY;
-
 public class CompositionUidValue extends CompositionAttribute {
 
     public CompositionUidValue(FieldResolutionContext fieldContext, JoinSetup joinSetup) {
@@ -60,15 +57,7 @@ public class CompositionUidValue extends CompositionAttribute {
 
     private Field<?> uid() {
 
-        //use inline SQL as it seems coalesce is not going through with POSTGRES dialect
-        SelectQuery<?> subSelect = fieldContext.getContext().selectQuery();
-        subSelect.addSelect(DSL.count());
-        subSelect.addFrom(COMPOSITION_HISTORY);
-        subSelect.addConditions(JoinBinder.compositionRecordTable.field("id", UUID.class).eq(COMPOSITION_HISTORY.ID));
-        subSelect.addGroupBy(COMPOSITION_HISTORY.ID);
-
-        String coalesceVersion = "1 + COALESCE(\n(" + subSelect + "), 0)";
-
+        // the current version number is kept on the composition row (see V68__composition_version.sql)
         return aliased(DSL.field(JoinBinder.compositionRecordTable.field("id")
                         + "||"
                         + DSL.val("::")
@@ -77,7 +66,7 @@ public class CompositionUidValue extends CompositionAttribute {
                         + "||"
                         + DSL.val("::")
                         + "||"
-                        + DSL.field(coalesceVersion)
+                        + JoinBinder.compositionRecordTable.field("version")
                 , SQLDataType.VARCHAR));
 
     }
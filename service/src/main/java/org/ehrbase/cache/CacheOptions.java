@@ -16,6 +16,8 @@
 
 package org.ehrbase.cache;
 
+import java.time.Duration;
+
 /**
  * @author Renaud Subiger
  * @since 1.0.0
@@ -24,18 +26,36 @@ public class CacheOptions {
 
   public static final String INTROSPECT_CACHE = "introspectCache";
 
-  public static final String OPERATIONAL_TEMPLATE_CACHE = "operationaltemplateCache";
-
   public static final String QUERY_CACHE = "queryCache";
 
   public static final String FIELDS_CACHE = "fieldsCache";
 
   public static final String MULTI_VALUE_CACHE = "multivaluedCache";
 
+  public static final String AQL_PLAN_CACHE = "aqlPlanCache";
+
+  public static final String OPERATIONAL_TEMPLATE_CACHE = "operationalTemplateCache";
+
+  public static final String PARTY_ID_CACHE = "partyIdCache";
+
+  public static final String EHR_ID_CACHE = "ehrIdCache";
+
+  public static final String TERMINOLOGY_CACHE = "terminologyCache";
+
   private boolean preBuildQueries;
 
   private int preBuildQueriesDepth;
 
+  private String snapshotDirectory;
+
+  private Duration terminologyCacheRefreshAfter;
+
+  private Duration storedQueryReloadInterval;
+
+  private Duration templateRescanInterval;
+
+  private int flatFormatCacheSize;
+
   public boolean isPreBuildQueries() {
     return preBuildQueries;
   }
@@ -51,4 +71,44 @@ public class CacheOptions {
   public void setPreBuildQueriesDepth(int preBuildQueriesDepth) {
     this.preBuildQueriesDepth = preBuildQueriesDepth;
   }
+
+  public String getSnapshotDirectory() {
+    return snapshotDirectory;
+  }
+
+  public void setSnapshotDirectory(String snapshotDirectory) {
+    this.snapshotDirectory = snapshotDirectory;
+  }
+
+  public Duration getTerminologyCacheRefreshAfter() {
+    return terminologyCacheRefreshAfter;
+  }
+
+  public void setTerminologyCacheRefreshAfter(Duration terminologyCacheRefreshAfter) {
+    this.terminologyCacheRefreshAfter = terminologyCacheRefreshAfter;
+  }
+
+  public Duration getStoredQueryReloadInterval() {
+    return storedQueryReloadInterval;
+  }
+
+  public void setStoredQueryReloadInterval(Duration storedQueryReloadInterval) {
+    this.storedQueryReloadInterval = storedQueryReloadInterval;
+  }
+
+  public Duration getTemplateRescanInterval() {
+    return templateRescanInterval;
+  }
+
+  public void setTemplateRescanInterval(Duration templateRescanInterval) {
+    this.templateRescanInterval = templateRescanInterval;
+  }
+
+  public int getFlatFormatCacheSize() {
+    return flatFormatCacheSize;
+  }
+
+  public void setFlatFormatCacheSize(int flatFormatCacheSize) {
+    this.flatFormatCacheSize = flatFormatCacheSize;
+  }
 }
@@ -0,0 +1,93 @@
+/*
+ * Copyright 2022 vitasystems GmbH and Hannover Medical School.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.ehrbase.cache;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Progress of the cache warm-up performed at startup.
+ *
+ * <p>Templates are parsed before the application is started, queries are pre-built afterwards in
+ * the background: the application serves requests meanwhile, AQL queries on templates not yet
+ * processed are just slower.
+ */
+public class CacheWarmUpProgress {
+
+  public enum State {
+    NOT_STARTED,
+    CACHING_TEMPLATES,
+    PRE_BUILDING_QUERIES,
+    READY
+  }
+
+  private volatile State state = State.NOT_STARTED;
+
+  private final AtomicInteger templates = new AtomicInteger();
+
+  private final AtomicInteger cachedTemplates = new AtomicInteger();
+
+  private final AtomicInteger failedTemplates = new AtomicInteger();
+
+  private final AtomicInteger preBuiltTemplates = new AtomicInteger();
+
+  public State getState() {
+    return state;
+  }
+
+  public void setState(State state) {
+    this.state = state;
+  }
+
+  public void start(int templateCount) {
+    templates.set(templateCount);
+    cachedTemplates.set(0);
+    failedTemplates.set(0);
+    preBuiltTemplates.set(0);
+    state = State.CACHING_TEMPLATES;
+  }
+
+  public void templateCached() {
+    cachedTemplates.incrementAndGet();
+  }
+
+  public void templateFailed() {
+    failedTemplates.incrementAndGet();
+  }
+
+  /**
+   * @return true when the queries of the last template have been pre-built
+   */
+  public boolean queriesPreBuilt() {
+    return preBuiltTemplates.incrementAndGet() >= cachedTemplates.get();
+  }
+
+  public int getTemplates() {
+    return templates.get();
+  }
+
+  public int getCachedTemplates() {
+    return cachedTemplates.get();
+  }
+
+  public int getFailedTemplates() {
+    return failedTemplates.get();
+  }
+
+  public int getPreBuiltTemplates() {
+    return preBuiltTemplates.get();
+  }
+}
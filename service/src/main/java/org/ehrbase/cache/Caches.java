@@ -0,0 +1,66 @@
+/*
+ * Copyright 2022 vitasystems GmbH and Hannover Medical School.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.ehrbase.cache;
+
+import java.util.function.Supplier;
+import org.springframework.cache.Cache;
+
+/**
+ * Load-through access to the caches configured in {@link CacheOptions}.
+ */
+public final class Caches {
+
+  private Caches() {
+  }
+
+  /**
+   * Returns the cached value, or loads and caches it. Concurrent loads of the same key wait for
+   * the first one.
+   *
+   * @param cache  the cache, null if it is disabled
+   * @param key    the key
+   * @param loader loads the value on a miss
+   * @return the value
+   * @throws RuntimeException the exception thrown by the loader, unwrapped
+   */
+  public static <T> T get(Cache cache, Object key, Supplier<T> loader) {
+    if (cache == null) {
+      return loader.get();
+    }
+
+    try {
+      return cache.get(key, loader::get);
+    } catch (Cache.ValueRetrievalException e) {
+      throw unwrap(e);
+    }
+  }
+
+  private static RuntimeException unwrap(Cache.ValueRetrievalException e) {
+    Throwable cause = e;
+    while (cause.getCause() != null && (cause instanceof Cache.ValueRetrievalException
+        || cause.getClass().getName().startsWith("javax.cache."))) {
+      cause = cause.getCause();
+    }
+    if (cause instanceof RuntimeException) {
+      return (RuntimeException) cause;
+    }
+    if (cause instanceof Error) {
+      throw (Error) cause;
+    }
+    return e;
+  }
+}
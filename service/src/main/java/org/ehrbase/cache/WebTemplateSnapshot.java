@@ -0,0 +1,70 @@
+/*
+ * Copyright 2022 vitasystems GmbH and Hannover Medical School.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.ehrbase.cache;
+
+import java.util.List;
+import java.util.Map;
+import org.ehrbase.aql.containment.JsonPathQueryResult;
+import org.ehrbase.aql.containment.TemplateIdQueryTuple;
+import org.ehrbase.aql.sql.queryimpl.ItemInfo;
+import org.ehrbase.webtemplate.model.WebTemplate;
+
+/**
+ * The parsed {@link WebTemplate} of a template with the cache entries derived from it, as persisted
+ * by the {@link WebTemplateSnapshotStore}.
+ */
+public class WebTemplateSnapshot {
+
+  private final WebTemplate webTemplate;
+
+  private final Map<TemplateIdQueryTuple, JsonPathQueryResult> queryResults;
+
+  private final List<String> multiValued;
+
+  private final Map<String, ItemInfo> fields;
+
+  /**
+   * @param webTemplate  the parsed template
+   * @param queryResults the pre-built containment queries, may be empty
+   * @param multiValued  the paths of the multi valued nodes, may be null if not computed
+   * @param fields       the type and category of the fields by AQL path, may be empty
+   */
+  public WebTemplateSnapshot(WebTemplate webTemplate,
+      Map<TemplateIdQueryTuple, JsonPathQueryResult> queryResults, List<String> multiValued,
+      Map<String, ItemInfo> fields) {
+    this.webTemplate = webTemplate;
+    this.queryResults = queryResults;
+    this.multiValued = multiValued;
+    this.fields = fields;
+  }
+
+  public WebTemplate getWebTemplate() {
+    return webTemplate;
+  }
+
+  public Map<TemplateIdQueryTuple, JsonPathQueryResult> getQueryResults() {
+    return queryResults;
+  }
+
+  public List<String> getMultiValued() {
+    return multiValued;
+  }
+
+  public Map<String, ItemInfo> getFields() {
+    return fields;
+  }
+}
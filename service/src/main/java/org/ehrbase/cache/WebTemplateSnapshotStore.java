@@ -0,0 +1,352 @@
+/*
+ * Copyright 2022 vitasystems GmbH and Hannover Medical School.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.ehrbase.cache;
+
+import com.fasterxml.jackson.annotation.JsonAutoDetect.Visibility;
+import com.fasterxml.jackson.annotation.PropertyAccessor;
+import com.fasterxml.jackson.databind.MapperFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.security.CodeSource;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.function.IntFunction;
+import org.ehrbase.aql.containment.JsonPathQueryResult;
+import org.ehrbase.aql.containment.TemplateIdQueryTuple;
+import org.ehrbase.aql.sql.queryimpl.ItemInfo;
+import org.ehrbase.webtemplate.model.WebTemplate;
+import org.ehrbase.webtemplate.parser.NodeId;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Persists a {@link WebTemplateSnapshot} per template, so that a restarted node does not have to
+ * parse its templates again.
+ *
+ * <p>A snapshot file is named after the template UID. Its header holds the version of the layout,
+ * the version of the library of the {@link WebTemplate} model and the hash of the template content:
+ * a snapshot is only used if it was written by the same layout and library, for the unchanged
+ * template. The body is binary: the fields of the {@link WebTemplate}, as JSON read back into the
+ * same types only, then the pre-built queries, the multi valued paths and the type of the fields.
+ * Files are memory mapped and decoded as they are read. Any snapshot that can not be read is
+ * ignored and the template parsed as usual.
+ */
+public class WebTemplateSnapshotStore {
+
+  private static final int MAGIC = 0x57545332;
+
+  // to be incremented on any change of the layout
+  private static final int FORMAT_VERSION = 1;
+
+  private static final String EXTENSION = ".wts";
+
+  // maps the fields of the WebTemplate model, its annotations are meant for the REST API format
+  private static final ObjectMapper MAPPER = new ObjectMapper()
+      .configure(MapperFeature.USE_ANNOTATIONS, false)
+      .setVisibility(PropertyAccessor.ALL, Visibility.NONE)
+      .setVisibility(PropertyAccessor.FIELD, Visibility.ANY);
+
+  private static final String LIBRARY_VERSION = libraryVersion();
+
+  private final Logger log = LoggerFactory.getLogger(getClass());
+
+  private final Path directory;
+
+  /**
+   * @param directory the directory of the snapshots, created if missing
+   */
+  public WebTemplateSnapshotStore(String directory) {
+    this.directory = Paths.get(directory);
+  }
+
+  /**
+   * @return the SHA-256 hash of the template content
+   */
+  public static byte[] hash(String content) {
+    try {
+      return MessageDigest.getInstance("SHA-256").digest(content.getBytes(StandardCharsets.UTF_8));
+    } catch (NoSuchAlgorithmException e) {
+      throw new IllegalStateException(e);
+    }
+  }
+
+  /**
+   * the version of the library of the WebTemplate model, or its location if the jar has none
+   */
+  private static String libraryVersion() {
+    String version = WebTemplate.class.getPackage().getImplementationVersion();
+    if (version == null) {
+      CodeSource codeSource = WebTemplate.class.getProtectionDomain().getCodeSource();
+      version = codeSource == null ? "" : String.valueOf(codeSource.getLocation());
+    }
+    return version;
+  }
+
+  /**
+   * @return the snapshot of the template, or null if there is none for this content
+   */
+  public WebTemplateSnapshot load(UUID uid, byte[] hash) {
+    Path file = file(uid);
+    if (!Files.isRegularFile(file)) {
+      return null;
+    }
+
+    try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+      ByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+
+      if (buffer.getInt() != MAGIC || buffer.getInt() != FORMAT_VERSION
+          || !LIBRARY_VERSION.equals(readString(buffer))) {
+        log.debug("Snapshot of template {} written by another release, ignored", uid);
+        return null;
+      }
+      if (!Arrays.equals(readBytes(buffer), hash)) {
+        log.debug("Template {} has changed, snapshot ignored", uid);
+        return null;
+      }
+
+      return read(buffer);
+    } catch (IOException | RuntimeException e) {
+      log.warn("Could not read snapshot of template {}: {}", uid, e.getMessage());
+      return null;
+    }
+  }
+
+  /**
+   * write the snapshot of the template, replacing any previous one
+   */
+  public void save(UUID uid, byte[] hash, WebTemplateSnapshot snapshot) {
+    try {
+      Files.createDirectories(directory);
+      Path temp = Files.createTempFile(directory, uid.toString(), ".tmp");
+      try (DataOutputStream out = new DataOutputStream(
+          new BufferedOutputStream(Files.newOutputStream(temp)))) {
+        out.writeInt(MAGIC);
+        out.writeInt(FORMAT_VERSION);
+        writeString(out, LIBRARY_VERSION);
+        writeBytes(out, hash);
+        write(out, snapshot);
+      } catch (IOException | RuntimeException e) {
+        Files.deleteIfExists(temp);
+        throw e;
+      }
+      Files.move(temp, file(uid), StandardCopyOption.REPLACE_EXISTING,
+          StandardCopyOption.ATOMIC_MOVE);
+    } catch (IOException | RuntimeException e) {
+      log.warn("Could not write snapshot of template {}: {}", uid, e.getMessage());
+    }
+  }
+
+  public void delete(UUID uid) {
+    try {
+      Files.deleteIfExists(file(uid));
+    } catch (IOException e) {
+      log.warn("Could not delete snapshot of template {}: {}", uid, e.getMessage());
+    }
+  }
+
+  private Path file(UUID uid) {
+    return directory.resolve(uid + EXTENSION);
+  }
+
+  private static void write(DataOutputStream out, WebTemplateSnapshot snapshot)
+      throws IOException {
+    writeBytes(out, MAPPER.writeValueAsBytes(snapshot.getWebTemplate()));
+
+    out.writeInt(snapshot.getQueryResults().size());
+    for (Map.Entry<TemplateIdQueryTuple, JsonPathQueryResult> entry :
+        snapshot.getQueryResults().entrySet()) {
+      TemplateIdQueryTuple key = entry.getKey();
+      writeString(out, key.getTemplateId());
+      // the kind of collection matters to the equality of the keys
+      out.writeBoolean(key.getJsonQueryExpression() instanceof Set);
+      out.writeInt(key.getJsonQueryExpression().size());
+      for (NodeId nodeId : key.getJsonQueryExpression()) {
+        writeString(out, nodeId.getClassName());
+        writeString(out, nodeId.getNodeId());
+      }
+      writeString(out, entry.getValue().getTemplateId());
+      writeStrings(out, entry.getValue().getAqlPath());
+    }
+
+    writeStrings(out, snapshot.getMultiValued());
+
+    out.writeInt(snapshot.getFields().size());
+    for (Map.Entry<String, ItemInfo> field : snapshot.getFields().entrySet()) {
+      writeString(out, field.getKey());
+      writeString(out, field.getValue().getItemType());
+      writeString(out, field.getValue().getItemCategory());
+    }
+  }
+
+  private static WebTemplateSnapshot read(ByteBuffer buffer) throws IOException {
+    int length = length(buffer);
+    ByteBuffer json = buffer.slice();
+    json.limit(length);
+    buffer.position(buffer.position() + length);
+    WebTemplate webTemplate =
+        MAPPER.readValue(new ByteBufferInputStream(json), WebTemplate.class);
+
+    int queryCount = length(buffer);
+    Map<TemplateIdQueryTuple, JsonPathQueryResult> queryResults = new HashMap<>(queryCount * 2);
+    for (int i = 0; i < queryCount; i++) {
+      String templateId = readString(buffer);
+      Collection<NodeId> nodeIds = buffer.get() != 0 ? new LinkedHashSet<>() : new ArrayList<>();
+      int nodeIdCount = buffer.getInt();
+      for (int j = 0; j < nodeIdCount; j++) {
+        nodeIds.add(new NodeId(readString(buffer), readString(buffer)));
+      }
+      String resultTemplateId = readString(buffer);
+      Set<String> aqlPaths = readStrings(buffer, LinkedHashSet::new);
+      queryResults.put(new TemplateIdQueryTuple(templateId, nodeIds),
+          new JsonPathQueryResult(resultTemplateId, aqlPaths));
+    }
+
+    List<String> multiValued = readStrings(buffer, ArrayList::new);
+
+    int fieldCount = length(buffer);
+    Map<String, ItemInfo> fields = new HashMap<>(fieldCount * 2);
+    for (int i = 0; i < fieldCount; i++) {
+      fields.put(readString(buffer), new ItemInfo(readString(buffer), readString(buffer)));
+    }
+
+    if (buffer.hasRemaining()) {
+      throw new IOException("unexpected content at the end of the snapshot");
+    }
+    return new WebTemplateSnapshot(webTemplate, queryResults, multiValued, fields);
+  }
+
+  private static void writeBytes(DataOutputStream out, byte[] bytes) throws IOException {
+    out.writeInt(bytes.length);
+    out.write(bytes);
+  }
+
+  private static byte[] readBytes(ByteBuffer buffer) {
+    byte[] bytes = new byte[length(buffer)];
+    buffer.get(bytes);
+    return bytes;
+  }
+
+  /**
+   * reads a length or count, which can not exceed the remaining bytes of a valid snapshot
+   */
+  private static int length(ByteBuffer buffer) {
+    int length = buffer.getInt();
+    if (length > buffer.remaining()) {
+      throw new BufferUnderflowException();
+    }
+    return length;
+  }
+
+  /**
+   * a length of -1 stands for null
+   */
+  private static void writeString(DataOutputStream out, String value) throws IOException {
+    if (value == null) {
+      out.writeInt(-1);
+    } else {
+      writeBytes(out, value.getBytes(StandardCharsets.UTF_8));
+    }
+  }
+
+  private static String readString(ByteBuffer buffer) {
+    int length = length(buffer);
+    if (length < 0) {
+      return null;
+    }
+    byte[] bytes = new byte[length];
+    buffer.get(bytes);
+    return new String(bytes, StandardCharsets.UTF_8);
+  }
+
+  /**
+   * a count of -1 stands for null
+   */
+  private static void writeStrings(DataOutputStream out, Collection<String> values)
+      throws IOException {
+    if (values == null) {
+      out.writeInt(-1);
+      return;
+    }
+    out.writeInt(values.size());
+    for (String value : values) {
+      writeString(out, value);
+    }
+  }
+
+  private static <C extends Collection<String>> C readStrings(ByteBuffer buffer,
+      IntFunction<C> factory) {
+    int count = length(buffer);
+    if (count < 0) {
+      return null;
+    }
+    C values = factory.apply(count);
+    for (int i = 0; i < count; i++) {
+      values.add(readString(buffer));
+    }
+    return values;
+  }
+
+  private static class ByteBufferInputStream extends InputStream {
+
+    private final ByteBuffer buffer;
+
+    ByteBufferInputStream(ByteBuffer buffer) {
+      this.buffer = buffer;
+    }
+
+    @Override
+    public int read() {
+      return buffer.hasRemaining() ? buffer.get() & 0xFF : -1;
+    }
+
+    @Override
+    public int read(byte[] bytes, int offset, int length) {
+      if (!buffer.hasRemaining()) {
+        return -1;
+      }
+      int count = Math.min(length, buffer.remaining());
+      buffer.get(bytes, offset, count);
+      return count;
+    }
+
+    @Override
+    public int available() {
+      return buffer.remaining();
+    }
+  }
+}
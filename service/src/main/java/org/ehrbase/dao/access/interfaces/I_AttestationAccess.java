@@ -19,10 +19,14 @@
 package org.ehrbase.dao.access.interfaces;
 
 import com.nedap.archie.rm.generic.Attestation;
+import com.nedap.archie.rm.generic.PartyProxy;
 import org.ehrbase.dao.access.jooq.AttestationAccess;
 
+import java.util.Collection;
 import java.util.List;
+import java.util.Map;
 import java.util.UUID;
+import java.util.function.Function;
 
 public interface I_AttestationAccess extends I_SimpleCRUD {
 
@@ -43,5 +47,22 @@ public interface I_AttestationAccess extends I_SimpleCRUD {
         return AttestationAccess.retrieveListOfAttestationsByRef(domainAccess, attestationRef);
     }
 
+    /**
+     * Retrieve the attestations of several version objects with one query
+     * @param domainAccess      General data access
+     * @param attestationRefs   IDs of references from DB to find associated attestations
+     * @return Attestation access objects by reference ID, references without attestations are left out
+     */
+    static Map<UUID, List<I_AttestationAccess>> retrieveAttestationsByRefs(I_DomainAccess domainAccess, Collection<UUID> attestationRefs) {
+        return AttestationAccess.retrieveAttestationsByRefs(domainAccess, attestationRefs);
+    }
+
     Attestation getAsAttestation();
+
+    /**
+     * Like {@link #getAsAttestation()}, with the committer looked up by the given function
+     * @param committers Returns the party of a committer ID
+     * @return Attestation with the committer returned by the function
+     */
+    Attestation getAsAttestation(Function<UUID, PartyProxy> committers);
 }
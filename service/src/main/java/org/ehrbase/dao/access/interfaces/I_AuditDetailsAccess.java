@@ -19,13 +19,18 @@
 package org.ehrbase.dao.access.interfaces;
 
 import com.nedap.archie.rm.generic.AuditDetails;
+import com.nedap.archie.rm.generic.PartyProxy;
 import org.ehrbase.api.exception.InternalServerException;
 import org.ehrbase.dao.access.jooq.AuditDetailsAccess;
 import org.ehrbase.jooq.pg.enums.ContributionChangeType;
 import org.ehrbase.jooq.pg.tables.records.AuditDetailsRecord;
 
+import org.jooq.Query;
+
 import java.sql.Timestamp;
+import java.util.List;
 import java.util.UUID;
+import java.util.function.Function;
 
 public interface I_AuditDetailsAccess extends I_SimpleCRUD {
 
@@ -73,6 +78,14 @@ public interface I_AuditDetailsAccess extends I_SimpleCRUD {
      */
     UUID commit(UUID systemId, UUID committerId, String description);
 
+    /**
+     * Prepares the inserts of a commit without executing them, so that they can be sent to the DB in a
+     * single batch together with the inserts of dependent records. The record ids are assigned beforehand.
+     * @param transactionTime Timestamp of transaction time
+     * @return the inserts, in execution order
+     */
+    List<Query> commitQueries(Timestamp transactionTime);
+
     /**
      * Update method with all optional parameters to only set and invoke update with given parameters.
      * @param systemId Optional
@@ -112,4 +125,12 @@ public interface I_AuditDetailsAccess extends I_SimpleCRUD {
     void setRecord(AuditDetailsRecord record);
 
     AuditDetails getAsAuditDetails();
+
+    /**
+     * Like {@link #getAsAuditDetails()}, with the committer looked up by the given function, e.g. to share the
+     * lookups between several audits.
+     * @param committers Returns the party of a committer ID
+     * @return Audit details with the committer returned by the function
+     */
+    AuditDetails getAsAuditDetails(Function<UUID, PartyProxy> committers);
 }
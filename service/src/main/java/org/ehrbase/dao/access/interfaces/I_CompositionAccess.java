@@ -38,6 +38,7 @@ import java.sql.Timestamp;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
+import java.util.SortedMap;
 import java.util.UUID;
 
 import static org.ehrbase.jooq.pg.Tables.*;
@@ -144,6 +145,22 @@ public interface I_CompositionAccess extends I_VersionedCRUD {
         return CompositionAccess.retrieveCompositionVersion(domainAccess, id, version);
     }
 
+    /**
+     * Retrieve a range of versions of a composition with their audit but without their content, the versions in the
+     * history with a single query
+     *
+     * @param domainAccess SQL context
+     * @param id           the versioned_object uuid
+     * @param from         first version number, inclusive
+     * @param to           last version number, inclusive
+     * @return {@link I_CompositionAccess} objects of the existing versions without content, by version number
+     * @throws IllegalArgumentException when from is not greater 0
+     * @throws ObjectNotFoundException  when the history can't be read
+     */
+    static SortedMap<Integer, I_CompositionAccess> retrieveCompositionVersions(I_DomainAccess domainAccess, UUID id, int from, int to) {
+        return CompositionAccess.retrieveCompositionVersions(domainAccess, id, from, to);
+    }
+
     /**
      * Calculate the version corresponding to a {@link com.nedap.archie.rm.ehr.VersionedComposition}  which is the closest in time (before) the {@link Timestamp} provided.
      *
@@ -197,6 +214,16 @@ public interface I_CompositionAccess extends I_VersionedCRUD {
         return CompositionAccess.retrieveCompositionsInContribution(domainAccess, contributionId, node);
     }
 
+    /**
+     * Reads the template ID of the latest version of a composition.
+     * @param domainAccess Data access object
+     * @param compositionId ID of the composition
+     * @return the template ID, or null if there is no current version of the composition
+     */
+    static String fetchTemplateId(I_DomainAccess domainAccess, UUID compositionId) {
+        return CompositionAccess.fetchTemplateId(domainAccess, compositionId);
+    }
+
     /**
      * check if a composition has a previous version in history
      *
@@ -209,11 +236,13 @@ public interface I_CompositionAccess extends I_VersionedCRUD {
     }
 
     /**
-     * Creates Map containing all versions as their Access object with their matching version number.
+     * Creates Map containing all versions as their Access object with their matching version number. The Access
+     * objects hold the audit but not the content of the version.
      *
      * @param domainAccess  Data Access
      * @param compositionId Given composition ID
      * @return Map referencing all versions by their version number
+     * @throws InternalServerException when the stored version numbers are inconsistent
      */
     static Map<Integer, I_CompositionAccess> getVersionMapOfComposition(I_DomainAccess domainAccess, UUID compositionId) {
         return CompositionAccess.getVersionMapOfComposition(domainAccess, compositionId);
@@ -232,14 +261,11 @@ public interface I_CompositionAccess extends I_VersionedCRUD {
 
     // TODO: doc! what's the logic behind the returned int code?
     static Integer fetchTerritoryCode(I_DomainAccess domainAccess, String territoryAsString) {
-        Result<TerritoryRecord> result = domainAccess.getContext().selectFrom(TERRITORY).where(TERRITORY.TWOLETTER.equal(territoryAsString)).fetch();
-        if (result.isEmpty())
-            return -1;
-        return result.get(0).getCode();
+        return domainAccess.getTerminologyLookup().territoryCode(territoryAsString);
     }
 
     static boolean isValidLanguageCode(I_DomainAccess domainAccess, String languageCode) {
-        return !domainAccess.getContext().selectFrom(LANGUAGE).where(LANGUAGE.CODE.equal(languageCode)).fetch().isEmpty();
+        return domainAccess.getTerminologyLookup().isValidLanguageCode(languageCode);
     }
 
     Timestamp getSysTransaction();
@@ -21,17 +21,15 @@
  */
 package org.ehrbase.dao.access.interfaces;
 
-import org.ehrbase.jooq.pg.tables.records.ConceptRecord;
+import org.ehrbase.dao.access.util.TerminologyLookup;
 import com.nedap.archie.rm.datatypes.CodePhrase;
 import com.nedap.archie.rm.datavalues.DvCodedText;
 import com.nedap.archie.rm.support.identification.TerminologyId;
 
 import java.util.UUID;
 
-import static org.ehrbase.jooq.pg.Tables.CONCEPT;
-
 /**
- * access layer to Concepts
+ * access layer to Concepts, served by the {@link I_DomainAccess#getTerminologyLookup()}
  * ETHERCIS Project ehrservice
  * Created by Christian Chevalley on 4/27/2015.
  */
@@ -59,20 +57,20 @@ public interface I_ConceptAccess {
      * @return the record {@link UUID} or null if not found
      */
     static UUID fetchConcept(I_DomainAccess domainAccess, Integer conceptId, String language) {
-        return domainAccess.getContext().fetchAny(CONCEPT, CONCEPT.CONCEPTID.eq(conceptId).and(CONCEPT.LANGUAGE.equal(language))).getId();
+        return domainAccess.getTerminologyLookup().conceptUuid(conceptId, language);
     }
 
     static DvCodedText fetchConceptText(I_DomainAccess domainAccess, UUID uuid) {
-        ConceptRecord conceptRecord = domainAccess.getContext().fetchAny(CONCEPT, CONCEPT.ID.eq(uuid));
-        return new DvCodedText(conceptRecord.getDescription(), new CodePhrase(new TerminologyId("openehr"), "" + conceptRecord.getConceptid()));
+        TerminologyLookup.Concept concept = domainAccess.getTerminologyLookup().concept(uuid);
+        return new DvCodedText(concept.getDescription(), new CodePhrase(new TerminologyId("openehr"), "" + concept.getConceptId()));
     }
 
     static String fetchConceptLiteral(I_DomainAccess domainAccess, Integer conceptId, String language) {
-        return domainAccess.getContext().fetchAny(CONCEPT, CONCEPT.CONCEPTID.eq(conceptId).and(CONCEPT.LANGUAGE.equal(language))).getDescription();
+        return domainAccess.getTerminologyLookup().conceptDescription(conceptId, language);
     }
 
     static String fetchConceptLiteral(I_DomainAccess domainAccess, UUID uuid) {
-        return domainAccess.getContext().fetchAny(CONCEPT, CONCEPT.ID.eq(uuid)).getDescription();
+        return domainAccess.getTerminologyLookup().concept(uuid).getDescription();
     }
 
     /**
@@ -86,14 +84,14 @@ public interface I_ConceptAccess {
     static UUID fetchContributionChangeType(I_DomainAccess domainAccess, String changeTypeStr) {
         ContributionChangeType contributionChangeType = ContributionChangeType.valueOf(changeTypeStr.toUpperCase());
         int code = contributionChangeType.getCode();
-        return domainAccess.getContext().fetchAny(CONCEPT, CONCEPT.CONCEPTID.eq(code).and(CONCEPT.LANGUAGE.equal("en"))).getId();
+        return fetchConcept(domainAccess, code, "en");
     }
 
     static UUID fetchContributionChangeType(I_DomainAccess domainAccess, ContributionChangeType contributionChangeType) {
         if (contributionChangeType == null)
             return null;
         int code = contributionChangeType.getCode();
-        return domainAccess.getContext().fetchAny(CONCEPT, CONCEPT.CONCEPTID.eq(code).and(CONCEPT.LANGUAGE.equal("en"))).getId();
+        return fetchConcept(domainAccess, code, "en");
     }
 
     /**
@@ -104,7 +102,7 @@ public interface I_ConceptAccess {
      * @return the record {@link UUID}
      */
     static UUID getVlcsDraft(I_DomainAccess domainAccess) {
-        return domainAccess.getContext().fetchAny(CONCEPT, CONCEPT.CONCEPTID.eq(244).and(CONCEPT.LANGUAGE.equal("en"))).getId();
+        return fetchConcept(domainAccess, 244, "en");
     }
 
     /**
@@ -115,7 +113,7 @@ public interface I_ConceptAccess {
      * @return the record {@link UUID}
      */
     static UUID getVlcsActive(I_DomainAccess domainAccess) {
-        return domainAccess.getContext().fetchAny(CONCEPT, CONCEPT.CONCEPTID.eq(245).and(CONCEPT.LANGUAGE.equal("en"))).getId();
+        return fetchConcept(domainAccess, 245, "en");
     }
 
     /**
@@ -126,7 +124,7 @@ public interface I_ConceptAccess {
      * @return the record {@link UUID}
      */
     static UUID getVlcsInactive(I_DomainAccess domainAccess) {
-        return domainAccess.getContext().fetchAny(CONCEPT, CONCEPT.CONCEPTID.eq(246).and(CONCEPT.LANGUAGE.equal("en"))).getId();
+        return fetchConcept(domainAccess, 246, "en");
     }
 
     /**
@@ -137,6 +135,6 @@ public interface I_ConceptAccess {
      * @return the record {@link UUID}
      */
     static UUID getVlcsAwaitingApproval(I_DomainAccess domainAccess) {
-        return domainAccess.getContext().fetchAny(CONCEPT, CONCEPT.CONCEPTID.eq(247).and(CONCEPT.LANGUAGE.equal("en"))).getId();
+        return fetchConcept(domainAccess, 247, "en");
     }
 }
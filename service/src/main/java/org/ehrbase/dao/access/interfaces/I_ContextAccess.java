@@ -24,9 +24,11 @@ package org.ehrbase.dao.access.interfaces;
 import org.ehrbase.dao.access.jooq.ContextAccess;
 import com.nedap.archie.rm.composition.EventContext;
 import org.ehrbase.api.exception.InternalServerException;
+import org.jooq.Query;
 import org.jooq.Result;
 
 import java.sql.Timestamp;
+import java.util.List;
 import java.util.UUID;
 
 import static org.ehrbase.jooq.pg.Tables.EVENT_CONTEXT;
@@ -38,6 +40,14 @@ import static org.ehrbase.jooq.pg.Tables.EVENT_CONTEXT;
  */
 public interface I_ContextAccess extends I_SimpleCRUD {
 
+    /**
+     * Prepares the inserts of a commit without executing them, so that they can be sent to the DB in a
+     * single batch together with the inserts of dependent records. The record ids are assigned beforehand.
+     * @param transactionTime Timestamp of transaction time
+     * @return the inserts of the event context and its participations, in execution order
+     */
+    List<Query> commitQueries(Timestamp transactionTime);
+
     /**
      * get a new access layer instance to the table
      *
@@ -28,7 +28,10 @@ import org.ehrbase.dao.access.jooq.ContributionAccess;
 import org.ehrbase.dao.access.util.ContributionDef;
 import org.ehrbase.jooq.pg.enums.ContributionDataType;
 
+import org.jooq.Query;
+
 import java.sql.Timestamp;
+import java.util.List;
 import java.util.UUID;
 
 /**
@@ -72,6 +75,14 @@ public interface I_ContributionAccess extends I_SimpleCRUD {
      */
     UUID commit(Timestamp transactionTime, ContributionDataType contributionType, ContributionDef.ContributionState state);
 
+    /**
+     * Prepares the inserts of a commit without executing them, so that they can be sent to the DB in a
+     * single batch together with the inserts of dependent records. The record ids are assigned beforehand.
+     * @param transactionTime Timestamp of transaction time
+     * @return the inserts of the audit and the contribution, in execution order
+     */
+    List<Query> commitQueries(Timestamp transactionTime);
+
     /**
      * Commits given input as contribution record. Embeds creation of audit for this commit. All parameters are optional and will be provided with default values if NULL.
      *
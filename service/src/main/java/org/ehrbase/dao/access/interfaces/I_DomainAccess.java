@@ -22,8 +22,10 @@
 package org.ehrbase.dao.access.interfaces;
 
 import org.ehrbase.api.definitions.ServerConfig;
+import org.ehrbase.dao.access.jooq.party.PartyIdCache;
 import org.ehrbase.dao.access.support.DataAccess;
 import org.ehrbase.dao.access.support.ServiceDataAccess;
+import org.ehrbase.dao.access.util.TerminologyLookup;
 import org.ehrbase.ehr.knowledge.I_KnowledgeCache;
 import org.ehrbase.service.IntrospectService;
 import org.jooq.DSLContext;
@@ -110,5 +112,14 @@ public interface I_DomainAccess {
 
     ServerConfig getServerConfig();
 
+    PartyIdCache getPartyIdCache();
+
+    /**
+     * get the lookups in the static terminology tables (concepts, territories and languages)
+     *
+     * @return TerminologyLookup
+     */
+    TerminologyLookup getTerminologyLookup();
+
     DataAccess getDataAccess();
 }
@@ -26,6 +26,7 @@ import org.ehrbase.api.exception.InternalServerException;
 import org.ehrbase.dao.access.jooq.EntryAccess;
 import org.ehrbase.jooq.pg.udt.records.DvCodedTextRecord;
 import org.jooq.JSONB;
+import org.jooq.Query;
 
 import java.util.List;
 import java.util.Map;
@@ -39,6 +40,14 @@ import static org.ehrbase.jooq.pg.Tables.ENTRY;
  */
 public interface I_EntryAccess extends I_SimpleCRUD {
 
+    /**
+     * Prepares the inserts of a commit without executing them, so that they can be sent to the DB in a
+     * single batch together with the inserts of dependent records. The record ids are assigned beforehand.
+     * @param transactionTime Timestamp of transaction time
+     * @return the inserts, in execution order
+     */
+    List<Query> commitQueries(Timestamp transactionTime);
+
     /**
      * create and get a new Entry commit
      *
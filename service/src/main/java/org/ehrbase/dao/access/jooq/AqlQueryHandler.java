@@ -22,15 +22,24 @@
 package org.ehrbase.dao.access.jooq;
 
 import org.apache.commons.lang3.StringUtils;
+import org.ehrbase.api.definitions.QueryCountMode;
 import org.ehrbase.aql.compiler.*;
 import org.ehrbase.aql.definition.I_VariableDefinition;
+import org.ehrbase.aql.sql.AqlParameterBinding;
+import org.ehrbase.aql.sql.AqlQueryPlan;
+import org.ehrbase.aql.sql.AqlQueryTimings;
 import org.ehrbase.aql.sql.AqlResult;
+import org.ehrbase.aql.sql.AqlResultHandler;
 import org.ehrbase.aql.sql.QueryProcessor;
+import org.ehrbase.aql.sql.postprocessing.RawJsonTransform;
+import org.ehrbase.aql.sql.queryimpl.DurationFormatter;
 import org.ehrbase.dao.access.interfaces.I_DomainAccess;
 import org.ehrbase.dao.access.interfaces.I_OpenehrTerminologyServer;
 import org.ehrbase.dao.access.support.DataAccess;
+import org.ehrbase.service.AqlPlanCache;
 import org.ehrbase.service.KnowledgeCacheService;
 import org.ehrbase.service.FhirTerminologyServerR4AdaptorImpl;
+import org.jooq.Cursor;
 import org.jooq.Record;
 import org.jooq.Result;
 
@@ -42,56 +51,198 @@ import java.util.*;
 public class AqlQueryHandler extends DataAccess {
 
     private I_OpenehrTerminologyServer tsAdapter;
+    private final AqlPlanCache planCache;
     private Map<String, Set<Object>> auditResultMap = new HashMap<>(); //we add a map of audit related data (f.e. ehr_id/value)
 
     public AqlQueryHandler(I_DomainAccess domainAccess, FhirTerminologyServerR4AdaptorImpl tsAdapter) {
+        this(domainAccess, tsAdapter, null);
+    }
+
+    /**
+     * @param planCache cache of compiled queries, may be null
+     */
+    public AqlQueryHandler(I_DomainAccess domainAccess, FhirTerminologyServerR4AdaptorImpl tsAdapter, AqlPlanCache planCache) {
         super(domainAccess);
         this.tsAdapter = tsAdapter;
+        this.planCache = planCache;
     }
 
 
     public AqlResult process(String query) {
-        AqlExpression aqlExpression = new AqlExpression().parse(query);
-        return execute(aqlExpression);
+        return process(query, null, false);
     }
 
     public AqlResult process(String query, Map<String, Object> parameters) {
-        AqlExpression aqlExpression = new AqlExpressionWithParameters().parse(query, parameters);
-        return execute(aqlExpression);
+        return process(query, parameters, false);
+    }
+
+    /**
+     * @param query the AQL query
+     * @param parameters optional query parameters, may be null
+     * @param analyze if true, the explain details of the result also contain the PostgreSQL plan
+     *                (<code>EXPLAIN (ANALYZE, BUFFERS, FORMAT JSON)</code>) and the duration of each processing phase
+     */
+    public AqlResult process(String query, Map<String, Object> parameters, boolean analyze) {
+        AqlQueryTimings timings = new AqlQueryTimings();
+
+        AqlQueryPlan plan = plan(query, parameters, timings);
+
+        AqlResult aqlResult = addAuditResults(plan, plan.execute(getContext(), timings));
+
+        if (analyze) {
+            List<List<String>> explain = plan.getExplain();
+            List<String> postgresPlan = new ArrayList<>();
+            postgresPlan.add("plan");
+            postgresPlan.add(plan.analyze(getContext()));
+            explain.add(postgresPlan);
+            explain.add(timings.toExplain());
+            aqlResult.setExplain(explain);
+        }
+        return aqlResult;
+    }
+
+    /**
+     * process a page of the query, see {@link AqlQueryPlan#executePage}
+     * @param query the AQL query
+     * @param parameters optional query parameters, may be null
+     * @param continuationToken the token returned with the previous page, null for the first page
+     * @param countMode whether to also return the number of rows of the whole result
+     */
+    public AqlResult processPage(String query, Map<String, Object> parameters, String continuationToken, QueryCountMode countMode) {
+        AqlQueryTimings timings = new AqlQueryTimings();
+
+        AqlQueryPlan plan = plan(query, parameters, timings);
+
+        //the exact count is selected along with the page
+        AqlResult aqlResult = addAuditResults(plan,
+                plan.executePage(getContext(), continuationToken, countMode == QueryCountMode.EXACT, timings));
+
+        if (countMode == QueryCountMode.ESTIMATED)
+            aqlResult.setTotalCount(plan.count(getContext(), true));
+
+        return aqlResult;
     }
 
-    @SuppressWarnings("unchecked")
-    private AqlResult execute(AqlExpression aqlExpression){
+    /**
+     * process the query and stream the result to the handler instead of materializing it: records are fetched by
+     * batches of <code>fetchSize</code> from a cursor, transformed and passed to the handler one at a time.
+     * <p>
+     * NB. with PostgreSQL, the fetch size is only honoured when the connection is not in auto-commit mode, the caller
+     * is expected to run this within a transaction.
+     * </p>
+     * @param query the AQL query
+     * @param parameters optional query parameters, may be null
+     * @param fetchSize number of rows fetched per round trip
+     * @param handler receives the variables then each record
+     */
+    public void stream(String query, Map<String, Object> parameters, int fetchSize, AqlResultHandler handler) {
+        AqlQueryTimings timings = new AqlQueryTimings();
 
+        AqlQueryPlan plan = plan(query, parameters, timings);
+
+        handler.variables(plan.getVariables());
+
+        //collect the audit results as the records are passed, no result set is available afterwards
         AuditVariables auditVariables = new AuditVariables();
+        Map<I_VariableDefinition, Set<Object>> auditResults = new LinkedHashMap<>();
+        for (I_VariableDefinition variableDefinition : plan.getVariableDefinitions()) {
+            if (auditVariables.isAuditVariable(variableDefinition))
+                auditResults.put(variableDefinition, new HashSet<>());
+        }
+
+        Cursor<Record> cursor;
+        try {
+            cursor = plan.query(getContext()).fetchSize(fetchSize).fetchLazy();
+        } catch (Exception e) {
+            throw new IllegalArgumentException(plan.sqlErrorReason(e));
+        }
+
+        try (cursor) {
+            for (Record record : cursor) {
+                RawJsonTransform.toRawJson(record);
+                DurationFormatter.toISO8601(record);
+                auditResults.forEach((variableDefinition, resultSet) -> addResultForVariable(variableDefinition, record, resultSet));
+                handler.record(record);
+            }
+        }
+
+        auditResults.forEach((variableDefinition, resultSet) -> auditVariables.addResults(auditResultMap, variableDefinition.getPath(), resultSet));
+    }
+
+    private AqlQueryPlan plan(String query, Map<String, Object> parameters, AqlQueryTimings timings) {
+        if (parameters == null || parameters.isEmpty())
+            return plan(query, timings);
+
+        AqlParameterBinding binding = new AqlParameterBinding(query, parameters);
+        if (planCache != null && binding.isBindable()) {
+            //the plan of the probes, shared by all the values of the parameters
+            AqlQueryPlan plan = planCache.get(query, binding.getSignature(), templateSetVersion(), () -> compile(binding.getProbeAql(), timings));
+            if (binding.isBound(plan))
+                return binding.bind(plan);
+        }
+        return plan(binding.getSubstitutedAql(), timings);
+    }
+
+    private AqlQueryPlan plan(String query, AqlQueryTimings timings) {
+        if (planCache == null)
+            return compile(query, timings);
+
+        return planCache.get(query, templateSetVersion(), () -> compile(query, timings));
+    }
+
+    private long templateSetVersion() {
+        return ((KnowledgeCacheService) this.getDataAccess().getIntrospectService()).getTemplateSetVersion();
+    }
+
+    private AqlQueryPlan compile(String query, AqlQueryTimings timings) {
+        timings.reset();
+        AqlExpression aqlExpression = new AqlExpression().parse(query);
+        timings.mark(AqlQueryTimings.PARSE);
 
         Contains contains = new Contains(aqlExpression.getParseTree(), (KnowledgeCacheService)this.getDataAccess().getIntrospectService()).process();
+        timings.mark(AqlQueryTimings.CONTAINS);
 
         Statements statements = new Statements(aqlExpression.getParseTree(), contains.getIdentifierMapper(), tsAdapter).process();
 
         QueryProcessor queryProcessor = new QueryProcessor(this, this.getIntrospectService(), contains, statements, getDataAccess().getServerConfig().getNodename());
 
-        AqlResult aqlResult = queryProcessor.execute();
+        QueryProcessor.AqlSelectQuery aqlSelectQuery = queryProcessor.buildAqlSelectQuery();
 
-        //add the variable from statements
-        Map<String, String> variables = new LinkedHashMap<>();
+        List<I_VariableDefinition> variableDefinitions = new ArrayList<>();
+        statements.getVariables().iterator().forEachRemaining(variableDefinitions::add);
 
-        Iterator<I_VariableDefinition> iterator = statements.getVariables().iterator();
-        int serial = 0;
-        while (iterator.hasNext()) {
-            I_VariableDefinition variableDefinition = iterator.next();
+        AqlQueryPlan plan = new AqlQueryPlan(query, aqlSelectQuery, variableDefinitions, variables(statements));
+        timings.mark(AqlQueryTimings.SQL_BUILD);
+        return plan;
+    }
+
+    private AqlResult addAuditResults(AqlQueryPlan plan, AqlResult aqlResult){
+
+        AuditVariables auditVariables = new AuditVariables();
 
+        for (I_VariableDefinition variableDefinition : plan.getVariableDefinitions()) {
             if (auditVariables.isAuditVariable(variableDefinition)){
                 //add the result to the list of audit variables
                 auditVariables.addResults(auditResultMap, variableDefinition.getPath(), resultSetForVariable(variableDefinition, aqlResult.getRecords()));
             }
+        }
+        aqlResult.setAuditResultMap(auditResultMap);
+        return aqlResult;
+    }
+
+    //add the variable from statements
+    private Map<String, String> variables(Statements statements) {
+        Map<String, String> variables = new LinkedHashMap<>();
+
+        Iterator<I_VariableDefinition> iterator = statements.getVariables().iterator();
+        int serial = 0;
+        while (iterator.hasNext()) {
+            I_VariableDefinition variableDefinition = iterator.next();
 
             if (!variableDefinition.isHidden())
                 variables.put(variableDefinition.getAlias() == null || variableDefinition.isVoidAlias() ? "#" + serial++ : variableDefinition.getAlias(), StringUtils.isNotBlank(variableDefinition.getPath()) ? "/" + variableDefinition.getPath() : variableDefinition.getIdentifier());
         }
-        aqlResult.setVariables(variables);
-        aqlResult.setAuditResultMap(auditResultMap);
-        return aqlResult;
+        return variables;
     }
 
     @Override
@@ -102,16 +253,20 @@ public class AqlQueryHandler extends DataAccess {
     public Set<Object> resultSetForVariable(I_VariableDefinition variableDefinition, Result<Record> recordResult){
         Set<Object> resultSet = new HashSet<>();
 
-        String columnIdentifier = variableDefinition.getAlias() != null ? variableDefinition.getAlias() : "/"+variableDefinition.getPath();
-
         for (Record record: recordResult){
-            if (variableDefinition.getAlias() == null || !variableDefinition.getAlias().startsWith("_FCT")) { //if the variable is a function parameter, ignore it (f.e. count())
-                resultSet.add(record.get(columnIdentifier));
-            }
+            addResultForVariable(variableDefinition, record, resultSet);
         }
         return resultSet;
     }
 
+    private void addResultForVariable(I_VariableDefinition variableDefinition, Record record, Set<Object> resultSet){
+        String columnIdentifier = variableDefinition.getAlias() != null ? variableDefinition.getAlias() : "/"+variableDefinition.getPath();
+
+        if (variableDefinition.getAlias() == null || !variableDefinition.getAlias().startsWith("_FCT")) { //if the variable is a function parameter, ignore it (f.e. count())
+            resultSet.add(record.get(columnIdentifier));
+        }
+    }
+
     public Map<String, Set<Object>> getAuditResultMap() {
         return auditResultMap;
     }
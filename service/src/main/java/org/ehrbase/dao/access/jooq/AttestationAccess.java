@@ -30,15 +30,23 @@ import org.ehrbase.api.exception.InternalServerException;
 import org.ehrbase.dao.access.interfaces.I_AttestationAccess;
 import org.ehrbase.dao.access.interfaces.I_AuditDetailsAccess;
 import org.ehrbase.dao.access.interfaces.I_DomainAccess;
+import org.ehrbase.dao.access.jooq.party.PersistedPartyProxy;
 import org.ehrbase.dao.access.support.DataAccess;
 import org.ehrbase.jooq.pg.tables.records.AttestationRecord;
+import org.jooq.Field;
+import org.jooq.Record;
 import org.jooq.Result;
 
 import java.sql.Timestamp;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
 import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.UUID;
+import java.util.function.Function;
 
 import static org.ehrbase.jooq.pg.tables.Attestation.ATTESTATION;
 import static org.ehrbase.jooq.pg.tables.AuditDetails.AUDIT_DETAILS;
@@ -82,6 +90,43 @@ public class AttestationAccess extends DataAccess implements I_AttestationAccess
         return list;
     }
 
+    /**
+     * Fetches the attestations of several versions with one query.
+     * @param domainAccess General data access
+     * @param attestationRefs References given by the version objects
+     * @return Attestations by reference, references without attestations are left out
+     * @throws InternalServerException when fetching the attestations failed
+     */
+    public static Map<UUID, List<I_AttestationAccess>> retrieveAttestationsByRefs(I_DomainAccess domainAccess, Collection<UUID> attestationRefs) {
+        Map<UUID, List<I_AttestationAccess>> attestations = new HashMap<>();
+        if (attestationRefs.isEmpty()) {
+            return attestations;
+        }
+
+        List<Field<?>> fields = new ArrayList<>(Arrays.asList(ATTESTATION.fields()));
+        fields.addAll(Arrays.asList(AUDIT_DETAILS.fields()));
+        Result<Record> records;
+        try {
+            records = domainAccess.getContext().select(fields)
+                    .from(ATTESTATION)
+                    .join(AUDIT_DETAILS).on(AUDIT_DETAILS.ID.eq(ATTESTATION.HAS_AUDIT))
+                    .where(ATTESTATION.REFERENCE.in(attestationRefs))
+                    .fetch();
+        } catch (Exception e) {
+            throw new InternalServerException("fetching attestation failed", e);
+        }
+
+        for (Record record : records) {
+            AttestationAccess attestationAccess = new AttestationAccess(domainAccess);
+            attestationAccess.attestationRecord = record.into(ATTESTATION);
+            attestationAccess.auditDetailsAccess = new AuditDetailsAccess(domainAccess.getDataAccess());
+            attestationAccess.auditDetailsAccess.setRecord(record.into(AUDIT_DETAILS));
+            attestations.computeIfAbsent(attestationAccess.attestationRecord.getReference(), k -> new ArrayList<>())
+                    .add(attestationAccess);
+        }
+        return attestations;
+    }
+
     @Override
     public DataAccess getDataAccess() {
         return this;
@@ -128,7 +173,12 @@ public class AttestationAccess extends DataAccess implements I_AttestationAccess
 
     @Override
     public Attestation getAsAttestation() {
-        AuditDetails audit = auditDetailsAccess.getAsAuditDetails(); // take most values from super class entry
+        return getAsAttestation(new PersistedPartyProxy(this)::retrieve);
+    }
+
+    @Override
+    public Attestation getAsAttestation(Function<UUID, PartyProxy> committers) {
+        AuditDetails audit = auditDetailsAccess.getAsAuditDetails(committers); // take most values from super class entry
         String systemId = audit.getSystemId();
         PartyProxy committer = audit.getCommitter();
         DvDateTime time = audit.getTimeCommitted();
@@ -30,13 +30,18 @@ import org.ehrbase.api.exception.InternalServerException;
 import org.ehrbase.dao.access.interfaces.*;
 import org.ehrbase.dao.access.jooq.party.PersistedPartyProxy;
 import org.ehrbase.dao.access.support.DataAccess;
+import org.ehrbase.dao.access.util.QueryBatch;
 import org.ehrbase.dao.access.util.TransactionTime;
 import org.ehrbase.jooq.pg.enums.ContributionChangeType;
 import org.ehrbase.jooq.pg.tables.records.AuditDetailsRecord;
 
+import org.jooq.Query;
+
 import java.sql.Timestamp;
 import java.time.ZonedDateTime;
+import java.util.List;
 import java.util.UUID;
+import java.util.function.Function;
 
 import static org.ehrbase.jooq.pg.tables.AuditDetails.AUDIT_DETAILS;
 
@@ -84,10 +89,7 @@ public class AuditDetailsAccess extends DataAccess implements I_AuditDetailsAcce
      */
     @Override
     public UUID commit(Timestamp transactionTime) {
-        auditDetailsRecord.setTimeCommitted(transactionTime);
-        auditDetailsRecord.setTimeCommittedTzid(ZonedDateTime.now().getZone().getId()); // extracting only TZ, ignoring now() itself
-        int result = auditDetailsRecord.insert();
-        if (result == 1) {
+        if (new QueryBatch(commitQueries(transactionTime)).execute(getContext())) {
             return auditDetailsRecord.getId();
         } else {
             throw new InternalServerException("Couldn't store auditDetails, DB problem");
@@ -99,6 +101,19 @@ public class AuditDetailsAccess extends DataAccess implements I_AuditDetailsAcce
         return commit(TransactionTime.millis());
     }
 
+    @Override
+    public List<Query> commitQueries(Timestamp transactionTime) {
+        if (auditDetailsRecord.getId() == null) {
+            auditDetailsRecord.setId(UUID.randomUUID());
+        }
+        auditDetailsRecord.setTimeCommitted(transactionTime);
+        auditDetailsRecord.setTimeCommittedTzid(ZonedDateTime.now().getZone().getId()); // extracting only TZ, ignoring now() itself
+        Query insert = getContext().insertInto(AUDIT_DETAILS).set(auditDetailsRecord);
+        // the values are copied into the insert, further changes are stored by update()
+        auditDetailsRecord.changed(false);
+        return List.of(insert);
+    }
+
     @Override
     public UUID commit(UUID systemId, UUID committerId, String description) {
         if (systemId == null || committerId == null)
@@ -234,8 +249,13 @@ public class AuditDetailsAccess extends DataAccess implements I_AuditDetailsAcce
 
     @Override
     public AuditDetails getAsAuditDetails() {
+        return getAsAuditDetails(new PersistedPartyProxy(this)::retrieve);
+    }
+
+    @Override
+    public AuditDetails getAsAuditDetails(Function<UUID, PartyProxy> committers) {
         String systemId = getSystemId().toString();
-        PartyProxy party = new PersistedPartyProxy(this).retrieve(getCommitter());
+        PartyProxy party = committers.apply(getCommitter());
         DvDateTime time = new DvDateTime(getTimeCommitted().toLocalDateTime());
         DvCodedText changeType = new DvCodedText(getChangeType().getLiteral(),
             new CodePhrase(new TerminologyId("openehr"), Integer.toString(I_ConceptAccess.ContributionChangeType.valueOf(getChangeType().getLiteral().toUpperCase()).getCode())));
@@ -24,9 +24,15 @@ package org.ehrbase.dao.access.jooq;
 import static org.ehrbase.jooq.pg.Tables.AUDIT_DETAILS;
 import static org.ehrbase.jooq.pg.Tables.COMPOSITION;
 import static org.ehrbase.jooq.pg.Tables.COMPOSITION_HISTORY;
+import static org.ehrbase.jooq.pg.Tables.ENTRY;
+import static org.ehrbase.jooq.pg.Tables.ENTRY_HISTORY;
 import static org.ehrbase.jooq.pg.Tables.EVENT_CONTEXT;
+import static org.ehrbase.jooq.pg.Tables.EVENT_CONTEXT_HISTORY;
 import static org.jooq.impl.DSL.count;
+import static org.jooq.impl.DSL.field;
 import static org.jooq.impl.DSL.max;
+import static org.jooq.impl.DSL.name;
+import static org.jooq.impl.DSL.rowNumber;
 
 import com.nedap.archie.rm.archetyped.FeederAudit;
 import com.nedap.archie.rm.archetyped.Link;
@@ -34,19 +40,21 @@ import com.nedap.archie.rm.composition.Composition;
 import com.nedap.archie.rm.composition.EventContext;
 import com.nedap.archie.rm.generic.PartyProxy;
 import com.nedap.archie.rm.support.identification.ObjectVersionId;
-import java.sql.Connection;
-import java.sql.PreparedStatement;
-import java.sql.ResultSet;
-import java.sql.SQLException;
+import io.micrometer.core.instrument.Metrics;
+import io.micrometer.core.instrument.Timer;
 import java.sql.Timestamp;
 import java.time.LocalDateTime;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
 import java.util.Set;
+import java.util.SortedMap;
+import java.util.TreeMap;
 import java.util.UUID;
 import org.ehrbase.api.definitions.ServerConfig;
 import org.ehrbase.api.exception.InternalServerException;
@@ -61,6 +69,7 @@ import org.ehrbase.dao.access.interfaces.I_EntryAccess;
 import org.ehrbase.dao.access.jooq.party.PersistedPartyProxy;
 import org.ehrbase.dao.access.support.DataAccess;
 import org.ehrbase.dao.access.util.ContributionDef;
+import org.ehrbase.dao.access.util.QueryBatch;
 import org.ehrbase.dao.access.util.TransactionTime;
 import org.ehrbase.ehr.knowledge.I_KnowledgeCache;
 import org.ehrbase.jooq.pg.enums.ContributionChangeType;
@@ -68,15 +77,22 @@ import org.ehrbase.jooq.pg.enums.ContributionDataType;
 import org.ehrbase.jooq.pg.tables.records.AuditDetailsRecord;
 import org.ehrbase.jooq.pg.tables.records.CompositionHistoryRecord;
 import org.ehrbase.jooq.pg.tables.records.CompositionRecord;
+import org.ehrbase.jooq.pg.tables.records.EntryHistoryRecord;
+import org.ehrbase.jooq.pg.tables.records.EventContextHistoryRecord;
 import org.ehrbase.jooq.pg.tables.records.EventContextRecord;
 import org.ehrbase.serialisation.dbencoding.rmobject.FeederAuditEncoding;
 import org.ehrbase.serialisation.dbencoding.rmobject.LinksEncoding;
 import org.ehrbase.service.IntrospectService;
 import org.ehrbase.util.PartyUtils;
 import org.jooq.DSLContext;
+import org.jooq.Field;
 import org.jooq.JSONB;
+import org.jooq.Query;
 import org.jooq.Record;
 import org.jooq.Result;
+import org.jooq.SelectOnConditionStep;
+import org.jooq.Table;
+import org.jooq.exception.DataAccessException;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -87,9 +103,19 @@ import org.slf4j.LoggerFactory;
  */
 public class CompositionAccess extends DataAccess implements I_CompositionAccess {
 
+  private static final String COMMIT_STATEMENTS_METRIC = "ehrbase.composition.commit.statements";
+  private static final String COMMIT_ROUND_TRIPS_METRIC = "ehrbase.composition.commit.round_trips";
+  private static final String COMMIT_DURATION_METRIC = "ehrbase.composition.commit.duration";
+
   private final Logger logger = LoggerFactory.getLogger(getClass());
 
   public static final String COMPOSITION_LITERAL = "composition";
+
+  /**
+   * Position of a row in the history of a composition, ordered by sys_transaction.
+   */
+  private static final Field<Integer> HISTORY_VERSION = field(name("history_version"),
+      Integer.class);
   // List of Entry DAOs and therefore provides access to all entries of the composition
   private List<I_EntryAccess> content = new ArrayList<>();
   private CompositionRecord compositionRecord;
@@ -121,6 +147,7 @@ public class CompositionAccess extends DataAccess implements I_CompositionAccess
 
     compositionRecord = context.newRecord(COMPOSITION);
     compositionRecord.setId(UUID.randomUUID());
+    compositionRecord.setVersion(1);
 
     compositionRecord.setTerritory(seekTerritoryCode(territoryCode));
 
@@ -171,6 +198,7 @@ public class CompositionAccess extends DataAccess implements I_CompositionAccess
 
     compositionRecord = domainAccess.getContext().newRecord(COMPOSITION);
     compositionRecord.setId(UUID.randomUUID());
+    compositionRecord.setVersion(1);
 
     compositionRecord.setTerritory(seekTerritoryCode(territoryCode));
 
@@ -239,6 +267,10 @@ public class CompositionAccess extends DataAccess implements I_CompositionAccess
   private UUID internalCreate(LocalDateTime timestamp, UUID committerId, UUID systemId,
       String description, UUID contribution) {
 
+    Timestamp transactionTime = Timestamp.valueOf(timestamp);
+    // all inserts are collected and sent at once at the end
+    List<Query> queries = new ArrayList<>();
+
     // check if custom contribution is already set, because changing it would yield updating in DB which is not desired (creates wrong new "version")
     if (contribution != null) {
       // Retrieve audit metadata from given contribution
@@ -255,22 +287,22 @@ public class CompositionAccess extends DataAccess implements I_CompositionAccess
       contributionAccess.setAuditDetailsValues(committerId, systemId, description,
           I_ConceptAccess.ContributionChangeType.CREATION);
 
-      UUID contributionId = this.contributionAccess.commit();
-      setContributionId(contributionId);
+      queries.addAll(this.contributionAccess.commitQueries(transactionTime));
+      setContributionId(this.contributionAccess.getId());
     }
 
-    // create DB entry of prepared auditDetails so it can get referenced in this composition
+    // prepare DB entry of auditDetails so it can get referenced in this composition
     auditDetailsAccess.setChangeType(I_ConceptAccess.fetchContributionChangeType(this,
         I_ConceptAccess.ContributionChangeType.CREATION));
     // prepare composition audit with given values
     auditDetailsAccess.setSystemId(systemId);
     auditDetailsAccess.setCommitter(committerId);
     auditDetailsAccess.setDescription(description);
-    UUID auditId = this.auditDetailsAccess.commit();
-    compositionRecord.setHasAudit(auditId);
+    queries.addAll(this.auditDetailsAccess.commitQueries(transactionTime));
+    compositionRecord.setHasAudit(this.auditDetailsAccess.getId());
 
-    compositionRecord.setSysTransaction(Timestamp.valueOf(timestamp));
-    compositionRecord.store();
+    compositionRecord.setSysTransaction(transactionTime);
+    queries.add(getContext().insertInto(COMPOSITION).set(compositionRecord));
 
     if (content.isEmpty()) {
       logger.warn("Composition has no content:");
@@ -278,7 +310,7 @@ public class CompositionAccess extends DataAccess implements I_CompositionAccess
 
     try {
       for (I_EntryAccess entryAccess : content) {
-        entryAccess.commit(Timestamp.valueOf(timestamp));
+        queries.addAll(entryAccess.commitQueries(transactionTime));
       }
     } catch (Exception exception) {
       logger.error("Problem in committing content, rolling back, exception:" + exception);
@@ -290,12 +322,39 @@ public class CompositionAccess extends DataAccess implements I_CompositionAccess
       I_ContextAccess contextAccess = I_ContextAccess.getInstance(this, eventContext);
       if (!contextAccess.isVoid()) {
         contextAccess.setCompositionId(compositionRecord.getId());
-        contextAccess.commit(Timestamp.valueOf(timestamp));
+        queries.addAll(contextAccess.commitQueries(transactionTime));
       }
     }
+
+    executeBatch(queries);
+    compositionRecord.changed(false);
+
     return compositionRecord.getId();
   }
 
+  /**
+   * Sends the inserts of a commit to the DB in a single round trip, instead of one round trip per
+   * record.
+   */
+  private void executeBatch(List<Query> queries) {
+    QueryBatch batch = new QueryBatch(queries);
+    Metrics.summary(COMMIT_STATEMENTS_METRIC).record(batch.size());
+    Metrics.summary(COMMIT_ROUND_TRIPS_METRIC).record(batch.roundTrips());
+
+    Timer.Sample sample = Timer.start(Metrics.globalRegistry);
+    String outcome = "failure";
+    try {
+      if (!batch.execute(getContext())) {
+        throw new InternalServerException("Couldn't store composition");
+      }
+      outcome = "success";
+    } catch (DataAccessException e) {
+      throw new InternalServerException("Problem executing database operation", e);
+    } finally {
+      sample.stop(Metrics.timer(COMMIT_DURATION_METRIC, "outcome", outcome));
+    }
+  }
+
   /**
    * {@inheritDoc}
    */
@@ -359,6 +418,11 @@ public class CompositionAccess extends DataAccess implements I_CompositionAccess
     updateCompositionData(composition);
 
     result = compositionRecord.update() > 0;
+    if (result) {
+      // mirror composition_version_trigger, which increments the stored version
+      compositionRecord.setVersion(compositionRecord.getVersion() + 1);
+      compositionRecord.changed(COMPOSITION.VERSION, false);
+    }
 
     //updateComposition each entry if required
     for (I_EntryAccess entryAccess : content) {
@@ -458,6 +522,7 @@ public class CompositionAccess extends DataAccess implements I_CompositionAccess
     newRecord.setTerritory(compositionRecord.getTerritory());
     newRecord.setComposer(compositionRecord.getComposer());
     newRecord.setHasAudit(delAuditId);
+    newRecord.setVersion(compositionRecord.getVersion() + 1);
     newDeletedVersionAsHistoryAccess.setRecord(newRecord);
     if (newDeletedVersionAsHistoryAccess.commit()
         == null) // commit and throw error if nothing was inserted into DB
@@ -477,104 +542,248 @@ public class CompositionAccess extends DataAccess implements I_CompositionAccess
       throw new IllegalArgumentException("Version number must be > 0  please check your code");
     }
 
-    //check if this version number matches the current version
-    if (getLastVersionNumber(domainAccess, id) == version) { //current version
-      return retrieveInstance(domainAccess, id);
+    I_CompositionAccess compositionHistoryAccess = retrieveHistoryVersions(domainAccess, id,
+        version, version, false, true).get(version);
+
+    if (compositionHistoryAccess == null) {
+      // not in the history, so either the current version or no such version
+      if (getLastVersionNumber(domainAccess, id) == version) {
+        return retrieveInstance(domainAccess, id);
+      }
+      return null;
     }
 
-    // FIXME make jooq compliant
-    String versionQuery =
-        "select " +
-            "row_id, " +
-            "in_contribution, " +
-            "ehr_id, " +
-            "language, " +
-            "territory, " +
-            "composer, " +
-            "sys_transaction, " +
-            "has_audit," +
-            "attestation_ref, " +
-            "feeder_audit, " +
-            "links from \n" +
-            "  (select ROW_NUMBER() OVER (ORDER BY sys_transaction ASC ) AS row_id, * from ehr.composition_history "
-            +
-            "       WHERE id = ?) \n" +
-            "    AS Version WHERE row_id = ?;";
-
-    Connection connection = domainAccess.getConnection();
-
-    I_CompositionAccess compositionHistoryAccess = null;
-    try (PreparedStatement preparedStatement = connection.prepareStatement(versionQuery)) {
-      preparedStatement.setObject(1, id);
-      preparedStatement.setInt(2, version);
-
-      try (ResultSet resultSet = preparedStatement.executeQuery()) {
-
-        while (resultSet.next()) {
-          CompositionRecord compositionRecord1 = domainAccess.getContext().newRecord(COMPOSITION);
-          compositionRecord1.setId(id);
-          compositionRecord1.setInContribution(
-              UUID.fromString(resultSet.getString("in_contribution")));
-          compositionRecord1.setEhrId(UUID.fromString(resultSet.getString("ehr_id")));
-          compositionRecord1.setLanguage(resultSet.getString("language"));
-          compositionRecord1.setTerritory(resultSet.getInt("territory"));
-          compositionRecord1.setComposer(UUID.fromString(resultSet.getString("composer")));
-          compositionRecord1.setSysTransaction(resultSet.getTimestamp("sys_transaction"));
-          compositionRecord1.setHasAudit(UUID.fromString(resultSet.getString("has_audit")));
-          compositionRecord1.setFeederAudit(JSONB.valueOf(resultSet.getString("feeder_audit")));
-
-                    /* TODO: uncomment when links encode/decode is fully implemented
-                    compositionRecord1.setLinks(JSONB.valueOf(resultSet.getString("links")));
-                     */
-          compositionHistoryAccess = new CompositionAccess(domainAccess, compositionRecord1);
-        }
+    //retrieve the corresponding contribution
+    I_ContributionAccess contributionAccess = I_ContributionAccess.retrieveInstance(domainAccess,
+        compositionHistoryAccess.getContributionId());
+    compositionHistoryAccess.setContributionAccess(contributionAccess);
+
+    return compositionHistoryAccess;
+  }
+
+  /**
+   * Retrieves a range of versions of a composition with their audit but without their content,
+   * e.g. to build a revision history. The versions in the history are fetched with one query, the
+   * current version with another one. Like
+   * {@link #retrieveCompositionVersion(I_DomainAccess, UUID, int)}, the version recording the
+   * deletion of a composition is left out.
+   *
+   * @param from first version number, inclusive
+   * @param to   last version number, inclusive
+   * @return the versions by version number, without their content and contribution access
+   * @throws IllegalArgumentException when from is not greater 0
+   * @throws ObjectNotFoundException  when the history could not be read
+   */
+  public static SortedMap<Integer, I_CompositionAccess> retrieveCompositionVersions(
+      I_DomainAccess domainAccess, UUID id, int from, int to) {
+
+    if (from < 1) {
+      throw new IllegalArgumentException("Version number must be > 0  please check your code");
+    }
+
+    SortedMap<Integer, I_CompositionAccess> versions = retrieveHistoryVersions(domainAccess, id,
+        from, to, false, false);
+
+    I_CompositionAccess current = retrieveCurrentVersion(domainAccess, id);
+    if (current != null && current.getVersion() >= from && current.getVersion() <= to) {
+      versions.put(current.getVersion(), current);
+    }
+    return versions;
+  }
+
+  /**
+   * Fetches versions of a composition from its history together with their audit and, if
+   * requested, their entries and event context, in a single query. The version number of a
+   * history row is its position by sys_transaction.
+   *
+   * @param from             first version number, inclusive
+   * @param to               last version number, inclusive
+   * @param includeDeletions whether to return the version recording the deletion of the
+   *                         composition, which has no content
+   * @param withContent      whether to fetch and decode the entries and event context
+   * @return the versions found in the history by version number, without their contribution access
+   * @throws ObjectNotFoundException when the history could not be read
+   */
+  private static SortedMap<Integer, I_CompositionAccess> retrieveHistoryVersions(
+      I_DomainAccess domainAccess, UUID id, int from, int to, boolean includeDeletions,
+      boolean withContent) {
+    DSLContext context = domainAccess.getContext();
+
+    Table<?> versions = context
+        .select(COMPOSITION_HISTORY.ID, COMPOSITION_HISTORY.SYS_TRANSACTION,
+            rowNumber().over().orderBy(COMPOSITION_HISTORY.SYS_TRANSACTION.asc())
+                .as(HISTORY_VERSION))
+        .from(COMPOSITION_HISTORY)
+        .where(COMPOSITION_HISTORY.ID.eq(id))
+        .asTable("versions");
+    Field<Integer> versionNumber = versions.field(HISTORY_VERSION);
+
+    List<Field<?>> fields = new ArrayList<>();
+    fields.add(versionNumber);
+    fields.addAll(Arrays.asList(COMPOSITION_HISTORY.fields()));
+    fields.addAll(Arrays.asList(AUDIT_DETAILS.fields()));
+    if (withContent) {
+      fields.addAll(Arrays.asList(ENTRY_HISTORY.fields()));
+      fields.addAll(Arrays.asList(EVENT_CONTEXT_HISTORY.fields()));
+    }
+
+    Map<Integer, Result<Record>> records;
+    try {
+      SelectOnConditionStep<Record> select = context.select(fields)
+          .from(versions)
+          .join(COMPOSITION_HISTORY)
+          .on(COMPOSITION_HISTORY.ID.eq(versions.field(COMPOSITION_HISTORY.ID))
+              .and(COMPOSITION_HISTORY.SYS_TRANSACTION.eq(
+                  versions.field(COMPOSITION_HISTORY.SYS_TRANSACTION))))
+          .leftJoin(AUDIT_DETAILS)
+          .on(AUDIT_DETAILS.ID.eq(COMPOSITION_HISTORY.HAS_AUDIT));
+      if (withContent) {
+        select = select
+            .leftJoin(ENTRY_HISTORY)
+            .on(ENTRY_HISTORY.COMPOSITION_ID.eq(COMPOSITION_HISTORY.ID)
+                .and(ENTRY_HISTORY.SYS_TRANSACTION.eq(COMPOSITION_HISTORY.SYS_TRANSACTION)))
+            .leftJoin(EVENT_CONTEXT_HISTORY)
+            .on(EVENT_CONTEXT_HISTORY.COMPOSITION_ID.eq(COMPOSITION_HISTORY.ID)
+                .and(EVENT_CONTEXT_HISTORY.SYS_TRANSACTION.eq(
+                    COMPOSITION_HISTORY.SYS_TRANSACTION)));
       }
-    } catch (SQLException e) {
+      records = select
+          .where(versionNumber.between(from, to))
+          .orderBy(versionNumber)
+          .fetch()
+          .intoGroups(versionNumber);
+    } catch (DataAccessException e) {
       throw new ObjectNotFoundException(COMPOSITION_LITERAL,
           "Composition not found or or invalid DB content", e);
     }
 
-    if (compositionHistoryAccess != null) {
-      compositionHistoryAccess.setContent(
-          I_EntryAccess.retrieveInstanceInCompositionVersion(domainAccess, compositionHistoryAccess,
-              version));
-
-      //retrieve the corresponding contribution
-      I_ContributionAccess contributionAccess = I_ContributionAccess.retrieveInstance(domainAccess,
-          compositionHistoryAccess.getContributionId());
-      compositionHistoryAccess.setContributionAccess(contributionAccess);
-
-      I_AuditDetailsAccess auditDetailsAccess = new AuditDetailsAccess(
-          domainAccess.getDataAccess()).retrieveInstance(domainAccess.getDataAccess(),
-          compositionHistoryAccess.getAuditDetailsId());
-      compositionHistoryAccess.setAuditDetailsAccess(auditDetailsAccess);
-
-      //retrieve versioned context
-      EventContext historicalEventContext = I_ContextAccess.retrieveHistoricalEventContext(
-          domainAccess, id, compositionHistoryAccess.getSysTransaction());
-      //adjust context for entries
-      if (historicalEventContext != null) {
-        for (I_EntryAccess entryAccess : compositionHistoryAccess.getContent()) {
-          entryAccess.getComposition().setContext(historicalEventContext);
-        }
+    SortedMap<Integer, I_CompositionAccess> result = new TreeMap<>();
+    records.forEach((version, versionRecords) -> {
+      I_CompositionAccess historyAccess = buildHistoryVersion(domainAccess, version,
+          versionRecords, withContent);
+      if (includeDeletions || !isDeletion(historyAccess)) {
+        result.put(version, historyAccess);
       }
+    });
+    return result;
+  }
 
+  /**
+   * Fetches the current version of a composition together with its audit, without its content.
+   *
+   * @return the current version, null if the composition does not exist or is deleted
+   */
+  private static I_CompositionAccess retrieveCurrentVersion(I_DomainAccess domainAccess,
+      UUID id) {
+    List<Field<?>> fields = new ArrayList<>(Arrays.asList(COMPOSITION.fields()));
+    fields.addAll(Arrays.asList(AUDIT_DETAILS.fields()));
+
+    Record record = domainAccess.getContext()
+        .select(fields)
+        .from(COMPOSITION)
+        .leftJoin(AUDIT_DETAILS)
+        .on(AUDIT_DETAILS.ID.eq(COMPOSITION.HAS_AUDIT))
+        .where(COMPOSITION.ID.eq(id))
+        .fetchOne();
+    if (record == null) {
+      return null;
     }
 
-    domainAccess.releaseConnection(connection);
+    CompositionAccess compositionAccess = new CompositionAccess(domainAccess,
+        record.into(COMPOSITION));
+    compositionAccess.setAuditDetailsAccess(auditDetailsAccess(domainAccess, record));
+    return compositionAccess;
+  }
+
+  private static I_AuditDetailsAccess auditDetailsAccess(I_DomainAccess domainAccess,
+      Record record) {
+    if (record.get(AUDIT_DETAILS.ID) == null) {
+      return null;
+    }
+    I_AuditDetailsAccess auditDetailsAccess = new AuditDetailsAccess(
+        domainAccess.getDataAccess());
+    auditDetailsAccess.setRecord(record.into(AUDIT_DETAILS));
+    return auditDetailsAccess;
+  }
 
-    return compositionHistoryAccess;
+  private static boolean isDeletion(I_CompositionAccess historyAccess) {
+    return historyAccess.getAuditDetailsAccess() != null
+        && historyAccess.getAuditDetailsAccess().getChangeType() == ContributionChangeType.deleted;
+  }
+
+  /**
+   * @param versionRecords the rows of one version, one per entry and event context
+   * @param withContent    whether the rows hold the entries and event context of the version
+   */
+  private static I_CompositionAccess buildHistoryVersion(I_DomainAccess domainAccess,
+      int version, Result<Record> versionRecords, boolean withContent) {
+    Record first = versionRecords.get(0);
+
+    CompositionHistoryRecord historyRecord = first.into(COMPOSITION_HISTORY);
+    CompositionRecord compositionRecord = domainAccess.getContext().newRecord(COMPOSITION);
+    compositionRecord.setEhrId(historyRecord.getEhrId());
+    CompositionAccess historyAccess = new CompositionAccess(domainAccess, compositionRecord);
+    historyAccess.setCompositionRecord(historyRecord);
+    historyAccess.setAuditDetailsAccess(auditDetailsAccess(domainAccess, first));
+
+    if (!withContent) {
+      return historyAccess;
+    }
+
+    // the join repeats the composition for each entry and event context
+    Map<UUID, EntryHistoryRecord> entryRecords = new LinkedHashMap<>();
+    EventContextHistoryRecord eventContextRecord = null;
+    for (Record versionRecord : versionRecords) {
+      if (versionRecord.get(ENTRY_HISTORY.ID) != null) {
+        entryRecords.putIfAbsent(versionRecord.get(ENTRY_HISTORY.ID),
+            versionRecord.into(ENTRY_HISTORY));
+      }
+      if (eventContextRecord == null && versionRecord.get(EVENT_CONTEXT_HISTORY.ID) != null) {
+        eventContextRecord = versionRecord.into(EVENT_CONTEXT_HISTORY);
+      }
+    }
+
+    //retrieve versioned context
+    EventContext historicalEventContext = eventContextRecord == null ? null
+        : ContextAccess.historicalEventContext(domainAccess, eventContextRecord,
+            historyRecord.getSysTransaction());
+
+    historyAccess.setContent(EntryAccess.buildInstancesInCompositionVersion(domainAccess,
+        historyAccess, version, new ArrayList<>(entryRecords.values()), historicalEventContext));
+
+    //adjust context for entries
+    if (historicalEventContext != null) {
+      for (I_EntryAccess entryAccess : historyAccess.getContent()) {
+        entryAccess.getComposition().setContext(historicalEventContext);
+      }
+    }
+
+    return historyAccess;
   }
 
   public static Integer getLastVersionNumber(I_DomainAccess domainAccess, UUID compositionId) {
-    // check if compositionId is valid (version count = 1) and add number of existing older versions
-    if (domainAccess.getContext().fetchExists(COMPOSITION, COMPOSITION.ID.eq(compositionId))) {
-      return 1 + domainAccess.getContext()
-          .fetchCount(COMPOSITION_HISTORY, COMPOSITION_HISTORY.ID.eq(compositionId));
-    } else {
-      return domainAccess.getContext()
-          .fetchCount(COMPOSITION_HISTORY, COMPOSITION_HISTORY.ID.eq(compositionId));
+    // the current version number is kept on the composition row
+    Integer version = domainAccess.getContext()
+        .select(COMPOSITION.VERSION)
+        .from(COMPOSITION)
+        .where(COMPOSITION.ID.eq(compositionId))
+        .fetchOne(COMPOSITION.VERSION);
+    if (version != null) {
+      return version;
     }
+    // deleted: all versions, including the deletion, are in the history
+    return domainAccess.getContext()
+        .fetchCount(COMPOSITION_HISTORY, COMPOSITION_HISTORY.ID.eq(compositionId));
+  }
+
+  public static String fetchTemplateId(I_DomainAccess domainAccess, UUID compositionId) {
+    // the entry only exists for the latest version of a not deleted composition
+    return domainAccess.getContext()
+        .select(ENTRY.TEMPLATE_ID)
+        .from(ENTRY)
+        .where(ENTRY.COMPOSITION_ID.eq(compositionId))
+        .limit(1)
+        .fetchOne(ENTRY.TEMPLATE_ID);
   }
 
   public static boolean hasPreviousVersion(I_DomainAccess domainAccess, UUID compositionId) {
@@ -700,43 +909,30 @@ public class CompositionAccess extends DataAccess implements I_CompositionAccess
     return resultMap;
   }
 
+  /**
+   * Builds the map of all versions of a composition, including the version recording its
+   * deletion, with their audit but without their content.
+   *
+   * @throws InternalServerException when the version numbers stored with the composition and its
+   *                                 history do not match their order
+   */
   public static Map<Integer, I_CompositionAccess> getVersionMapOfComposition(
       I_DomainAccess domainAccess, UUID compositionId) {
-    Map<Integer, I_CompositionAccess> versionMap = new HashMap<>();
-
-    // create counter with highest version, to keep track of version number and allow check in the end
-    Integer versionCounter = getLastVersionNumber(domainAccess, compositionId);
-
-    // fetch matching entry
-    CompositionRecord record = domainAccess.getContext()
-        .fetchOne(COMPOSITION, COMPOSITION.ID.eq(compositionId));
-    if (record != null) {
-      I_CompositionAccess compositionAccess = new CompositionAccess(domainAccess);
-      compositionAccess.setCompositionRecord(record);
-      compositionAccess.setContent(
-          I_EntryAccess.retrieveInstanceInComposition(domainAccess, compositionAccess));
-      versionMap.put(versionCounter, compositionAccess);
-
-      versionCounter--;
-    }
+    SortedMap<Integer, I_CompositionAccess> versionMap = retrieveHistoryVersions(domainAccess,
+        compositionId, 1, Integer.MAX_VALUE, true, false);
 
-    // if composition was removed (i.e. from "COMPOSITION" table) *or* other versions are existing
-    Result<CompositionHistoryRecord> historyRecords = domainAccess.getContext()
-        .selectFrom(COMPOSITION_HISTORY)
-        .where(COMPOSITION_HISTORY.ID.eq(compositionId))
-        .orderBy(COMPOSITION_HISTORY.SYS_TRANSACTION.desc())
-        .fetch();
-
-    for (CompositionHistoryRecord historyRecord : historyRecords) {
-      I_CompositionAccess historyAccess = new CompositionAccess(domainAccess);
-      historyAccess.setCompositionRecord(historyRecord);
-      historyAccess.setContent(
-          I_EntryAccess.retrieveInstanceInComposition(domainAccess, historyAccess));
-      versionMap.put(versionCounter, historyAccess);
-      versionCounter--;
+    I_CompositionAccess current = retrieveCurrentVersion(domainAccess, compositionId);
+    if (current != null && versionMap.put(current.getVersion(), current) != null) {
+      throw new InternalServerException("Version Map generation failed");
     }
 
-    if (versionCounter != 0) {
+    // each version stored with the history rows and the composition must match its position
+    for (Map.Entry<Integer, I_CompositionAccess> version : versionMap.entrySet()) {
+      if (!version.getKey().equals(version.getValue().getVersion())) {
+        throw new InternalServerException("Version Map generation failed");
+      }
+    }
+    if (!versionMap.isEmpty() && versionMap.lastKey() != versionMap.size()) {
       throw new InternalServerException("Version Map generation failed");
     }
 
@@ -927,7 +1123,8 @@ public class CompositionAccess extends DataAccess implements I_CompositionAccess
         historyRecord.getHasAudit(),
         historyRecord.getAttestationRef(),
         historyRecord.getFeederAudit(),
-        historyRecord.getLinks()
+        historyRecord.getLinks(),
+        historyRecord.getVersion()
     );
   }
 
@@ -994,8 +1191,7 @@ public class CompositionAccess extends DataAccess implements I_CompositionAccess
 
   @Override
   public Integer getVersion() {
-    //default current version, no history   // FIXME
-    return 1;
+    return compositionRecord.getVersion();
   }
 
   /**
@@ -37,6 +37,7 @@ import org.ehrbase.dao.access.interfaces.I_DomainAccess;
 import org.ehrbase.dao.access.jooq.party.PersistedObjectId;
 import org.ehrbase.dao.access.jooq.party.PersistedPartyProxy;
 import org.ehrbase.dao.access.support.DataAccess;
+import org.ehrbase.dao.access.util.QueryBatch;
 import org.ehrbase.dao.access.util.TransactionTime;
 import org.ehrbase.jooq.pg.tables.records.EventContextHistoryRecord;
 import org.ehrbase.jooq.pg.tables.records.EventContextRecord;
@@ -47,8 +48,8 @@ import org.ehrbase.service.RecordedDvCodedText;
 import org.ehrbase.service.RecordedDvDateTime;
 import org.ehrbase.service.RecordedDvText;
 import org.jooq.DSLContext;
-import org.jooq.InsertQuery;
 import org.jooq.JSONB;
+import org.jooq.Query;
 import org.jooq.Record;
 import org.jooq.Result;
 import org.jooq.UpdateQuery;
@@ -126,6 +127,16 @@ public class ContextAccess extends DataAccess implements I_ContextAccess {
 
         if (eventContextHistoryRecord == null) return null; //no matching version for this composition
 
+        return historicalEventContext(domainAccess, eventContextHistoryRecord, transactionTime);
+    }
+
+    /**
+     * Builds the event context of a composition version from its already fetched history record.
+     *
+     * @throws InternalServerException on failure of decoding DvText or DvDateTime
+     */
+    static EventContext historicalEventContext(I_DomainAccess domainAccess, EventContextHistoryRecord eventContextHistoryRecord, Timestamp transactionTime) {
+
         //get the facility entry
         PartyIdentified healthCareFacility = null;
 
@@ -282,41 +293,38 @@ public class ContextAccess extends DataAccess implements I_ContextAccess {
      */
     @Override
     public UUID commit(Timestamp transactionTime) {
-        eventContextRecord.setSysTransaction(transactionTime);
-        InsertQuery<?> insertQuery = getContext().insertQuery(EVENT_CONTEXT);
-        insertQuery.addValue(EVENT_CONTEXT.ID, eventContextRecord.getId());
-        insertQuery.addValue(EVENT_CONTEXT.COMPOSITION_ID, eventContextRecord.getCompositionId());
-        insertQuery.addValue(EVENT_CONTEXT.START_TIME, eventContextRecord.getStartTime());
-        insertQuery.addValue(EVENT_CONTEXT.START_TIME_TZID, eventContextRecord.getStartTimeTzid());
-        insertQuery.addValue(EVENT_CONTEXT.END_TIME, eventContextRecord.getEndTime());
-        insertQuery.addValue(EVENT_CONTEXT.END_TIME_TZID, eventContextRecord.getEndTimeTzid());
-        insertQuery.addValue(EVENT_CONTEXT.FACILITY, eventContextRecord.getFacility());
-        insertQuery.addValue(EVENT_CONTEXT.LOCATION, eventContextRecord.getLocation());
-        if (eventContextRecord.getOtherContext() != null)
-            insertQuery.addValue(EVENT_CONTEXT.OTHER_CONTEXT, eventContextRecord.getOtherContext());
-        insertQuery.addValue(EVENT_CONTEXT.SETTING, eventContextRecord.getSetting());
-        insertQuery.addValue(EVENT_CONTEXT.SYS_TRANSACTION, eventContextRecord.getSysTransaction());
-
-        int result;
+        boolean stored;
         try {
-            result = insertQuery.execute();
+            stored = new QueryBatch(commitQueries(transactionTime)).execute(getContext());
         } catch (DataAccessException e) {
             throw new InternalServerException("Problem executing database operation", e);
         }
 
-        if (result < 1)
+        if (!stored)
             throw new IllegalArgumentException("Context commit failed");
 
-        if (!participations.isEmpty()) {
-            participations.forEach(participation -> {
-                        participation.setEventContext(eventContextRecord.getId());
-                        participation.setSysTransaction(transactionTime);
-                        participation.store();
+        return eventContextRecord.getId();
+    }
+
+    @Override
+    public List<Query> commitQueries(Timestamp transactionTime) {
+        eventContextRecord.setSysTransaction(transactionTime);
+        List<Query> queries = new ArrayList<>();
+        queries.add(getContext().insertInto(EVENT_CONTEXT).set(eventContextRecord));
+
+        participations.forEach(participation -> {
+                    if (participation.getId() == null) {
+                        participation.setId(UUID.randomUUID());
                     }
-            );
-        }
+                    participation.setEventContext(eventContextRecord.getId());
+                    participation.setSysTransaction(transactionTime);
+                    queries.add(getContext().insertInto(PARTICIPATION).set(participation));
+                    // the values are copied into the insert, further changes are stored by update()
+                    participation.changed(false);
+                }
+        );
 
-        return eventContextRecord.getId();
+        return queries;
     }
 
     /**
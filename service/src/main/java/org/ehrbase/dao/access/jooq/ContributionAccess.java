@@ -29,6 +29,7 @@ import org.ehrbase.dao.access.interfaces.I_ConceptAccess.ContributionChangeType;
 import org.ehrbase.dao.access.jooq.party.PersistedPartyProxy;
 import org.ehrbase.dao.access.support.DataAccess;
 import org.ehrbase.dao.access.util.ContributionDef;
+import org.ehrbase.dao.access.util.QueryBatch;
 import org.ehrbase.dao.access.util.TransactionTime;
 import org.ehrbase.ehr.knowledge.I_KnowledgeCache;
 import org.ehrbase.jooq.pg.Routines;
@@ -41,11 +42,14 @@ import org.ehrbase.jooq.pg.tables.records.AdminGetLinkedStatusForContribRecord;
 import org.ehrbase.jooq.pg.tables.records.ContributionRecord;
 import org.ehrbase.service.IntrospectService;
 import org.jooq.DSLContext;
+import org.jooq.Query;
 import org.jooq.Result;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Objects;
 import java.util.UUID;
 
@@ -127,17 +131,8 @@ public class ContributionAccess extends DataAccess implements I_ContributionAcce
 
     @Override
     public UUID commit(Timestamp transactionTime) {
-
-        // first create DB entry of auditDetails so they can get referenced in this contribution
-        UUID auditId = this.auditDetails.commit();
-        contributionRecord.setHasAudit(auditId);
-
-        if (contributionRecord.getState() == ContributionState.incomplete) {
-            log.warn("Contribution state has not been set");
-        }
-
-        contributionRecord.setEhrId(this.getEhrId());
-        if (contributionRecord.insert() == 0)
+        // the auditDetails are inserted first, so they can get referenced in this contribution
+        if (!new QueryBatch(commitQueries(transactionTime)).execute(getContext()))
             throw new InternalServerException("Couldn't store contribution");
 
         return contributionRecord.getId();
@@ -148,6 +143,25 @@ public class ContributionAccess extends DataAccess implements I_ContributionAcce
         return commit(TransactionTime.millis());
     }
 
+    @Override
+    public List<Query> commitQueries(Timestamp transactionTime) {
+        List<Query> queries = new ArrayList<>(this.auditDetails.commitQueries(transactionTime));
+        contributionRecord.setHasAudit(this.auditDetails.getId());
+
+        if (contributionRecord.getState() == ContributionState.incomplete) {
+            log.warn("Contribution state has not been set");
+        }
+
+        if (contributionRecord.getId() == null) {
+            contributionRecord.setId(UUID.randomUUID());
+        }
+        contributionRecord.setEhrId(this.getEhrId());
+        queries.add(getContext().insertInto(CONTRIBUTION).set(contributionRecord));
+        // the values are copied into the insert, further changes are stored by update()
+        contributionRecord.changed(false);
+        return queries;
+    }
+
     /**
      * Commit the contribution with optional values, excluding audit, which needs to be created and set beforehand.
      */
@@ -23,7 +23,6 @@ package org.ehrbase.dao.access.jooq;
 
 import static org.ehrbase.jooq.pg.Tables.ENTRY;
 import static org.ehrbase.jooq.pg.Tables.ENTRY_HISTORY;
-import static org.ehrbase.jooq.pg.Tables.TERRITORY;
 
 import com.nedap.archie.rm.archetyped.Archetyped;
 import com.nedap.archie.rm.archetyped.FeederAudit;
@@ -60,6 +59,7 @@ import org.ehrbase.dao.access.interfaces.I_EntryAccess;
 import org.ehrbase.dao.access.jooq.party.PersistedPartyProxy;
 import org.ehrbase.dao.access.query.AsyncSqlQuery;
 import org.ehrbase.dao.access.support.DataAccess;
+import org.ehrbase.dao.access.util.QueryBatch;
 import org.ehrbase.jooq.pg.enums.EntryType;
 import org.ehrbase.jooq.pg.tables.records.EntryHistoryRecord;
 import org.ehrbase.jooq.pg.tables.records.EntryRecord;
@@ -70,7 +70,7 @@ import org.ehrbase.serialisation.dbencoding.rmobject.LinksEncoding;
 import org.ehrbase.service.RecordedDvCodedText;
 import org.ehrbase.service.RecordedDvText;
 import org.jooq.JSONB;
-import org.jooq.Record;
+import org.jooq.Query;
 import org.jooq.Result;
 import org.jooq.UpdateQuery;
 import org.jooq.impl.DSL;
@@ -138,9 +138,8 @@ public class EntryAccess extends DataAccess implements I_EntryAccess {
 
     values.put(SystemValue.LANGUAGE,
         new CodePhrase(new TerminologyId("ISO_639-1"), compositionAccess.getLanguageCode()));
-    String territory2letters = domainAccess.getContext()
-        .fetchOne(TERRITORY, TERRITORY.CODE.eq(compositionAccess.getTerritoryCode()))
-        .getTwoletter();
+    String territory2letters = domainAccess.getTerminologyLookup()
+        .territoryTwoLetter(compositionAccess.getTerritoryCode());
 
     values.put(SystemValue.TERRITORY,
         new CodePhrase(new TerminologyId("ISO_3166-1"), territory2letters));
@@ -206,13 +205,28 @@ public class EntryAccess extends DataAccess implements I_EntryAccess {
         .and(ENTRY_HISTORY.SYS_TRANSACTION.eq(compositionHistoryAccess.getSysTransaction()))
         .fetch();
 
+    EventContext context = I_ContextAccess.retrieveHistoricalEventContext(domainAccess,
+        compositionHistoryAccess.getId(), compositionHistoryAccess.getSysTransaction());
+
+    return buildInstancesInCompositionVersion(domainAccess, compositionHistoryAccess, version,
+        entryHistoryRecords, context);
+  }
+
+  /**
+   * Builds the entries of a composition version from its already fetched entry history records
+   * and historical event context.
+   *
+   * @throws IllegalArgumentException if DB is inconsistent or operation fails
+   */
+  static List<I_EntryAccess> buildInstancesInCompositionVersion(I_DomainAccess domainAccess,
+      I_CompositionAccess compositionHistoryAccess, int version,
+      List<EntryHistoryRecord> entryHistoryRecords, EventContext context) {
+
     //build the list of parameters to recreate the composition
     Map<SystemValue, Object> values = new HashMap<>();
     values.put(SystemValue.COMPOSER,
         new PersistedPartyProxy(domainAccess).retrieve(compositionHistoryAccess.getComposerId()));
 
-    EventContext context = I_ContextAccess.retrieveHistoricalEventContext(domainAccess,
-        compositionHistoryAccess.getId(), compositionHistoryAccess.getSysTransaction());
     if (context == null) {//unchanged context use the current one!
       // also optional handling of context, because persistent compositions don't have a context
       compositionHistoryAccess.getContextId().ifPresent(
@@ -222,9 +236,8 @@ public class EntryAccess extends DataAccess implements I_EntryAccess {
 
     values.put(SystemValue.LANGUAGE,
         new CodePhrase(new TerminologyId("ISO_639-1"), compositionHistoryAccess.getLanguageCode()));
-    String territory2letters = domainAccess.getContext()
-        .fetchOne(TERRITORY, TERRITORY.CODE.eq(compositionHistoryAccess.getTerritoryCode()))
-        .getTwoletter();
+    String territory2letters = domainAccess.getTerminologyLookup()
+        .territoryTwoLetter(compositionHistoryAccess.getTerritoryCode());
     values.put(SystemValue.TERRITORY,
         new CodePhrase(new TerminologyId("ISO_3166-1"), territory2letters));
 
@@ -387,10 +400,20 @@ public class EntryAccess extends DataAccess implements I_EntryAccess {
 
   @Override
   public UUID commit(Timestamp transactionTime) {
+    if (!new QueryBatch(commitQueries(transactionTime)).execute(getContext())) {
+      throw new InternalServerException("Couldn't store entry");
+    }
+    return entryRecord.getId();
+  }
+
+  @Override
+  public List<Query> commitQueries(Timestamp transactionTime) {
+    UUID id = UUID.randomUUID();
+    entryRecord.setId(id);
 
-    //use jOOQ
-    Record result = getContext()
+    return List.of(getContext()
         .insertInto(ENTRY,
+            ENTRY.ID,
             ENTRY.SEQUENCE,
             ENTRY.COMPOSITION_ID,
             ENTRY.TEMPLATE_ID,
@@ -401,7 +424,8 @@ public class EntryAccess extends DataAccess implements I_EntryAccess {
             ENTRY.SYS_TRANSACTION,
             ENTRY.NAME,
             ENTRY.RM_VERSION)
-        .values(DSL.val(getSequence()),
+        .values(DSL.val(id),
+            DSL.val(getSequence()),
             DSL.val(getCompositionId()),
             DSL.val(getTemplateId()),
             DSL.val(EntryType.valueOf(getItemType())),
@@ -410,11 +434,7 @@ public class EntryAccess extends DataAccess implements I_EntryAccess {
             DSL.val(getEntryJson()),
             DSL.val(transactionTime),
             DSL.val(getCompositionName()),
-            DSL.val(getRmVersion()))
-        .returning(ENTRY.ID)
-        .fetchOne();
-
-    return result.getValue(ENTRY.ID);
+            DSL.val(getRmVersion())));
   }
 
   /**
@@ -71,7 +71,6 @@ import org.ehrbase.jooq.pg.tables.records.FolderItemsRecord;
 import org.ehrbase.jooq.pg.tables.records.FolderRecord;
 import org.ehrbase.jooq.pg.tables.records.ObjectRefRecord;
 import org.joda.time.DateTime;
-import org.jooq.DSLContext;
 import org.jooq.Field;
 import org.jooq.JSONB;
 import org.jooq.Record;
@@ -159,8 +158,11 @@ public class FolderAccess extends DataAccess implements I_FolderAccess, Comparab
 
     newContribution = folderRecord.getInContribution();
 
-    return this.internalUpdate(Timestamp.valueOf(transactionTime), true, null,
-        oldContribution, newContribution, systemId, committerId, description, changeType);
+    FolderRows rows = new FolderRows();
+    boolean result = this.internalUpdate(Timestamp.valueOf(transactionTime), true, null,
+        oldContribution, newContribution, systemId, committerId, description, changeType, rows);
+    rows.insert(getContext());
+    return result;
   }
 
   /**
@@ -184,8 +186,11 @@ public class FolderAccess extends DataAccess implements I_FolderAccess, Comparab
     String description = newContributionAccess.getAuditsDescription();
     ContributionChangeType changeType = newContributionAccess.getAuditsChangeType();
 
-    return this.internalUpdate(Timestamp.valueOf(transactionTime), true, null,
-        oldContribution, newContribution, systemId, committerId, description, changeType);
+    FolderRows rows = new FolderRows();
+    boolean result = this.internalUpdate(Timestamp.valueOf(transactionTime), true, null,
+        oldContribution, newContribution, systemId, committerId, description, changeType, rows);
+    rows.insert(getContext());
+    return result;
   }
 
   private Boolean internalUpdate(final Timestamp transactionTime,
@@ -196,7 +201,8 @@ public class FolderAccess extends DataAccess implements I_FolderAccess, Comparab
       UUID systemId,
       UUID committerId,
       String description,
-      ContributionChangeType contributionChangeType) {
+      ContributionChangeType contributionChangeType,
+      FolderRows rows) {
 
     boolean result;
 
@@ -246,19 +252,14 @@ public class FolderAccess extends DataAccess implements I_FolderAccess, Comparab
       updatedFhR.setInContribution(newContribution);
       updatedFhR.setSysTransaction(transactionTime);
       updatedFhR.setSysPeriod(folderRecord.getSysPeriod());
-      getContext().attach(updatedFhR);
-      updatedFhR.store();
+      rows.addHierarchy(updatedFhR);
 
     }
     // Get new folder id for folder items and hierarchy
     UUID updatedFolderId = this.folderRecord.getId();
 
     // Update items -> Save new list of all items in this folder
-    this.saveFolderItems(updatedFolderId,
-        oldContribution,
-        newContribution,
-        transactionTime,
-        getContext());
+    this.addFolderItems(updatedFolderId, newContribution, transactionTime, rows);
 
     boolean anySubfolderModified = this.getSubfoldersList() // Map of sub folders with UUID
         .values() // Get all I_FolderAccess entries
@@ -273,30 +274,30 @@ public class FolderAccess extends DataAccess implements I_FolderAccess, Comparab
                     systemId,
                     committerId,
                     description,
-                    contributionChangeType)
+                    contributionChangeType,
+                    rows)
             )).reduce((b1, b2) -> b1 || b2).orElse(false);
 
     return result || anySubfolderModified;
   }
 
-  private void saveFolderItems(final UUID folderId, final UUID old_contribution,
-      final UUID new_contribution, final Timestamp transactionTime, DSLContext context) {
+  /**
+   * Adds the object_ref and folder_items rows of the items of this folder, to be inserted together
+   * with those of the whole folder tree.
+   */
+  private void addFolderItems(final UUID folderId, final UUID contribution,
+      final Timestamp transactionTime, FolderRows rows) {
 
     for (ObjectRef or : this.getItems()) {
+      UUID objectRefId = UUID.fromString(or.getId().getValue());
 
-      //insert in object_ref
-      ObjectRefRecord orr = new ObjectRefRecord(or.getNamespace(), or.getType(),
-          UUID.fromString(or.getId().getValue()), new_contribution, transactionTime,
-          folderRecord.getSysPeriod());
-      context.attach(orr);
-      orr.store();
-
-      //insert in folder_item
-      FolderItemsRecord fir = new FolderItemsRecord(folderId,
-          UUID.fromString(or.getId().getValue()), new_contribution, transactionTime,
-          folderRecord.getSysPeriod());
-      context.attach(fir);
-      fir.store();
+      ObjectRefRecord orr = new ObjectRefRecord(or.getNamespace(), or.getType(), objectRefId,
+          contribution, transactionTime, folderRecord.getSysPeriod());
+
+      FolderItemsRecord fir = new FolderItemsRecord(folderId, objectRefId, contribution,
+          transactionTime, folderRecord.getSysPeriod());
+
+      rows.addItem(orr, fir);
     }
   }
 
@@ -339,10 +340,19 @@ public class FolderAccess extends DataAccess implements I_FolderAccess, Comparab
    */
   @Override
   public UUID commit(LocalDateTime transactionTime, UUID contributionId) {
-
-    this.getFolderRecord().setInContribution(contributionId);
     var inputContributionAccess = I_ContributionAccess.retrieveInstance(this.getDataAccess(),
         contributionId);
+
+    FolderRows rows = new FolderRows();
+    UUID folderId = this.commit(transactionTime, contributionId, inputContributionAccess, rows);
+    rows.insert(getContext());
+    return folderId;
+  }
+
+  private UUID commit(LocalDateTime transactionTime, UUID contributionId,
+      I_ContributionAccess inputContributionAccess, FolderRows rows) {
+
+    this.getFolderRecord().setInContribution(contributionId);
     // create new folder audit with given values
     auditDetailsAccess = new AuditDetailsAccess(this);
     auditDetailsAccess.setSystemId(inputContributionAccess.getAuditsSystemId());
@@ -357,12 +367,12 @@ public class FolderAccess extends DataAccess implements I_FolderAccess, Comparab
     this.getFolderRecord().store();
 
     //Save folder items
-    this.saveFolderItems(this.getFolderRecord().getId(), contributionId, contributionId,
-        Timestamp.valueOf(transactionTime), getContext());
+    this.addFolderItems(this.getFolderRecord().getId(), contributionId,
+        Timestamp.valueOf(transactionTime), rows);
 
     // Save list of sub folders to database with parent <-> child ID relations
     this.getSubfoldersList().values().forEach(child -> {
-      child.commit(transactionTime, contributionId);
+      ((FolderAccess) child).commit(transactionTime, contributionId, inputContributionAccess, rows);
       FolderHierarchyRecord fhRecord = this.buildFolderHierarchyRecord(
           this.getFolderRecord().getId(),
           ((FolderAccess) child).getFolderRecord().getId(),
@@ -370,7 +380,7 @@ public class FolderAccess extends DataAccess implements I_FolderAccess, Comparab
           Timestamp.valueOf(transactionTime),
           null
       );
-      fhRecord.store();
+      rows.addHierarchy(fhRecord);
     });
     return this.getFolderRecord().getId();
 
@@ -0,0 +1,87 @@
+/*
+ * Copyright (c) 2022 Vitasystems GmbH and Hannover Medical School.
+ *
+ * This file is part of project EHRbase
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.ehrbase.dao.access.jooq;
+
+import io.micrometer.core.instrument.Metrics;
+import java.util.ArrayList;
+import java.util.List;
+import org.ehrbase.api.exception.InternalServerException;
+import org.ehrbase.jooq.pg.tables.records.FolderHierarchyRecord;
+import org.ehrbase.jooq.pg.tables.records.FolderItemsRecord;
+import org.ehrbase.jooq.pg.tables.records.ObjectRefRecord;
+import org.jooq.DSLContext;
+import org.jooq.TableRecord;
+import org.jooq.exception.DataAccessException;
+
+/**
+ * Collects the object refs, folder items and hierarchy rows of a whole folder tree, so that they
+ * are inserted with one JDBC batch per table instead of one statement per row.
+ */
+class FolderRows {
+
+  static final String INSERTED_ROWS_METRIC = "ehrbase.folder.commit.rows";
+
+  private final List<ObjectRefRecord> objectRefs = new ArrayList<>();
+  private final List<FolderItemsRecord> folderItems = new ArrayList<>();
+  private final List<FolderHierarchyRecord> hierarchy = new ArrayList<>();
+
+  void addItem(ObjectRefRecord objectRef, FolderItemsRecord folderItem) {
+    objectRefs.add(objectRef);
+    folderItems.add(folderItem);
+  }
+
+  void addHierarchy(FolderHierarchyRecord folderHierarchy) {
+    hierarchy.add(folderHierarchy);
+  }
+
+  int size() {
+    return objectRefs.size() + folderItems.size() + hierarchy.size();
+  }
+
+  /**
+   * Inserts the collected rows, the folders they reference must have been inserted before.
+   */
+  void insert(DSLContext context) {
+    // folder items reference the object refs
+    insert(context, objectRefs);
+    insert(context, folderItems);
+    insert(context, hierarchy);
+
+    Metrics.summary(INSERTED_ROWS_METRIC).record(size());
+  }
+
+  private static void insert(DSLContext context, List<? extends TableRecord<?>> records) {
+    if (records.isEmpty()) {
+      return;
+    }
+
+    int[] results;
+    try {
+      results = context.batchInsert(records).execute();
+    } catch (DataAccessException e) {
+      throw new InternalServerException("Problem executing database operation", e);
+    }
+
+    for (int result : results) {
+      if (result == 0) {
+        throw new InternalServerException("Couldn't store folder");
+      }
+    }
+  }
+}
@@ -39,6 +39,8 @@ import static org.ehrbase.jooq.pg.Tables.SYSTEM;
  */
 public class SystemAccess extends DataAccess implements I_SystemAccess {
 
+    private static final String SYSTEM_KEY_PREFIX = "system:";
+
     private SystemRecord systemRecord;
 
     public SystemAccess(I_DomainAccess domainAccess) {
@@ -59,23 +61,26 @@ public class SystemAccess extends DataAccess implements I_SystemAccess {
     public static UUID createOrRetrieveLocalSystem(I_DomainAccess domainAccess) {
         String settings = domainAccess.getServerConfig().getNodename();
 
-        // try to retrieve and return if successful, otherwise create
-        UUID res = retrieveInstanceId(domainAccess, settings);
-        if (res == null) {
-            return new SystemAccess(domainAccess, "DEFAULT RUNNING SYSTEM", settings).commit();
-        } else
-            return res;
+        return domainAccess.getPartyIdCache().getOrCreate(domainAccess, SYSTEM_KEY_PREFIX + settings, () -> {
+            // try to retrieve and return if successful, otherwise create
+            UUID res = retrieveInstanceId(domainAccess, settings);
+            if (res == null) {
+                return new SystemAccess(domainAccess, "DEFAULT RUNNING SYSTEM", settings).commit();
+            } else
+                return res;
+        });
     }
 
     public static UUID createOrRetrieveInstanceId(I_DomainAccess domainAccess, String description, String settings) {
-        // try to retrieve and return if successful, otherwise create
-        UUID res = retrieveInstanceId(domainAccess, settings);
-        if (res == null) {
-            if (description == null)
-                description = "default";
-            return new SystemAccess(domainAccess, description, settings).commit();
-        } else
-            return res;
+        return domainAccess.getPartyIdCache().getOrCreate(domainAccess, SYSTEM_KEY_PREFIX + settings, () -> {
+            // try to retrieve and return if successful, otherwise create
+            UUID res = retrieveInstanceId(domainAccess, settings);
+            if (res == null) {
+                return new SystemAccess(domainAccess, description == null ? "default" : description, settings)
+                        .commit();
+            } else
+                return res;
+        });
     }
 
     /**
@@ -0,0 +1,128 @@
+/*
+ * Copyright (c) 2022 Vitasystems GmbH and Hannover Medical School.
+ *
+ * This file is part of project EHRbase
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.ehrbase.dao.access.jooq.party;
+
+import org.ehrbase.cache.CacheOptions;
+import org.ehrbase.dao.access.interfaces.I_DomainAccess;
+import org.jooq.impl.DSL;
+import org.jooq.impl.SQLDataType;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.UUID;
+import java.util.function.Supplier;
+
+/**
+ * Party and system identities to their DB id, held in the {@link CacheOptions#PARTY_ID_CACHE} so that steady state
+ * writes do not look them up again.
+ * <p>
+ * An id is only published once the transaction that found or created it has committed, a rolled back insert never
+ * ends up in the cache. On a miss, concurrent transactions resolving the same identity are serialized by a
+ * transaction scoped advisory lock, so that the second one finds the row inserted by the first one instead of
+ * inserting a duplicate.
+ */
+public class PartyIdCache {
+
+    /**
+     * Resolves each identity from the DB.
+     */
+    public static final PartyIdCache DISABLED = new PartyIdCache((Cache) null);
+
+    /**
+     * Advisory lock namespace, keeps the locks apart from other users of <code>pg_advisory_xact_lock</code>.
+     */
+    private static final int LOCK_NAMESPACE = 0x70617274;
+
+    /**
+     * null if disabled
+     */
+    private final Cache cache;
+
+    public PartyIdCache(CacheManager cacheManager) {
+        this(cacheManager.getCache(CacheOptions.PARTY_ID_CACHE));
+    }
+
+    private PartyIdCache(Cache cache) {
+        this.cache = cache;
+    }
+
+    /**
+     * @param domainAccess DB access of the current transaction
+     * @param key          Identity of the party or system, prefixed by its kind
+     * @param loader       Finds or creates the record and returns its id
+     * @return id of the record
+     */
+    public UUID getOrCreate(I_DomainAccess domainAccess, String key, Supplier<UUID> loader) {
+        UUID id = get(key);
+        if (id != null) {
+            return id;
+        }
+
+        if (TransactionSynchronizationManager.isActualTransactionActive()) {
+            domainAccess.getContext()
+                    .select(DSL.function("pg_advisory_xact_lock", SQLDataType.OTHER,
+                            DSL.inline(LOCK_NAMESPACE), DSL.function("hashtext", SQLDataType.INTEGER, DSL.val(key))))
+                    .fetch();
+        }
+
+        id = loader.get();
+        if (id != null && cache != null) {
+            publish(key, id);
+        }
+        return id;
+    }
+
+    /**
+     * Drops all entries, to be called when parties are deleted.
+     */
+    public void clear() {
+        if (cache == null) {
+            return;
+        }
+        cache.clear();
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            // entries put by other transactions until the deletion is committed may point to deleted rows
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    cache.clear();
+                }
+            });
+        }
+    }
+
+    UUID get(String key) {
+        return cache == null ? null : cache.get(key, UUID.class);
+    }
+
+    private void publish(String key, UUID id) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    cache.put(key, id);
+                }
+            });
+        } else {
+            cache.put(key, id);
+        }
+    }
+}
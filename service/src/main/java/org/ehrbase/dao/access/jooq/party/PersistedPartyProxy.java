@@ -27,6 +27,7 @@ import java.util.List;
 import org.ehrbase.api.exception.InternalServerException;
 import org.ehrbase.dao.access.interfaces.I_DomainAccess;
 import org.ehrbase.jooq.pg.tables.records.PartyIdentifiedRecord;
+import org.ehrbase.serialisation.jsonencoding.CanonicalJson;
 import org.ehrbase.util.PartyUtils;
 
 import java.util.UUID;
@@ -83,7 +84,15 @@ public class PersistedPartyProxy {
         return partyProxy;
     }
 
+    /**
+     * Get or create the given party, ids are served from the {@link PartyIdCache} once known.
+     */
     public UUID getOrCreate(PartyProxy partyProxy){
+        return domainAccess.getPartyIdCache().getOrCreate(domainAccess, "party:" + new CanonicalJson().marshal(partyProxy),
+                () -> findOrCreate(partyProxy));
+    }
+
+    private UUID findOrCreate(PartyProxy partyProxy){
         if (PartyUtils.isPartySelf(partyProxy)) {
             return new PersistedPartySelf(domainAccess).getOrCreate(partyProxy);
         } else if (PartyUtils.isPartyRelated(partyProxy)) {
@@ -109,7 +118,8 @@ public class PersistedPartyProxy {
         });
         // Create and persist object
         var partyIdentified = new PartyIdentified(new PartyRef(new GenericId(code, scheme), namespace, type), name, identifiers);
-        return getOrCreate(partyIdentified);
+        // not cached by content, callers passing a random code cache by their own key
+        return findOrCreate(partyIdentified);
     }
 
     /**
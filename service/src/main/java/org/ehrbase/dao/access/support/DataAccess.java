@@ -23,6 +23,8 @@ package org.ehrbase.dao.access.support;
 
 import org.ehrbase.api.definitions.ServerConfig;
 import org.ehrbase.dao.access.interfaces.I_DomainAccess;
+import org.ehrbase.dao.access.jooq.party.PartyIdCache;
+import org.ehrbase.dao.access.util.TerminologyLookup;
 import org.ehrbase.ehr.knowledge.I_KnowledgeCache;
 import org.ehrbase.service.IntrospectService;
 import org.jooq.DSLContext;
@@ -40,12 +42,31 @@ public abstract class DataAccess implements I_DomainAccess {
     private final IntrospectService introspectService;
 
     private final ServerConfig serverConfig;
+    private final PartyIdCache partyIdCache;
+    private final TerminologyLookup terminologyLookup;
 
     public DataAccess(DSLContext context, I_KnowledgeCache knowledgeManager, IntrospectService introspectService, ServerConfig serverConfig) {
+        this(context, knowledgeManager, introspectService, serverConfig, null);
+    }
+
+    /**
+     * @param partyIdCache may be null, the party ids are then resolved from the DB each time
+     */
+    public DataAccess(DSLContext context, I_KnowledgeCache knowledgeManager, IntrospectService introspectService, ServerConfig serverConfig, PartyIdCache partyIdCache) {
+        this(context, knowledgeManager, introspectService, serverConfig, partyIdCache, null);
+    }
+
+    /**
+     * @param partyIdCache      may be null, the party ids are then resolved from the DB each time
+     * @param terminologyLookup may be null, the terminology tables are then queried from the DB each time
+     */
+    public DataAccess(DSLContext context, I_KnowledgeCache knowledgeManager, IntrospectService introspectService, ServerConfig serverConfig, PartyIdCache partyIdCache, TerminologyLookup terminologyLookup) {
         this.context = context;
         this.knowledgeManager = knowledgeManager;
         this.introspectService = introspectService;
         this.serverConfig = serverConfig;
+        this.partyIdCache = partyIdCache == null ? PartyIdCache.DISABLED : partyIdCache;
+        this.terminologyLookup = terminologyLookup == null ? TerminologyLookup.fromDatabase(context) : terminologyLookup;
     }
 
     public DataAccess(I_DomainAccess domainAccess) {
@@ -53,6 +74,8 @@ public abstract class DataAccess implements I_DomainAccess {
         this.knowledgeManager = domainAccess.getKnowledgeManager();
         this.introspectService = domainAccess.getIntrospectService();
         this.serverConfig = domainAccess.getServerConfig();
+        this.partyIdCache = domainAccess.getPartyIdCache();
+        this.terminologyLookup = domainAccess.getTerminologyLookup();
     }
 
     @Override
@@ -91,4 +114,14 @@ public abstract class DataAccess implements I_DomainAccess {
         return this.serverConfig;
     }
 
+    @Override
+    public PartyIdCache getPartyIdCache() {
+        return partyIdCache;
+    }
+
+    @Override
+    public TerminologyLookup getTerminologyLookup() {
+        return terminologyLookup;
+    }
+
 }
@@ -23,6 +23,8 @@ package org.ehrbase.dao.access.support;
 
 import org.ehrbase.api.definitions.ServerConfig;
 import org.ehrbase.dao.access.interfaces.I_DomainAccess;
+import org.ehrbase.dao.access.jooq.party.PartyIdCache;
+import org.ehrbase.dao.access.util.TerminologyLookup;
 import org.ehrbase.ehr.knowledge.I_KnowledgeCache;
 import org.ehrbase.service.IntrospectService;
 import org.jooq.DSLContext;
@@ -39,6 +41,14 @@ public class ServiceDataAccess extends DataAccess {
         super(context, knowledgeManager, introspectService, serverConfig);
     }
 
+    public ServiceDataAccess(DSLContext context, I_KnowledgeCache knowledgeManager, IntrospectService introspectService, ServerConfig serverConfig, PartyIdCache partyIdCache) {
+        super(context, knowledgeManager, introspectService, serverConfig, partyIdCache);
+    }
+
+    public ServiceDataAccess(DSLContext context, I_KnowledgeCache knowledgeManager, IntrospectService introspectService, ServerConfig serverConfig, PartyIdCache partyIdCache, TerminologyLookup terminologyLookup) {
+        super(context, knowledgeManager, introspectService, serverConfig, partyIdCache, terminologyLookup);
+    }
+
     public ServiceDataAccess(I_DomainAccess dataAccess) {
         super(dataAccess);
     }
@@ -0,0 +1,79 @@
+/*
+ * Copyright (c) 2022 Vitasystems GmbH and Hannover Medical School.
+ *
+ * This file is part of project EHRbase
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.ehrbase.dao.access.util;
+
+import static org.ehrbase.jooq.pg.Tables.CONCEPT;
+import static org.ehrbase.jooq.pg.Tables.LANGUAGE;
+import static org.ehrbase.jooq.pg.Tables.TERRITORY;
+
+import java.util.UUID;
+import org.ehrbase.jooq.pg.tables.records.ConceptRecord;
+import org.ehrbase.jooq.pg.tables.records.TerritoryRecord;
+import org.jooq.DSLContext;
+
+/**
+ * {@link TerminologyLookup} querying the DB each time.
+ */
+class DatabaseTerminologyLookup implements TerminologyLookup {
+
+  private final DSLContext context;
+
+  DatabaseTerminologyLookup(DSLContext context) {
+    this.context = context;
+  }
+
+  @Override
+  public UUID conceptUuid(int conceptId, String language) {
+    ConceptRecord concept = fetchConcept(conceptId, language);
+    return concept == null ? null : concept.getId();
+  }
+
+  @Override
+  public String conceptDescription(int conceptId, String language) {
+    ConceptRecord concept = fetchConcept(conceptId, language);
+    return concept == null ? null : concept.getDescription();
+  }
+
+  private ConceptRecord fetchConcept(int conceptId, String language) {
+    return context.fetchAny(CONCEPT, CONCEPT.CONCEPTID.eq(conceptId).and(CONCEPT.LANGUAGE.equal(language)));
+  }
+
+  @Override
+  public Concept concept(UUID id) {
+    ConceptRecord concept = context.fetchAny(CONCEPT, CONCEPT.ID.eq(id));
+    return concept == null ? null : new Concept(concept.getConceptid(), concept.getDescription());
+  }
+
+  @Override
+  public int territoryCode(String twoLetter) {
+    TerritoryRecord territory = context.fetchAny(TERRITORY, TERRITORY.TWOLETTER.equal(twoLetter));
+    return territory == null ? -1 : territory.getCode();
+  }
+
+  @Override
+  public String territoryTwoLetter(int code) {
+    TerritoryRecord territory = context.fetchOne(TERRITORY, TERRITORY.CODE.eq(code));
+    return territory == null ? null : territory.getTwoletter();
+  }
+
+  @Override
+  public boolean isValidLanguageCode(String languageCode) {
+    return context.fetchExists(LANGUAGE, LANGUAGE.CODE.equal(languageCode));
+  }
+}
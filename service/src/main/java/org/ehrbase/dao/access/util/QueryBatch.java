@@ -0,0 +1,82 @@
+/*
+ * Copyright (c) 2022 Vitasystems GmbH and Hannover Medical School.
+ *
+ * This file is part of project EHRbase
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.ehrbase.dao.access.util;
+
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+import org.jooq.DSLContext;
+import org.jooq.Query;
+import org.jooq.QueryPart;
+import org.jooq.ResultOrRows;
+import org.jooq.Results;
+
+/**
+ * Executes queries that belong together, e.g. the inserts of a commit, in their given order.
+ * <p>
+ * The queries are sent as a single prepared statement made of all of them, separated by
+ * semicolons, with the bind values of each query, so the values (like the JSONB of the entries)
+ * are never inlined into the SQL. The driver executes the statements in order, which makes sure
+ * referenced rows are inserted first, within a single round trip to the DB.
+ */
+public class QueryBatch {
+
+    private final List<Query> queries;
+
+    public QueryBatch(List<? extends Query> queries) {
+        this.queries = List.copyOf(queries);
+    }
+
+    /**
+     * @return the number of statements
+     */
+    public int size() {
+        return queries.size();
+    }
+
+    /**
+     * @return the number of round trips to the DB needed to execute the statements
+     */
+    public int roundTrips() {
+        return queries.isEmpty() ? 0 : 1;
+    }
+
+    /**
+     * @return <code>true</code> if each statement affected a row
+     * @throws org.jooq.exception.DataAccessException when a statement failed
+     */
+    public boolean execute(DSLContext context) {
+        if (queries.isEmpty()) {
+            return true;
+        }
+
+        // a template of the form "{0};{1};..." renders each query with its own bind values
+        String template = IntStream.range(0, queries.size())
+                .mapToObj(i -> "{" + i + "}")
+                .collect(Collectors.joining(";\n"));
+        Results results = context.resultQuery(template, queries.toArray(new QueryPart[0])).fetchMany();
+
+        // one update count per statement
+        List<ResultOrRows> updateCounts = results.resultsOrRows();
+        boolean affectedAll = updateCounts.size() == queries.size();
+        for (ResultOrRows updateCount : updateCounts) {
+            affectedAll &= updateCount.rows() != 0;
+        }
+        return affectedAll;
+    }
+}
@@ -0,0 +1,96 @@
+/*
+ * Copyright (c) 2022 Vitasystems GmbH and Hannover Medical School.
+ *
+ * This file is part of project EHRbase
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.ehrbase.dao.access.util;
+
+import java.util.UUID;
+import org.jooq.DSLContext;
+
+/**
+ * Lookups in the static CONCEPT, TERRITORY and LANGUAGE tables (see <code>V3__terminology</code>), available to the
+ * DAOs through {@link org.ehrbase.dao.access.interfaces.I_DomainAccess#getTerminologyLookup()}.
+ * <p>
+ * The application serves them from the {@link TerminologyTables} loaded at startup, other data accesses, e.g. in DAO
+ * tests running against a mocked DB, query the DB with {@link #fromDatabase(DSLContext)}.
+ */
+public interface TerminologyLookup {
+
+  /**
+   * @param context SQL context
+   * @return lookups querying the DB each time
+   */
+  static TerminologyLookup fromDatabase(DSLContext context) {
+    return new DatabaseTerminologyLookup(context);
+  }
+
+  /**
+   * @param conceptId openEHR concept code
+   * @param language  language code ('en', 'fr' etc.)
+   * @return the concept record id, or null if not found
+   */
+  UUID conceptUuid(int conceptId, String language);
+
+  /**
+   * @param conceptId openEHR concept code
+   * @param language  language code ('en', 'fr' etc.)
+   * @return the concept description, or null if not found
+   */
+  String conceptDescription(int conceptId, String language);
+
+  /**
+   * @param id concept record id
+   * @return the concept, or null if not found
+   */
+  Concept concept(UUID id);
+
+  /**
+   * @param twoLetter ISO 3166-1 two letter code
+   * @return the numeric territory code, or -1 if not found
+   */
+  int territoryCode(String twoLetter);
+
+  /**
+   * @param code numeric territory code
+   * @return the ISO 3166-1 two letter code, or null if not found
+   */
+  String territoryTwoLetter(int code);
+
+  boolean isValidLanguageCode(String languageCode);
+
+  /**
+   * A concept record, without its id and language.
+   */
+  final class Concept {
+
+    private final int conceptId;
+    private final String description;
+
+    Concept(int conceptId, String description) {
+      this.conceptId = conceptId;
+      this.description = description;
+    }
+
+    public int getConceptId() {
+      return conceptId;
+    }
+
+    public String getDescription() {
+      return description;
+    }
+  }
+}
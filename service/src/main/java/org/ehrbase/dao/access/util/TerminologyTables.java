@@ -0,0 +1,153 @@
+/*
+ * Copyright (c) 2022 Vitasystems GmbH and Hannover Medical School.
+ *
+ * This file is part of project EHRbase
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.ehrbase.dao.access.util;
+
+import static org.ehrbase.jooq.pg.Tables.CONCEPT;
+import static org.ehrbase.jooq.pg.Tables.LANGUAGE;
+import static org.ehrbase.jooq.pg.Tables.TERRITORY;
+
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.stream.Collectors;
+import org.ehrbase.jooq.pg.tables.records.ConceptRecord;
+import org.ehrbase.jooq.pg.tables.records.TerritoryRecord;
+import org.jooq.DSLContext;
+
+/**
+ * Immutable in memory copy of the static CONCEPT, TERRITORY and LANGUAGE tables (see <code>V3__terminology</code>).
+ * <p>
+ * Loaded once at startup as the application's {@link TerminologyLookup}, the DAO lookups then no longer hit the DB.
+ */
+public final class TerminologyTables implements TerminologyLookup {
+
+  /**
+   * Concepts by language, each sorted by concept id.
+   */
+  private final Map<String, ConceptTable> conceptsByLanguage;
+  private final Map<UUID, Concept> conceptsById;
+
+  /**
+   * Territory two letter codes, sorted by numeric code.
+   */
+  private final int[] territoryCodes;
+  private final String[] territoryTwoLetters;
+  private final Map<String, Integer> territoryCodesByTwoLetter;
+
+  private final Set<String> languageCodes;
+
+  private TerminologyTables(List<ConceptRecord> concepts, List<TerritoryRecord> territories,
+      Set<String> languageCodes) {
+
+    this.conceptsByLanguage = concepts.stream()
+        .collect(Collectors.groupingBy(ConceptRecord::getLanguage)).entrySet().stream()
+        .collect(Collectors.toUnmodifiableMap(Map.Entry::getKey, e -> new ConceptTable(e.getValue())));
+    this.conceptsById = concepts.stream()
+        .collect(Collectors.toUnmodifiableMap(ConceptRecord::getId,
+            c -> new Concept(c.getConceptid(), c.getDescription()), (a, b) -> a));
+
+    TerritoryRecord[] sorted = territories.stream()
+        .sorted(Comparator.comparing(TerritoryRecord::getCode))
+        .toArray(TerritoryRecord[]::new);
+    this.territoryCodes = Arrays.stream(sorted).mapToInt(TerritoryRecord::getCode).toArray();
+    this.territoryTwoLetters = Arrays.stream(sorted).map(TerritoryRecord::getTwoletter).toArray(String[]::new);
+    Map<String, Integer> byTwoLetter = new HashMap<>();
+    for (TerritoryRecord territory : sorted) {
+      byTwoLetter.putIfAbsent(territory.getTwoletter(), territory.getCode());
+    }
+    this.territoryCodesByTwoLetter = Map.copyOf(byTwoLetter);
+
+    this.languageCodes = Set.copyOf(languageCodes);
+  }
+
+  /**
+   * Reads the tables.
+   *
+   * @param context SQL context
+   * @return the loaded tables
+   */
+  public static TerminologyTables load(DSLContext context) {
+    return new TerminologyTables(
+        context.selectFrom(CONCEPT).fetch(),
+        context.selectFrom(TERRITORY).fetch(),
+        context.select(LANGUAGE.CODE).from(LANGUAGE).fetchSet(LANGUAGE.CODE));
+  }
+
+  @Override
+  public UUID conceptUuid(int conceptId, String language) {
+    ConceptTable table = conceptsByLanguage.get(language);
+    int index = table == null ? -1 : table.indexOf(conceptId);
+    return index < 0 ? null : table.ids[index];
+  }
+
+  @Override
+  public String conceptDescription(int conceptId, String language) {
+    ConceptTable table = conceptsByLanguage.get(language);
+    int index = table == null ? -1 : table.indexOf(conceptId);
+    return index < 0 ? null : table.descriptions[index];
+  }
+
+  @Override
+  public Concept concept(UUID id) {
+    return conceptsById.get(id);
+  }
+
+  @Override
+  public int territoryCode(String twoLetter) {
+    return territoryCodesByTwoLetter.getOrDefault(twoLetter, -1);
+  }
+
+  @Override
+  public String territoryTwoLetter(int code) {
+    int index = Arrays.binarySearch(territoryCodes, code);
+    return index < 0 ? null : territoryTwoLetters[index];
+  }
+
+  @Override
+  public boolean isValidLanguageCode(String languageCode) {
+    return languageCodes.contains(languageCode);
+  }
+
+  /**
+   * Concepts of one language, looked up by binary search over the sorted concept ids.
+   */
+  private static final class ConceptTable {
+
+    private final int[] conceptIds;
+    private final UUID[] ids;
+    private final String[] descriptions;
+
+    private ConceptTable(List<ConceptRecord> records) {
+      ConceptRecord[] sorted = records.stream()
+          .sorted(Comparator.comparing(ConceptRecord::getConceptid))
+          .toArray(ConceptRecord[]::new);
+      this.conceptIds = Arrays.stream(sorted).mapToInt(ConceptRecord::getConceptid).toArray();
+      this.ids = Arrays.stream(sorted).map(ConceptRecord::getId).toArray(UUID[]::new);
+      this.descriptions = Arrays.stream(sorted).map(ConceptRecord::getDescription).toArray(String[]::new);
+    }
+
+    private int indexOf(int conceptId) {
+      return Arrays.binarySearch(conceptIds, conceptId);
+    }
+  }
+}
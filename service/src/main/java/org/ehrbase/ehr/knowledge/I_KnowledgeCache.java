@@ -87,4 +87,14 @@ public interface I_KnowledgeCache {
     boolean deleteOperationalTemplate(OPERATIONALTEMPLATE template);
 
     JsonPathQueryResult resolveForTemplate(String templateId, Collection<NodeId> jsonQueryExpression);
+
+    /**
+     * Lookup of the templates containing all the given nodes, regardless of their nesting. The result is a superset
+     * of the templates satisfying a containment chain, use {@link #resolveForTemplate(String, Collection)} to check
+     * the chain and get the paths.
+     *
+     * @param nodeIds - the nodes, a node without archetype id matches any node of its class
+     * @return - the ids of the templates containing all the nodes
+     */
+    Set<String> findTemplateIdsContaining(Collection<NodeId> nodeIds);
 }
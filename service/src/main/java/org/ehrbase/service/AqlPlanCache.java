@@ -0,0 +1,172 @@
+/*
+ * Copyright (c) 2022 Vitasystems GmbH and Hannover Medical School.
+ *
+ * This file is part of project EHRbase
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.ehrbase.service;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+import java.util.regex.Pattern;
+import org.ehrbase.aql.sql.AqlParameterBinding;
+import org.ehrbase.aql.sql.AqlQueryPlan;
+import org.ehrbase.cache.CacheOptions;
+import org.ehrbase.cache.Caches;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.stereotype.Component;
+
+/**
+ * Compiled AQL queries, held in the {@link CacheOptions#AQL_PLAN_CACHE}.
+ * <p>
+ * Plans are keyed by the normalized AQL text and the template set version of the
+ * {@link KnowledgeCacheService}: a plan depends on the templates resolved for its CONTAINS clause,
+ * so a plan compiled before a template was added, updated or deleted is not used anymore.
+ * <p>
+ * The plan of a query with parameters is compiled for the probes of the parameters and shared by
+ * all their values (see {@link AqlParameterBinding}), unless the parameters cannot be bound.
+ * <p>
+ * Queries using the TERMINOLOGY function are never cached since the value set is expanded during
+ * the compilation.
+ * <p>
+ * The plans of pinned queries (e.g. stored queries, see {@link StoredQueryRegistry}) are kept
+ * apart and are not evicted by ad-hoc queries; they are still compiled again when the template set
+ * version changes.
+ */
+@Component
+public class AqlPlanCache {
+
+  private static final Pattern TERMINOLOGY = Pattern.compile("(?i)terminology\\s*\\(");
+
+  /**
+   * null if disabled
+   */
+  private final Cache plans;
+
+  /**
+   * Pin count of each pinned query, by normalized query, and their plans by cache key.
+   */
+  private final Map<String, Integer> pinnedQueries = new ConcurrentHashMap<>();
+  private final Map<String, AqlQueryPlan> pinnedPlans = new ConcurrentHashMap<>();
+
+  private volatile long pinnedPlansVersion = -1;
+
+  public AqlPlanCache(CacheManager cacheManager) {
+    this.plans = cacheManager.getCache(CacheOptions.AQL_PLAN_CACHE);
+  }
+
+  /**
+   * Returns the cached plan for the query, or compiles and caches it.
+   *
+   * @param aql                the AQL query, without parameters or with their values substituted
+   * @param templateSetVersion the current template set version
+   * @param compiler           compiles the query if no plan is cached
+   * @return the plan
+   */
+  public AqlQueryPlan get(String aql, long templateSetVersion, Supplier<AqlQueryPlan> compiler) {
+    return get(aql, "", templateSetVersion, compiler);
+  }
+
+  /**
+   * Returns the cached plan for the query with parameters, or compiles and caches it.
+   *
+   * @param aql                the AQL query, with its parameters
+   * @param signature          the names and types of the parameters, see {@link
+   *                           AqlParameterBinding#getSignature()}
+   * @param templateSetVersion the current template set version
+   * @param compiler           compiles the query if no plan is cached
+   * @return the plan, compiled for the probes of the parameters
+   */
+  public AqlQueryPlan get(
+      String aql, String signature, long templateSetVersion, Supplier<AqlQueryPlan> compiler) {
+    if (TERMINOLOGY.matcher(aql).find()) {
+      return compiler.get();
+    }
+
+    String query = normalize(aql);
+    String key = templateSetVersion + ":" + signature + ":" + query;
+
+    if (pinnedQueries.containsKey(query)) {
+      if (pinnedPlansVersion != templateSetVersion) {
+        pinnedPlans.clear();
+        pinnedPlansVersion = templateSetVersion;
+      }
+      return pinnedPlans.computeIfAbsent(key, k -> compiler.get());
+    }
+
+    return Caches.get(plans, key, compiler);
+  }
+
+  /**
+   * Keeps the plan of the query apart from the cache, until it is unpinned as often as it was
+   * pinned.
+   *
+   * @param aql the AQL query
+   */
+  public void pin(String aql) {
+    pinnedQueries.merge(normalize(aql), 1, Integer::sum);
+  }
+
+  /**
+   * @param aql the AQL query
+   * @see #pin(String)
+   */
+  public void unpin(String aql) {
+    String query = normalize(aql);
+    if (pinnedQueries.computeIfPresent(query, (k, c) -> c > 1 ? c - 1 : null) == null) {
+      pinnedPlans.keySet().removeIf(key -> key.endsWith(":" + query));
+    }
+  }
+
+  public void invalidate() {
+    if (plans != null) {
+      plans.clear();
+    }
+    pinnedPlans.clear();
+  }
+
+  /**
+   * Collapses whitespaces outside of string literals, so that queries differing only by their
+   * layout share the same plan.
+   */
+  static String normalize(String aql) {
+    StringBuilder builder = new StringBuilder(aql.length());
+    char quote = 0;
+    boolean space = false;
+
+    for (char c : aql.trim().toCharArray()) {
+      if (quote != 0) {
+        builder.append(c);
+        if (c == quote) {
+          quote = 0;
+        }
+      } else if (Character.isWhitespace(c)) {
+        space = true;
+      } else {
+        if (space) {
+          builder.append(' ');
+          space = false;
+        }
+        if (c == '\'' || c == '"') {
+          quote = c;
+        }
+        builder.append(c);
+      }
+    }
+    return builder.toString();
+  }
+}
@@ -28,8 +28,10 @@ import org.ehrbase.api.definitions.ServerConfig;
 import org.ehrbase.api.service.BaseService;
 import org.ehrbase.dao.access.interfaces.I_DomainAccess;
 import org.ehrbase.dao.access.interfaces.I_SystemAccess;
+import org.ehrbase.dao.access.jooq.party.PartyIdCache;
 import org.ehrbase.dao.access.jooq.party.PersistedPartyProxy;
 import org.ehrbase.dao.access.support.ServiceDataAccess;
+import org.ehrbase.dao.access.util.TerminologyLookup;
 import org.jooq.DSLContext;
 import org.springframework.beans.factory.annotation.Autowired;
 
@@ -47,6 +49,12 @@ public class BaseServiceImp implements BaseService {
   @Autowired
   private IAuthenticationFacade authenticationFacade;
 
+  @Autowired(required = false)
+  private PartyIdCache partyIdCache;
+
+  @Autowired(required = false)
+  private TerminologyLookup terminologyLookup;
+
   public BaseServiceImp(KnowledgeCacheService knowledgeCacheService, DSLContext context,
       ServerConfig serverConfig) {
     this.knowledgeCacheService = knowledgeCacheService;
@@ -56,7 +64,7 @@ public class BaseServiceImp implements BaseService {
 
   protected I_DomainAccess getDataAccess() {
     return new ServiceDataAccess(context, knowledgeCacheService, knowledgeCacheService,
-        this.serverConfig);
+        this.serverConfig, partyIdCache, terminologyLookup);
   }
 
   /**
@@ -76,6 +84,12 @@ public class BaseServiceImp implements BaseService {
    */
   protected UUID getUserUuid() {
     var name = authenticationFacade.getAuthentication().getName();
+    I_DomainAccess dataAccess = getDataAccess();
+    return dataAccess.getPartyIdCache()
+        .getOrCreate(dataAccess, "user:" + name, () -> createOrRetrieveUser(name));
+  }
+
+  private UUID createOrRetrieveUser(String name) {
     List<DvIdentifier> identifiers = new ArrayList<>();
     var identifier = new DvIdentifier();
     identifier.setId(name);
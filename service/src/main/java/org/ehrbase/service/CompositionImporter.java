@@ -0,0 +1,275 @@
+/*
+ * Copyright (c) 2022 Vitasystems GmbH and Hannover Medical School.
+ *
+ * This file is part of project EHRbase
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.ehrbase.service;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.nedap.archie.json.JacksonUtil;
+import com.nedap.archie.rm.composition.Composition;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.function.BiFunction;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
+import org.ehrbase.api.dto.CompositionImportResult;
+import org.ehrbase.api.exception.InternalServerException;
+import org.ehrbase.api.exception.InvalidApiParameterException;
+import org.ehrbase.serialisation.jsonencoding.CanonicalJson;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.transaction.support.TransactionOperations;
+
+/**
+ * Imports newline delimited compositions, see {@link CompositionServiceImp#importCompositions}.
+ * <p>
+ * Lines are parsed and validated, including the existence of their EHR, on the given executor
+ * while the calling thread writes the valid compositions in transactions of <code>batchSize</code> compositions. At most two batches are in
+ * flight, so the memory used does not depend on the size of the input. The result of each line is
+ * handed to the consumer in input order as soon as its batch is written.
+ */
+class CompositionImporter {
+
+  private final Logger logger = LoggerFactory.getLogger(getClass());
+
+  private final ExecutorService executor;
+  private final TransactionOperations transactions;
+  private final Predicate<UUID> ehrExists;
+  private final Consumer<Composition> validator;
+  private final BiFunction<UUID, Composition, UUID> store;
+
+  /**
+   * @param executor     runs the parsing and validation of the lines
+   * @param transactions runs the writes of a batch
+   * @param ehrExists    checks that the EHR of a line exists, so that the line does not fail its
+   *                     batch
+   * @param validator    validates a parsed composition, throws if it is invalid
+   * @param store        stores the composition in the EHR and returns its id
+   */
+  CompositionImporter(
+      ExecutorService executor,
+      TransactionOperations transactions,
+      Predicate<UUID> ehrExists,
+      Consumer<Composition> validator,
+      BiFunction<UUID, Composition, UUID> store) {
+    this.executor = executor;
+    this.transactions = transactions;
+    this.ehrExists = ehrExists;
+    this.validator = validator;
+    this.store = store;
+  }
+
+  void run(BufferedReader ndjson, int batchSize, Consumer<CompositionImportResult> results) {
+    if (batchSize < 1) {
+      throw new InvalidApiParameterException("Batch size must be at least 1, but was " + batchSize);
+    }
+
+    Batch batch = new Batch(batchSize, results);
+    Deque<PendingLine> pending = new ArrayDeque<>();
+    try {
+      long lineNumber = 0;
+      String line;
+      while ((line = ndjson.readLine()) != null) {
+        lineNumber++;
+        if (line.isBlank()) {
+          continue;
+        }
+        long currentLine = lineNumber;
+        String content = line;
+        Future<ImportLine> parsed = executor.submit(() -> parseAndValidate(currentLine, content));
+        pending.add(new PendingLine(currentLine, parsed));
+
+        // bounds the lines held in memory, while keeping the workers busy during writes
+        while (pending.size() >= 2 * batchSize) {
+          batch.add(pending.poll().get());
+        }
+      }
+
+      while (!pending.isEmpty()) {
+        batch.add(pending.poll().get());
+      }
+      batch.write();
+    } catch (IOException e) {
+      throw new InternalServerException("Could not read import input", e);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new InternalServerException("Composition import interrupted", e);
+    } finally {
+      pending.forEach(p -> p.future.cancel(true));
+    }
+
+    logger.info("Composition import finished: {} lines, {} failed", batch.lines, batch.failed);
+  }
+
+  private ImportLine parseAndValidate(long line, String content) {
+    UUID ehrId = null;
+    try {
+      JsonNode node = JacksonUtil.getObjectMapper().readTree(content);
+      ehrId = UUID.fromString(node.path("ehr_id").asText());
+      if (!ehrExists.test(ehrId)) {
+        throw new IllegalArgumentException("No EHR found with given ID: " + ehrId);
+      }
+      JsonNode compositionNode = node.get("composition");
+      if (compositionNode == null || !compositionNode.isObject()) {
+        throw new IllegalArgumentException("Missing composition");
+      }
+      Composition composition =
+          new CanonicalJson().unmarshal(compositionNode.toString(), Composition.class);
+      validator.accept(composition);
+      return new ImportLine(line, ehrId, composition, null);
+    } catch (Exception e) {
+      return new ImportLine(line, ehrId, null, e.getMessage());
+    }
+  }
+
+  /**
+   * The lines read since the last write, in input order.
+   */
+  private class Batch {
+
+    private final int batchSize;
+    private final Consumer<CompositionImportResult> results;
+    private final List<ImportLine> importLines = new ArrayList<>();
+    private int compositions;
+    private long lines;
+    private long failed;
+
+    private Batch(int batchSize, Consumer<CompositionImportResult> results) {
+      this.batchSize = batchSize;
+      this.results = results;
+    }
+
+    private void add(ImportLine importLine) {
+      importLines.add(importLine);
+      if (importLine.error == null) {
+        compositions++;
+      }
+      if (compositions >= batchSize) {
+        write();
+      }
+    }
+
+    /**
+     * Writes the compositions in one transaction. When it fails, it is rolled back and the
+     * compositions are written again one per transaction, so that a single faulty line does not
+     * reject the others.
+     */
+    private void write() {
+      List<CompositionImportResult> written;
+      try {
+        written = compositions == 0
+            ? storeLines(false)
+            : transactions.execute(status -> storeLines(false));
+      } catch (RuntimeException e) {
+        logger.debug("Composition import batch failed, retrying one by one", e);
+        written = storeLines(true);
+      }
+
+      for (CompositionImportResult result : written) {
+        lines++;
+        if (!result.isSuccess()) {
+          failed++;
+        }
+        results.accept(result);
+      }
+      importLines.clear();
+      compositions = 0;
+    }
+
+    private List<CompositionImportResult> storeLines(boolean alone) {
+      List<CompositionImportResult> written = new ArrayList<>(importLines.size());
+      for (ImportLine importLine : importLines) {
+        if (importLine.error != null) {
+          written.add(importLine.failed());
+        } else if (alone) {
+          written.add(storeLineAlone(importLine));
+        } else {
+          written.add(storeLine(importLine));
+        }
+      }
+      return written;
+    }
+
+    private CompositionImportResult storeLine(ImportLine importLine) {
+      UUID compositionId = store.apply(importLine.ehrId, importLine.composition);
+      return CompositionImportResult.created(importLine.line, importLine.ehrId, compositionId);
+    }
+
+    private CompositionImportResult storeLineAlone(ImportLine importLine) {
+      try {
+        return transactions.execute(status -> storeLine(importLine));
+      } catch (RuntimeException e) {
+        return CompositionImportResult.failed(importLine.line, importLine.ehrId, e.getMessage());
+      }
+    }
+  }
+
+  /**
+   * A line handed to the executor.
+   */
+  private static class PendingLine {
+
+    private final long line;
+    private final Future<ImportLine> future;
+
+    private PendingLine(long line, Future<ImportLine> future) {
+      this.line = line;
+      this.future = future;
+    }
+
+    /**
+     * Waits for the line, a failure of the worker only fails this line.
+     */
+    private ImportLine get() throws InterruptedException {
+      try {
+        return future.get();
+      } catch (ExecutionException e) {
+        return new ImportLine(line, null, null, String.valueOf(e.getCause()));
+      }
+    }
+  }
+
+  /**
+   * A parsed and validated import line, or the reason why it was rejected.
+   */
+  private static class ImportLine {
+
+    private final long line;
+    private final UUID ehrId;
+    private final Composition composition;
+    private final String error;
+
+    private ImportLine(long line, UUID ehrId, Composition composition, String error) {
+      this.line = line;
+      this.ehrId = ehrId;
+      this.composition = composition;
+      this.error = error;
+    }
+
+    private CompositionImportResult failed() {
+      return CompositionImportResult.failed(line, ehrId, error);
+    }
+  }
+}
@@ -24,21 +24,34 @@ import com.nedap.archie.rm.datavalues.quantity.datetime.DvDateTime;
 import com.nedap.archie.rm.ehr.VersionedComposition;
 import com.nedap.archie.rm.generic.Attestation;
 import com.nedap.archie.rm.generic.AuditDetails;
+import com.nedap.archie.rm.generic.PartyProxy;
 import com.nedap.archie.rm.generic.RevisionHistory;
 import com.nedap.archie.rm.generic.RevisionHistoryItem;
 import com.nedap.archie.rm.support.identification.HierObjectId;
 import com.nedap.archie.rm.support.identification.ObjectRef;
 import com.nedap.archie.rm.support.identification.ObjectVersionId;
+import java.io.BufferedReader;
 import java.sql.Timestamp;
 import java.time.LocalDateTime;
 import java.time.OffsetDateTime;
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
 import java.util.Optional;
+import java.util.Set;
+import java.util.SortedMap;
 import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import javax.annotation.PreDestroy;
+import org.apache.commons.lang3.SerializationUtils;
 import org.ehrbase.api.definitions.ServerConfig;
+import org.ehrbase.api.dto.CompositionImportResult;
 import org.ehrbase.api.exception.InternalServerException;
 import org.ehrbase.api.exception.InvalidApiParameterException;
 import org.ehrbase.api.exception.ObjectNotFoundException;
@@ -52,24 +65,25 @@ import org.ehrbase.dao.access.interfaces.I_AttestationAccess;
 import org.ehrbase.dao.access.interfaces.I_CompositionAccess;
 import org.ehrbase.dao.access.interfaces.I_ConceptAccess.ContributionChangeType;
 import org.ehrbase.dao.access.interfaces.I_EntryAccess;
-import org.ehrbase.dao.access.jooq.AttestationAccess;
+import org.ehrbase.dao.access.jooq.party.PersistedPartyProxy;
 import org.ehrbase.response.ehrscape.CompositionDto;
 import org.ehrbase.response.ehrscape.CompositionFormat;
 import org.ehrbase.response.ehrscape.StructuredString;
 import org.ehrbase.response.ehrscape.StructuredStringFormat;
 import org.ehrbase.serialisation.flatencoding.FlatFormat;
-import org.ehrbase.serialisation.flatencoding.FlatJasonProvider;
 import org.ehrbase.serialisation.jsonencoding.CanonicalJson;
 import org.ehrbase.serialisation.xmlencoding.CanonicalXML;
-import org.ehrbase.webtemplate.model.WebTemplate;
-import org.ehrbase.webtemplate.templateprovider.TemplateProvider;
+import org.ehrbase.util.TemplateIdExtractor;
 import org.jooq.DSLContext;
-import org.openehr.schemas.v1.OPERATIONALTEMPLATE;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 
 /**
  * {@link CompositionService} implementation.
@@ -88,17 +102,27 @@ public class CompositionServiceImp extends BaseServiceImp implements Composition
   private final ValidationService validationService;
   private final KnowledgeCacheService knowledgeCacheService;
   private final EhrService ehrService;
+  private final TransactionTemplate transactionTemplate;
+  // parses and validates the lines of all imports, see importCompositions
+  private final ExecutorService importExecutor;
 
   public CompositionServiceImp(KnowledgeCacheService knowledgeCacheService,
       ValidationService validationService,
       EhrService ehrService,
       DSLContext context,
-      ServerConfig serverConfig) {
+      ServerConfig serverConfig,
+      PlatformTransactionManager transactionManager) {
 
     super(knowledgeCacheService, context, serverConfig);
     this.validationService = validationService;
     this.ehrService = ehrService;
     this.knowledgeCacheService = knowledgeCacheService;
+    this.transactionTemplate = new TransactionTemplate(transactionManager);
+
+    CustomizableThreadFactory threadFactory = new CustomizableThreadFactory("composition-import-");
+    threadFactory.setDaemon(true);
+    this.importExecutor =
+        Executors.newFixedThreadPool(Runtime.getRuntime().availableProcessors(), threadFactory);
   }
 
   @Override
@@ -106,13 +130,15 @@ public class CompositionServiceImp extends BaseServiceImp implements Composition
       UUID ehrId, Composition objData, UUID systemId, UUID committerId, String description) {
 
     UUID compositionId = internalCreate(ehrId, objData, systemId, committerId, description, null);
-    return getCompositionDto(I_CompositionAccess.retrieveInstance(getDataAccess(), compositionId));
+    return Optional.of(createdCompositionDto(
+        ehrId, objData, compositionId, getServerConfig().getNodename()));
   }
 
   @Override
   public Optional<CompositionDto> create(UUID ehrId, Composition objData, UUID contribution) {
     UUID compositionId = internalCreate(ehrId, objData, null, null, null, contribution);
-    return getCompositionDto(I_CompositionAccess.retrieveInstance(getDataAccess(), compositionId));
+    return Optional.of(createdCompositionDto(
+        ehrId, objData, compositionId, getServerConfig().getNodename()));
   }
 
   @Override
@@ -140,6 +166,12 @@ public class CompositionServiceImp extends BaseServiceImp implements Composition
       String description,
       UUID contributionId) {
     // pre-step: validate
+    validate(composition);
+
+    return store(ehrId, composition, systemId, committerId, description, contributionId);
+  }
+
+  private void validate(Composition composition) {
     try {
       validationService.check(composition);
 
@@ -152,7 +184,18 @@ public class CompositionServiceImp extends BaseServiceImp implements Composition
     } catch (Exception e) {
       throw new InternalServerException(e);
     }
+  }
 
+  /**
+   * Stores an already validated composition, see {@link #internalCreate}.
+   */
+  private UUID store(
+      UUID ehrId,
+      Composition composition,
+      UUID systemId,
+      UUID committerId,
+      String description,
+      UUID contributionId) {
     // pre-step: check for valid ehrId
     if (!ehrService.hasEhr(ehrId)) {
       throw new ObjectNotFoundException("ehr", "No EHR found with given ID: " + ehrId.toString());
@@ -195,6 +238,33 @@ public class CompositionServiceImp extends BaseServiceImp implements Composition
     return compositionId;
   }
 
+  /**
+   * {@inheritDoc}
+   * <p>
+   * Runs outside of the class level transaction, see {@link CompositionImporter}.
+   */
+  @Override
+  @PreAuthorize("hasRole('ADMIN')")
+  @Transactional(propagation = Propagation.NOT_SUPPORTED)
+  public void importCompositions(
+      BufferedReader ndjson, int batchSize, Consumer<CompositionImportResult> results) {
+    UUID systemId = transactionTemplate.execute(status -> getSystemUuid());
+    UUID committerId = transactionTemplate.execute(status -> getUserUuid());
+
+    new CompositionImporter(
+            importExecutor,
+            transactionTemplate,
+            ehrService::hasEhr,
+            this::validate,
+            (ehrId, composition) -> store(ehrId, composition, systemId, committerId, null, null))
+        .run(ndjson, batchSize, results);
+  }
+
+  @PreDestroy
+  public void shutdown() {
+    importExecutor.shutdownNow();
+  }
+
   @Override
   public Optional<CompositionDto> update(
       UUID ehrId,
@@ -412,6 +482,11 @@ public class CompositionServiceImp extends BaseServiceImp implements Composition
     }
   }
 
+  @Override
+  public Optional<String> retrieveTemplateId(UUID compositionId) {
+    return Optional.ofNullable(I_CompositionAccess.fetchTemplateId(getDataAccess(), compositionId));
+  }
+
   @Override
   public Optional<CompositionDto> retrieve(UUID compositionId, Integer version)
       throws InternalServerException {
@@ -420,10 +495,8 @@ public class CompositionServiceImp extends BaseServiceImp implements Composition
     if (version != null) {
       compositionAccess =
           I_CompositionAccess.retrieveCompositionVersion(getDataAccess(), compositionId, version);
-    } else { // default to latest version
-      compositionAccess =
-          I_CompositionAccess.retrieveCompositionVersion(
-              getDataAccess(), compositionId, getLastVersionNumber(compositionId));
+    } else { // default to latest version, which is not part of the history
+      compositionAccess = I_CompositionAccess.retrieveInstance(getDataAccess(), compositionId);
     }
     return getCompositionDto(compositionAccess);
   }
@@ -443,7 +516,48 @@ public class CompositionServiceImp extends BaseServiceImp implements Composition
     return getCompositionDto(compositionAccess);
   }
 
-  // Helper function to create returnable DTO
+  /**
+   * Builds the DTO of a newly created composition from the committed input, instead of reading
+   * composition, entry and context back from the DB and unmarshalling the entry again.
+   *
+   * @param ehrId         ID of EHR
+   * @param composition   The committed composition, left unchanged
+   * @param compositionId ID of created composition
+   * @param nodename      Name of the system, part of the version UID
+   * @return DTO of a copy of the composition, with the UID of its first version. The copy is only
+   * made when the composition is requested, e.g. not for <code>Prefer: return=minimal</code>
+   */
+  static CompositionDto createdCompositionDto(
+      UUID ehrId, Composition composition, UUID compositionId, String nodename) {
+    return new CreatedCompositionDto(ehrId, composition, compositionId, nodename);
+  }
+
+  /**
+   * DTO of a created composition, copying the committed composition on first access.
+   */
+  private static class CreatedCompositionDto extends CompositionDto {
+
+    private final Composition committed;
+    private final String nodename;
+    private Composition created;
+
+    private CreatedCompositionDto(
+        UUID ehrId, Composition committed, UUID compositionId, String nodename) {
+      super(null, committed.getArchetypeDetails().getTemplateId().getValue(), compositionId, ehrId);
+      this.committed = committed;
+      this.nodename = nodename;
+    }
+
+    @Override
+    public Composition getComposition() {
+      if (created == null) {
+        created = SerializationUtils.clone(committed);
+        created.setUid(new ObjectVersionId(getUuid().toString(), nodename, "1"));
+      }
+      return created;
+    }
+  }
+
   private Optional<CompositionDto> getCompositionDto(I_CompositionAccess compositionAccess) {
     if (compositionAccess == null) {
       return Optional.empty();
@@ -486,41 +600,16 @@ public class CompositionServiceImp extends BaseServiceImp implements Composition
       case FLAT:
         compositionString =
             new StructuredString(
-                new FlatJasonProvider(
-                    new TemplateProvider() {
-                      @Override
-                      public Optional<OPERATIONALTEMPLATE> find(String s) {
-                        return knowledgeCacheService.retrieveOperationalTemplate(s);
-                      }
-
-                      @Override
-                      public Optional<WebTemplate> buildIntrospect(String templateId) {
-                        return Optional.ofNullable(
-                            knowledgeCacheService.getQueryOptMetaData(templateId));
-                      }
-                    })
-                    .buildFlatJson(FlatFormat.SIM_SDT, composition.getTemplateId())
-                    .marshal(composition.getComposition()),
+                flatFormatCache().marshal(
+                    composition.getTemplateId(), FlatFormat.SIM_SDT, composition.getComposition()),
                 StructuredStringFormat.JSON);
         break;
       case STRUCTURED:
         compositionString =
             new StructuredString(
-                new FlatJasonProvider(
-                    new TemplateProvider() {
-                      @Override
-                      public Optional<OPERATIONALTEMPLATE> find(String s) {
-                        return knowledgeCacheService.retrieveOperationalTemplate(s);
-                      }
-
-                      @Override
-                      public Optional<WebTemplate> buildIntrospect(String templateId) {
-                        return Optional.ofNullable(
-                            knowledgeCacheService.getQueryOptMetaData(templateId));
-                      }
-                    })
-                    .buildFlatJson(FlatFormat.STRUCTURED, composition.getTemplateId())
-                    .marshal(composition.getComposition()),
+                flatFormatCache().marshal(
+                    composition.getTemplateId(), FlatFormat.STRUCTURED,
+                    composition.getComposition()),
                 StructuredStringFormat.JSON);
         break;
       default:
@@ -539,40 +628,10 @@ public class CompositionServiceImp extends BaseServiceImp implements Composition
         composition = new CanonicalJson().unmarshal(content, Composition.class);
         break;
       case FLAT:
-        composition =
-            new FlatJasonProvider(
-                new TemplateProvider() {
-                  @Override
-                  public Optional<OPERATIONALTEMPLATE> find(String s) {
-                    return knowledgeCacheService.retrieveOperationalTemplate(s);
-                  }
-
-                  @Override
-                  public Optional<WebTemplate> buildIntrospect(String templateId) {
-                    return Optional.ofNullable(
-                        knowledgeCacheService.getQueryOptMetaData(templateId));
-                  }
-                })
-                .buildFlatJson(FlatFormat.SIM_SDT, templateId)
-                .unmarshal(content);
+        composition = flatFormatCache().unmarshal(templateId, FlatFormat.SIM_SDT, content);
         break;
       case STRUCTURED:
-        composition =
-            new FlatJasonProvider(
-                new TemplateProvider() {
-                  @Override
-                  public Optional<OPERATIONALTEMPLATE> find(String s) {
-                    return knowledgeCacheService.retrieveOperationalTemplate(s);
-                  }
-
-                  @Override
-                  public Optional<WebTemplate> buildIntrospect(String templateId) {
-                    return Optional.ofNullable(
-                        knowledgeCacheService.getQueryOptMetaData(templateId));
-                  }
-                })
-                .buildFlatJson(FlatFormat.STRUCTURED, templateId)
-                .unmarshal(content);
+        composition = flatFormatCache().unmarshal(templateId, FlatFormat.STRUCTURED, content);
         break;
       default:
         throw new UnexpectedSwitchCaseException(format);
@@ -580,6 +639,14 @@ public class CompositionServiceImp extends BaseServiceImp implements Composition
     return composition;
   }
 
+  /**
+   * The FLAT and STRUCTURED marshallers, reused per template and format but never shared by
+   * concurrent calls, see {@link FlatFormatCache}.
+   */
+  private FlatFormatCache flatFormatCache() {
+    return knowledgeCacheService.getFlatFormatCache();
+  }
+
   @Override
   public Integer getLastVersionNumber(UUID compositionId) throws InternalServerException {
     try {
@@ -629,6 +696,10 @@ public class CompositionServiceImp extends BaseServiceImp implements Composition
 
   @Override
   public String getTemplateIdFromInputComposition(String content, CompositionFormat format) {
+    if (format == CompositionFormat.JSON || format == CompositionFormat.XML) {
+      // canonical input: read the template ID without building the composition
+      return TemplateIdExtractor.fromComposition(content, format);
+    }
     Composition composition = buildComposition(content, format, null);
     if (composition.getArchetypeDetails() == null
         || composition.getArchetypeDetails().getTemplateId() == null) {
@@ -686,18 +757,39 @@ public class CompositionServiceImp extends BaseServiceImp implements Composition
 
   @Override
   public RevisionHistory getRevisionHistoryOfVersionedComposition(UUID composition) {
-    // get number of versions
-    int versions = getLastVersionNumber(composition);
-    // fetch each version and add to revision history
+    // fetch all versions at once and add them to the revision history, without their data
+    SortedMap<Integer, I_CompositionAccess> versions =
+        I_CompositionAccess.retrieveCompositionVersions(
+            getDataAccess(), composition, 1, Integer.MAX_VALUE);
+
+    // the attestations of all versions with one query, the committers once per party
+    Map<UUID, List<I_AttestationAccess>> attestations =
+        I_AttestationAccess.retrieveAttestationsByRefs(
+            getDataAccess(),
+            versions.values().stream()
+                .map(I_CompositionAccess::getAttestationRef)
+                .filter(Objects::nonNull)
+                .collect(Collectors.toSet()));
+    Map<UUID, PartyProxy> parties = new HashMap<>();
+    PersistedPartyProxy persistedPartyProxy = new PersistedPartyProxy(getDataAccess());
+    Function<UUID, PartyProxy> committers =
+        id -> parties.computeIfAbsent(id, persistedPartyProxy::retrieve);
+
     RevisionHistory revisionHistory = new RevisionHistory();
-    for (int i = 1; i <= versions; i++) {
-      Optional<OriginalVersion<Composition>> compoVersion =
-          getOriginalVersionComposition(composition, i);
-      compoVersion.ifPresent(
-          compositionOriginalVersion ->
-              revisionHistory.addItem(
-                  revisionHistoryItemFromComposition(compositionOriginalVersion)));
-    }
+    versions.forEach(
+        (version, compositionAccess) ->
+            revisionHistory.addItem(
+                revisionHistoryItemFromComposition(
+                    toOriginalVersion(
+                        composition,
+                        version,
+                        compositionAccess,
+                        null,
+                        compositionAccess.getAuditDetailsAccess().getAsAuditDetails(committers),
+                        toAttestations(
+                            attestations.getOrDefault(
+                                compositionAccess.getAttestationRef(), List.of()),
+                            committers)))));
 
     if (revisionHistory.getItems().isEmpty()) {
       throw new InternalServerException(
@@ -753,6 +845,50 @@ public class CompositionServiceImp extends BaseServiceImp implements Composition
       return Optional.empty();
     }
 
+    Composition composition =
+        getCompositionDto(compositionAccess).map(CompositionDto::getComposition).orElse(null);
+
+    UUID attestationRef = compositionAccess.getAttestationRef();
+    List<I_AttestationAccess> attestations =
+        attestationRef == null
+            ? List.of()
+            : I_AttestationAccess.retrieveAttestationsByRefs(
+                    getDataAccess(), Set.of(attestationRef))
+                .getOrDefault(attestationRef, List.of());
+    PersistedPartyProxy persistedPartyProxy = new PersistedPartyProxy(getDataAccess());
+
+    return Optional.of(
+        toOriginalVersion(
+            versionedObjectUid,
+            version,
+            compositionAccess,
+            composition,
+            compositionAccess.getAuditDetailsAccess().getAsAuditDetails(),
+            toAttestations(attestations, persistedPartyProxy::retrieve)));
+  }
+
+  /**
+   * @return the attestations, null if there are none
+   */
+  private static List<Attestation> toAttestations(
+      List<I_AttestationAccess> attestationAccesses, Function<UUID, PartyProxy> committers) {
+    if (attestationAccesses.isEmpty()) {
+      return null;
+    }
+    List<Attestation> attestations = new ArrayList<>();
+    for (I_AttestationAccess a : attestationAccesses) {
+      attestations.add(a.getAsAttestation(committers));
+    }
+    return attestations;
+  }
+
+  private OriginalVersion<Composition> toOriginalVersion(
+      UUID versionedObjectUid,
+      int version,
+      I_CompositionAccess compositionAccess,
+      Composition composition,
+      AuditDetails commitAudit,
+      List<Attestation> attestations) {
     // create data for output, i.e. fields of the OriginalVersion<Composition>
     ObjectVersionId versionId =
         new ObjectVersionId(
@@ -762,24 +898,11 @@ public class CompositionServiceImp extends BaseServiceImp implements Composition
             "complete",
             new CodePhrase(
                 "532")); // TODO: once lifecycle state is supported, get it here dynamically
-    AuditDetails commitAudit = compositionAccess.getAuditDetailsAccess().getAsAuditDetails();
     ObjectRef<HierObjectId> contribution =
         new ObjectRef<>(
             new HierObjectId(compositionAccess.getContributionId().toString()),
             "openehr",
             "contribution");
-    List<UUID> attestationIdList =
-        I_AttestationAccess.retrieveListOfAttestationsByRef(
-            getDataAccess(), compositionAccess.getAttestationRef());
-    List<Attestation> attestations =
-        null; // as default, gets content if available in the following lines
-    if (!attestationIdList.isEmpty()) {
-      attestations = new ArrayList<>();
-      for (UUID id : attestationIdList) {
-        I_AttestationAccess a = new AttestationAccess(getDataAccess()).retrieveInstance(id);
-        attestations.add(a.getAsAttestation());
-      }
-    }
 
     ObjectVersionId precedingVersionId = null;
     // check if there is a preceding version and set it, if available
@@ -790,24 +913,15 @@ public class CompositionServiceImp extends BaseServiceImp implements Composition
               versionedObjectUid + "::" + getServerConfig().getNodename() + "::" + (version - 1));
     }
 
-    Optional<CompositionDto> compositionDto = retrieve(versionedObjectUid, version);
-    Composition composition = null;
-    if (compositionDto.isPresent()) {
-      composition = compositionDto.get().getComposition();
-    }
-
-    OriginalVersion<Composition> versionComposition =
-        new OriginalVersion<>(
-            versionId,
-            precedingVersionId,
-            composition,
-            lifecycleState,
-            commitAudit,
-            contribution,
-            null,
-            null,
-            attestations);
-
-    return Optional.of(versionComposition);
+    return new OriginalVersion<>(
+        versionId,
+        precedingVersionId,
+        composition,
+        lifecycleState,
+        commitAudit,
+        contribution,
+        null,
+        null,
+        attestations);
   }
 }
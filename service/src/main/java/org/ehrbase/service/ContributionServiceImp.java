@@ -19,7 +19,6 @@
 package org.ehrbase.service;
 
 import com.nedap.archie.rm.RMObject;
-import com.nedap.archie.rm.archetyped.TemplateId;
 import com.nedap.archie.rm.changecontrol.Version;
 import com.nedap.archie.rm.composition.Composition;
 import com.nedap.archie.rm.datatypes.CodePhrase;
@@ -44,6 +43,7 @@ import org.ehrbase.dao.access.jooq.party.PersistedPartyProxy;
 import org.ehrbase.response.ehrscape.CompositionDto;
 import org.ehrbase.response.ehrscape.CompositionFormat;
 import org.ehrbase.response.ehrscape.ContributionDto;
+import org.ehrbase.util.TemplateIdExtractor;
 import org.jooq.DSLContext;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -453,46 +453,7 @@ public class ContributionServiceImp extends BaseServiceImp implements Contributi
 
     @Override
     public Set<String> getListOfTemplates(String contribution, CompositionFormat format) {
-        List<Version> versions = ContributionServiceHelper.parseVersions(contribution, format);
-        Set<String> templates = new HashSet<>();
-        for (Version version : versions) {
-
-            Object versionData = version.getData();
-
-            // the version contains the optional "data" attribute (i.e. payload), therefore has specific object type (composition, folder,...)
-            if (versionData != null) {
-                RMObject versionRmObject;
-                if (versionData instanceof LinkedHashMap) {
-                    versionRmObject = ContributionServiceHelper
-                        .unmarshalMapContentToRmObject((LinkedHashMap) versionData, format);
-                } else {
-                    throw new IllegalArgumentException("Contribution input can't be processed");
-                }
-
-                // switch to allow acting depending on exact type
-                SupportedClasses versionClass;
-                try {
-                    versionClass = SupportedClasses
-                        .valueOf(versionRmObject.getClass().getSimpleName().toUpperCase());
-                } catch (Exception e) {
-                    throw new InvalidApiParameterException(
-                        "Invalid version object in contribution. " + versionRmObject.getClass()
-                            .getSimpleName().toUpperCase() + " not supported.");
-                }
-                switch (versionClass) {
-                    case COMPOSITION:
-                        TemplateId templateId = ((Composition) versionRmObject).getArchetypeDetails().getTemplateId();
-                        if (templateId != null) {
-                            templates.add(templateId.getValue());
-                        }
-                        break;
-                    case EHRSTATUS: // TODO: might add later, if other_details support templated content
-                    case FOLDER:
-                    default:
-                        throw new IllegalArgumentException("Contribution input contains invalid version class");
-                }
-            }
-        }
-        return templates;
+        // only the template IDs are needed, so stream them out of the input instead of building the versions
+        return TemplateIdExtractor.fromContribution(contribution, format);
     }
 }
@@ -0,0 +1,98 @@
+/*
+ * Copyright (c) 2022 Vitasystems GmbH and Hannover Medical School.
+ *
+ * This file is part of project EHRbase
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.ehrbase.service;
+
+import java.util.UUID;
+import org.ehrbase.cache.CacheOptions;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+/**
+ * The ids of existing EHRs, held in the {@link CacheOptions#EHR_ID_CACHE}.
+ * <p>
+ * EHRs are only removed through the admin API, so an id seen once stays valid until then. Only
+ * existing EHRs are remembered: an unknown id may be created at any time, by this or by another
+ * instance. An id is added once the transaction that saw it has committed, so that an EHR whose
+ * creation is rolled back is never remembered.
+ */
+@Component
+public class EhrIdCache {
+
+  /**
+   * null if disabled
+   */
+  private final Cache ehrIds;
+
+  public EhrIdCache(CacheManager cacheManager) {
+    this.ehrIds = cacheManager.getCache(CacheOptions.EHR_ID_CACHE);
+  }
+
+  /**
+   * @param ehrId ID of the EHR
+   * @return true if the EHR is known to exist, false if it has to be checked
+   */
+  public boolean contains(UUID ehrId) {
+    return ehrIds != null && ehrIds.get(ehrId) != null;
+  }
+
+  /**
+   * Remembers an existing EHR, after the current transaction has committed.
+   *
+   * @param ehrId ID of the EHR
+   */
+  public void add(UUID ehrId) {
+    if (ehrIds == null) {
+      return;
+    }
+    if (TransactionSynchronizationManager.isSynchronizationActive()) {
+      TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+        @Override
+        public void afterCommit() {
+          ehrIds.put(ehrId, Boolean.TRUE);
+        }
+      });
+    } else {
+      ehrIds.put(ehrId, Boolean.TRUE);
+    }
+  }
+
+  /**
+   * Forgets a deleted EHR, now and once the deletion has committed, since concurrent transactions
+   * still see the EHR until then.
+   *
+   * @param ehrId ID of the EHR
+   */
+  public void remove(UUID ehrId) {
+    if (ehrIds == null) {
+      return;
+    }
+    ehrIds.evict(ehrId);
+    if (TransactionSynchronizationManager.isSynchronizationActive()) {
+      TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+        @Override
+        public void afterCommit() {
+          ehrIds.evict(ehrId);
+        }
+      });
+    }
+  }
+}
@@ -71,12 +71,14 @@ public class EhrServiceImp extends BaseServiceImp implements EhrService {
     public static final String DESCRIPTION = "description";
     private Logger logger = LoggerFactory.getLogger(getClass());
     private final ValidationService validationService;
+    private final EhrIdCache ehrIdCache;
     private UUID emptyParty;
 
     @Autowired
-    public EhrServiceImp(KnowledgeCacheService knowledgeCacheService, ValidationService validationService, DSLContext context, ServerConfig serverConfig) {
+    public EhrServiceImp(KnowledgeCacheService knowledgeCacheService, ValidationService validationService, DSLContext context, ServerConfig serverConfig, EhrIdCache ehrIdCache) {
         super(knowledgeCacheService, context, serverConfig);
         this.validationService = validationService;
+        this.ehrIdCache = ehrIdCache;
     }
 
     @PostConstruct
@@ -126,7 +128,9 @@ public class EhrServiceImp extends BaseServiceImp implements EhrService {
         try {   // this try block sums up a bunch of operations that can throw errors in the following
             I_EhrAccess ehrAccess = I_EhrAccess.getInstance(getDataAccess(), subjectUuid, systemId, null, null, ehrId);
             ehrAccess.setStatus(status);
-            return ehrAccess.commit(committerId, systemId, DESCRIPTION);
+            UUID createdEhrId = ehrAccess.commit(committerId, systemId, DESCRIPTION);
+            ehrIdCache.add(createdEhrId);
+            return createdEhrId;
         } catch (Exception e) {
             throw new InternalServerException("Could not create an EHR with given parameters.", e);
         }
@@ -271,8 +275,7 @@ public class EhrServiceImp extends BaseServiceImp implements EhrService {
      */
     @Override
     public boolean doesEhrExist(UUID ehrId) {
-        Optional<I_EhrAccess> ehrAccess = Optional.ofNullable(I_EhrAccess.retrieveInstance(getDataAccess(), ehrId));
-        return ehrAccess.isPresent();
+        return hasEhr(ehrId);
     }
 
     /**
@@ -327,7 +330,14 @@ public class EhrServiceImp extends BaseServiceImp implements EhrService {
 
     @Override
     public boolean hasEhr(UUID ehrId) {
-        return I_EhrAccess.hasEhr(getDataAccess(), ehrId);
+        if (ehrIdCache.contains(ehrId)) {
+            return true;
+        }
+        boolean exists = I_EhrAccess.hasEhr(getDataAccess(), ehrId);
+        if (exists) {
+            ehrIdCache.add(ehrId);
+        }
+        return exists;
     }
 
     @Override
@@ -437,18 +447,22 @@ public class EhrServiceImp extends BaseServiceImp implements EhrService {
     public void adminDeleteEhr(UUID ehrId) {
         I_EhrAccess ehrAccess = I_EhrAccess.retrieveInstance(getDataAccess(), ehrId);
         ehrAccess.adminDeleteEhr();
+        ehrIdCache.remove(ehrId);
     }
 
     @PreAuthorize("hasRole('ADMIN')")
     @Override
     public void adminPurgePartyIdentified() {
         getDataAccess().getContext().deleteFrom(PARTY_IDENTIFIED).where(partyUsage(PARTY_IDENTIFIED.ID).eq(0L)).execute();
+        getDataAccess().getPartyIdCache().clear();
     }
 
     @PreAuthorize("hasRole('ADMIN')")
     @Override
     public void adminDeleteOrphanHistory() {
         Routines.deleteOrphanHistory(getDataAccess().getContext().configuration());
+        // also purges unused parties
+        getDataAccess().getPartyIdCache().clear();
     }
 
 
@@ -32,11 +32,14 @@ import org.ehrbase.api.exception.InternalServerException;
 import org.ehrbase.dao.access.interfaces.I_OpenehrTerminologyServer;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Component;
 
 import java.io.IOException;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
+import java.util.function.Supplier;
 
 /**
  * @author Luis Marco-Ruiz
@@ -53,34 +56,30 @@ public class FhirTerminologyServerR4AdaptorImpl implements I_OpenehrTerminologyS
 
     private final FhirTsProps props;
 
+    private final TerminologyCache cache;
+
     public FhirTerminologyServerR4AdaptorImpl(HttpClient httpClient, FhirTsProps props) {
+        this(httpClient, props, null);
+    }
+
+    @Autowired
+    public FhirTerminologyServerR4AdaptorImpl(HttpClient httpClient, FhirTsProps props, TerminologyCache cache) {
         this.httpClient = httpClient;
         this.props = props;
+        this.cache = cache;
     }
 
     @Override
     public List<DvCodedText> expand(final String valueSetId) {
-        String responseBody;
-        try {
-            responseBody = internalGet(valueSetId);
-        } catch (IOException e) {
-            throw new InternalServerException("An error occurred while expanding ValueSet: " + valueSetId, e);
-        }
-
-        DocumentContext jsonContext = JsonPath.parse(responseBody);
-        List<String> codeList = jsonContext.read(props.getCodePath().replace("\\", ""));
-        List<String> systemList = jsonContext.read(props.getSystemPath());
-        List<String> displayList = jsonContext.read(props.getDisplayPath());
-
-        List<DvCodedText> expansionList = new ArrayList<>();
-        for (int i = 0; i < codeList.size(); i++) {
-            TerminologyId termId = new TerminologyId(systemList.get(i));
-            CodePhrase codePhrase = new CodePhrase(termId, codeList.get(i));
-            DvCodedText codedText = new DvCodedText(displayList.get(i), codePhrase);
-            expansionList.add(codedText);
-        }
-
-        return expansionList;
+        return cached("expand", valueSetId, () -> {
+            String responseBody;
+            try {
+                responseBody = internalGet(valueSetId);
+            } catch (IOException e) {
+                throw new InternalServerException("An error occurred while expanding ValueSet: " + valueSetId, e);
+            }
+            return parseExpansion(responseBody);
+        });
     }
 
     @Override
@@ -89,13 +88,19 @@ public class FhirTerminologyServerR4AdaptorImpl implements I_OpenehrTerminologyS
         String urlTsServer = props.getTsUrl();
         urlTsServer += "ValueSet/$" + operationParams[0] + "?url=" + valueSetId;
 
-        String responseBody;
-        try {
-            responseBody = internalGet(urlTsServer);
-        } catch (IOException e) {
-            throw new InternalServerException("An error occurred while expanding ValueSet " + valueSetId, e);
-        }
+        String url = urlTsServer;
+        return cached(operationParams[0], url, () -> {
+            String responseBody;
+            try {
+                responseBody = internalGet(url);
+            } catch (IOException e) {
+                throw new InternalServerException("An error occurred while expanding ValueSet " + valueSetId, e);
+            }
+            return parseExpansion(responseBody);
+        });
+    }
 
+    private List<DvCodedText> parseExpansion(String responseBody) {
         DocumentContext jsonContext = JsonPath.parse(responseBody);
         List<String> codeList = jsonContext.read(props.getCodePath().replace("\\", ""));
         List<String> systemList = jsonContext.read(props.getSystemPath());
@@ -108,7 +113,15 @@ public class FhirTerminologyServerR4AdaptorImpl implements I_OpenehrTerminologyS
             DvCodedText codedText = new DvCodedText(displayList.get(i), codePhrase);
             expansionList.add(codedText);
         }
-        return expansionList;
+        // shared by all users of a cached expansion
+        return Collections.unmodifiableList(expansionList);
+    }
+
+    /**
+     * Returns the response for the given request URL from the cache, if any is configured.
+     */
+    private <T> T cached(String operation, String url, Supplier<T> loader) {
+        return cache == null ? loader.get() : cache.get(operation, url, loader);
     }
 
     @Override
@@ -137,17 +150,20 @@ public class FhirTerminologyServerR4AdaptorImpl implements I_OpenehrTerminologyS
         String urlTsServer = props.getTsUrl();
         urlTsServer += "ValueSet/$" + "validate-code" + "?" + operationParams[0];
 
-        String response;
-        try {
-            response = internalGet(urlTsServer);
-        } catch (IOException e) {
-            throw new InternalServerException("An error occurred while validating the code: " + operationParams[0], e);
-        }
-
-        DocumentContext jsonContext = JsonPath.parse(response);
-        JsonPath jsonPath = JsonPath.compile(props.getValidationResultPath());
-        List<Boolean> result = jsonContext.read(jsonPath);
-        return !result.isEmpty() && result.get(0);
+        String url = urlTsServer;
+        return cached("validate-code", url, () -> {
+            String response;
+            try {
+                response = internalGet(url);
+            } catch (IOException e) {
+                throw new InternalServerException("An error occurred while validating the code: " + operationParams[0], e);
+            }
+
+            DocumentContext jsonContext = JsonPath.parse(response);
+            JsonPath jsonPath = JsonPath.compile(props.getValidationResultPath());
+            List<Boolean> result = jsonContext.read(jsonPath);
+            return !result.isEmpty() && result.get(0);
+        });
     }
 
     private String internalGet(String url) throws IOException {
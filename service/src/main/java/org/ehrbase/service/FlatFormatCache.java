@@ -0,0 +1,185 @@
+/*
+ * Copyright (c) 2022 Vitasystems GmbH and Hannover Medical School.
+ *
+ * This file is part of project EHRbase
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.ehrbase.service;
+
+import com.nedap.archie.rm.composition.Composition;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.BiFunction;
+import java.util.function.Function;
+import org.ehrbase.serialisation.RMDataFormat;
+import org.ehrbase.serialisation.flatencoding.FlatFormat;
+
+/**
+ * Bounded (LRU) cache of the FLAT and STRUCTURED marshallers, per template and format.
+ * <p>
+ * Building a marshaller resolves the operational template and its WebTemplate. The unmarshaller
+ * keeps state while reading a composition, so a marshaller is never used by two calls at the same
+ * time: each call takes an idle instance of its template and format, or builds a new one, and
+ * hands it back when done. At most <code>idleSize</code> idle instances are kept per template and
+ * format.
+ * <p>
+ * The cache is owned by the {@link KnowledgeCacheService}, which invalidates it when a template is
+ * added, updated or deleted; instances taken before are dropped when handed back.
+ */
+public class FlatFormatCache {
+
+  private final int maxSize;
+  private final int idleSize;
+  private final BiFunction<String, FlatFormat, RMDataFormat> builder;
+
+  private final Map<Key, Queue<RMDataFormat>> formats;
+
+  private final LongAdder hits = new LongAdder();
+  private final LongAdder misses = new LongAdder();
+
+  FlatFormatCache(int maxSize, BiFunction<String, FlatFormat, RMDataFormat> builder) {
+    this(maxSize, Runtime.getRuntime().availableProcessors(), builder);
+  }
+
+  FlatFormatCache(int maxSize, int idleSize,
+      BiFunction<String, FlatFormat, RMDataFormat> builder) {
+    this.maxSize = maxSize;
+    this.idleSize = idleSize;
+    this.builder = builder;
+    this.formats = new LinkedHashMap<>(16, 0.75f, true) {
+      @Override
+      protected boolean removeEldestEntry(Map.Entry<Key, Queue<RMDataFormat>> eldest) {
+        return size() > maxSize;
+      }
+    };
+  }
+
+  public String marshal(String templateId, FlatFormat format, Composition composition) {
+    return apply(templateId, format, f -> f.marshal(composition));
+  }
+
+  public Composition unmarshal(String templateId, FlatFormat format, String content) {
+    return apply(templateId, format, f -> f.unmarshal(content));
+  }
+
+  /**
+   * Applies the function to an idle marshaller of the template and format, or to a new one.
+   *
+   * @param templateId the template id
+   * @param format     {@link FlatFormat#SIM_SDT} for FLAT or {@link FlatFormat#STRUCTURED}
+   */
+  <T> T apply(String templateId, FlatFormat format, Function<RMDataFormat, T> function) {
+    if (maxSize <= 0) {
+      return function.apply(builder.apply(templateId, format));
+    }
+
+    Queue<RMDataFormat> idle;
+    synchronized (formats) {
+      idle = formats.computeIfAbsent(new Key(templateId, format), k -> new IdleQueue());
+    }
+
+    RMDataFormat rmDataFormat = idle.poll();
+    if (rmDataFormat != null) {
+      hits.increment();
+    } else {
+      misses.increment();
+      rmDataFormat = builder.apply(templateId, format);
+    }
+
+    // an instance that failed is not handed back, its state is unknown
+    T result = function.apply(rmDataFormat);
+    // handing back to an invalidated or evicted queue drops the instance
+    idle.offer(rmDataFormat);
+    return result;
+  }
+
+  public void invalidate() {
+    synchronized (formats) {
+      formats.clear();
+    }
+  }
+
+  public int size() {
+    synchronized (formats) {
+      return formats.size();
+    }
+  }
+
+  long getHits() {
+    return hits.sum();
+  }
+
+  long getMisses() {
+    return misses.sum();
+  }
+
+  /**
+   * Idle instances of a template and format, bounded to <code>idleSize</code>.
+   */
+  private final class IdleQueue extends ConcurrentLinkedQueue<RMDataFormat> {
+
+    private final AtomicInteger count = new AtomicInteger();
+
+    @Override
+    public boolean offer(RMDataFormat rmDataFormat) {
+      if (count.incrementAndGet() > idleSize) {
+        count.decrementAndGet();
+        return false;
+      }
+      return super.offer(rmDataFormat);
+    }
+
+    @Override
+    public RMDataFormat poll() {
+      RMDataFormat rmDataFormat = super.poll();
+      if (rmDataFormat != null) {
+        count.decrementAndGet();
+      }
+      return rmDataFormat;
+    }
+  }
+
+  private static final class Key {
+
+    private final String templateId;
+    private final FlatFormat format;
+
+    private Key(String templateId, FlatFormat format) {
+      this.templateId = templateId;
+      this.format = format;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+      if (this == o) {
+        return true;
+      }
+      if (!(o instanceof Key)) {
+        return false;
+      }
+      Key key = (Key) o;
+      return templateId.equals(key.templateId) && format == key.format;
+    }
+
+    @Override
+    public int hashCode() {
+      return 31 * templateId.hashCode() + format.hashCode();
+    }
+  }
+}
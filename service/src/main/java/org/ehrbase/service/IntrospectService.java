@@ -19,6 +19,7 @@
 package org.ehrbase.service;
 
 import org.ehrbase.aql.sql.queryimpl.ItemInfo;
+import org.ehrbase.aql.sql.queryimpl.MultiValuedPaths;
 import org.ehrbase.ehr.knowledge.I_KnowledgeCache;
 import org.ehrbase.webtemplate.model.WebTemplate;
 
@@ -32,6 +33,8 @@ public interface IntrospectService {
 
     List<String> multiValued(String templateId);
 
+    MultiValuedPaths multiValuedPaths(String templateId);
+
     I_KnowledgeCache getKnowledge();
 
     ItemInfo getInfo(String templateId, String aql);
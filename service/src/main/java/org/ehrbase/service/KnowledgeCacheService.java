@@ -25,9 +25,11 @@ package org.ehrbase.service;
 import java.io.ByteArrayInputStream;
 import java.io.IOException;
 import java.text.MessageFormat;
+import java.time.Duration;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
@@ -36,9 +38,16 @@ import java.util.Set;
 import java.util.TreeSet;
 import java.util.UUID;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
-import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import javax.annotation.PreDestroy;
 import java.util.stream.Collectors;
+import org.apache.commons.lang3.StringUtils;
 import org.apache.xmlbeans.XmlException;
 import org.ehrbase.api.exception.InvalidApiParameterException;
 import org.ehrbase.api.exception.StateConflictException;
@@ -46,14 +55,20 @@ import org.ehrbase.aql.containment.JsonPathQueryResult;
 import org.ehrbase.aql.containment.TemplateIdAqlTuple;
 import org.ehrbase.aql.containment.TemplateIdQueryTuple;
 import org.ehrbase.aql.sql.queryimpl.ItemInfo;
+import org.ehrbase.aql.sql.queryimpl.MultiValuedPaths;
 import org.ehrbase.cache.CacheOptions;
+import org.ehrbase.cache.CacheWarmUpProgress;
+import org.ehrbase.cache.WebTemplateSnapshot;
+import org.ehrbase.cache.WebTemplateSnapshotStore;
 import org.ehrbase.ehr.knowledge.I_KnowledgeCache;
 import org.ehrbase.ehr.knowledge.TemplateMetaData;
+import org.ehrbase.serialisation.flatencoding.FlatJasonProvider;
 import org.ehrbase.util.TemplateUtils;
 import org.ehrbase.webtemplate.model.WebTemplate;
 import org.ehrbase.webtemplate.model.WebTemplateNode;
 import org.ehrbase.webtemplate.parser.NodeId;
 import org.ehrbase.webtemplate.parser.OPTParser;
+import org.ehrbase.webtemplate.templateprovider.TemplateProvider;
 import org.openehr.schemas.v1.OPERATIONALTEMPLATE;
 import org.openehr.schemas.v1.TemplateDocument;
 import org.slf4j.Logger;
@@ -106,6 +121,46 @@ public class KnowledgeCacheService implements I_KnowledgeCache, IntrospectServic
   // index templateId to uuid
   private final Map<String, UUID> idxCacheTemplateIdToUuid = new ConcurrentHashMap<>();
 
+  // parsed operational templates by template id, templates by uuid are resolved with
+  // idxCacheUuidToTemplateId. The XMLBeans documents are not serializable, the cache holds them on
+  // heap by reference. null if disabled
+  private final Cache operationalTemplateCache;
+
+  // compiled AQL queries, see AqlPlanCache. null if disabled
+  private final Cache aqlPlanCache;
+
+  // inverted index of the template nodes: archetype node id, resp. RM class name, to the templates
+  // containing it
+  private final Map<NodeId, Set<String>> idxTemplatesByNodeId = new ConcurrentHashMap<>();
+  private final Map<String, Set<String>> idxTemplatesByClassName = new ConcurrentHashMap<>();
+  private final Set<String> idxIndexedTemplateIds = ConcurrentHashMap.newKeySet();
+  // stored templates that could not be indexed, not retried until uploaded again
+  private final Set<String> idxFailedTemplateIds = ConcurrentHashMap.newKeySet();
+
+  // FLAT and STRUCTURED marshallers by template id and format
+  private final FlatFormatCache flatFormatCache;
+
+  // prefix tries of the multi valued paths by template id, derived from the multivaluedCache
+  private final Map<String, MultiValuedPaths> multiValuedPathsCache = new ConcurrentHashMap<>();
+  // whether all stored templates have been indexed
+  private volatile boolean containmentIndexComplete = false;
+  // when the store was last listed for templates uploaded through other instances
+  private final AtomicLong storeListedAt = new AtomicLong(System.nanoTime());
+  private final long templateRescanIntervalNanos;
+
+  private final CacheWarmUpProgress warmUpProgress = new CacheWarmUpProgress();
+
+  // persisted WebTemplates, null if disabled
+  private final WebTemplateSnapshotStore snapshotStore;
+  // content hash of the templates whose snapshot is still to be written, by template id
+  private final Map<String, byte[]> pendingSnapshots = new ConcurrentHashMap<>();
+
+  // pool sized to the cores for the warm-up and the pre-building of queries, created on first use
+  private ExecutorService warmUpExecutor;
+
+  // incremented whenever the set of templates changes, used to invalidate compiled queries
+  private final AtomicLong templateSetVersion = new AtomicLong();
+
   @Value("${system.allow-template-overwrite:false}")
   private boolean allowTemplateOverwrite;
 
@@ -120,36 +175,133 @@ public class KnowledgeCacheService implements I_KnowledgeCache, IntrospectServic
     jsonPathQueryResultCache = cacheManager.getCache(CacheOptions.QUERY_CACHE);
     fieldCache = cacheManager.getCache(CacheOptions.FIELDS_CACHE);
     multivaluedCache = cacheManager.getCache(CacheOptions.MULTI_VALUE_CACHE);
-  }
 
-  public void initializeCaches() {
-    Set<String> templateIds = new HashSet<>();
+    snapshotStore = StringUtils.isBlank(cacheOptions.getSnapshotDirectory())
+        ? null
+        : new WebTemplateSnapshotStore(cacheOptions.getSnapshotDirectory());
 
-    for (var metadata : listAllOperationalTemplates()) {
-      var template = metadata.getOperationaltemplate();
-      var templateId = TemplateUtils.getTemplateId(template);
+    operationalTemplateCache = cacheManager.getCache(CacheOptions.OPERATIONAL_TEMPLATE_CACHE);
+    aqlPlanCache = cacheManager.getCache(CacheOptions.AQL_PLAN_CACHE);
+
+    FlatJasonProvider flatJasonProvider = new FlatJasonProvider(new TemplateProvider() {
+      @Override
+      public Optional<OPERATIONALTEMPLATE> find(String s) {
+        return retrieveOperationalTemplate(s);
+      }
+
+      @Override
+      public Optional<WebTemplate> buildIntrospect(String templateId) {
+        return Optional.ofNullable(getQueryOptMetaData(templateId));
+      }
+    });
+    flatFormatCache = new FlatFormatCache(cacheOptions.getFlatFormatCacheSize(),
+        (templateId, format) -> flatJasonProvider.buildFlatJson(format, templateId));
+
+    Duration templateRescanInterval = cacheOptions.getTemplateRescanInterval();
+    templateRescanIntervalNanos =
+        templateRescanInterval == null ? 0 : templateRescanInterval.toNanos();
+  }
 
-      templateIds.add(templateId);
+  public void initializeCaches() {
+    List<TemplateMetaData> templates = listAllOperationalTemplates();
+    warmUpProgress.start(templates.size());
+
+    // build the WebTemplates in parallel, the application is not started meanwhile
+    ExecutorService executor = warmUpExecutor();
+    Set<String> restoredTemplateIds = ConcurrentHashMap.newKeySet();
+    List<Future<String>> futures = new ArrayList<>();
+    for (var metadata : templates) {
+      futures.add(executor.submit(
+          () -> cacheTemplate(metadata.getOperationaltemplate(), restoredTemplateIds)));
+    }
 
+    Set<String> templateIds = new HashSet<>();
+    for (Future<String> future : futures) {
       try {
-        putIntoCache(template);
-      } catch (RuntimeException e) {
-        log.error("An error occurred while caching template: {}", templateId, e);
+        String templateId = future.get();
+        if (templateId != null) {
+          templateIds.add(templateId);
+        }
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        throw new IllegalStateException("Interrupted while caching templates", e);
+      } catch (ExecutionException e) {
+        log.error("An error occurred while caching templates", e.getCause());
       }
     }
 
-    if (cacheOptions.isPreBuildQueries()) {
-      var executor = Executors.newFixedThreadPool(1);
-      executor.submit(() -> {
-        for (String templateId : templateIds) {
+    containmentIndexComplete = true;
+    if (!restoredTemplateIds.isEmpty()) {
+      log.info("Restored {} templates from snapshots", restoredTemplateIds.size());
+    }
+
+    // the queries of restored templates are part of the snapshot
+    templateIds.removeAll(restoredTemplateIds);
+    restoredTemplateIds.forEach(templateId -> warmUpProgress.queriesPreBuilt());
+
+    // pre-build the queries in the background
+    if (cacheOptions.isPreBuildQueries() && !templateIds.isEmpty()) {
+      warmUpProgress.setState(CacheWarmUpProgress.State.PRE_BUILDING_QUERIES);
+      for (String templateId : templateIds) {
+        executor.submit(() -> {
           try {
-            precalculateQueries(templateId);
+            preBuildQueries(templateId);
           } catch (RuntimeException e) {
             log.error("An error occurred while calculating queries for template: {}",
                 templateId, e);
+          } finally {
+            if (warmUpProgress.queriesPreBuilt()) {
+              warmUpProgress.setState(CacheWarmUpProgress.State.READY);
+              log.info("Pre-built queries for {} templates", templateIds.size());
+            }
           }
-        }
-      });
+        });
+      }
+    } else {
+      warmUpProgress.setState(CacheWarmUpProgress.State.READY);
+    }
+  }
+
+  private String cacheTemplate(OPERATIONALTEMPLATE template, Set<String> restoredTemplateIds) {
+    String templateId = null;
+    try {
+      templateId = TemplateUtils.getTemplateId(template);
+      if (putIntoCache(template)) {
+        restoredTemplateIds.add(templateId);
+      }
+      warmUpProgress.templateCached();
+      return templateId;
+    } catch (RuntimeException e) {
+      log.error("An error occurred while caching template: {}", templateId, e);
+      warmUpProgress.templateFailed();
+      return null;
+    }
+  }
+
+  /**
+   * @return the progress of the cache warm-up performed by {@link #initializeCaches()}
+   */
+  public CacheWarmUpProgress getWarmUpProgress() {
+    return warmUpProgress;
+  }
+
+  private synchronized ExecutorService warmUpExecutor() {
+    if (warmUpExecutor == null) {
+      AtomicInteger threadCount = new AtomicInteger();
+      warmUpExecutor = Executors.newFixedThreadPool(Runtime.getRuntime().availableProcessors(),
+          runnable -> {
+            Thread thread = new Thread(runnable, "cache-warm-up-" + threadCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+          });
+    }
+    return warmUpExecutor;
+  }
+
+  @PreDestroy
+  public synchronized void shutdown() {
+    if (warmUpExecutor != null) {
+      warmUpExecutor.shutdownNow();
     }
   }
 
@@ -192,33 +344,62 @@ public class KnowledgeCacheService implements I_KnowledgeCache, IntrospectServic
     }
 
     templateStorage.storeTemplate(template);
+    // queries compiled between the invalidation and the storage may have missed the new template
+    templateSetVersion.incrementAndGet();
+    evictOperationalTemplate(templateId);
+    // as may have marshallers built in the meantime from the previous template
+    flatFormatCache.invalidate();
 
     putIntoCache(template);
 
     if (cacheOptions.isPreBuildQueries()) {
-      ThreadPoolExecutor executor = (ThreadPoolExecutor) Executors.newFixedThreadPool(1);
-      executor.submit(() -> {
-        try {
-          precalculateQueries(templateId);
-        } catch (RuntimeException e) {
-          log.error("An error occurred while processing template: {}", templateId);
-        }
-      });
+      try {
+        warmUpExecutor().submit(() -> {
+          try {
+            preBuildQueries(templateId);
+          } catch (RuntimeException e) {
+            log.error("An error occurred while processing template: {}", templateId);
+          }
+        });
+      } catch (RejectedExecutionException e) {
+        pendingSnapshots.remove(templateId);
+        log.debug("Queries not pre-built for template {}, shutting down", templateId);
+      }
     }
 
     // retrieve the template Id for this new entry
     return templateId;
   }
 
-  private void putIntoCache(OPERATIONALTEMPLATE template) {
+  /**
+   * @return true if the template was restored from its snapshot, including the pre-built queries
+   */
+  private boolean putIntoCache(OPERATIONALTEMPLATE template) {
     var templateId = TemplateUtils.getTemplateId(template);
     var uid = TemplateUtils.getUid(template);
 
     try {
       idxCacheUuidToTemplateId.put(uid, templateId);
       idxCacheTemplateIdToUuid.put(templateId, uid);
+      if (operationalTemplateCache != null) {
+        operationalTemplateCache.put(templateId, template);
+      }
 
-      getQueryOptMetaData(templateId);
+      boolean restored = false;
+      if (snapshotStore != null) {
+        byte[] hash = WebTemplateSnapshotStore.hash(template.xmlText());
+        restored = restoreSnapshot(templateId, uid, hash);
+        if (!restored) {
+          pendingSnapshots.put(templateId, hash);
+        }
+      }
+
+      indexContainment(templateId, getQueryOptMetaData(templateId));
+
+      if (snapshotStore != null && !restored && !cacheOptions.isPreBuildQueries()) {
+        saveSnapshot(templateId, Collections.emptyMap());
+      }
+      return restored;
     } catch (RuntimeException e) {
       log.error("Invalid template {}", templateId);
       invalidateCache(template);
@@ -226,11 +407,77 @@ public class KnowledgeCacheService implements I_KnowledgeCache, IntrospectServic
     }
   }
 
-  private void precalculateQueries(String templateId) {
+  private boolean restoreSnapshot(String templateId, UUID uid, byte[] hash) {
+    WebTemplateSnapshot snapshot = snapshotStore.load(uid, hash);
+    if (snapshot == null) {
+      return false;
+    }
+
+    webTemplateCache.put(uid, snapshot.getWebTemplate());
+    snapshot.getQueryResults().forEach(jsonPathQueryResultCache::put);
+    if (snapshot.getMultiValued() != null) {
+      multivaluedCache.put(templateId, snapshot.getMultiValued());
+    }
+    snapshot.getFields().forEach(
+        (aql, itemInfo) -> fieldCache.put(new TemplateIdAqlTuple(templateId, aql), itemInfo));
+    return true;
+  }
+
+  private void preBuildQueries(String templateId) {
+    byte[] hash = pendingSnapshots.get(templateId);
+    try {
+      saveSnapshot(templateId, precalculateQueries(templateId));
+    } finally {
+      // no snapshot if the queries failed, unless the template has been uploaded again meanwhile
+      if (hash != null) {
+        pendingSnapshots.remove(templateId, hash);
+      }
+    }
+  }
+
+  private void saveSnapshot(String templateId,
+      Map<TemplateIdQueryTuple, JsonPathQueryResult> queryResults) {
+    if (snapshotStore == null) {
+      return;
+    }
+
+    byte[] hash = pendingSnapshots.remove(templateId);
+    UUID uid = idxCacheTemplateIdToUuid.get(templateId);
+    if (hash != null && uid != null) {
+      snapshotStore.save(uid, hash, new WebTemplateSnapshot(getQueryOptMetaData(uid),
+          queryResults, multiValued(templateId), precalculateFields(templateId)));
+    }
+  }
+
+  /**
+   * the type of the nodes of the template and of the values of its elements, as used by
+   * {@link #getInfo(String, String)}
+   */
+  private Map<String, ItemInfo> precalculateFields(String templateId) {
+    Map<String, ItemInfo> fields = new HashMap<>();
+    WebTemplateNode tree = getQueryOptMetaData(templateId).getTree();
+    // the fields of a query are paths within the composition
+    for (WebTemplateNode node : tree.findMatching(n -> n != tree)) {
+      String aql = node.getAqlPath(false);
+      fields.computeIfAbsent(aql, a -> getInfo(templateId, a));
+      if (node.getRmType().equals(ELEMENT)) {
+        fields.computeIfAbsent(aql + "/value", a -> getInfo(templateId, a));
+      }
+    }
+    return fields;
+  }
+
+  private Map<TemplateIdQueryTuple, JsonPathQueryResult> precalculateQueries(String templateId) {
+    Map<TemplateIdQueryTuple, JsonPathQueryResult> queryResults = new HashMap<>();
     getQueryOptMetaData(templateId).findAllContainmentCombinations().stream()
         .filter(nodeIds -> !nodeIds.isEmpty() &&
             nodeIds.size() <= cacheOptions.getPreBuildQueriesDepth())
-        .forEach(nodeIds -> resolveForTemplate(templateId, nodeIds));
+        .forEach(nodeIds -> {
+          JsonPathQueryResult result = resolveForTemplate(templateId, nodeIds);
+          queryResults.put(new TemplateIdQueryTuple(templateId, nodeIds),
+              result != null ? result : new JsonPathQueryResult(null, Collections.emptyMap()));
+        });
+    return queryResults;
   }
 
   public String adminUpdateOperationalTemplate(byte[] content) {
@@ -240,11 +487,33 @@ public class KnowledgeCacheService implements I_KnowledgeCache, IntrospectServic
   // invalidates some derived caches like the queryOptMetaDataCache which depend on the template
   private void invalidateCache(OPERATIONALTEMPLATE template) {
     // invalidate the cache for this template
+    evictOperationalTemplate(TemplateUtils.getTemplateId(template));
+    removeFromContainmentIndex(TemplateUtils.getTemplateId(template));
     webTemplateCache.evict(TemplateUtils.getUid(template));
+    if (snapshotStore != null) {
+      pendingSnapshots.remove(TemplateUtils.getTemplateId(template));
+      snapshotStore.delete(TemplateUtils.getUid(template));
+    }
 
     jsonPathQueryResultCache.invalidate();
     fieldCache.invalidate();
     multivaluedCache.invalidate();
+    multiValuedPathsCache.clear();
+    // the plans of the former template set version are not used anymore, see AqlPlanCache
+    if (aqlPlanCache != null) {
+      aqlPlanCache.clear();
+    }
+    flatFormatCache.invalidate();
+
+    templateSetVersion.incrementAndGet();
+  }
+
+  /**
+   * @return the version of the set of templates, changes each time a template is added, updated
+   * or deleted
+   */
+  public long getTemplateSetVersion() {
+    return templateSetVersion.get();
   }
 
   @Override
@@ -255,7 +524,25 @@ public class KnowledgeCacheService implements I_KnowledgeCache, IntrospectServic
   @Override
   public Optional<OPERATIONALTEMPLATE> retrieveOperationalTemplate(String key) {
     log.debug("retrieveOperationalTemplate({})", key);
-    return Optional.ofNullable(getOperationaltemplateFromFileStorage(key));
+    OPERATIONALTEMPLATE template = operationalTemplateCache == null
+        ? null
+        : operationalTemplateCache.get(key, OPERATIONALTEMPLATE.class);
+    if (template == null) {
+      long version = templateSetVersion.get();
+      template = getOperationaltemplateFromFileStorage(key);
+      // do not cache a template read concurrently to its update or deletion
+      if (template != null && operationalTemplateCache != null
+          && version == templateSetVersion.get()) {
+        operationalTemplateCache.put(key, template);
+      }
+    }
+    return Optional.ofNullable(template);
+  }
+
+  private void evictOperationalTemplate(String templateId) {
+    if (operationalTemplateCache != null) {
+      operationalTemplateCache.evict(templateId);
+    }
   }
 
   @Override
@@ -437,6 +724,106 @@ public class KnowledgeCacheService implements I_KnowledgeCache, IntrospectServic
     }
   }
 
+  @Override
+  public Set<String> findTemplateIdsContaining(Collection<NodeId> nodeIds) {
+    if (!containmentIndexComplete) {
+      indexStoredTemplates();
+      containmentIndexComplete = true;
+    }
+
+    Set<String> templateIds = lookUpContainment(nodeIds);
+    // the templates may have been uploaded through another instance sharing the store
+    if (templateIds.isEmpty() && isStoreRescanDue() && indexStoredTemplates()) {
+      templateIds = lookUpContainment(nodeIds);
+      templateSetVersion.incrementAndGet();
+    }
+    return templateIds;
+  }
+
+  /**
+   * Lets one caller list the store every <code>cache.template-rescan-interval</code>.
+   */
+  private boolean isStoreRescanDue() {
+    long listedAt = storeListedAt.get();
+    long now = System.nanoTime();
+    return now - listedAt >= templateRescanIntervalNanos
+        && storeListedAt.compareAndSet(listedAt, now);
+  }
+
+  /**
+   * Adds the stored templates missing in the containment index. Templates failing to index are
+   * skipped from then on.
+   *
+   * @return <code>true</code> if a template was added
+   */
+  private boolean indexStoredTemplates() {
+    boolean indexed = false;
+    for (String templateId : getAllTemplateIds()) {
+      if (idxIndexedTemplateIds.contains(templateId)
+          || idxFailedTemplateIds.contains(templateId)) {
+        continue;
+      }
+      try {
+        indexContainment(templateId, getQueryOptMetaData(templateId));
+        indexed = true;
+      } catch (RuntimeException e) {
+        idxFailedTemplateIds.add(templateId);
+        log.error("An error occurred while indexing template: {}", templateId, e);
+      }
+    }
+    return indexed;
+  }
+
+  private Set<String> lookUpContainment(Collection<NodeId> nodeIds) {
+    Set<String> templateIds = null;
+    for (NodeId nodeId : nodeIds) {
+      Set<String> posting = nodeId.getNodeId() == null
+          ? idxTemplatesByClassName.get(nodeId.getClassName())
+          : idxTemplatesByNodeId.get(nodeId);
+      if (posting == null) {
+        return Collections.emptySet();
+      }
+      if (templateIds == null) {
+        templateIds = new HashSet<>(posting);
+      } else {
+        templateIds.retainAll(posting);
+      }
+      if (templateIds.isEmpty()) {
+        return templateIds;
+      }
+    }
+    return templateIds == null ? Collections.emptySet() : templateIds;
+  }
+
+  private void indexContainment(String templateId, WebTemplate webTemplate) {
+    Set<NodeId> nodeIds = new HashSet<>();
+    collectNodeIds(webTemplate.getTree(), nodeIds);
+
+    for (NodeId nodeId : nodeIds) {
+      idxTemplatesByNodeId.computeIfAbsent(nodeId, k -> ConcurrentHashMap.newKeySet())
+          .add(templateId);
+      idxTemplatesByClassName.computeIfAbsent(nodeId.getClassName(),
+          k -> ConcurrentHashMap.newKeySet()).add(templateId);
+    }
+    idxIndexedTemplateIds.add(templateId);
+  }
+
+  private static void collectNodeIds(WebTemplateNode node, Set<NodeId> nodeIds) {
+    if (node.getNodeId() != null) {
+      nodeIds.add(new NodeId(node.getNodeId()));
+    }
+    for (WebTemplateNode child : node.getChildren()) {
+      collectNodeIds(child, nodeIds);
+    }
+  }
+
+  private void removeFromContainmentIndex(String templateId) {
+    idxTemplatesByNodeId.values().forEach(templateIds -> templateIds.remove(templateId));
+    idxTemplatesByClassName.values().forEach(templateIds -> templateIds.remove(templateId));
+    idxIndexedTemplateIds.remove(templateId);
+    idxFailedTemplateIds.remove(templateId);
+  }
+
   @Override
   public ItemInfo getInfo(String templateId, String aql) {
     TemplateIdAqlTuple key = new TemplateIdAqlTuple(templateId, aql);
@@ -489,6 +876,27 @@ public class KnowledgeCacheService implements I_KnowledgeCache, IntrospectServic
     return list;
   }
 
+  @Override
+  public MultiValuedPaths multiValuedPaths(String templateId) {
+    MultiValuedPaths paths = multiValuedPathsCache.get(templateId);
+    if (paths == null) {
+      long version = templateSetVersion.get();
+      paths = new MultiValuedPaths(multiValued(templateId));
+      // do not cache paths computed concurrently to a template update
+      if (version == templateSetVersion.get()) {
+        multiValuedPathsCache.put(templateId, paths);
+      }
+    }
+    return paths;
+  }
+
+  /**
+   * @return the FLAT and STRUCTURED marshallers of the templates
+   */
+  public FlatFormatCache getFlatFormatCache() {
+    return flatFormatCache;
+  }
+
   @Override
   public I_KnowledgeCache getKnowledge() {
     return this;
@@ -19,14 +19,18 @@
 package org.ehrbase.service;
 
 import com.google.gson.JsonElement;
+import org.ehrbase.api.definitions.QueryCountMode;
 import org.ehrbase.api.definitions.QueryMode;
 import org.ehrbase.api.definitions.ServerConfig;
+import org.ehrbase.api.dto.QueryResultPage;
 import org.ehrbase.api.exception.BadGatewayException;
 import org.ehrbase.api.exception.GeneralRequestProcessingException;
 import org.ehrbase.api.exception.InternalServerException;
+import org.ehrbase.api.service.QueryResultConsumer;
 import org.ehrbase.api.service.QueryService;
 import org.ehrbase.aql.compiler.AqlExpression;
 import org.ehrbase.aql.sql.AqlResult;
+import org.ehrbase.aql.sql.AqlResultHandler;
 import org.ehrbase.dao.access.interfaces.I_EntryAccess;
 import org.ehrbase.dao.access.interfaces.I_StoredQueryAccess;
 import org.ehrbase.dao.access.jooq.AqlQueryHandler;
@@ -44,6 +48,7 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 import org.springframework.web.client.RestClientException;
 
 import java.sql.Timestamp;
@@ -52,6 +57,7 @@ import java.time.ZoneId;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
+import java.util.Optional;
 import java.util.Set;
 
 @Service
@@ -61,24 +67,40 @@ public class QueryServiceImp extends BaseServiceImp implements QueryService {
 
     private final FhirTerminologyServerR4AdaptorImpl tsAdapter;
 
+    private final AqlPlanCache planCache;
+
+    private final StoredQueryRegistry storedQueryRegistry;
+
     private Map<String, Set<Object>> auditResultMap;
 
     @Autowired
-    public QueryServiceImp(KnowledgeCacheService knowledgeCacheService, DSLContext context, ServerConfig serverConfig, FhirTerminologyServerR4AdaptorImpl tsAdapter) {
+    public QueryServiceImp(KnowledgeCacheService knowledgeCacheService, DSLContext context, ServerConfig serverConfig, FhirTerminologyServerR4AdaptorImpl tsAdapter, AqlPlanCache planCache, StoredQueryRegistry storedQueryRegistry) {
 
         super(knowledgeCacheService, context, serverConfig);
         this.tsAdapter = tsAdapter;
+        this.planCache = planCache;
+        this.storedQueryRegistry = storedQueryRegistry;
     }
 
     @Override
     public QueryResultDto query(String queryString, QueryMode queryMode, boolean explain) {
+        return query(queryString, null, queryMode, explain, false);
+    }
+
+    @Override
+    public QueryResultDto query(String queryString, Map<String, Object> parameters, QueryMode queryMode, boolean explain) {
+        return query(queryString, parameters, queryMode, explain, false);
+    }
+
+    @Override
+    public QueryResultDto query(String queryString, Map<String, Object> parameters, QueryMode queryMode, boolean explain, boolean analyze) {
 
         switch (queryMode) {
             case SQL:
                 return querySql(queryString);
 
             case AQL:
-                return queryAql(queryString, explain);
+                return queryAql(queryString, parameters, explain || analyze, analyze);
 
             default:
                 throw new IllegalArgumentException("Invalid query mode:"+queryMode);
@@ -86,17 +108,37 @@ public class QueryServiceImp extends BaseServiceImp implements QueryService {
     }
 
     @Override
-    public QueryResultDto query(String queryString, Map<String, Object> parameters, QueryMode queryMode, boolean explain) {
-
-        switch (queryMode) {
-            case SQL:
-                return querySql(queryString);
-
-            case AQL:
-                return queryAql(queryString, parameters, explain);
+    @Transactional(readOnly = true)
+    public void queryStream(String queryString, Map<String, Object> parameters, QueryResultConsumer consumer) {
+        try {
+            AqlQueryHandler queryHandler = new AqlQueryHandler(getDataAccess(), tsAdapter, planCache);
+            queryHandler.stream(queryString, parameters, getServerConfig().getAqlStreamFetchSize(), new AqlResultHandler() {
+                private Map<String, String> variables;
+
+                @Override
+                public void variables(Map<String, String> variables) {
+                    this.variables = variables;
+                    consumer.columns(variables);
+                }
 
-            default:
-                throw new IllegalArgumentException("Invalid query mode:"+queryMode);
+                @Override
+                public void record(Record record) {
+                    List<Object> values = new ArrayList<>();
+                    for (Field field : record.fields()) {
+                        if (AqlResult.variablesContains(variables, field.getName()))
+                            values.add(formatValue(record.getValue(field)));
+                    }
+                    consumer.row(values);
+                }
+            });
+            // handed to the consumer, the map of the service is shared by concurrent requests
+            consumer.completed(queryHandler.getAuditResultMap());
+        } catch(RestClientException rce) {
+            throw new BadGatewayException("Bad gateway exception: "+rce.getCause().getMessage());
+        } catch (DataAccessException dae){
+            throw new GeneralRequestProcessingException("Data Access Error: "+dae.getCause().getMessage());
+        } catch (IllegalArgumentException iae){
+            throw new IllegalArgumentException(iae.getMessage());
         }
     }
 
@@ -107,19 +149,7 @@ public class QueryServiceImp extends BaseServiceImp implements QueryService {
 
         List<ResultHolder> resultList = new ArrayList<>();
         for (Record record : aqlResult.getRecords()) {
-            ResultHolder fieldMap = new ResultHolder();
-            for (Field field : record.fields()) {
-                //process non-hidden variables
-                if (aqlResult.variablesContains(field.getName())) {
-                    //check whether to use field name or alias
-                    if (record.getValue(field) instanceof JsonElement) {
-                        fieldMap.putResult(field.getName(), new StructuredString((record.getValue(field)).toString(), StructuredStringFormat.JSON));
-                    } else
-                        fieldMap.putResult(field.getName(), record.getValue(field));
-                }
-            }
-
-            resultList.add(fieldMap);
+            resultList.add(toResultHolder(record, aqlResult.getVariables()));
         }
 
         dto.setResultSet(resultList);
@@ -130,36 +160,58 @@ public class QueryServiceImp extends BaseServiceImp implements QueryService {
         return dto;
     }
 
-    private QueryResultDto queryAql(String queryString, boolean explain) {
-        try {
+    private ResultHolder toResultHolder(Record record, Map<String, String> variables) {
+        ResultHolder fieldMap = new ResultHolder();
+        for (Field field : record.fields()) {
+            //process non-hidden variables
+            if (AqlResult.variablesContains(variables, field.getName())) {
+                //check whether to use field name or alias
+                fieldMap.putResult(field.getName(), formatValue(record.getValue(field)));
+            }
+        }
+        return fieldMap;
+    }
 
-            AqlQueryHandler queryHandler = new AqlQueryHandler(getDataAccess(), tsAdapter);
-            AqlResult aqlResult = queryHandler.process(queryString);
+    private Object formatValue(Object value) {
+        if (value instanceof JsonElement) {
+            return new StructuredString(value.toString(), StructuredStringFormat.JSON);
+        } else
+            return value;
+    }
+
+    private QueryResultDto queryAql(String queryString, Map<String, Object> parameters, boolean explain, boolean analyze) {
+        try {
+            AqlQueryHandler queryHandler = new AqlQueryHandler(getDataAccess(), tsAdapter, planCache);
+            AqlResult aqlResult = queryHandler.process(queryString, parameters, analyze);
             auditResultMap = aqlResult.getAuditResultMap();
             return formatResult(aqlResult, queryString, explain);
+        } catch(RestClientException rce) {
+        	throw new BadGatewayException("Bad gateway exception: "+rce.getCause().getMessage());
         } catch (DataAccessException dae){
-            throw new GeneralRequestProcessingException("Data Access Error:"+dae.getCause().getMessage());
+            throw new GeneralRequestProcessingException("Data Access Error: "+dae.getCause().getMessage());
         } catch (IllegalArgumentException iae){
             throw new IllegalArgumentException(iae.getMessage());
         } catch (Exception e){
-            throw new IllegalArgumentException("Could not process query, reason:" + e);
+            throw new IllegalArgumentException("Could not process query, reason: " + e);
         }
     }
 
-    private QueryResultDto queryAql(String queryString, Map<String, Object> parameters, boolean explain) {
+    @Override
+    public QueryResultPage queryPage(String queryString, Map<String, Object> parameters, String continuationToken, QueryCountMode countMode) {
         try {
-            AqlQueryHandler queryHandler = new AqlQueryHandler(getDataAccess(), tsAdapter);
-            AqlResult aqlResult = queryHandler.process(queryString, parameters);
+            AqlQueryHandler queryHandler = new AqlQueryHandler(getDataAccess(), tsAdapter, planCache);
+            AqlResult aqlResult = queryHandler.processPage(queryString, parameters, continuationToken, countMode);
             auditResultMap = aqlResult.getAuditResultMap();
-            return formatResult(aqlResult, queryString, explain);
+            return new QueryResultPage(formatResult(aqlResult, queryString, false), aqlResult.getContinuationToken(),
+                    aqlResult.getTotalCount(), countMode == QueryCountMode.ESTIMATED);
         } catch(RestClientException rce) {
-        	throw new BadGatewayException("Bad gateway exception: "+rce.getCause().getMessage());
+            throw new BadGatewayException("Bad gateway exception: "+rce.getCause().getMessage());
         } catch (DataAccessException dae){
             throw new GeneralRequestProcessingException("Data Access Error: "+dae.getCause().getMessage());
         } catch (IllegalArgumentException iae){
             throw new IllegalArgumentException(iae.getMessage());
         } catch (Exception e){
-            throw new IllegalArgumentException("Could not retrieve stored query, reason: " + e);
+            throw new IllegalArgumentException("Could not process query, reason: " + e);
         }
     }
 
@@ -213,7 +265,13 @@ public class QueryServiceImp extends BaseServiceImp implements QueryService {
 
         I_StoredQueryAccess storedQueryAccess;
         try {
+            Optional<StoredQueryRegistry.StoredQuery> storedQuery = storedQueryRegistry.find(queryQualifiedName);
+            if (storedQuery.isPresent()) {
+                return mapToQueryDefinitionDto(storedQuery.get());
+            }
+            // does not exist, reported by retrieveQualified
             storedQueryAccess = StoredQueryAccess.retrieveQualified(getDataAccess(), queryQualifiedName);
+            storedQueryRegistry.register(storedQueryAccess);
         } catch (DataAccessException dae){
             throw new GeneralRequestProcessingException("Data Access Error:"+dae.getCause().getMessage());
         } catch (IllegalArgumentException iae){
@@ -240,6 +298,7 @@ public class QueryServiceImp extends BaseServiceImp implements QueryService {
             String queryQualifiedName = qualifiedName + ((version != null && !version.isEmpty()) ? "/" + version : "");
             I_StoredQueryAccess storedQueryAccess = new StoredQueryAccess(getDataAccess(), queryQualifiedName, queryString);
             storedQueryAccess.commit();
+            storedQueryRegistry.register(storedQueryAccess);
             return mapToQueryDefinitionDto(storedQueryAccess);
         } catch (DataAccessException dae){
             throw new GeneralRequestProcessingException("Data Access Error:"+dae.getCause().getMessage());
@@ -260,6 +319,7 @@ public class QueryServiceImp extends BaseServiceImp implements QueryService {
             storedQueryAccess.setQueryText(queryString);
 
             storedQueryAccess.update(Timestamp.from(Instant.now()));
+            storedQueryRegistry.register(storedQueryAccess);
             return mapToQueryDefinitionDto(storedQueryAccess);
         } catch (DataAccessException dae){
             throw new GeneralRequestProcessingException("Data Access Error:"+dae.getCause().getMessage());
@@ -277,6 +337,7 @@ public class QueryServiceImp extends BaseServiceImp implements QueryService {
             I_StoredQueryAccess storedQueryAccess = StoredQueryAccess.retrieveQualified(getDataAccess(), qualifiedName + ((version != null && !version.isEmpty()) ? "/" + version : ""));
 
             storedQueryAccess.delete();
+            storedQueryRegistry.unregister(storedQueryAccess);
             return mapToQueryDefinitionDto(storedQueryAccess);
         } catch (DataAccessException dae){
             throw new GeneralRequestProcessingException("Data Access Error:"+dae.getCause().getMessage());
@@ -302,5 +363,15 @@ public class QueryServiceImp extends BaseServiceImp implements QueryService {
         return dto;
     }
 
+    private QueryDefinitionResultDto mapToQueryDefinitionDto(StoredQueryRegistry.StoredQuery storedQuery) {
+        QueryDefinitionResultDto dto = new QueryDefinitionResultDto();
+        dto.setSaved(storedQuery.getCreationDate().toInstant().atZone(ZoneId.systemDefault()));
+        dto.setQualifiedName(storedQuery.getReverseDomainName() + "::" + storedQuery.getSemanticId());
+        dto.setVersion(storedQuery.getSemver());
+        dto.setQueryText(storedQuery.getQueryText());
+        dto.setType(storedQuery.getQueryType());
+        return dto;
+    }
+
 
 }
@@ -0,0 +1,329 @@
+/*
+ * Copyright (c) 2022 Vitasystems GmbH and Hannover Medical School.
+ *
+ * This file is part of project EHRbase
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.ehrbase.service;
+
+import static org.ehrbase.jooq.pg.Tables.STORED_QUERY;
+
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.TreeMap;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Predicate;
+import java.util.stream.Collectors;
+import javax.annotation.PostConstruct;
+import org.ehrbase.cache.CacheOptions;
+import org.ehrbase.dao.access.interfaces.I_StoredQueryAccess;
+import org.ehrbase.dao.access.util.StoredQueryQualifiedName;
+import org.ehrbase.jooq.pg.tables.records.StoredQueryRecord;
+import org.jooq.Condition;
+import org.jooq.DSLContext;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+/**
+ * In memory copy of the stored queries, so that executing a stored query neither queries the DB
+ * for it nor parses it again.
+ * <p>
+ * The queries are loaded at startup and kept up to date by {@link QueryServiceImp} when a query is
+ * created, updated or deleted. Only a version that is pinned, i.e. requested exactly as it is
+ * known, is served without the DB: for the latest version, or the latest one matching a partial
+ * version, the DB is asked for the current row, so versions created or deleted through other
+ * instances sharing the DB are seen at once. Other changes to pinned versions are picked up by
+ * reloading all queries every <code>cache.stored-query-reload-interval</code>.
+ * <p>
+ * The text of each query is pinned in the {@link AqlPlanCache}: once compiled, the plan of a
+ * stored query without parameters is not evicted by ad-hoc queries.
+ */
+@Component
+public class StoredQueryRegistry {
+
+  private static final String DEFAULT_SEMVER = "0.0.0";
+  private static final String LATEST = "LATEST";
+
+  private final Logger logger = LoggerFactory.getLogger(getClass());
+
+  private final DSLContext context;
+  private final AqlPlanCache planCache;
+  private final long reloadIntervalNanos;
+
+  private final ReentrantLock reloadLock = new ReentrantLock();
+
+  /**
+   * Queries by reverse domain name and semantic ID ("org.example::query"), then by version.
+   * Replaced as a whole on each change.
+   */
+  private volatile Map<String, NavigableMap<String, StoredQuery>> queries = Collections.emptyMap();
+  private volatile long loadedAt;
+
+  public StoredQueryRegistry(DSLContext context, AqlPlanCache planCache,
+      CacheOptions cacheOptions) {
+    this.context = context;
+    this.planCache = planCache;
+    Duration reloadInterval = cacheOptions.getStoredQueryReloadInterval();
+    this.reloadIntervalNanos = reloadInterval == null ? 0 : reloadInterval.toNanos();
+  }
+
+  @PostConstruct
+  public void load() {
+    List<StoredQuery> loaded = context.selectFrom(STORED_QUERY).fetch().stream()
+        .map(StoredQuery::new)
+        .collect(Collectors.toList());
+
+    synchronized (this) {
+      for (NavigableMap<String, StoredQuery> versions : queries.values()) {
+        versions.values().forEach(q -> planCache.unpin(q.getQueryText()));
+      }
+      Map<String, NavigableMap<String, StoredQuery>> replacement = new HashMap<>();
+      for (StoredQuery query : loaded) {
+        replacement.computeIfAbsent(query.getName(), n -> new TreeMap<>())
+            .put(query.getSemver(), query);
+        planCache.pin(query.getQueryText());
+      }
+      queries = replacement;
+      loadedAt = System.nanoTime();
+    }
+    logger.debug("Loaded {} stored queries", loaded.size());
+  }
+
+  /**
+   * Resolves a stored query like
+   * {@link org.ehrbase.dao.access.jooq.StoredQueryAccess#retrieveQualified}: the highest version
+   * starting with the given version, or the highest version if none or "LATEST" is given.
+   *
+   * @param qualifiedName qualified name, with optional version ("org.example::query/1.0")
+   * @return the query, or empty if it does not exist
+   */
+  public Optional<StoredQuery> find(String qualifiedName) {
+    reloadIfDue();
+
+    StoredQueryQualifiedName qualified = new StoredQueryQualifiedName(qualifiedName);
+    String name = name(qualified.reverseDomainName(), qualified.semanticId());
+    String semVer = qualified.semVer();
+    if (semVer == null || semVer.equalsIgnoreCase(LATEST)) {
+      semVer = null;
+    } else {
+      StoredQuery pinned = queries.getOrDefault(name, Collections.emptyNavigableMap()).get(semVer);
+      if (pinned != null) {
+        return Optional.of(pinned);
+      }
+    }
+    return findLatest(qualified.reverseDomainName(), qualified.semanticId(), semVer);
+  }
+
+  /**
+   * Looks up the highest version in the DB and brings the queries of this instance in line with
+   * it: the version is added or replaced, higher versions deleted in the meantime are removed.
+   */
+  private Optional<StoredQuery> findLatest(String reverseDomainName, String semanticId,
+      String semVer) {
+    Condition condition = STORED_QUERY.REVERSE_DOMAIN_NAME.eq(reverseDomainName)
+        .and(STORED_QUERY.SEMANTIC_ID.eq(semanticId));
+    if (semVer != null) {
+      condition = condition.and(STORED_QUERY.SEMVER.like(semVer + "%"));
+    }
+    StoredQueryRecord record = context.selectFrom(STORED_QUERY)
+        .where(condition)
+        .orderBy(STORED_QUERY.SEMVER.desc())
+        .limit(1)
+        .fetchOne();
+
+    String name = name(reverseDomainName, semanticId);
+    Predicate<String> matching = v -> semVer == null || v.startsWith(semVer);
+    if (record == null) {
+      update(name, matching, null);
+      return Optional.empty();
+    }
+
+    StoredQuery latest = new StoredQuery(record);
+    NavigableMap<String, StoredQuery> versions =
+        queries.getOrDefault(name, Collections.emptyNavigableMap());
+    StoredQuery known = versions.get(latest.getSemver());
+    boolean deletedHigher = versions.tailMap(latest.getSemver(), false).keySet().stream()
+        .anyMatch(matching);
+    if (known != null && known.isSameAs(latest) && !deletedHigher) {
+      return Optional.of(known);
+    }
+    update(name, matching.and(v -> v.compareTo(latest.getSemver()) > 0), latest);
+    return Optional.of(latest);
+  }
+
+  /**
+   * Adds or replaces a created, updated or looked up query, once the current transaction has
+   * committed.
+   *
+   * @param storedQueryAccess the query
+   */
+  public void register(I_StoredQueryAccess storedQueryAccess) {
+    StoredQuery query = new StoredQuery(storedQueryAccess);
+    afterCommit(() -> update(query.getName(), query.getSemver()::equals, query));
+  }
+
+  /**
+   * Removes a deleted query, once the current transaction has committed.
+   *
+   * @param storedQueryAccess the query
+   */
+  public void unregister(I_StoredQueryAccess storedQueryAccess) {
+    StoredQuery query = new StoredQuery(storedQueryAccess);
+    afterCommit(() -> update(query.getName(), query.getSemver()::equals, null));
+  }
+
+  private static void afterCommit(Runnable action) {
+    if (TransactionSynchronizationManager.isSynchronizationActive()) {
+      TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+        @Override
+        public void afterCommit() {
+          action.run();
+        }
+      });
+    } else {
+      action.run();
+    }
+  }
+
+  /**
+   * Removes the versions of the given query matching <code>removed</code>, then adds or replaces
+   * <code>query</code> if present.
+   */
+  private synchronized void update(String name, Predicate<String> removed, StoredQuery query) {
+    Map<String, NavigableMap<String, StoredQuery>> replacement = new HashMap<>(queries);
+    NavigableMap<String, StoredQuery> versions =
+        new TreeMap<>(replacement.getOrDefault(name, Collections.emptyNavigableMap()));
+
+    versions.entrySet().removeIf(e -> {
+      boolean remove = removed.test(e.getKey());
+      if (remove) {
+        planCache.unpin(e.getValue().getQueryText());
+      }
+      return remove;
+    });
+    if (query != null) {
+      StoredQuery previous = versions.put(query.getSemver(), query);
+      if (previous != null) {
+        planCache.unpin(previous.getQueryText());
+      }
+      planCache.pin(query.getQueryText());
+    }
+
+    if (versions.isEmpty()) {
+      replacement.remove(name);
+    } else {
+      replacement.put(name, versions);
+    }
+    queries = replacement;
+  }
+
+  private void reloadIfDue() {
+    if (reloadIntervalNanos <= 0 || System.nanoTime() - loadedAt < reloadIntervalNanos) {
+      return;
+    }
+    // one caller reloads, the others keep using the current queries
+    if (reloadLock.tryLock()) {
+      try {
+        if (System.nanoTime() - loadedAt >= reloadIntervalNanos) {
+          load();
+        }
+      } finally {
+        reloadLock.unlock();
+      }
+    }
+  }
+
+  private static String name(String reverseDomainName, String semanticId) {
+    return reverseDomainName + "::" + semanticId;
+  }
+
+  /**
+   * Immutable copy of a stored query.
+   */
+  public static final class StoredQuery {
+
+    private final String reverseDomainName;
+    private final String semanticId;
+    private final String semver;
+    private final String queryText;
+    private final String queryType;
+    private final Timestamp creationDate;
+
+    private StoredQuery(StoredQueryRecord record) {
+      this(record.getReverseDomainName(), record.getSemanticId(), record.getSemver(),
+          record.getQueryText(), record.getType(), record.getCreationDate());
+    }
+
+    private StoredQuery(I_StoredQueryAccess access) {
+      this(access.getReverseDomainName(), access.getSemanticId(), access.getSemver(),
+          access.getQueryText(), access.getQueryType(), access.getCreationDate());
+    }
+
+    private StoredQuery(String reverseDomainName, String semanticId, String semver,
+        String queryText, String queryType, Timestamp creationDate) {
+      this.reverseDomainName = reverseDomainName;
+      this.semanticId = semanticId;
+      // column default
+      this.semver = semver == null ? DEFAULT_SEMVER : semver;
+      this.queryText = queryText;
+      this.queryType = queryType;
+      this.creationDate = creationDate;
+    }
+
+    private String getName() {
+      return name(reverseDomainName, semanticId);
+    }
+
+    private boolean isSameAs(StoredQuery other) {
+      return semver.equals(other.semver)
+          && Objects.equals(queryText, other.queryText)
+          && Objects.equals(creationDate, other.creationDate);
+    }
+
+    public String getReverseDomainName() {
+      return reverseDomainName;
+    }
+
+    public String getSemanticId() {
+      return semanticId;
+    }
+
+    public String getSemver() {
+      return semver;
+    }
+
+    public String getQueryText() {
+      return queryText;
+    }
+
+    public String getQueryType() {
+      return queryType;
+    }
+
+    public Timestamp getCreationDate() {
+      return creationDate;
+    }
+  }
+}
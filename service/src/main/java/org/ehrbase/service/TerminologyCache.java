@@ -0,0 +1,140 @@
+/*
+ * Copyright (c) 2022 Vitasystems GmbH and Hannover Medical School.
+ *
+ * This file is part of project EHRbase
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.ehrbase.service;
+
+import io.micrometer.core.instrument.Metrics;
+import io.micrometer.core.instrument.Timer;
+import java.time.Duration;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Supplier;
+import javax.annotation.PreDestroy;
+import org.ehrbase.cache.CacheOptions;
+import org.ehrbase.cache.Caches;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Component;
+
+/**
+ * Responses of the FHIR terminology server, keyed by the request URL and held in the
+ * {@link CacheOptions#TERMINOLOGY_CACHE}, which bounds their number and lifetime.
+ * <p>
+ * Value set expansions and code validations are requested while compiling AQL queries using the
+ * TERMINOLOGY function, so repeated queries would otherwise wait for the terminology server on
+ * each execution. If a refresh period is configured, an entry older than it is reloaded in the
+ * background on its next use while the cached response is still returned.
+ */
+@Component
+public class TerminologyCache {
+
+  static final String REMOTE_TIMER = "ehrbase.terminology.remote";
+
+  static final String REFRESH_COUNTER = "ehrbase.terminology.cache.refreshes";
+
+  private final Logger logger = LoggerFactory.getLogger(getClass());
+
+  /**
+   * null if disabled
+   */
+  private final Cache responses;
+
+  private final long refreshAfterNanos;
+
+  private final ExecutorService refreshExecutor;
+
+  public TerminologyCache(CacheManager cacheManager, CacheOptions cacheOptions) {
+    this.responses = cacheManager.getCache(CacheOptions.TERMINOLOGY_CACHE);
+    Duration refreshAfter = cacheOptions.getTerminologyCacheRefreshAfter();
+    this.refreshAfterNanos = refreshAfter == null ? 0 : refreshAfter.toNanos();
+
+    CustomizableThreadFactory threadFactory = new CustomizableThreadFactory("terminology-refresh-");
+    threadFactory.setDaemon(true);
+    this.refreshExecutor = Executors.newSingleThreadExecutor(threadFactory);
+  }
+
+  /**
+   * Returns the cached response for the request, or loads and caches it.
+   *
+   * @param operation terminology operation, e.g. expand or validate-code, used to tag the metrics
+   * @param url       request URL
+   * @param loader    requests and parses the response of the terminology server
+   * @return the response
+   */
+  public <T> T get(String operation, String url, Supplier<T> loader) {
+    if (responses == null) {
+      return load(operation, loader);
+    }
+
+    Entry entry = Caches.get(responses, url, () -> new Entry(load(operation, loader)));
+    if (refreshAfterNanos > 0 && System.nanoTime() - entry.loadedAt >= refreshAfterNanos
+        && entry.refreshing.compareAndSet(false, true)) {
+      refreshExecutor.execute(() -> refresh(operation, url, loader, entry));
+    }
+
+    @SuppressWarnings("unchecked")
+    T value = (T) entry.value;
+    return value;
+  }
+
+  private void refresh(String operation, String url, Supplier<?> loader, Entry entry) {
+    try {
+      responses.put(url, new Entry(load(operation, loader)));
+      Metrics.counter(REFRESH_COUNTER, "operation", operation).increment();
+    } catch (RuntimeException e) {
+      // keep the cached response until it expires, the next use tries again
+      logger.warn("Refreshing the terminology response of {} failed: {}", url, e.getMessage());
+      entry.refreshing.set(false);
+    }
+  }
+
+  private <T> T load(String operation, Supplier<T> loader) {
+    Timer.Sample sample = Timer.start();
+    try {
+      return loader.get();
+    } finally {
+      sample.stop(Metrics.timer(REMOTE_TIMER, "operation", operation));
+    }
+  }
+
+  public void invalidate() {
+    if (responses != null) {
+      responses.clear();
+    }
+  }
+
+  @PreDestroy
+  public void shutdown() {
+    refreshExecutor.shutdownNow();
+  }
+
+  private static class Entry {
+
+    private final Object value;
+    private final long loadedAt = System.nanoTime();
+    private final AtomicBoolean refreshing = new AtomicBoolean();
+
+    private Entry(Object value) {
+      this.value = value;
+    }
+  }
+}
@@ -0,0 +1,44 @@
+/*
+ * Copyright (c) 2022 Vitasystems GmbH and Hannover Medical School.
+ *
+ * This file is part of project EHRbase
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.ehrbase.service;
+
+import org.ehrbase.dao.access.util.TerminologyLookup;
+import org.ehrbase.dao.access.util.TerminologyTables;
+import org.jooq.DSLContext;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Loads the {@link TerminologyTables} at startup as the {@link TerminologyLookup} of the services' data access, so
+ * that commits, updates and deletes resolve concepts, territories and languages without querying the DB.
+ */
+@Configuration
+public class TerminologyTablesConfiguration {
+
+  private final Logger logger = LoggerFactory.getLogger(getClass());
+
+  @Bean
+  public TerminologyLookup terminologyLookup(DSLContext context) {
+    TerminologyTables tables = TerminologyTables.load(context);
+    logger.info("Terminology tables loaded");
+    return tables;
+  }
+}
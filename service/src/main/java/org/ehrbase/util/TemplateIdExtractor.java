@@ -0,0 +1,256 @@
+/*
+ * Copyright (c) 2022 Vitasystems GmbH and Hannover Medical School.
+ *
+ * This file is part of project EHRbase
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.ehrbase.util;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.HashSet;
+import java.util.Set;
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+import org.ehrbase.api.exception.UnexpectedSwitchCaseException;
+import org.ehrbase.response.ehrscape.CompositionFormat;
+
+/**
+ * Reads the template IDs of canonical compositions and contributions without building the RM
+ * objects.
+ * <p>
+ * The input is streamed and only the <code>archetype_details/template_id/value</code> of the
+ * compositions is read; the rest is skipped and not validated.
+ */
+public class TemplateIdExtractor {
+
+  private static final String ARCHETYPE_DETAILS = "archetype_details";
+  private static final String TEMPLATE_ID = "template_id";
+  private static final String VALUE = "value";
+  private static final String VERSIONS = "versions";
+  private static final String DATA = "data";
+  private static final String TYPE = "_type";
+  private static final String COMPOSITION = "COMPOSITION";
+
+  private static final JsonFactory JSON_FACTORY = new JsonFactory();
+  private static final XMLInputFactory XML_FACTORY = createXmlFactory();
+
+  private TemplateIdExtractor() {
+  }
+
+  private static XMLInputFactory createXmlFactory() {
+    XMLInputFactory factory = XMLInputFactory.newFactory();
+    factory.setProperty(XMLInputFactory.SUPPORT_DTD, false);
+    factory.setProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, false);
+    return factory;
+  }
+
+  /**
+   * Reads the template ID of a composition.
+   *
+   * @param content Composition input
+   * @param format  Composition format, JSON or XML
+   * @return the template ID, or null when not available
+   * @throws IllegalArgumentException when the input can't be parsed
+   */
+  public static String fromComposition(String content, CompositionFormat format) {
+    switch (format) {
+      case JSON:
+        try (JsonParser parser = JSON_FACTORY.createParser(content)) {
+          if (parser.nextToken() != JsonToken.START_OBJECT) {
+            throw new IllegalArgumentException("Composition input is not a JSON object");
+          }
+          return readJsonTemplateId(parser, null);
+        } catch (IOException e) {
+          throw new IllegalArgumentException(
+              "Error while processing given json input: " + e.getMessage());
+        }
+      case XML:
+        return readXmlTemplateId(content);
+      default:
+        throw new UnexpectedSwitchCaseException(format);
+    }
+  }
+
+  /**
+   * Reads the template IDs of the compositions of a contribution.
+   *
+   * @param content Contribution input
+   * @param format  Contribution format, only JSON is supported
+   * @return Set of templates used by compositions
+   * @throws IllegalArgumentException when the input can't be parsed or contains other versions
+   *                                  than compositions
+   */
+  public static Set<String> fromContribution(String content, CompositionFormat format) {
+    if (format != CompositionFormat.JSON) {
+      throw new UnexpectedSwitchCaseException(format);
+    }
+
+    Set<String> templates = new HashSet<>();
+    try (JsonParser parser = JSON_FACTORY.createParser(content)) {
+      if (parser.nextToken() != JsonToken.START_OBJECT) {
+        throw new IllegalArgumentException("Contribution input is not a JSON object");
+      }
+      while (parser.nextToken() == JsonToken.FIELD_NAME) {
+        String field = parser.getCurrentName();
+        JsonToken token = parser.nextToken();
+        if (VERSIONS.equals(field) && token == JsonToken.START_ARRAY) {
+          readJsonVersions(parser, templates);
+        } else {
+          parser.skipChildren();
+        }
+      }
+    } catch (IOException e) {
+      throw new IllegalArgumentException(
+          "Error while processing given json input: " + e.getMessage());
+    }
+    return templates;
+  }
+
+  private static void readJsonVersions(JsonParser parser, Set<String> templates)
+      throws IOException {
+    while (parser.nextToken() == JsonToken.START_OBJECT) {
+      while (parser.nextToken() == JsonToken.FIELD_NAME) {
+        String field = parser.getCurrentName();
+        JsonToken token = parser.nextToken();
+        if (DATA.equals(field) && token == JsonToken.START_OBJECT) {
+          String[] type = new String[1];
+          String templateId = readJsonTemplateId(parser, type);
+          if (type[0] != null && !COMPOSITION.equals(type[0])) {
+            throw new IllegalArgumentException(
+                "Contribution input contains invalid version class");
+          }
+          if (templateId != null) {
+            templates.add(templateId);
+          }
+        } else {
+          parser.skipChildren();
+        }
+      }
+    }
+  }
+
+  /**
+   * Reads the template ID of the object the parser is positioned at, up to its end.
+   *
+   * @param type when not null, also reads the <code>_type</code> of the object into type[0]
+   */
+  private static String readJsonTemplateId(JsonParser parser, String[] type) throws IOException {
+    String templateId = null;
+    while (parser.nextToken() == JsonToken.FIELD_NAME) {
+      String field = parser.getCurrentName();
+      JsonToken token = parser.nextToken();
+      if (ARCHETYPE_DETAILS.equals(field) && token == JsonToken.START_OBJECT) {
+        templateId = readJsonTemplateIdValue(parser);
+      } else if (TYPE.equals(field) && token == JsonToken.VALUE_STRING) {
+        if (type != null) {
+          type[0] = parser.getText();
+        }
+      } else {
+        parser.skipChildren();
+      }
+      if (templateId != null && type == null) {
+        // nothing else to read
+        return templateId;
+      }
+    }
+    return templateId;
+  }
+
+  /**
+   * Reads <code>template_id/value</code> of the archetype details the parser is positioned at, up
+   * to their end.
+   */
+  private static String readJsonTemplateIdValue(JsonParser parser) throws IOException {
+    String value = null;
+    while (parser.nextToken() == JsonToken.FIELD_NAME) {
+      String field = parser.getCurrentName();
+      JsonToken token = parser.nextToken();
+      if (TEMPLATE_ID.equals(field) && token == JsonToken.START_OBJECT) {
+        value = readJsonString(parser, VALUE);
+      } else {
+        parser.skipChildren();
+      }
+    }
+    return value;
+  }
+
+  /**
+   * Reads the string field of the object the parser is positioned at, up to its end.
+   */
+  private static String readJsonString(JsonParser parser, String name) throws IOException {
+    String value = null;
+    while (parser.nextToken() == JsonToken.FIELD_NAME) {
+      String field = parser.getCurrentName();
+      JsonToken token = parser.nextToken();
+      if (name.equals(field) && token == JsonToken.VALUE_STRING) {
+        value = parser.getText();
+      } else {
+        parser.skipChildren();
+      }
+    }
+    return value;
+  }
+
+  private static String readXmlTemplateId(String content) {
+    XMLStreamReader reader = null;
+    try {
+      reader = XML_FACTORY.createXMLStreamReader(new StringReader(content));
+      // element path from the root: composition/archetype_details/template_id/value
+      int depth = 0;
+      int matched = 0;
+      while (reader.hasNext()) {
+        int event = reader.next();
+        if (event == XMLStreamReader.START_ELEMENT) {
+          depth++;
+          String name = reader.getLocalName();
+          if (depth == 2 && matched == 1 && ARCHETYPE_DETAILS.equals(name)
+              || depth == 3 && matched == 2 && TEMPLATE_ID.equals(name)) {
+            matched++;
+          } else if (depth == 4 && matched == 3 && VALUE.equals(name)) {
+            return reader.getElementText().trim();
+          } else if (depth == 1) {
+            matched = 1;
+          }
+        } else if (event == XMLStreamReader.END_ELEMENT) {
+          if (matched == depth) {
+            if (matched == 2) {
+              // archetype_details without template_id
+              return null;
+            }
+            matched--;
+          }
+          depth--;
+        }
+      }
+      return null;
+    } catch (XMLStreamException e) {
+      throw new IllegalArgumentException(
+          "Error while processing given xml input: " + e.getMessage());
+    } finally {
+      if (reader != null) {
+        try {
+          reader.close();
+        } catch (XMLStreamException e) {
+          // nothing left to release
+        }
+      }
+    }
+  }
+}
@@ -20,22 +20,30 @@ package org.ehrbase.aql.compiler;
  */
 
 import com.nedap.archie.rm.datavalues.DvCodedText;
+import com.sun.net.httpserver.HttpServer;
 import org.apache.http.client.HttpClient;
 import org.apache.http.conn.ssl.NoopHostnameVerifier;
 import org.apache.http.conn.ssl.TrustAllStrategy;
 import org.apache.http.impl.client.HttpClients;
 import org.apache.http.ssl.SSLContextBuilder;
+import org.ehrbase.cache.CacheOptions;
 import org.ehrbase.dao.access.interfaces.I_OpenehrTerminologyServer;
 import org.ehrbase.service.FhirTerminologyServerR4AdaptorImpl;
 import org.ehrbase.service.FhirTsProps;
+import org.ehrbase.service.TerminologyCache;
 import org.junit.Ignore;
 import org.junit.Test;
+import org.springframework.cache.concurrent.ConcurrentMapCacheManager;
 import org.springframework.util.ResourceUtils;
 
 import javax.net.ssl.SSLContext;
 import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
 import java.security.GeneralSecurityException;
 import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import static org.assertj.core.api.Assertions.assertThat;
 
@@ -121,4 +129,48 @@ public class FhirTerminologyServerR4AdaptorImplTest {
 
         assertThat(result.size()).isEqualTo(9);
     }
+
+    @Test
+    public void shouldCacheExpansionFromStubServer() throws IOException {
+        AtomicInteger requests = new AtomicInteger();
+        HttpServer server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        server.createContext("/fhir/ValueSet/$expand", exchange -> {
+            requests.incrementAndGet();
+            byte[] body = ("{\"resourceType\": \"ValueSet\", \"expansion\": {\"contains\": ["
+                    + "{\"system\": \"http://hl7.org/fhir/FDI-surface\", \"code\": \"B\", \"display\": \"Buccal\"},"
+                    + "{\"system\": \"http://hl7.org/fhir/FDI-surface\", \"code\": \"D\", \"display\": \"Distal\"}"
+                    + "]}}").getBytes(StandardCharsets.UTF_8);
+            exchange.getResponseHeaders().add("Content-Type", "application/fhir+json");
+            exchange.sendResponseHeaders(200, body.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(body);
+            }
+        });
+        server.start();
+
+        try {
+            FhirTsProps props = new FhirTsProps();
+            props.setCodePath("$[\"expansion\"][\"contains\"][*][\"code\"]");
+            props.setDisplayPath("$[\"expansion\"][\"contains\"][*][\"display\"]");
+            props.setSystemPath("$[\"expansion\"][\"contains\"][*][\"system\"]");
+            props.setTsUrl("http://localhost:" + server.getAddress().getPort() + "/fhir/");
+
+            TerminologyCache cache = new TerminologyCache(new ConcurrentMapCacheManager(CacheOptions.TERMINOLOGY_CACHE), new CacheOptions());
+            tsserver = new FhirTerminologyServerR4AdaptorImpl(HttpClients.createDefault(), props, cache);
+
+            for (int i = 0; i < 3; i++) {
+                List<DvCodedText> result = tsserver.expandWithParameters("http://hl7.org/fhir/ValueSet/surface", "expand");
+                assertThat(result).hasSize(2);
+                assertThat(result.get(0).getDefiningCode().getCodeString()).isEqualTo("B");
+                assertThat(result.get(1).getValue()).isEqualTo("Distal");
+            }
+            assertThat(requests.get()).isEqualTo(1);
+
+            tsserver.expandWithParameters("http://hl7.org/fhir/ValueSet/other", "expand");
+            assertThat(requests.get()).isEqualTo(2);
+            cache.shutdown();
+        } finally {
+            server.stop(0);
+        }
+    }
 }
@@ -0,0 +1,299 @@
+/*
+ * Copyright (c) 2022 Vitasystems GmbH and Hannover Medical School.
+ *
+ * This file is part of project EHRbase
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.ehrbase.aql.sql;
+
+import org.ehrbase.dao.jooq.impl.DSLContextHelper;
+import org.jooq.DSLContext;
+import org.jooq.Field;
+import org.jooq.JSONB;
+import org.jooq.Param;
+import org.jooq.Record;
+import org.jooq.Result;
+import org.jooq.SelectQuery;
+import org.jooq.SortField;
+import org.jooq.impl.DSL;
+import org.jooq.tools.jdbc.MockResult;
+import org.junit.Test;
+
+import java.math.BigDecimal;
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+public class AqlPaginationTest {
+
+    private static final Field<String> A = DSL.field("a", String.class);
+    private static final Field<String> B = DSL.field("b", String.class);
+    private static final Field<Long> TOTAL_COUNT = DSL.field("aql_total_count", Long.class);
+
+    private final DSLContext context = DSLContextHelper.buildContext();
+
+    // the rows returned for any query, and the executed queries with their values inlined
+    private final List<Record> rows = new ArrayList<>();
+    private final List<String> executed = new ArrayList<>();
+    // the count selected along with the rows, if any
+    private Long totalCount;
+
+    private final DSLContext mockContext = DSLContextHelper.buildContext(ctx -> {
+        executed.add(context.renderInlined(DSL.query(ctx.sql(), ctx.bindings())));
+        Result<Record> result;
+        if (totalCount == null) {
+            result = context.newResult(A, B);
+            result.addAll(rows);
+        } else {
+            result = context.newResult(A, B, TOTAL_COUNT);
+            for (Record row : rows) {
+                Record counted = context.newRecord(A, B, TOTAL_COUNT);
+                counted.from(row);
+                counted.set(TOTAL_COUNT, totalCount);
+                result.add(counted);
+            }
+        }
+        return new MockResult[]{new MockResult(result.size(), result)};
+    });
+
+    private SelectQuery<?> query(String table) {
+        SelectQuery<?> query = context.selectQuery();
+        query.addSelect(DSL.field("a").as("a"), DSL.field("b").as("b"));
+        query.addFrom(DSL.table(table));
+        return query;
+    }
+
+    @SafeVarargs
+    private final AqlPagination pagination(String table, Integer offset, SortField<Object>... orderBy) {
+        return new AqlPagination(query(table), Arrays.asList(orderBy), 10, offset);
+    }
+
+    @Test
+    public void continuationTokenRoundTrip() {
+        AqlPagination cut = pagination("t", null, DSL.field("\"a\"").asc(), DSL.field("\"b\"").desc());
+        List<String> key = Arrays.asList("x \"y\"", null);
+
+        String token = cut.continuationToken(key);
+
+        assertThat(token).matches("[A-Za-z0-9_-]+");
+        assertThat(cut.keyOf(token)).containsExactly("x \"y\"", null);
+    }
+
+    @Test
+    public void continuationTokenKeepsTheTypes() {
+        AqlPagination cut = pagination("t", null, DSL.field("\"a\"").asc(), DSL.field("\"b\"").asc(),
+                DSL.field("\"c\"").asc(), DSL.field("\"d\"").asc(), DSL.field("\"e\"").asc());
+        OffsetDateTime time = OffsetDateTime.of(2022, 3, 1, 10, 30, 0, 0, ZoneOffset.ofHours(2));
+        UUID id = UUID.randomUUID();
+        List<Object> key = Arrays.asList(time, 42, new BigDecimal("1.50"), JSONB.valueOf("{\"x\": 1}"), id);
+
+        assertThat(cut.keyOf(cut.continuationToken(key)))
+                .containsExactly(time, 42, new BigDecimal("1.50"), JSONB.valueOf("{\"x\": 1}"), id);
+    }
+
+    @Test
+    public void keyOfARecordKeepsThePointInTime() {
+        AqlPagination cut = pagination("t", null, DSL.field("\"a\"").asc(), DSL.field("\"b\"").asc());
+        Instant instant = Instant.parse("2022-03-01T08:30:00Z");
+        Record record = context.newRecord(DSL.field("a", Timestamp.class), DSL.field("b", String.class));
+        record.set(DSL.field("a", Timestamp.class), Timestamp.from(instant));
+        record.set(DSL.field("b", String.class), "x");
+
+        assertThat(cut.keyOf(record)).containsExactly(instant.atOffset(ZoneOffset.UTC), "x");
+    }
+
+    @Test
+    public void rejectForeignToken() {
+        AqlPagination cut = pagination("t", null, DSL.field("\"a\"").asc());
+        String token = pagination("u", null, DSL.field("\"a\"").asc()).continuationToken(Collections.singletonList("x"));
+
+        assertThatThrownBy(() -> cut.keyOf(token))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessageStartingWith("Continuation token does not match the query:");
+        assertThatThrownBy(() -> cut.keyOf("not a token"))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessageStartingWith("Invalid continuation token:");
+    }
+
+    @Test
+    public void rejectTokenOfOtherBindValues() {
+        SelectQuery<?> query = query("t");
+        query.addConditions(DSL.field("a").eq(DSL.val("$value")));
+        AqlPagination plan = new AqlPagination(query, Collections.singletonList(DSL.field("\"a\"").asc()), 10, null);
+        Map<String, Param<?>> first = Collections.singletonMap("$value", DSL.val("1"));
+        Map<String, Param<?>> second = Collections.singletonMap("$value", DSL.val("2"));
+
+        String token = plan.withBindValues(first).continuationToken(Collections.singletonList("x"));
+
+        assertThat(plan.withBindValues(first).keyOf(token)).containsExactly("x");
+        assertThatThrownBy(() -> plan.withBindValues(second).keyOf(token))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessageStartingWith("Continuation token does not match the query:");
+    }
+
+    @Test
+    public void rejectTokenWithOffsetOrWithoutOrderBy() {
+        AqlPagination withOffset = pagination("t", 5, DSL.field("\"a\"").asc());
+        String token = pagination("t", null, DSL.field("\"a\"").asc()).continuationToken(Collections.singletonList("x"));
+
+        assertThatThrownBy(() -> withOffset.keyOf(token))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessage("OFFSET cannot be combined with a continuation token");
+
+        AqlPagination unordered = pagination("t", null);
+        assertThat(unordered.isOrdered()).isFalse();
+        assertThatThrownBy(() -> unordered.keyOf(token))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessage("A continuation token requires a query with ORDER BY");
+    }
+
+    @Test
+    public void seek() {
+        AqlPagination cut = pagination("t", null, DSL.field("\"a\"").asc(), DSL.field("\"b\"").desc());
+
+        String seek = context.renderInlined(cut.seek(Arrays.asList("x", "1")));
+        assertThat(seek)
+                .contains("\"aql_page\".\"a\" > 'x'")
+                .contains("\"aql_page\".\"a\" is null")
+                .contains("\"aql_page\".\"a\" = 'x'")
+                .contains("\"aql_page\".\"b\" < '1'")
+                .doesNotContain("\"aql_page\".\"b\" is null");
+
+        // nulls are last in ascending order: nothing follows a null in the first column but the next columns
+        String nullSeek = context.renderInlined(cut.seek(Arrays.asList(null, "1")));
+        assertThat(nullSeek)
+                .contains("\"aql_page\".\"a\" is null")
+                .contains("\"aql_page\".\"b\" < '1'")
+                .doesNotContain("\"aql_page\".\"a\" >");
+
+        // other values than text are bound with their type
+        OffsetDateTime time = OffsetDateTime.of(2022, 3, 1, 10, 30, 0, 0, ZoneOffset.ofHours(2));
+        String typedSeek = context.renderInlined(cut.seek(Arrays.asList(time, 1)));
+        assertThat(typedSeek)
+                .contains("timestamp with time zone")
+                .contains("+02:00")
+                .contains("\"aql_page\".\"b\" < 1");
+    }
+
+    @Test
+    public void after() {
+        AqlPagination cut = pagination("t", null, DSL.field("\"a\"").desc());
+
+        String sql = cut.after(context, Collections.singletonList("x"), query("t").fields(), false).toString();
+
+        assertThat(sql)
+                .contains("as \"aql_page\"")
+                .contains("\"aql_page\".\"a\" < 'x'")
+                .contains("order by \"aql_page\".\"a\" desc")
+                .contains("limit 11");
+    }
+
+    @Test
+    public void pageWithTheTokenOfItsLastRow() {
+        AqlQueryPlan plan = plan(row("1", "x"), row("2", "y"), row("3", "z"));
+
+        AqlResult page = plan.executePage(mockContext, null, false, new AqlQueryTimings());
+
+        assertThat(page.getRecords()).hasSize(2);
+        assertThat(page.getContinuationToken()).isNotNull();
+        assertThat(plan.executePage(mockContext, page.getContinuationToken(), false, new AqlQueryTimings())
+                .getRecords()).hasSize(2);
+        assertThat(executed.get(1)).contains("\"aql_page\".\"a\" > '2'");
+    }
+
+    @Test
+    public void lastPageWithoutToken() {
+        AqlResult page = plan(row("1", "x"), row("2", "y"))
+                .executePage(mockContext, null, false, new AqlQueryTimings());
+
+        assertThat(page.getRecords()).hasSize(2);
+        assertThat(page.getContinuationToken()).isNull();
+    }
+
+    @Test
+    public void rejectAnOrderByNotIdentifyingTheLastRow() {
+        AqlQueryPlan plan = plan(row("1", "x"), row("2", "y"), row("2", "z"));
+
+        assertThatThrownBy(() -> plan.executePage(mockContext, null, false, new AqlQueryTimings()))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessageStartingWith("The ORDER BY of the query does not identify a row");
+    }
+
+    @Test
+    public void rejectTiedRowsOnTheFirstPage() {
+        AqlQueryPlan plan = plan(row("1", "x"), row("1", "y"));
+
+        assertThatThrownBy(() -> plan.executePage(mockContext, null, false, new AqlQueryTimings()))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessageStartingWith("The ORDER BY of the query does not identify a row");
+    }
+
+    @Test
+    public void countAlongWithThePage() {
+        totalCount = 3L;
+        AqlQueryPlan plan = plan(row("1", "x"), row("2", "y"), row("3", "z"));
+
+        AqlResult page = plan.executePage(mockContext, null, true, new AqlQueryTimings());
+
+        assertThat(page.getTotalCount()).isEqualTo(3L);
+        assertThat(page.getRecords()).hasSize(2);
+        assertThat(page.getRecords().fields()).hasSize(2);
+        // a single query
+        assertThat(executed).hasSize(1);
+        assertThat(executed.get(0)).contains("count(*) over ()").contains("limit 3");
+    }
+
+    @Test
+    public void countAnEmptyPageFollowingAToken() {
+        AqlQueryPlan plan = plan(row("1", "x"), row("2", "y"), row("3", "z"));
+        String token = plan.executePage(mockContext, null, false, new AqlQueryTimings()).getContinuationToken();
+        rows.clear();
+        totalCount = 3L;
+
+        AqlResult page = plan.executePage(mockContext, token, true, new AqlQueryTimings());
+
+        assertThat(page.getRecords()).isEmpty();
+        // no row to read the count from, the rows are counted by another query
+        assertThat(executed).hasSize(3);
+        assertThat(executed.get(2)).contains("select count(*) from");
+    }
+
+    private AqlQueryPlan plan(Record... rows) {
+        this.rows.addAll(Arrays.asList(rows));
+        SelectQuery<Record> query = mockContext.selectQuery();
+        query.addSelect(A.as("a"), B.as("b"));
+        query.addFrom(DSL.table("t"));
+        AqlPagination pagination = new AqlPagination(query, Collections.singletonList(DSL.field("\"a\"").asc()), 2, null);
+        return new AqlQueryPlan("aql", new QueryProcessor.AqlSelectQuery(query, Collections.emptyList(), false, pagination),
+                Collections.emptyList(), Collections.emptyMap());
+    }
+
+    private Record row(String a, String b) {
+        Record record = context.newRecord(A, B);
+        record.set(A, a);
+        record.set(B, b);
+        return record;
+    }
+}
@@ -0,0 +1,119 @@
+/*
+ * Copyright (c) 2022 Vitasystems GmbH and Hannover Medical School.
+ *
+ * This file is part of project EHRbase
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.ehrbase.aql.sql;
+
+import org.ehrbase.aql.TestAqlBase;
+import org.ehrbase.aql.compiler.AqlExpression;
+import org.ehrbase.aql.compiler.Contains;
+import org.ehrbase.aql.compiler.Statements;
+import org.jooq.Param;
+import org.junit.Test;
+
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class AqlParameterBindingTest extends TestAqlBase {
+
+    private static final String AQL = "select a/description[at0001]/items[at0002]/value/value from EHR e " +
+            "contains COMPOSITION c[openEHR-EHR-COMPOSITION.health_summary.v1] " +
+            "contains ACTION a[openEHR-EHR-ACTION.immunisation_procedure.v1] " +
+            "where a/description[at0001]/items[at0002]/value/value = $vaccine";
+
+    private AqlQueryPlan compile(String aql) {
+        AqlExpression aqlExpression = new AqlExpression().parse(aql);
+        Contains contains = new Contains(new AqlExpression().parse(aql).getParseTree(), knowledge).process();
+        Statements statements = new Statements(aqlExpression.getParseTree(), contains.getIdentifierMapper(), null).process();
+        QueryProcessor queryProcessor = new QueryProcessor(testDomainAccess, knowledge, contains, statements, "local");
+
+        return new AqlQueryPlan(aql, queryProcessor.buildAqlSelectQuery(), new ArrayList<>(), new HashMap<>());
+    }
+
+    private static Object[] values(AqlQueryPlan plan) {
+        return plan.getBindValues().stream().map(Param::getValue).collect(Collectors.toList()).toArray();
+    }
+
+    @Test
+    public void bindTheValuesToThePlanOfTheProbes() {
+        AqlParameterBinding hepatitisA = new AqlParameterBinding(AQL, Collections.singletonMap("vaccine", "Hepatitis A"));
+        AqlParameterBinding hepatitisB = new AqlParameterBinding(AQL, Collections.singletonMap("vaccine", "Hepatitis B"));
+
+        assertThat(hepatitisA.isBindable()).isTrue();
+        assertThat(hepatitisA.getSignature()).isEqualTo(hepatitisB.getSignature()).isEqualTo("vaccine:String;");
+        assertThat(hepatitisA.getProbeAql()).isEqualTo(hepatitisB.getProbeAql()).doesNotContain("Hepatitis");
+
+        AqlQueryPlan plan = compile(hepatitisA.getProbeAql());
+        assertThat(hepatitisA.isBound(plan)).isTrue();
+
+        AqlQueryPlan boundA = hepatitisA.bind(plan);
+        AqlQueryPlan boundB = hepatitisB.bind(plan);
+        assertThat(boundA.getSql()).isEqualTo(plan.getSql()).isEqualTo(boundB.getSql());
+        assertThat(boundA.getAql()).isEqualTo(hepatitisA.getSubstitutedAql()).contains("'Hepatitis A'");
+        assertThat(values(boundA)).contains("Hepatitis A").doesNotContain("Hepatitis B");
+        assertThat(values(boundB)).contains("Hepatitis B").doesNotContain("Hepatitis A");
+        // the plan of the probes is left unchanged
+        assertThat(values(plan)).doesNotContain("Hepatitis A", "Hepatitis B");
+    }
+
+    @Test
+    public void rejectAPlanNotCompiledFromTheProbes() {
+        AqlParameterBinding binding = new AqlParameterBinding(AQL, Collections.singletonMap("vaccine", "Hepatitis A"));
+
+        assertThat(binding.isBound(compile(binding.getSubstitutedAql()))).isFalse();
+    }
+
+    @Test
+    public void probesDoNotOccurInTheQuery() {
+        String aql = "select e/ehr_id/value from EHR e where e/ehr_id/value = $value and e/system_id/value = 'ehrbase_aql_parameter_0'";
+        AqlParameterBinding binding = new AqlParameterBinding(aql, Collections.singletonMap("value", "Hepatitis A"));
+
+        AqlQueryPlan bound = binding.bind(compile(binding.getProbeAql()));
+
+        assertThat(binding.getProbeAql()).contains("'ehrbase_aql_parameter_1'");
+        // the literal equal to the first probe is left unchanged
+        assertThat(values(bound)).contains("Hepatitis A", "ehrbase_aql_parameter_0");
+
+        String numeric = "select e/ehr_id/value from EHR e where e/time_created/magnitude > $value and e/time_created/magnitude < 2000000000";
+        assertThat(new AqlParameterBinding(numeric, Collections.singletonMap("value", 1)).getProbeAql()).contains("> 2000000001");
+    }
+
+    @Test
+    public void signatureOfTheTypes() {
+        String aql = "select e/ehr_id/value from EHR e where e/ehr_id/value = $value";
+
+        assertThat(new AqlParameterBinding(aql, Collections.singletonMap("value", "1")).getSignature()).isEqualTo("value:String;");
+        assertThat(new AqlParameterBinding(aql, Collections.singletonMap("value", 1)).getSignature()).isEqualTo("value:Integer;");
+        assertThat(new AqlParameterBinding(aql, Collections.singletonMap("value", 3000000000L)).getSignature()).isEqualTo("value:Long;");
+        assertThat(new AqlParameterBinding(aql, Collections.singletonMap("value", new BigInteger("10000000000000000000"))).getSignature()).isEqualTo("value:BigDecimal;");
+        assertThat(new AqlParameterBinding(aql, Collections.singletonMap("value", 1.5)).getSignature()).isEqualTo("value:BigDecimal;");
+    }
+
+    @Test
+    public void substituteDatesAndBooleans() {
+        String aql = "select e/ehr_id/value from EHR e where e/time_created/value > $value";
+
+        assertThat(new AqlParameterBinding(aql, Collections.singletonMap("value", "2021-03-01T10:00:00Z")).isBindable()).isFalse();
+        assertThat(new AqlParameterBinding(aql, Collections.singletonMap("value", "2021-03-01")).isBindable()).isFalse();
+        assertThat(new AqlParameterBinding(aql, Collections.singletonMap("value", true)).isBindable()).isFalse();
+    }
+}
@@ -0,0 +1,44 @@
+/*
+ * Copyright (c) 2022 Vitasystems GmbH and Hannover Medical School.
+ *
+ * This file is part of project EHRbase
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.ehrbase.aql.sql;
+
+import org.junit.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class AqlQueryTimingsTest {
+
+    @Test
+    public void recordPhasesInOrder() {
+        AqlQueryTimings cut = new AqlQueryTimings();
+
+        cut.mark(AqlQueryTimings.PARSE);
+        cut.mark(AqlQueryTimings.CONTAINS);
+        cut.reset();
+        cut.mark(AqlQueryTimings.EXECUTION);
+
+        assertThat(cut.getPhases()).containsOnlyKeys(AqlQueryTimings.PARSE, AqlQueryTimings.CONTAINS, AqlQueryTimings.EXECUTION);
+        assertThat(cut.getPhases().values()).allMatch(nanos -> nanos >= 0);
+
+        assertThat(cut.toExplain()).hasSize(4);
+        assertThat(cut.toExplain().get(0)).isEqualTo("timings");
+        assertThat(cut.toExplain().get(1)).matches("parse: \\d+\\.\\d{3} ms");
+        assertThat(cut.toExplain().get(3)).startsWith("execution: ");
+    }
+}
@@ -0,0 +1,183 @@
+/*
+ * Copyright (c) 2022 Vitasystems GmbH and Hannover Medical School.
+ *
+ * This file is part of project EHRbase
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.ehrbase.aql.sql.postprocessing;
+
+import com.google.gson.JsonElement;
+import com.google.gson.stream.JsonToken;
+import jakarta.json.Json;
+import jakarta.json.JsonException;
+import jakarta.json.JsonReader;
+import org.apache.commons.io.IOUtils;
+import org.ehrbase.serialisation.dbencoding.rawjson.LightRawJsonEncoder;
+import org.jooq.Field;
+import org.jooq.JSONB;
+import org.jooq.Record;
+import org.jooq.SQLDialect;
+import org.jooq.impl.DSL;
+import org.jooq.impl.SQLDataType;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares the previous two parses implementations of {@link RawJsonTransform#toRawJson(Record)} (DOM validation, then
+ * token scan of strings, before encoding) with the current one, on db encoded ELEMENT arrays of increasing size.
+ * <p>
+ * Run with: <code>mvn -pl service test-compile exec:java -Dexec.classpathScope=test
+ * -Dexec.mainClass=org.ehrbase.aql.sql.postprocessing.RawJsonTransformBenchmark</code>
+ * </p>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class RawJsonTransformBenchmark {
+
+    private static final Field<Object> VALUE = DSL.field("value", SQLDataType.OTHER);
+
+    /**
+     * number of times the sample items are repeated in the array
+     */
+    @Param({"1", "20", "200"})
+    public int repeat;
+
+    private String json;
+
+    @Setup
+    public void setup() throws IOException {
+        String sample = IOUtils.toString(getClass().getResourceAsStream("/zz.json"), StandardCharsets.UTF_8).trim();
+        String items = sample.substring(1, sample.length() - 1);
+
+        StringBuilder builder = new StringBuilder("[");
+        for (int i = 0; i < repeat; i++) {
+            if (i > 0)
+                builder.append(",");
+            builder.append(items);
+        }
+        json = builder.append("]").toString();
+    }
+
+    @Benchmark
+    public Object previousImplementation() {
+        Record record = record(JSONB.valueOf(json));
+        previousToRawJson(record);
+        return record.get(VALUE);
+    }
+
+    @Benchmark
+    public Object scannedString() {
+        Record record = record(json);
+        if (isWellFormed(json))
+            RawJsonTransform.toRawJson(record);
+        return record.get(VALUE);
+    }
+
+    @Benchmark
+    public Object jsonb() {
+        Record record = record(JSONB.valueOf(json));
+        RawJsonTransform.toRawJson(record);
+        return record.get(VALUE);
+    }
+
+    @Benchmark
+    public Object string() {
+        Record record = record(json);
+        RawJsonTransform.toRawJson(record);
+        return record.get(VALUE);
+    }
+
+    private static Record record(Object value) {
+        Record record = DSL.using(SQLDialect.POSTGRES).newRecord(VALUE);
+        record.set(VALUE, value);
+        return record;
+    }
+
+    /**
+     * the implementation prior to the single pass transformation, kept as baseline
+     */
+    @SuppressWarnings("unchecked")
+    private static void previousToRawJson(Record record) {
+        for (Field<?> field : record.fields()) {
+            if (record.getValue(field) instanceof String || record.getValue(field) instanceof JSONB) {
+                String value = record.getValue(field).toString();
+                String jsonbOrigin = null;
+                if (value.startsWith("[")) {
+                    try (JsonReader jsonReader = Json.createReader(new StringReader(value))) {
+                        jsonReader.readArray();
+                        jsonbOrigin = "{\"$array$\":" + value + "}";
+                    } catch (JsonException e) {
+                        //not a json array
+                    }
+                } else if (value.startsWith("{")) {
+                    try (JsonReader jsonReader = Json.createReader(new StringReader(value))) {
+                        jsonReader.readObject();
+                        jsonbOrigin = value;
+                    } catch (JsonException e) {
+                        //not a json object
+                    }
+                }
+                if (jsonbOrigin != null) {
+                    JsonElement jsonElement = new LightRawJsonEncoder(jsonbOrigin).encodeContentAsJson(null);
+                    if (jsonElement.getAsJsonObject().has(RawJsonTransform.ARRAY_MARKER)) {
+                        jsonElement = jsonElement.getAsJsonObject().getAsJsonArray(RawJsonTransform.ARRAY_MARKER);
+                    }
+                    record.set((Field<Object>) field, jsonElement);
+                }
+            }
+        }
+    }
+
+    /**
+     * the token scan strings went through before being encoded, kept as baseline
+     */
+    private static boolean isWellFormed(String value) {
+        try (com.google.gson.stream.JsonReader jsonReader = new com.google.gson.stream.JsonReader(new StringReader(value))) {
+            jsonReader.setLenient(false);
+            jsonReader.skipValue();
+            return jsonReader.peek() == JsonToken.END_DOCUMENT;
+        } catch (IOException | IllegalStateException | NumberFormatException e) {
+            return false;
+        }
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(RawJsonTransformBenchmark.class.getSimpleName())
+                .build())
+                .run();
+    }
+}
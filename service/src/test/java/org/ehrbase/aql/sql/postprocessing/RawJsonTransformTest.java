@@ -0,0 +1,77 @@
+/*
+ * Copyright (c) 2022 Vitasystems GmbH and Hannover Medical School.
+ *
+ * This file is part of project EHRbase
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.ehrbase.aql.sql.postprocessing;
+
+import com.google.gson.JsonElement;
+import org.apache.commons.io.IOUtils;
+import org.jooq.Field;
+import org.jooq.JSONB;
+import org.jooq.Record;
+import org.jooq.impl.DSL;
+import org.jooq.impl.SQLDataType;
+import org.junit.Test;
+
+import java.nio.charset.StandardCharsets;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class RawJsonTransformTest {
+
+    private static final Field<Object> VALUE = DSL.field("value", SQLDataType.OTHER);
+
+    @Test
+    public void testMalformedStringIsUnchanged() {
+        for (String malformed : new String[]{"{\"a\": 1", "{\"a\": 1} {\"b\": 2}", "[1, 2"}) {
+            Record record = record(malformed);
+
+            RawJsonTransform.toRawJson(record);
+
+            assertThat(record.get(VALUE)).isEqualTo(malformed);
+        }
+    }
+
+    @Test
+    public void testPlainStringIsUnchanged() {
+        Record record = record("[not a json array]");
+
+        RawJsonTransform.toRawJson(record);
+
+        assertThat(record.get(VALUE)).isEqualTo("[not a json array]");
+    }
+
+    @Test
+    public void testJsonbArray() throws Exception {
+        String dbEncoded = IOUtils.toString(getClass().getResourceAsStream("/zz.json"), StandardCharsets.UTF_8);
+        Record fromJsonb = record(JSONB.valueOf(dbEncoded));
+        Record fromString = record(dbEncoded);
+
+        RawJsonTransform.toRawJson(fromJsonb);
+        RawJsonTransform.toRawJson(fromString);
+
+        assertThat(fromJsonb.get(VALUE)).isInstanceOf(JsonElement.class);
+        assertThat(((JsonElement) fromJsonb.get(VALUE)).isJsonArray()).isTrue();
+        assertThat(fromString.get(VALUE)).isEqualTo(fromJsonb.get(VALUE));
+    }
+
+    private static Record record(Object value) {
+        Record record = DSL.using(org.jooq.SQLDialect.POSTGRES).newRecord(VALUE);
+        record.set(VALUE, value);
+        return record;
+    }
+}
@@ -0,0 +1,79 @@
+/*
+ * Copyright (c) 2022 Vitasystems GmbH and Hannover Medical School.
+ *
+ * This file is part of project EHRbase
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.ehrbase.aql.sql.queryimpl;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class MultiValuedPathsTest {
+
+    private static final String EVENTS = "/content[openEHR-EHR-OBSERVATION.bp.v1]/data[at0001]/events[at0002]";
+    private static final String ITEMS = EVENTS + "/data[at0003]/items[at0004]";
+
+    private final MultiValuedPaths cut = new MultiValuedPaths(Arrays.asList(
+            "/content[openEHR-EHR-OBSERVATION.bp.v1]",
+            EVENTS,
+            ITEMS,
+            ITEMS + "/name",
+            "/content[openEHR-EHR-OBSERVATION.other.v1]"));
+
+    private List<String> prefixesOf(String path) {
+        return cut.prefixesOf(path).stream()
+                .map(MultiValuedPaths.MultiValuedPath::getAqlPath)
+                .collect(Collectors.toList());
+    }
+
+    @Test
+    public void prefixesInReverseDeclarationOrder() {
+        assertThat(prefixesOf(ITEMS + "/value/magnitude"))
+                .containsExactly(ITEMS, EVENTS, "/content[openEHR-EHR-OBSERVATION.bp.v1]");
+    }
+
+    @Test
+    public void ignoreValueAndNamePaths() {
+        assertThat(prefixesOf(ITEMS + "/name/value")).doesNotContain(ITEMS + "/name");
+    }
+
+    @Test
+    public void noPrefix() {
+        assertThat(prefixesOf("/context/other_context[at0001]")).isEmpty();
+        assertThat(prefixesOf("/content[openEHR-EHR-OBSERVATION.bp")).isEmpty();
+    }
+
+    @Test
+    public void segments() {
+        MultiValuedPaths.MultiValuedPath events = cut.prefixesOf(EVENTS).get(0);
+
+        assertThat(events.getSegments())
+                .containsExactly("content[openEHR-EHR-OBSERVATION.bp.v1]", "data[at0001]", "events[at0002]");
+        assertThat(events.getLastSegment()).isEqualTo("events[at0002]");
+    }
+
+    @Test
+    public void empty() {
+        assertThat(new MultiValuedPaths(Collections.emptyList()).isEmpty()).isTrue();
+        assertThat(cut.isEmpty()).isFalse();
+    }
+}
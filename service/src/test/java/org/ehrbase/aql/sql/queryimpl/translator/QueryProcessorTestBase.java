@@ -36,19 +36,23 @@ public class QueryProcessorTestBase extends TestAqlBase {
 
 
     public boolean testAqlSelectQuery() {
-            AqlExpression aqlExpression = new AqlExpression().parse(aql);
-            Contains contains = new Contains(new AqlExpression().parse(aql).getParseTree(), knowledge).process();
-            Statements statements = new Statements(aqlExpression.getParseTree(), contains.getIdentifierMapper(), null).process();
-
-            QueryProcessor cut = new QueryProcessor(testDomainAccess, knowledge, contains, statements, "local");
-
-            QueryProcessor.AqlSelectQuery actual = cut.buildAqlSelectQuery();
+            QueryProcessor.AqlSelectQuery actual = buildAqlSelectQuery();
             // check that generated sql is expected sql
             assertThat(removeLateralVarRef(removeLateralArrayRef(removeAlias(actual.getSelectQuery().getSQL())))).as(aql).isEqualToIgnoringWhitespace(removeAlias(expectedSqlExpression));
 
             return true;
     }
 
+    protected QueryProcessor.AqlSelectQuery buildAqlSelectQuery() {
+        AqlExpression aqlExpression = new AqlExpression().parse(aql);
+        Contains contains = new Contains(new AqlExpression().parse(aql).getParseTree(), knowledge).process();
+        Statements statements = new Statements(aqlExpression.getParseTree(), contains.getIdentifierMapper(), null).process();
+
+        QueryProcessor cut = new QueryProcessor(testDomainAccess, knowledge, contains, statements, "local");
+
+        return cut.buildAqlSelectQuery();
+    }
+
     private String removeAlias(String s) {
         return s.replaceAll("alias_\\d+", "");
     }
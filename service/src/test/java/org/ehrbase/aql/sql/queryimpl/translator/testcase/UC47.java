@@ -0,0 +1,34 @@
+/*
+ * Copyright (c) 2022 Vitasystems GmbH and Hannover Medical School.
+ *
+ * This file is part of project EHRbase
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.ehrbase.aql.sql.queryimpl.translator.testcase;
+
+import org.ehrbase.aql.sql.queryimpl.translator.QueryProcessorTestBase;
+
+/**
+ * test the composition uid, whose version is read from the composition row
+ */
+public abstract class UC47 extends QueryProcessorTestBase {
+
+    protected UC47(){
+        this.aql = "select c/uid/value\n" +
+                "  from EHR e\n" +
+                "  contains COMPOSITION c[openEHR-EHR-COMPOSITION.report-result.v1]";
+        this.expectedOutputWithJson = false;
+    }
+}
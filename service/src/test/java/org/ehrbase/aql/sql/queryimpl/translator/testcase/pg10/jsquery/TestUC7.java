@@ -36,7 +36,7 @@ public class TestUC7 extends UC7 {
                         "                                            '{/composition[openEHR-EHR-COMPOSITION.health_summary.v1],/content[openEHR-EHR-ACTION.immunisation_procedure.v1]}')::jsonb) #>>\n" +
                         "                 '{/description[at0001],/items[at0002],0,/value,value}')\n" +
                         "                    AS COLUMN) as \"ARRAY\"\n" +
-                        "where (\"ehr\".\"entry\".\"template_id\" = ? and (ARRAY.COLUMN = 'Hepatitis A'))";
+                        "where (\"ehr\".\"entry\".\"template_id\" = ? and (ARRAY.COLUMN = ?))";
         testDomainAccess.getServerConfig().setUseJsQuery(true);
     }
 }
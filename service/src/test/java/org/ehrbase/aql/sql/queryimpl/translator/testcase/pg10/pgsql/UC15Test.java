@@ -35,7 +35,7 @@ public class UC15Test extends UC15 {
                         " from \"ehr\".\"ehr\" as \"ehr_join\"" +
                         " join \"ehr\".\"status\" as \"status_join\"" +
                         " on \"status_join\".\"ehr_id\" = \"ehr_join\".\"id\"" +
-                        " where (\"ehr_join\".\"id\" = '2a3b673f-d1b1-44c5-9e38-dcadf67ff2fc')) as \"\"";
+                        " where (\"ehr_join\".\"id\" = ?)) as \"\"";
     }
 
     @Test
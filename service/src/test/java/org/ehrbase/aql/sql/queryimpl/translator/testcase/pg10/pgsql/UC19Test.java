@@ -33,7 +33,7 @@ public class UC19Test extends UC19 {
                         " from \"ehr\".\"entry\"" +
                         " right outer join \"ehr\".\"composition\" as \"composition_join\" on \"composition_join\".\"id\" = \"ehr\".\"entry\".\"composition_id\"" +
                         " right outer join \"ehr\".\"ehr\" as \"ehr_join\" on \"ehr_join\".\"id\" = \"composition_join\".\"ehr_id\"" +
-                        " where (\"ehr\".\"entry\".\"template_id\" = ? and (\"ehr_join\".\"id\"='4a7c01cf-bb1c-4d3d-8385-4ae0674befb1'))";
+                        " where (\"ehr\".\"entry\".\"template_id\" = ? and (\"ehr_join\".\"id\"=?))";
     }
 
     @Test
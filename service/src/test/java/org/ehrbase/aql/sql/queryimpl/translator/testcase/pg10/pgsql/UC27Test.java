@@ -35,7 +35,7 @@ public class UC27Test extends UC27 {
                         "  cast(ehr_join.id as uuid), \n" +
                         "  'local'\n" +
                         ") as jsonb),'folders') as jsonb)) as jsonb),'name','0','value')\n" +
-                        " AS COLUMN) as \"ARRAY\" on 1 = 1 where (\"ehr_join\".\"id\" = 'c2561bab-4d2b-4ffd-a893-4382e9048f8c' and 'case1'IN ( ARRAY.COLUMN ) )";
+                        " AS COLUMN) as \"ARRAY\" on 1 = 1 where (\"ehr_join\".\"id\" = ? and ?IN ( ARRAY.COLUMN ) )";
     }
 
     @Test
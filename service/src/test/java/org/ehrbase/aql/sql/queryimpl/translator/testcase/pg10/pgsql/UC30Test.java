@@ -37,7 +37,7 @@ public class UC30Test extends UC30 {
                         "  cast(ehr_join.id as uuid), \n" +
                         "  'local'\n" +
                         ") as jsonb),'folders') as jsonb)) as jsonb),'name','0','value')\n" +
-                        " AS COLUMN) as \"ARRAY\" on 1 = 1 where (\"ehr_join\".\"id\" = 'c2561bab-4d2b-4ffd-a893-4382e9048f8c' and 'case1' = ALL ( (SELECT ARRAY.COLUMN) ) )";
+                        " AS COLUMN) as \"ARRAY\" on 1 = 1 where (\"ehr_join\".\"id\" = ? and ? = ALL ( (SELECT ARRAY.COLUMN) ) )";
     }
 
     @Test
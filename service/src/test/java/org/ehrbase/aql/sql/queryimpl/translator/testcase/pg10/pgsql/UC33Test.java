@@ -21,6 +21,9 @@ package org.ehrbase.aql.sql.queryimpl.translator.testcase.pg10.pgsql;
 
 import org.ehrbase.aql.sql.queryimpl.QueryImplConstants;
 import org.ehrbase.aql.sql.queryimpl.translator.testcase.UC33;
+import org.jooq.Record;
+import org.jooq.SelectQuery;
+import org.jooq.conf.ParamType;
 import org.junit.Test;
 
 import static org.assertj.core.api.Assertions.assertThat;
@@ -35,11 +38,22 @@ public class UC33Test extends UC33 {
                         "  cast(ehr_join.id as uuid), \n" +
                         "  'local'\n" +
                         ") as jsonb),'folders') as jsonb)) as jsonb),'name','0','value')\n" +
-                        " AS COLUMN) as \"ARRAY\" on 1 = 1 where ('case1'IN ( 'case1','case2' )  and \"ehr_join\".\"id\" = 'c2561bab-4d2b-4ffd-a893-4382e9048f8c')";
+                        " AS COLUMN) as \"ARRAY\" on 1 = 1 where (?IN ( ?,? )  and \"ehr_join\".\"id\" = ?)";
     }
 
     @Test
     public void testIt(){
         assertThat(testAqlSelectQuery()).isTrue();
     }
+
+    @Test
+    public void bindLiterals(){
+        SelectQuery<Record> selectQuery = buildAqlSelectQuery().getSelectQuery();
+
+        assertThat(selectQuery.getBindValues())
+                .containsSubsequence("case1", "case1", "case2", "c2561bab-4d2b-4ffd-a893-4382e9048f8c");
+        // inlined, the literals are rendered as in the AQL
+        assertThat(selectQuery.getSQL(ParamType.INLINED).replaceAll("\\s", ""))
+                .contains("where('case1'IN('case1','case2')and\"ehr_join\".\"id\"='c2561bab-4d2b-4ffd-a893-4382e9048f8c')");
+    }
 }
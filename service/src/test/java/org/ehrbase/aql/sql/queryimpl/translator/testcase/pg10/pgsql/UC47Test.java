@@ -0,0 +1,35 @@
+/*
+ * Copyright (c) 2022 Vitasystems GmbH and Hannover Medical School.
+ *
+ * This file is part of project EHRbase
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.ehrbase.aql.sql.queryimpl.translator.testcase.pg10.pgsql;
+
+import org.ehrbase.aql.sql.queryimpl.translator.testcase.UC47;
+import org.junit.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class UC47Test extends UC47 {
+
+    @Test
+    public void uidFromVersionColumn(){
+        String sql = buildAqlSelectQuery().getSelectQuery().getSQL();
+
+        assertThat(sql).contains("\"composition_join\".\"version\"");
+        assertThat(sql).doesNotContain("composition_history");
+    }
+}
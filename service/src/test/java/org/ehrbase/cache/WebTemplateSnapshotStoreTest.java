@@ -0,0 +1,121 @@
+/*
+ * Copyright 2022 vitasystems GmbH and Hannover Medical School.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.ehrbase.cache;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import org.ehrbase.aql.containment.JsonPathQueryResult;
+import org.ehrbase.aql.containment.TemplateIdQueryTuple;
+import org.ehrbase.aql.sql.queryimpl.ItemInfo;
+import org.ehrbase.test_data.operationaltemplate.OperationalTemplateTestData;
+import org.ehrbase.webtemplate.model.WebTemplate;
+import org.ehrbase.webtemplate.parser.NodeId;
+import org.ehrbase.webtemplate.parser.OPTParser;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.openehr.schemas.v1.TemplateDocument;
+
+public class WebTemplateSnapshotStoreTest {
+
+  @Rule
+  public TemporaryFolder testFolder = new TemporaryFolder();
+
+  @Test
+  public void saveAndLoad() throws Exception {
+    WebTemplateSnapshotStore cut = new WebTemplateSnapshotStore(
+        testFolder.getRoot().getPath() + "/snapshots");
+    WebTemplate webTemplate = new OPTParser(
+        TemplateDocument.Factory.parse(OperationalTemplateTestData.BLOOD_PRESSURE_SIMPLE.getStream())
+            .getTemplate()).parse();
+    TemplateIdQueryTuple key = new TemplateIdQueryTuple(webTemplate.getTemplateId(),
+        List.of(new NodeId("OBSERVATION", "openEHR-EHR-OBSERVATION.sample_blood_pressure.v1")));
+    JsonPathQueryResult result = new JsonPathQueryResult(null, Collections.emptyMap());
+    TemplateIdQueryTuple setKey = new TemplateIdQueryTuple(webTemplate.getTemplateId(),
+        Set.of(new NodeId("COMPOSITION", null)));
+    JsonPathQueryResult setResult = new JsonPathQueryResult(webTemplate.getTemplateId(),
+        Set.of("/content[openEHR-EHR-OBSERVATION.sample_blood_pressure.v1]"));
+
+    UUID uid = UUID.randomUUID();
+    byte[] hash = WebTemplateSnapshotStore.hash("content");
+    cut.save(uid, hash, new WebTemplateSnapshot(webTemplate,
+        Map.of(key, result, setKey, setResult), List.of("/a"),
+        Map.of("/a", new ItemInfo("DV_TEXT", "ELEMENT"), "/b", new ItemInfo(null, null))));
+
+    WebTemplateSnapshot snapshot = cut.load(uid, hash);
+    assertThat(snapshot).isNotNull();
+    assertThat(snapshot.getWebTemplate().getTemplateId()).isEqualTo(webTemplate.getTemplateId());
+    assertThat(snapshot.getWebTemplate().getTree().findMatching(n -> true))
+        .hasSameSizeAs(webTemplate.getTree().findMatching(n -> true));
+    assertThat(snapshot.getWebTemplate()
+        .findByAqlPath("/content[openEHR-EHR-OBSERVATION.sample_blood_pressure.v1]"))
+        .isPresent();
+    assertThat(snapshot.getQueryResults()).containsOnlyKeys(key, setKey);
+    assertThat(snapshot.getQueryResults().get(key).getTemplateId()).isNull();
+    assertThat(snapshot.getQueryResults().get(key).getAqlPath()).isNull();
+    assertThat(snapshot.getQueryResults().get(setKey).getAqlPath())
+        .isEqualTo(setResult.getAqlPath());
+    assertThat(snapshot.getMultiValued()).containsExactly("/a");
+    assertThat(snapshot.getFields()).containsOnlyKeys("/a", "/b");
+    assertThat(snapshot.getFields().get("/a").getItemType()).isEqualTo("DV_TEXT");
+    assertThat(snapshot.getFields().get("/a").getItemCategory()).isEqualTo("ELEMENT");
+    assertThat(snapshot.getFields().get("/b").getItemType()).isNull();
+
+    // changed content
+    assertThat(cut.load(uid, WebTemplateSnapshotStore.hash("other content"))).isNull();
+
+    cut.delete(uid);
+    assertThat(cut.load(uid, hash)).isNull();
+  }
+
+  @Test
+  public void ignoreInvalidSnapshot() throws Exception {
+    WebTemplateSnapshotStore cut = new WebTemplateSnapshotStore(testFolder.getRoot().getPath());
+    UUID uid = UUID.randomUUID();
+    Files.write(testFolder.getRoot().toPath().resolve(uid + ".wts"),
+        "not a snapshot".getBytes(StandardCharsets.UTF_8));
+
+    assertThat(cut.load(uid, WebTemplateSnapshotStore.hash("content"))).isNull();
+  }
+
+  @Test
+  public void ignoreSnapshotOfPreviousLayout() throws Exception {
+    WebTemplateSnapshotStore cut = new WebTemplateSnapshotStore(testFolder.getRoot().getPath());
+    UUID uid = UUID.randomUUID();
+    byte[] hash = WebTemplateSnapshotStore.hash("content");
+    ByteArrayOutputStream content = new ByteArrayOutputStream();
+    try (DataOutputStream out = new DataOutputStream(content)) {
+      // magic and hash without versions, followed by JSON
+      out.writeInt(0x57545332);
+      out.writeInt(hash.length);
+      out.write(hash);
+      out.write("{\"webTemplate\": {}}".getBytes(StandardCharsets.UTF_8));
+    }
+    Files.write(testFolder.getRoot().toPath().resolve(uid + ".wts"), content.toByteArray());
+
+    assertThat(cut.load(uid, hash)).isNull();
+  }
+}
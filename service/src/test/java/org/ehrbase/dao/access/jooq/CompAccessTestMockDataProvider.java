@@ -56,6 +56,15 @@ public MockResult[] execute(MockExecuteContext ctx) throws SQLException {
         mock[0] = new MockResult(1, result2);
         return mock;
         
+    }else if(sql2.toUpperCase().startsWith("SELECT \"EHR\".\"COMPOSITION\".\"VERSION\" FROM \"EHR\".\"COMPOSITION\" WHERE \"EHR\".\"COMPOSITION\".\"ID\"")) {
+    	//current version of 8701233c-c8fd-47ba-91b5-ef9ff23c259b, following its 13 history rows
+    	Result<Record1<Integer>> result2 = create.newResult(COMPOSITION.VERSION);
+    	result2.add(create
+                .newRecord(COMPOSITION.VERSION)
+                .values(14));
+        mock[0] = new MockResult(1, result2);
+        return mock;
+
     }else if(sql2.toUpperCase().startsWith("SELECT MAX(\"EHR\".\"COMPOSITION\".\"SYS_TRANSACTION\") AS \"MOSTRECENTINTABLE\" FROM \"EHR\".\"COMPOSITION\" WHERE \"EHR\".\"COMPOSITION\".\"ID\"")) {
     	System.out.println("SQL2 is: "+sql2.toUpperCase());
     	System.out.println("SELECT MAX  is selected");
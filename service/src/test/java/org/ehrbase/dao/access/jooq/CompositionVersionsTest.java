@@ -0,0 +1,250 @@
+/*
+ * Copyright (c) 2022 Vitasystems GmbH and Hannover Medical School.
+ *
+ * This file is part of project EHRbase
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.ehrbase.dao.access.jooq;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.ehrbase.jooq.pg.Tables.AUDIT_DETAILS;
+import static org.ehrbase.jooq.pg.Tables.COMPOSITION;
+import static org.ehrbase.jooq.pg.Tables.COMPOSITION_HISTORY;
+
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.SortedMap;
+import java.util.UUID;
+import org.ehrbase.api.exception.InternalServerException;
+import org.ehrbase.dao.access.interfaces.I_CompositionAccess;
+import org.ehrbase.dao.access.interfaces.I_DomainAccess;
+import org.ehrbase.dao.access.support.DummyDataAccess;
+import org.ehrbase.dao.jooq.impl.DSLContextHelper;
+import org.ehrbase.jooq.pg.enums.ContributionChangeType;
+import org.ehrbase.service.KnowledgeCacheHelper;
+import org.jooq.DSLContext;
+import org.jooq.Field;
+import org.jooq.Record;
+import org.jooq.Result;
+import org.jooq.impl.DSL;
+import org.jooq.tools.jdbc.MockDataProvider;
+import org.jooq.tools.jdbc.MockResult;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Retrieval of several versions of a composition, see
+ * {@link CompositionAccess#retrieveCompositionVersions} and
+ * {@link CompositionAccess#getVersionMapOfComposition}.
+ */
+public class CompositionVersionsTest {
+
+    private static final Field<Integer> HISTORY_VERSION =
+            DSL.field(DSL.name("history_version"), Integer.class);
+
+    private final DSLContext create = DSLContextHelper.buildContext();
+
+    // the rows of the history and the current row of each composition, by composition id
+    private final Map<UUID, List<Record>> history = new HashMap<>();
+    private final Map<UUID, Record> current = new HashMap<>();
+
+    private final List<String> queries = new ArrayList<>();
+
+    private I_DomainAccess domainAccess;
+
+    @Before
+    public void setUp() {
+        MockDataProvider provider = ctx -> {
+            String sql = ctx.sql().toLowerCase();
+            queries.add(sql);
+            UUID id = Arrays.stream(ctx.bindings())
+                    .filter(UUID.class::isInstance)
+                    .map(UUID.class::cast)
+                    .findFirst()
+                    .orElseThrow();
+            if (sql.contains("\"history_version\"")) {
+                // bound as id, first and last version
+                int from = (Integer) ctx.bindings()[1];
+                int to = (Integer) ctx.bindings()[2];
+                Result<Record> result = create.newResult(historyFields());
+                history.getOrDefault(id, List.of()).stream()
+                        .filter(r -> r.get(HISTORY_VERSION) >= from && r.get(HISTORY_VERSION) <= to)
+                        .forEach(result::add);
+                return new MockResult[]{new MockResult(result.size(), result)};
+            }
+            if (sql.contains("from \"ehr\".\"composition\" left outer join \"ehr\".\"audit_details\"")) {
+                Result<Record> result = create.newResult(currentFields());
+                if (current.containsKey(id)) {
+                    result.add(current.get(id));
+                }
+                return new MockResult[]{new MockResult(result.size(), result)};
+            }
+            throw new AssertionError("Unexpected query " + ctx.sql());
+        };
+        domainAccess = new DummyDataAccess(DSLContextHelper.buildContext(provider), null, null,
+                KnowledgeCacheHelper.buildServerConfig());
+    }
+
+    @Test
+    public void retrieveAllVersionsWithoutTheirContent() {
+        UUID id = UUID.randomUUID();
+        addHistory(id, 1, ContributionChangeType.creation);
+        addHistory(id, 2, ContributionChangeType.modification);
+        setCurrent(id, 3, ContributionChangeType.modification);
+
+        SortedMap<Integer, I_CompositionAccess> versions =
+                CompositionAccess.retrieveCompositionVersions(domainAccess, id, 1, Integer.MAX_VALUE);
+
+        assertThat(versions).containsOnlyKeys(1, 2, 3);
+        assertThat(versions.get(1).getAuditDetailsAccess().getChangeType())
+                .isEqualTo(ContributionChangeType.creation);
+        assertThat(versions.get(3).getSysTransaction()).isEqualTo(timestamp(3));
+        assertThat(versions.values()).allSatisfy(v -> assertThat(v.getContent()).isEmpty());
+        // one query for the history and one for the current version, no entry or context lookups
+        assertThat(queries).hasSize(2);
+    }
+
+    @Test
+    public void retrieveARangeOfVersions() {
+        UUID id = UUID.randomUUID();
+        addHistory(id, 1, ContributionChangeType.creation);
+        addHistory(id, 2, ContributionChangeType.modification);
+        setCurrent(id, 3, ContributionChangeType.modification);
+
+        assertThat(CompositionAccess.retrieveCompositionVersions(domainAccess, id, 2, 2))
+                .containsOnlyKeys(2);
+    }
+
+    @Test
+    public void leaveOutTheDeletion() {
+        UUID id = UUID.randomUUID();
+        addHistory(id, 1, ContributionChangeType.creation);
+        addHistory(id, 2, ContributionChangeType.modification);
+        addHistory(id, 3, ContributionChangeType.deleted);
+
+        assertThat(CompositionAccess.retrieveCompositionVersions(domainAccess, id, 1, Integer.MAX_VALUE))
+                .containsOnlyKeys(1, 2);
+    }
+
+    @Test
+    public void versionMapOfADeletedComposition() {
+        UUID id = UUID.randomUUID();
+        addHistory(id, 1, ContributionChangeType.creation);
+        addHistory(id, 2, ContributionChangeType.deleted);
+
+        Map<Integer, I_CompositionAccess> versionMap =
+                CompositionAccess.getVersionMapOfComposition(domainAccess, id);
+
+        assertThat(versionMap).containsOnlyKeys(1, 2);
+        assertThat(versionMap.get(2).getAuditDetailsAccess().getChangeType())
+                .isEqualTo(ContributionChangeType.deleted);
+    }
+
+    @Test
+    public void versionMapOfAnUpdatedComposition() {
+        UUID id = UUID.randomUUID();
+        addHistory(id, 1, ContributionChangeType.creation);
+        addHistory(id, 2, ContributionChangeType.modification);
+        setCurrent(id, 3, ContributionChangeType.modification);
+
+        Map<Integer, I_CompositionAccess> versionMap =
+                CompositionAccess.getVersionMapOfComposition(domainAccess, id);
+
+        assertThat(versionMap).containsOnlyKeys(1, 2, 3);
+        assertThat(versionMap.get(1).getSysTransaction()).isEqualTo(timestamp(1));
+        assertThat(versionMap.get(3).getSysTransaction()).isEqualTo(timestamp(3));
+    }
+
+    @Test
+    public void rejectAnInconsistentVersionMap() {
+        UUID id = UUID.randomUUID();
+        addHistory(id, 1, ContributionChangeType.creation);
+        // version 2 is missing in the history
+        setCurrent(id, 3, ContributionChangeType.modification);
+
+        assertThatThrownBy(() -> CompositionAccess.getVersionMapOfComposition(domainAccess, id))
+                .isInstanceOf(InternalServerException.class)
+                .hasMessage("Version Map generation failed");
+    }
+
+    @Test
+    public void rejectAVersionNumberNotMatchingTheHistory() {
+        UUID id = UUID.randomUUID();
+        addHistory(id, 1, ContributionChangeType.creation);
+        addHistory(id, 2, ContributionChangeType.modification);
+        // the current version must follow the history
+        setCurrent(id, 2, ContributionChangeType.modification);
+
+        assertThatThrownBy(() -> CompositionAccess.getVersionMapOfComposition(domainAccess, id))
+                .isInstanceOf(InternalServerException.class)
+                .hasMessage("Version Map generation failed");
+    }
+
+    private void addHistory(UUID id, int version, ContributionChangeType changeType) {
+        Record record = create.newRecord(historyFields());
+        record.set(HISTORY_VERSION, history.computeIfAbsent(id, k -> new ArrayList<>()).size() + 1);
+        record.set(COMPOSITION_HISTORY.ID, id);
+        record.set(COMPOSITION_HISTORY.EHR_ID, UUID.randomUUID());
+        record.set(COMPOSITION_HISTORY.IN_CONTRIBUTION, UUID.randomUUID());
+        record.set(COMPOSITION_HISTORY.SYS_TRANSACTION, timestamp(version));
+        record.set(COMPOSITION_HISTORY.VERSION, version);
+        setAudit(record, COMPOSITION_HISTORY.HAS_AUDIT, changeType);
+        history.get(id).add(record);
+    }
+
+    private void setCurrent(UUID id, int version, ContributionChangeType changeType) {
+        Record record = create.newRecord(currentFields());
+        record.set(COMPOSITION.ID, id);
+        record.set(COMPOSITION.EHR_ID, UUID.randomUUID());
+        record.set(COMPOSITION.IN_CONTRIBUTION, UUID.randomUUID());
+        record.set(COMPOSITION.SYS_TRANSACTION, timestamp(version));
+        record.set(COMPOSITION.VERSION, version);
+        setAudit(record, COMPOSITION.HAS_AUDIT, changeType);
+        current.put(id, record);
+    }
+
+    private static void setAudit(Record record, Field<UUID> hasAudit,
+            ContributionChangeType changeType) {
+        UUID auditId = UUID.randomUUID();
+        record.set(hasAudit, auditId);
+        record.set(AUDIT_DETAILS.ID, auditId);
+        record.set(AUDIT_DETAILS.SYSTEM_ID, UUID.randomUUID());
+        record.set(AUDIT_DETAILS.COMMITTER, UUID.randomUUID());
+        record.set(AUDIT_DETAILS.CHANGE_TYPE, changeType);
+    }
+
+    private static Timestamp timestamp(int version) {
+        return new Timestamp(1_600_000_000_000L + version * 1000L);
+    }
+
+    private static Field<?>[] historyFields() {
+        List<Field<?>> fields = new ArrayList<>();
+        fields.add(HISTORY_VERSION);
+        fields.addAll(Arrays.asList(COMPOSITION_HISTORY.fields()));
+        fields.addAll(Arrays.asList(AUDIT_DETAILS.fields()));
+        return fields.toArray(Field[]::new);
+    }
+
+    private static Field<?>[] currentFields() {
+        List<Field<?>> fields = new ArrayList<>(Arrays.asList(COMPOSITION.fields()));
+        fields.addAll(Arrays.asList(AUDIT_DETAILS.fields()));
+        return fields.toArray(Field[]::new);
+    }
+}
@@ -0,0 +1,138 @@
+/*
+ * Copyright (c) 2022 Vitasystems GmbH and Hannover Medical School.
+ *
+ * This file is part of project EHRbase
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.ehrbase.dao.access.jooq;
+
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+import org.ehrbase.jooq.pg.tables.records.FolderItemsRecord;
+import org.ehrbase.jooq.pg.tables.records.ObjectRefRecord;
+import org.jooq.DSLContext;
+import org.jooq.SQLDialect;
+import org.jooq.impl.DSL;
+import org.jooq.tools.jdbc.MockConnection;
+import org.jooq.tools.jdbc.MockResult;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Compares storing the items of a folder one record at a time, as done before {@link FolderRows},
+ * with the batched inserts of {@link FolderRows}.
+ * <p>
+ * The DB is simulated by a mock connection that waits <code>roundTripMicros</code> for each
+ * statement or batch sent, so the result shows the cost of the round trips rather than the
+ * rendering and binding of the statements.
+ * <p>
+ * Run with: <code>mvn -pl service test-compile exec:java -Dexec.classpathScope=test
+ * -Dexec.mainClass=org.ehrbase.dao.access.jooq.FolderItemsBenchmark</code>
+ * </p>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+public class FolderItemsBenchmark {
+
+  private static final Timestamp NOW = new Timestamp(System.currentTimeMillis());
+
+  @Param({"10000"})
+  public int items;
+
+  /**
+   * simulated network round trip to the DB
+   */
+  @Param({"0", "200"})
+  public long roundTripMicros;
+
+  private DSLContext context;
+
+  private final UUID folderId = UUID.randomUUID();
+  private final UUID contribution = UUID.randomUUID();
+  private final List<UUID> compositionIds = new ArrayList<>();
+
+  @Setup
+  public void setup() {
+    long roundTripNanos = TimeUnit.MICROSECONDS.toNanos(roundTripMicros);
+    context = DSL.using(new MockConnection(ctx -> {
+      if (roundTripNanos > 0) {
+        LockSupport.parkNanos(roundTripNanos);
+      }
+      MockResult[] results = new MockResult[Math.max(1, ctx.batchBindings().length)];
+      Arrays.fill(results, new MockResult(1));
+      return results;
+    }), SQLDialect.POSTGRES);
+
+    for (int i = 0; i < items; i++) {
+      compositionIds.add(UUID.randomUUID());
+    }
+  }
+
+  @Benchmark
+  public int storeOneByOne() {
+    for (UUID compositionId : compositionIds) {
+      ObjectRefRecord orr = new ObjectRefRecord("local", "COMPOSITION", compositionId,
+          contribution, NOW, null);
+      context.attach(orr);
+      orr.store();
+
+      FolderItemsRecord fir = new FolderItemsRecord(folderId, compositionId, contribution, NOW,
+          null);
+      context.attach(fir);
+      fir.store();
+    }
+    return compositionIds.size();
+  }
+
+  @Benchmark
+  public int batchInsert() {
+    FolderRows rows = new FolderRows();
+    for (UUID compositionId : compositionIds) {
+      rows.addItem(
+          new ObjectRefRecord("local", "COMPOSITION", compositionId, contribution, NOW, null),
+          new FolderItemsRecord(folderId, compositionId, contribution, NOW, null));
+    }
+    rows.insert(context);
+    return rows.size();
+  }
+
+  public static void main(String[] args) throws RunnerException {
+    new Runner(new OptionsBuilder()
+        .include(FolderItemsBenchmark.class.getSimpleName())
+        .build())
+        .run();
+  }
+}
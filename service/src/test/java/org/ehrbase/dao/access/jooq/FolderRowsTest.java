@@ -0,0 +1,107 @@
+/*
+ * Copyright (c) 2022 Vitasystems GmbH and Hannover Medical School.
+ *
+ * This file is part of project EHRbase
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.ehrbase.dao.access.jooq;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.UUID;
+import org.ehrbase.api.exception.InternalServerException;
+import org.ehrbase.jooq.pg.tables.records.FolderHierarchyRecord;
+import org.ehrbase.jooq.pg.tables.records.FolderItemsRecord;
+import org.ehrbase.jooq.pg.tables.records.ObjectRefRecord;
+import org.jooq.DSLContext;
+import org.jooq.SQLDialect;
+import org.jooq.impl.DSL;
+import org.jooq.tools.jdbc.MockConnection;
+import org.jooq.tools.jdbc.MockResult;
+import org.junit.Test;
+
+public class FolderRowsTest {
+
+  private static final Timestamp NOW = new Timestamp(System.currentTimeMillis());
+
+  /**
+   * SQL and number of rows of each execution
+   */
+  private final List<String> executions = new ArrayList<>();
+
+  private int affectedRows = 1;
+
+  private DSLContext context() {
+    return DSL.using(new MockConnection(ctx -> {
+      int rows = Math.max(1, ctx.batchBindings().length);
+      executions.add(ctx.sql().substring(0, ctx.sql().indexOf(" (")) + " x" + rows);
+      MockResult[] results = new MockResult[rows];
+      Arrays.fill(results, new MockResult(affectedRows));
+      return results;
+    }), SQLDialect.POSTGRES);
+  }
+
+  private static FolderRows rows(int items) {
+    FolderRows rows = new FolderRows();
+    UUID folderId = UUID.randomUUID();
+    UUID contribution = UUID.randomUUID();
+    for (int i = 0; i < items; i++) {
+      UUID compositionId = UUID.randomUUID();
+      rows.addItem(
+          new ObjectRefRecord("local", "COMPOSITION", compositionId, contribution, NOW, null),
+          new FolderItemsRecord(folderId, compositionId, contribution, NOW, null));
+    }
+    FolderHierarchyRecord hierarchy = new FolderHierarchyRecord();
+    hierarchy.setParentFolder(folderId);
+    hierarchy.setChildFolder(UUID.randomUUID());
+    hierarchy.setInContribution(contribution);
+    hierarchy.setSysTransaction(NOW);
+    rows.addHierarchy(hierarchy);
+    return rows;
+  }
+
+  @Test
+  public void insertOneBatchPerTable() {
+    FolderRows rows = rows(1000);
+
+    rows.insert(context());
+
+    assertThat(rows.size()).isEqualTo(2001);
+    assertThat(executions).containsExactly(
+        "insert into \"ehr\".\"object_ref\" x1000",
+        "insert into \"ehr\".\"folder_items\" x1000",
+        "insert into \"ehr\".\"folder_hierarchy\" x1");
+  }
+
+  @Test
+  public void nothingToInsert() {
+    new FolderRows().insert(context());
+
+    assertThat(executions).isEmpty();
+  }
+
+  @Test
+  public void failWhenNotInserted() {
+    affectedRows = 0;
+
+    assertThatThrownBy(() -> rows(2).insert(context()))
+        .isInstanceOf(InternalServerException.class);
+  }
+}
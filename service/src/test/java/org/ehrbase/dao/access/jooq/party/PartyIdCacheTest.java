@@ -0,0 +1,109 @@
+/*
+ * Copyright (c) 2022 Vitasystems GmbH and Hannover Medical School.
+ *
+ * This file is part of project EHRbase
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.ehrbase.dao.access.jooq.party;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.ehrbase.cache.CacheOptions;
+import org.junit.After;
+import org.junit.Test;
+import org.springframework.cache.concurrent.ConcurrentMapCacheManager;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+public class PartyIdCacheTest {
+
+    private final PartyIdCache cut = new PartyIdCache(new ConcurrentMapCacheManager(CacheOptions.PARTY_ID_CACHE));
+
+    @After
+    public void tearDown() {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+    }
+
+    @Test
+    public void loadsOnlyOnce() {
+        UUID id = UUID.randomUUID();
+        AtomicInteger loads = new AtomicInteger();
+
+        assertThat(cut.getOrCreate(null, "user:a", () -> {
+            loads.incrementAndGet();
+            return id;
+        })).isEqualTo(id);
+        assertThat(cut.getOrCreate(null, "user:a", () -> {
+            loads.incrementAndGet();
+            return UUID.randomUUID();
+        })).isEqualTo(id);
+
+        assertThat(loads).hasValue(1);
+    }
+
+    @Test
+    public void publishesAfterCommit() {
+        UUID id = UUID.randomUUID();
+        TransactionSynchronizationManager.initSynchronization();
+
+        assertThat(cut.getOrCreate(null, "user:b", () -> id)).isEqualTo(id);
+        assertThat(cut.get("user:b")).isNull();
+
+        TransactionSynchronizationManager.getSynchronizations().forEach(TransactionSynchronization::afterCommit);
+        assertThat(cut.get("user:b")).isEqualTo(id);
+    }
+
+    @Test
+    public void discardsOnRollback() {
+        TransactionSynchronizationManager.initSynchronization();
+
+        cut.getOrCreate(null, "user:c", UUID::randomUUID);
+        TransactionSynchronizationManager.getSynchronizations()
+                .forEach(s -> s.afterCompletion(TransactionSynchronization.STATUS_ROLLED_BACK));
+
+        assertThat(cut.get("user:c")).isNull();
+    }
+
+    @Test
+    public void disabled() {
+        PartyIdCache disabled = new PartyIdCache(new ConcurrentMapCacheManager("other"));
+        AtomicInteger loads = new AtomicInteger();
+
+        disabled.getOrCreate(null, "user:d", () -> {
+            loads.incrementAndGet();
+            return UUID.randomUUID();
+        });
+        disabled.getOrCreate(null, "user:d", () -> {
+            loads.incrementAndGet();
+            return UUID.randomUUID();
+        });
+
+        assertThat(loads).hasValue(2);
+        assertThat(PartyIdCache.DISABLED.getOrCreate(null, "user:d", UUID::randomUUID)).isNotNull();
+    }
+
+    @Test
+    public void clear() {
+        cut.getOrCreate(null, "system:local", UUID::randomUUID);
+
+        cut.clear();
+
+        assertThat(cut.get("system:local")).isNull();
+    }
+}
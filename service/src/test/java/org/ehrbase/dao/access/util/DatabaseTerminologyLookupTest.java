@@ -0,0 +1,99 @@
+/*
+ * Copyright (c) 2022 Vitasystems GmbH and Hannover Medical School.
+ *
+ * This file is part of project EHRbase
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.ehrbase.dao.access.util;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.ehrbase.jooq.pg.Tables.CONCEPT;
+import static org.ehrbase.jooq.pg.Tables.TERRITORY;
+
+import java.util.UUID;
+import org.ehrbase.jooq.pg.tables.records.ConceptRecord;
+import org.ehrbase.jooq.pg.tables.records.TerritoryRecord;
+import org.jooq.DSLContext;
+import org.jooq.SQLDialect;
+import org.jooq.impl.DSL;
+import org.jooq.tools.jdbc.MockConnection;
+import org.jooq.tools.jdbc.MockResult;
+import org.junit.Test;
+
+public class DatabaseTerminologyLookupTest {
+
+  private static final UUID ACTIVE = UUID.randomUUID();
+
+  private final DSLContext create = DSL.using(SQLDialect.POSTGRES);
+
+  /**
+   * @param found whether the DB holds the looked up row
+   */
+  private TerminologyLookup lookup(boolean found) {
+    return TerminologyLookup.fromDatabase(DSL.using(new MockConnection(ctx -> {
+      String sql = ctx.sql().toLowerCase();
+      if (sql.contains("\"concept\"")) {
+        var result = create.newResult(CONCEPT);
+        if (found) {
+          ConceptRecord concept = create.newRecord(CONCEPT);
+          concept.setId(ACTIVE);
+          concept.setConceptid(245);
+          concept.setLanguage("en");
+          concept.setDescription("active");
+          result.add(concept);
+        }
+        return new MockResult[]{new MockResult(result.size(), result)};
+      } else if (sql.contains("\"territory\"")) {
+        var result = create.newResult(TERRITORY);
+        if (found) {
+          TerritoryRecord territory = create.newRecord(TERRITORY);
+          territory.setCode(276);
+          territory.setTwoletter("DE");
+          result.add(territory);
+        }
+        return new MockResult[]{new MockResult(result.size(), result)};
+      } else {
+        var exists = DSL.field("exists", Boolean.class);
+        var result = create.newResult(exists);
+        result.add(create.newRecord(exists).values(found));
+        return new MockResult[]{new MockResult(1, result)};
+      }
+    }), SQLDialect.POSTGRES));
+  }
+
+  @Test
+  public void found() {
+    TerminologyLookup cut = lookup(true);
+
+    assertThat(cut.conceptUuid(245, "en")).isEqualTo(ACTIVE);
+    assertThat(cut.conceptDescription(245, "en")).isEqualTo("active");
+    assertThat(cut.concept(ACTIVE).getConceptId()).isEqualTo(245);
+    assertThat(cut.territoryCode("DE")).isEqualTo(276);
+    assertThat(cut.territoryTwoLetter(276)).isEqualTo("DE");
+    assertThat(cut.isValidLanguageCode("en")).isTrue();
+  }
+
+  @Test
+  public void notFound() {
+    TerminologyLookup cut = lookup(false);
+
+    assertThat(cut.conceptUuid(250, "en")).isNull();
+    assertThat(cut.conceptDescription(250, "en")).isNull();
+    assertThat(cut.concept(UUID.randomUUID())).isNull();
+    assertThat(cut.territoryCode("XX")).isEqualTo(-1);
+    assertThat(cut.territoryTwoLetter(41)).isNull();
+    assertThat(cut.isValidLanguageCode("xx")).isFalse();
+  }
+}
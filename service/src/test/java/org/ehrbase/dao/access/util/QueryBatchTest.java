@@ -0,0 +1,127 @@
+/*
+ * Copyright (c) 2022 Vitasystems GmbH and Hannover Medical School.
+ *
+ * This file is part of project EHRbase
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.ehrbase.dao.access.util;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.ehrbase.jooq.pg.Tables.AUDIT_DETAILS;
+import static org.ehrbase.jooq.pg.Tables.ENTRY;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.UUID;
+import org.ehrbase.dao.jooq.impl.DSLContextHelper;
+import org.jooq.DSLContext;
+import org.jooq.JSONB;
+import org.jooq.Query;
+import org.jooq.tools.jdbc.MockResult;
+import org.junit.Before;
+import org.junit.Test;
+
+public class QueryBatchTest {
+
+    // the SQL and the bind values of each round trip
+    private final List<String> sql = new ArrayList<>();
+    private final List<Object[]> bindings = new ArrayList<>();
+
+    private int affectedRows = 1;
+
+    private DSLContext context;
+
+    @Before
+    public void setUp() {
+        context = DSLContextHelper.buildContext(ctx -> {
+            sql.add(ctx.sql());
+            bindings.add(ctx.bindings());
+
+            // an update count for each statement
+            MockResult[] results = new MockResult[ctx.sql().split(";").length];
+            Arrays.fill(results, new MockResult(affectedRows, null));
+            return results;
+        });
+    }
+
+    @Test
+    public void bindTheValuesOfTheStatements() {
+        QueryBatch batch = new QueryBatch(List.of(
+                insertEntry("{\"a\": 1}"),
+                insertEntry("{\"b\": 2}"),
+                insertEntry("{\"c\": 3}")));
+
+        assertThat(batch.execute(context)).isTrue();
+
+        assertThat(batch.size()).isEqualTo(3);
+        assertThat(batch.roundTrips()).isEqualTo(1);
+        assertThat(sql).hasSize(1);
+        // the JSONB is bound, not inlined into the SQL
+        assertThat(sql.get(0)).doesNotContain("\"a\"").contains("?");
+        assertThat(Arrays.deepToString(bindings.get(0)))
+                .contains("{\"a\": 1}", "{\"b\": 2}", "{\"c\": 3}");
+    }
+
+    @Test
+    public void sendAllStatementsInOneRoundTripInTheirOrder() {
+        QueryBatch batch = new QueryBatch(List.of(
+                insertAudit("first"),
+                insertEntry("{}"),
+                insertEntry("{}"),
+                insertAudit("last")));
+
+        assertThat(batch.execute(context)).isTrue();
+
+        assertThat(batch.roundTrips()).isEqualTo(1);
+        assertThat(sql).hasSize(1);
+        String[] statements = sql.get(0).split(";");
+        assertThat(statements).hasSize(4);
+        assertThat(statements[0]).contains("\"audit_details\"");
+        assertThat(statements[1]).contains("\"entry\"");
+        assertThat(statements[2]).contains("\"entry\"");
+        assertThat(statements[3]).contains("\"audit_details\"");
+        assertThat(bindings.get(0)).hasSize(8);
+        assertThat(bindings.get(0)[1]).isEqualTo("first");
+        assertThat(bindings.get(0)[7]).isEqualTo("last");
+    }
+
+    @Test
+    public void reportAStatementWithoutAffectedRows() {
+        affectedRows = 0;
+
+        assertThat(new QueryBatch(List.of(insertAudit("a"), insertAudit("b"))).execute(context))
+                .isFalse();
+    }
+
+    @Test
+    public void skipAnEmptyBatch() {
+        QueryBatch batch = new QueryBatch(List.of());
+
+        assertThat(batch.execute(context)).isTrue();
+        assertThat(batch.roundTrips()).isZero();
+        assertThat(sql).isEmpty();
+    }
+
+    private Query insertEntry(String json) {
+        return context.insertInto(ENTRY, ENTRY.ID, ENTRY.ENTRY_)
+                .values(UUID.randomUUID(), JSONB.valueOf(json));
+    }
+
+    private Query insertAudit(String description) {
+        return context.insertInto(AUDIT_DETAILS, AUDIT_DETAILS.ID, AUDIT_DETAILS.DESCRIPTION)
+                .values(UUID.randomUUID(), description);
+    }
+}
@@ -0,0 +1,115 @@
+/*
+ * Copyright (c) 2022 Vitasystems GmbH and Hannover Medical School.
+ *
+ * This file is part of project EHRbase
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.ehrbase.dao.access.util;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.ehrbase.jooq.pg.Tables.CONCEPT;
+import static org.ehrbase.jooq.pg.Tables.LANGUAGE;
+import static org.ehrbase.jooq.pg.Tables.TERRITORY;
+
+import java.util.UUID;
+import org.ehrbase.jooq.pg.tables.records.ConceptRecord;
+import org.ehrbase.jooq.pg.tables.records.TerritoryRecord;
+import org.jooq.DSLContext;
+import org.jooq.SQLDialect;
+import org.jooq.impl.DSL;
+import org.jooq.tools.jdbc.MockConnection;
+import org.jooq.tools.jdbc.MockResult;
+import org.junit.Before;
+import org.junit.Test;
+
+public class TerminologyTablesTest {
+
+  private static final UUID CREATION = UUID.randomUUID();
+  private static final UUID CREATION_DE = UUID.randomUUID();
+  private static final UUID ACTIVE = UUID.randomUUID();
+
+  private TerminologyTables cut;
+
+  @Before
+  public void setUp() {
+    DSLContext create = DSL.using(SQLDialect.POSTGRES);
+    DSLContext context = DSL.using(new MockConnection(ctx -> {
+      String sql = ctx.sql().toLowerCase();
+      if (sql.contains("\"concept\"")) {
+        var result = create.newResult(CONCEPT);
+        result.add(concept(create, CREATION, 249, "en", "creation"));
+        result.add(concept(create, CREATION_DE, 249, "de", "Erstellung"));
+        result.add(concept(create, ACTIVE, 245, "en", "active"));
+        return new MockResult[]{new MockResult(result.size(), result)};
+      } else if (sql.contains("\"territory\"")) {
+        var result = create.newResult(TERRITORY);
+        result.add(territory(create, 276, "DE"));
+        result.add(territory(create, 40, "AT"));
+        return new MockResult[]{new MockResult(result.size(), result)};
+      } else {
+        var result = create.newResult(LANGUAGE.CODE);
+        result.add(create.newRecord(LANGUAGE.CODE).values("en"));
+        result.add(create.newRecord(LANGUAGE.CODE).values("de"));
+        return new MockResult[]{new MockResult(result.size(), result)};
+      }
+    }), SQLDialect.POSTGRES);
+
+    cut = TerminologyTables.load(context);
+  }
+
+  private static ConceptRecord concept(
+      DSLContext create, UUID id, int conceptId, String language, String description) {
+    ConceptRecord concept = create.newRecord(CONCEPT);
+    concept.setId(id);
+    concept.setConceptid(conceptId);
+    concept.setLanguage(language);
+    concept.setDescription(description);
+    return concept;
+  }
+
+  private static TerritoryRecord territory(DSLContext create, int code, String twoLetter) {
+    TerritoryRecord territory = create.newRecord(TERRITORY);
+    territory.setCode(code);
+    territory.setTwoletter(twoLetter);
+    return territory;
+  }
+
+  @Test
+  public void concepts() {
+    assertThat(cut.conceptUuid(249, "en")).isEqualTo(CREATION);
+    assertThat(cut.conceptUuid(249, "de")).isEqualTo(CREATION_DE);
+    assertThat(cut.conceptUuid(245, "en")).isEqualTo(ACTIVE);
+    assertThat(cut.conceptUuid(250, "en")).isNull();
+    assertThat(cut.conceptUuid(249, "fr")).isNull();
+
+    assertThat(cut.conceptDescription(249, "de")).isEqualTo("Erstellung");
+    assertThat(cut.concept(ACTIVE).getConceptId()).isEqualTo(245);
+    assertThat(cut.concept(ACTIVE).getDescription()).isEqualTo("active");
+  }
+
+  @Test
+  public void territories() {
+    assertThat(cut.territoryCode("DE")).isEqualTo(276);
+    assertThat(cut.territoryCode("XX")).isEqualTo(-1);
+    assertThat(cut.territoryTwoLetter(40)).isEqualTo("AT");
+    assertThat(cut.territoryTwoLetter(41)).isNull();
+  }
+
+  @Test
+  public void languages() {
+    assertThat(cut.isValidLanguageCode("de")).isTrue();
+    assertThat(cut.isValidLanguageCode("xx")).isFalse();
+  }
+}
@@ -0,0 +1,125 @@
+/*
+ * Copyright (c) 2022 Vitasystems GmbH and Hannover Medical School.
+ *
+ * This file is part of project EHRbase
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.ehrbase.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.Mockito.mock;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+import org.ehrbase.aql.sql.AqlQueryPlan;
+import org.ehrbase.cache.CacheOptions;
+import org.junit.Test;
+import org.springframework.cache.concurrent.ConcurrentMapCacheManager;
+
+public class AqlPlanCacheTest {
+
+  private final ConcurrentMapCacheManager cacheManager =
+      new ConcurrentMapCacheManager(CacheOptions.AQL_PLAN_CACHE);
+
+  private final AqlPlanCache cut = new AqlPlanCache(cacheManager);
+
+  private final AtomicInteger compilations = new AtomicInteger();
+
+  private Supplier<AqlQueryPlan> compiler() {
+    return () -> {
+      compilations.incrementAndGet();
+      return mock(AqlQueryPlan.class);
+    };
+  }
+
+  @Test
+  public void normalize() {
+    assertThat(AqlPlanCache.normalize("  select e/ehr_id/value\n from   EHR e "))
+        .isEqualTo("select e/ehr_id/value from EHR e");
+    assertThat(AqlPlanCache.normalize("select c from COMPOSITION c where c/name/value = 'a  b'"))
+        .isEqualTo("select c from COMPOSITION c where c/name/value = 'a  b'");
+  }
+
+  @Test
+  public void shareThePlanOfQueriesDifferingByLayout() {
+    AqlQueryPlan first = cut.get("select e from EHR e", 0, compiler());
+    AqlQueryPlan second = cut.get("select e\n from EHR e", 0, compiler());
+
+    assertThat(second).isSameAs(first);
+    assertThat(compilations).hasValue(1);
+  }
+
+  @Test
+  public void compileAgainWhenTheTemplatesChange() {
+    AqlQueryPlan first = cut.get("select e from EHR e", 0, compiler());
+    AqlQueryPlan second = cut.get("select e from EHR e", 1, compiler());
+
+    assertThat(second).isNotSameAs(first);
+    assertThat(compilations).hasValue(2);
+  }
+
+  @Test
+  public void keepThePlansOfEachParameterSignatureApart() {
+    String aql = "select e from EHR e where e/ehr_id/value = $ehr_id";
+    AqlQueryPlan string = cut.get(aql, "ehr_id:String;", 0, compiler());
+    AqlQueryPlan number = cut.get(aql, "ehr_id:Long;", 0, compiler());
+
+    assertThat(number).isNotSameAs(string);
+    assertThat(cut.get(aql, "ehr_id:String;", 0, compiler())).isSameAs(string);
+    assertThat(compilations).hasValue(2);
+  }
+
+  @Test
+  public void doNotCacheTerminology() {
+    String aql =
+        "select e from EHR e contains COMPOSITION c where c/name/value matches "
+            + "{TERMINOLOGY('expand', 'hl7.org/fhir/4.0', 'url=http://x')}";
+
+    cut.get(aql, 0, compiler());
+    cut.get(aql, 0, compiler());
+
+    assertThat(compilations).hasValue(2);
+  }
+
+  @Test
+  public void propagateCompilationErrors() {
+    Supplier<AqlQueryPlan> failing = () -> {
+      throw new IllegalArgumentException("Invalid AQL");
+    };
+
+    assertThatThrownBy(() -> cut.get("select x from", 0, failing))
+        .isExactlyInstanceOf(IllegalArgumentException.class)
+        .hasMessage("Invalid AQL");
+    // the failure is not cached
+    cut.get("select x from", 0, compiler());
+    assertThat(compilations).hasValue(1);
+  }
+
+  @Test
+  public void keepPinnedPlansApart() {
+    cut.pin("select a\n from EHR a");
+    AqlQueryPlan pinned = cut.get("select a from EHR a", 0, compiler());
+    cacheManager.getCache(CacheOptions.AQL_PLAN_CACHE).clear();
+
+    assertThat(cut.get("select a from EHR a", 0, compiler())).isSameAs(pinned);
+    assertThat(cut.get("select a from EHR a", 1, compiler())).isNotSameAs(pinned);
+    assertThat(compilations).hasValue(2);
+
+    cut.unpin("select a from EHR a");
+    cut.get("select a from EHR a", 1, compiler());
+    assertThat(compilations).hasValue(3);
+  }
+}
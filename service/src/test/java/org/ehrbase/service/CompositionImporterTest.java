@@ -0,0 +1,196 @@
+/*
+ * Copyright (c) 2022 Vitasystems GmbH and Hannover Medical School.
+ *
+ * This file is part of project EHRbase
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.ehrbase.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.nedap.archie.json.JacksonUtil;
+import com.nedap.archie.rm.composition.Composition;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+import org.ehrbase.api.dto.CompositionImportResult;
+import org.ehrbase.api.exception.InvalidApiParameterException;
+import org.ehrbase.test_data.composition.CompositionTestDataCanonicalJson;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.transaction.support.TransactionCallback;
+import org.springframework.transaction.support.TransactionOperations;
+
+public class CompositionImporterTest {
+
+  private static final String BROKEN = "broken";
+
+  private final ExecutorService executor = Executors.newFixedThreadPool(4);
+
+  private final List<UUID> stored = new ArrayList<>();
+
+  private final AtomicInteger transactions = new AtomicInteger();
+
+  private final TransactionOperations transactionOperations =
+      new TransactionOperations() {
+        @Override
+        public <T> T execute(TransactionCallback<T> action) {
+          transactions.incrementAndGet();
+          int committed = stored.size();
+          try {
+            return action.doInTransaction(null);
+          } catch (RuntimeException e) {
+            stored.subList(committed, stored.size()).clear();
+            throw e;
+          }
+        }
+      };
+
+  private final UUID rejectedEhr = UUID.randomUUID();
+
+  private final UUID unknownEhr = UUID.randomUUID();
+
+  private String composition;
+
+  @Before
+  public void setUp() throws IOException {
+    try (InputStream stream = CompositionTestDataCanonicalJson.CORONA.getStream()) {
+      composition = JacksonUtil.getObjectMapper().readTree(stream).toString();
+    }
+  }
+
+  @After
+  public void tearDown() {
+    executor.shutdownNow();
+  }
+
+  @Test
+  public void writeTheLinesInBatchesInInputOrder() {
+    String input = String.join("\n",
+        line(UUID.randomUUID(), composition),
+        line(UUID.randomUUID(), composition),
+        line(UUID.randomUUID(), composition),
+        "",
+        line(UUID.randomUUID(), composition),
+        line(UUID.randomUUID(), composition));
+
+    List<CompositionImportResult> results = run(input, 2, parsed -> { });
+
+    assertThat(results).extracting(CompositionImportResult::getLine).containsExactly(1L, 2L, 3L, 5L, 6L);
+    assertThat(results).allMatch(CompositionImportResult::isSuccess);
+    assertThat(results).extracting(CompositionImportResult::getCompositionUid)
+        .containsExactlyElementsOf(stored);
+    assertThat(transactions).hasValue(3);
+  }
+
+  @Test
+  public void failOnlyTheFaultyLines() {
+    String input = String.join("\n",
+        line(UUID.randomUUID(), composition),
+        "{ no json",
+        line(rejectedEhr, composition),
+        line(UUID.randomUUID(), "{\"_type\": \"COMPOSITION\"}"),
+        line(UUID.randomUUID(), composition));
+
+    List<CompositionImportResult> results = run(input, 10, parsed -> {
+      if (parsed.getName() == null) {
+        throw new IllegalArgumentException("Invalid composition");
+      }
+    });
+
+    assertThat(results).extracting(CompositionImportResult::getLine).containsExactly(1L, 2L, 3L, 4L, 5L);
+    assertThat(results).extracting(CompositionImportResult::isSuccess)
+        .containsExactly(true, false, false, false, true);
+    assertThat(results.get(2).getEhrId()).isEqualTo(rejectedEhr);
+    // the batch is rolled back and written again one composition per transaction
+    assertThat(transactions).hasValue(1 + 3);
+    assertThat(stored).hasSize(2);
+  }
+
+  @Test
+  public void rejectUnknownEhrsWithoutFailingTheBatch() {
+    String input = String.join("\n",
+        line(UUID.randomUUID(), composition),
+        line(unknownEhr, composition),
+        line(UUID.randomUUID(), composition));
+
+    List<CompositionImportResult> results = run(input, 10, parsed -> { });
+
+    assertThat(results).extracting(CompositionImportResult::isSuccess).containsExactly(true, false, true);
+    assertThat(results.get(1).getError()).contains("No EHR found");
+    assertThat(transactions).hasValue(1);
+    assertThat(stored).hasSize(2);
+  }
+
+  @Test
+  public void continueAfterAFailureOfTheWorker() throws IOException {
+    ObjectNode broken = (ObjectNode) JacksonUtil.getObjectMapper().readTree(composition);
+    ((ObjectNode) broken.get("name")).put("value", BROKEN);
+    String input = String.join("\n",
+        line(UUID.randomUUID(), composition),
+        line(UUID.randomUUID(), broken.toString()),
+        line(UUID.randomUUID(), composition));
+
+    List<CompositionImportResult> results = run(input, 1, parsed -> {
+      if (BROKEN.equals(parsed.getName().getValue())) {
+        throw new AssertionError("Worker failed");
+      }
+    });
+
+    assertThat(results).extracting(CompositionImportResult::isSuccess).containsExactly(true, false, true);
+    assertThat(results.get(1).getError()).contains("Worker failed");
+    assertThat(stored).hasSize(2);
+  }
+
+  @Test
+  public void rejectAnInvalidBatchSize() {
+    assertThatThrownBy(() -> run(line(UUID.randomUUID(), composition), 0, parsed -> { }))
+        .isInstanceOf(InvalidApiParameterException.class);
+    assertThat(transactions).hasValue(0);
+  }
+
+  private List<CompositionImportResult> run(
+      String input, int batchSize, Consumer<Composition> validator) {
+    List<CompositionImportResult> results = new ArrayList<>();
+    new CompositionImporter(
+        executor, transactionOperations, ehrId -> !unknownEhr.equals(ehrId), validator, this::store)
+        .run(new BufferedReader(new StringReader(input)), batchSize, results::add);
+    return results;
+  }
+
+  private UUID store(UUID ehrId, Composition composition) {
+    if (rejectedEhr.equals(ehrId)) {
+      throw new IllegalStateException("EHR is not modifiable");
+    }
+    UUID compositionId = UUID.randomUUID();
+    stored.add(compositionId);
+    return compositionId;
+  }
+
+  private static String line(UUID ehrId, String composition) {
+    return "{\"ehr_id\": \"" + ehrId + "\", \"composition\": " + composition + "}";
+  }
+}
@@ -0,0 +1,84 @@
+/*
+ * Copyright (c) 2022 Vitasystems GmbH and Hannover Medical School.
+ *
+ * This file is part of project EHRbase
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.ehrbase.service;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.assertj.core.api.Assertions.assertThat;
+
+import com.nedap.archie.rm.composition.Composition;
+import com.nedap.archie.rm.support.identification.ObjectVersionId;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.UUID;
+import org.apache.commons.io.IOUtils;
+import org.ehrbase.response.ehrscape.CompositionDto;
+import org.ehrbase.serialisation.jsonencoding.CanonicalJson;
+import org.ehrbase.test_data.composition.CompositionTestDataCanonicalJson;
+import org.junit.Test;
+
+public class CompositionServiceImpTest {
+
+  @Test
+  public void buildTheCreatedCompositionFromACopyOfTheInput() throws IOException {
+    String json;
+    try (InputStream stream = CompositionTestDataCanonicalJson.CORONA.getStream()) {
+      json = IOUtils.toString(stream, UTF_8);
+    }
+    Composition input = new CanonicalJson().unmarshal(json, Composition.class);
+    input.setUid(null);
+    UUID ehrId = UUID.randomUUID();
+    UUID compositionId = UUID.randomUUID();
+
+    CompositionDto dto =
+        CompositionServiceImp.createdCompositionDto(ehrId, input, compositionId, "local.ehrbase.org");
+
+    assertThat(dto.getComposition()).isNotSameAs(input);
+    assertThat(dto.getComposition().getUid().getValue())
+        .isEqualTo(compositionId + "::local.ehrbase.org::1");
+    assertThat(dto.getComposition().getContent()).isEqualTo(input.getContent());
+    assertThat(dto.getTemplateId())
+        .isEqualTo(input.getArchetypeDetails().getTemplateId().getValue());
+    assertThat(dto.getUuid()).isEqualTo(compositionId);
+    assertThat(dto.getEhrId()).isEqualTo(ehrId);
+    // the committed input is left unchanged
+    assertThat(input.getUid()).isNull();
+  }
+
+  @Test
+  public void createdCompositionEqualsTheCompositionReadBack() throws IOException {
+    String json;
+    try (InputStream stream = CompositionTestDataCanonicalJson.CORONA.getStream()) {
+      json = IOUtils.toString(stream, UTF_8);
+    }
+    CanonicalJson canonicalJson = new CanonicalJson();
+    Composition input = canonicalJson.unmarshal(json, Composition.class);
+    UUID compositionId = UUID.randomUUID();
+
+    CompositionDto dto = CompositionServiceImp.createdCompositionDto(
+        UUID.randomUUID(), input, compositionId, "local.ehrbase.org");
+
+    // the composition as stored and read back with the UID of its first version, see the ETag
+    Composition readBack = canonicalJson.unmarshal(json, Composition.class);
+    readBack.setUid(new ObjectVersionId(compositionId.toString(), "local.ehrbase.org", "1"));
+    assertThat(dto.getComposition().getUid().getValue()).endsWith("::1");
+    assertThat(canonicalJson.marshal(dto.getComposition())).isEqualTo(canonicalJson.marshal(readBack));
+    // copied once
+    assertThat(dto.getComposition()).isSameAs(dto.getComposition());
+  }
+}
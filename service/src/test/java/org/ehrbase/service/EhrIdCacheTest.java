@@ -0,0 +1,105 @@
+/*
+ * Copyright (c) 2022 Vitasystems GmbH and Hannover Medical School.
+ *
+ * This file is part of project EHRbase
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.ehrbase.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.List;
+import java.util.UUID;
+import org.ehrbase.cache.CacheOptions;
+import org.junit.After;
+import org.junit.Test;
+import org.springframework.cache.concurrent.ConcurrentMapCacheManager;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+public class EhrIdCacheTest {
+
+  private final EhrIdCache cut =
+      new EhrIdCache(new ConcurrentMapCacheManager(CacheOptions.EHR_ID_CACHE));
+
+  @After
+  public void tearDown() {
+    if (TransactionSynchronizationManager.isSynchronizationActive()) {
+      TransactionSynchronizationManager.clearSynchronization();
+    }
+  }
+
+  @Test
+  public void addAndRemove() {
+    UUID ehrId = UUID.randomUUID();
+
+    assertThat(cut.contains(ehrId)).isFalse();
+    cut.add(ehrId);
+    assertThat(cut.contains(ehrId)).isTrue();
+
+    cut.remove(ehrId);
+    assertThat(cut.contains(ehrId)).isFalse();
+  }
+
+  @Test
+  public void addAfterCommit() {
+    UUID committed = UUID.randomUUID();
+    UUID rolledBack = UUID.randomUUID();
+
+    TransactionSynchronizationManager.initSynchronization();
+    cut.add(committed);
+    assertThat(cut.contains(committed)).isFalse();
+    TransactionSynchronizationManager.getSynchronizations()
+        .forEach(TransactionSynchronization::afterCommit);
+    TransactionSynchronizationManager.clearSynchronization();
+    assertThat(cut.contains(committed)).isTrue();
+
+    TransactionSynchronizationManager.initSynchronization();
+    cut.add(rolledBack);
+    TransactionSynchronizationManager.getSynchronizations()
+        .forEach(s -> s.afterCompletion(TransactionSynchronization.STATUS_ROLLED_BACK));
+    assertThat(cut.contains(rolledBack)).isFalse();
+  }
+
+  @Test
+  public void removeAgainAfterCommit() {
+    UUID ehrId = UUID.randomUUID();
+    cut.add(ehrId);
+
+    TransactionSynchronizationManager.initSynchronization();
+    cut.remove(ehrId);
+    assertThat(cut.contains(ehrId)).isFalse();
+    List<TransactionSynchronization> deletion =
+        TransactionSynchronizationManager.getSynchronizations();
+    TransactionSynchronizationManager.clearSynchronization();
+
+    // a concurrent transaction still sees the EHR until the deletion is committed
+    cut.add(ehrId);
+    assertThat(cut.contains(ehrId)).isTrue();
+    deletion.forEach(TransactionSynchronization::afterCommit);
+
+    assertThat(cut.contains(ehrId)).isFalse();
+  }
+
+  @Test
+  public void disabled() {
+    EhrIdCache disabled = new EhrIdCache(new ConcurrentMapCacheManager("other"));
+    UUID ehrId = UUID.randomUUID();
+
+    disabled.add(ehrId);
+
+    assertThat(disabled.contains(ehrId)).isFalse();
+  }
+}
@@ -0,0 +1,146 @@
+/*
+ * Copyright (c) 2022 Vitasystems GmbH and Hannover Medical School.
+ *
+ * This file is part of project EHRbase
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.ehrbase.service;
+
+import com.nedap.archie.rm.composition.Composition;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+import org.apache.commons.io.FileUtils;
+import org.apache.commons.io.IOUtils;
+import org.ehrbase.cache.CacheOptions;
+import org.ehrbase.serialisation.flatencoding.FlatFormat;
+import org.ehrbase.serialisation.flatencoding.FlatJasonProvider;
+import org.ehrbase.serialisation.jsonencoding.CanonicalJson;
+import org.ehrbase.test_data.composition.CompositionTestDataCanonicalJson;
+import org.ehrbase.test_data.operationaltemplate.OperationalTemplateTestData;
+import org.ehrbase.webtemplate.model.WebTemplate;
+import org.ehrbase.webtemplate.templateprovider.TemplateProvider;
+import org.openehr.schemas.v1.OPERATIONALTEMPLATE;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.springframework.cache.concurrent.ConcurrentMapCacheManager;
+
+/**
+ * Compares a FLAT (resp. STRUCTURED) round trip of a composition of the large Corona_Anamnese
+ * template with a marshaller built for each call, as done before {@link FlatFormatCache}, and
+ * with the idle marshaller taken from the cache.
+ * <p>
+ * Run with: <code>mvn -pl service test-compile exec:java -Dexec.classpathScope=test
+ * -Dexec.mainClass=org.ehrbase.service.FlatFormatBenchmark</code>
+ * </p>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class FlatFormatBenchmark {
+
+  @Param({"SIM_SDT", "STRUCTURED"})
+  public FlatFormat format;
+
+  private File templateFolder;
+  private KnowledgeCacheService knowledgeCacheService;
+  private FlatFormatCache flatFormatCache;
+
+  private String templateId;
+  private Composition composition;
+
+  @Setup
+  public void setup() throws IOException {
+    templateFolder = Files.createTempDirectory("flat-format-benchmark").toFile();
+    TemplateFileStorageService templateStorage = new TemplateFileStorageService();
+    templateStorage.setOptPath(templateFolder.getPath());
+
+    CacheOptions cacheOptions = new CacheOptions();
+    cacheOptions.setFlatFormatCacheSize(1000);
+
+    knowledgeCacheService = new KnowledgeCacheService(templateStorage,
+        new ConcurrentMapCacheManager(), cacheOptions);
+    knowledgeCacheService.addOperationalTemplate(
+        IOUtils.toByteArray(OperationalTemplateTestData.CORONA_ANAMNESE.getStream()));
+    flatFormatCache = knowledgeCacheService.getFlatFormatCache();
+
+    templateId = OperationalTemplateTestData.CORONA_ANAMNESE.getTemplateId();
+    composition = new CanonicalJson().unmarshal(
+        IOUtils.toString(CompositionTestDataCanonicalJson.CORONA.getStream(),
+            StandardCharsets.UTF_8),
+        Composition.class);
+  }
+
+  @TearDown
+  public void tearDown() throws IOException {
+    knowledgeCacheService.shutdown();
+    FileUtils.deleteDirectory(templateFolder);
+  }
+
+  @Benchmark
+  public Composition buildPerCall() {
+    String flat = newProvider().buildFlatJson(format, templateId).marshal(composition);
+    return newProvider().buildFlatJson(format, templateId).unmarshal(flat);
+  }
+
+  @Benchmark
+  public Composition cached() {
+    String flat = flatFormatCache.marshal(templateId, format, composition);
+    return flatFormatCache.unmarshal(templateId, format, flat);
+  }
+
+  /**
+   * the provider previously created by CompositionServiceImp for each request
+   */
+  private FlatJasonProvider newProvider() {
+    return new FlatJasonProvider(new TemplateProvider() {
+      @Override
+      public Optional<OPERATIONALTEMPLATE> find(String s) {
+        return knowledgeCacheService.retrieveOperationalTemplate(s);
+      }
+
+      @Override
+      public Optional<WebTemplate> buildIntrospect(String templateId) {
+        return Optional.ofNullable(knowledgeCacheService.getQueryOptMetaData(templateId));
+      }
+    });
+  }
+
+  public static void main(String[] args) throws RunnerException {
+    new Runner(new OptionsBuilder()
+        .include(FlatFormatBenchmark.class.getSimpleName())
+        .build())
+        .run();
+  }
+}
@@ -0,0 +1,161 @@
+/*
+ * Copyright (c) 2022 Vitasystems GmbH and Hannover Medical School.
+ *
+ * This file is part of project EHRbase
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.ehrbase.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.Mockito.mock;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BiFunction;
+import java.util.function.Function;
+import org.ehrbase.serialisation.RMDataFormat;
+import org.ehrbase.serialisation.flatencoding.FlatFormat;
+import org.junit.Test;
+
+public class FlatFormatCacheTest {
+
+  private final AtomicInteger builds = new AtomicInteger();
+
+  private FlatFormatCache cache(int size) {
+    return new FlatFormatCache(size, 2, builder());
+  }
+
+  private BiFunction<String, FlatFormat, RMDataFormat> builder() {
+    return (templateId, format) -> {
+      builds.incrementAndGet();
+      return mock(RMDataFormat.class);
+    };
+  }
+
+  private static RMDataFormat get(FlatFormatCache cut, String templateId, FlatFormat format) {
+    return cut.apply(templateId, format, Function.identity());
+  }
+
+  @Test
+  public void reuseFormat() {
+    FlatFormatCache cut = cache(10);
+
+    RMDataFormat first = get(cut, "t1", FlatFormat.SIM_SDT);
+    RMDataFormat second = get(cut, "t1", FlatFormat.SIM_SDT);
+    RMDataFormat structured = get(cut, "t1", FlatFormat.STRUCTURED);
+
+    assertThat(second).isSameAs(first);
+    assertThat(structured).isNotSameAs(first);
+    assertThat(builds).hasValue(2);
+    assertThat(cut.getHits()).isEqualTo(1);
+    assertThat(cut.getMisses()).isEqualTo(2);
+  }
+
+  @Test
+  public void neverShareFormatBetweenConcurrentCalls() {
+    FlatFormatCache cut = cache(10);
+
+    RMDataFormat outer = cut.apply("t1", FlatFormat.SIM_SDT, f -> {
+      // a call running while the first one uses its instance
+      assertThat(get(cut, "t1", FlatFormat.SIM_SDT)).isNotSameAs(f);
+      return f;
+    });
+
+    assertThat(builds).hasValue(2);
+    // both instances are idle again
+    assertThat(get(cut, "t1", FlatFormat.SIM_SDT)).isNotNull();
+    assertThat(builds).hasValue(2);
+    assertThat(outer).isNotNull();
+  }
+
+  @Test
+  public void keepIdleSizeInstances() {
+    FlatFormatCache cut = cache(10);
+
+    cut.apply("t1", FlatFormat.SIM_SDT, f1 ->
+        cut.apply("t1", FlatFormat.SIM_SDT, f2 ->
+            get(cut, "t1", FlatFormat.SIM_SDT)));
+    cut.apply("t1", FlatFormat.SIM_SDT, f1 ->
+        cut.apply("t1", FlatFormat.SIM_SDT, f2 ->
+            get(cut, "t1", FlatFormat.SIM_SDT)));
+
+    // only 2 of the 3 instances were kept
+    assertThat(builds).hasValue(4);
+  }
+
+  @Test
+  public void dropFormatThatFailed() {
+    FlatFormatCache cut = cache(10);
+
+    assertThatThrownBy(() -> cut.apply("t1", FlatFormat.SIM_SDT, f -> {
+      throw new IllegalArgumentException("invalid content");
+    })).isInstanceOf(IllegalArgumentException.class);
+    get(cut, "t1", FlatFormat.SIM_SDT);
+
+    assertThat(builds).hasValue(2);
+  }
+
+  @Test
+  public void invalidate() {
+    FlatFormatCache cut = cache(10);
+
+    RMDataFormat first = get(cut, "t1", FlatFormat.SIM_SDT);
+    get(cut, "t2", FlatFormat.SIM_SDT);
+    cut.invalidate();
+
+    assertThat(cut.size()).isZero();
+    assertThat(get(cut, "t1", FlatFormat.SIM_SDT)).isNotSameAs(first);
+    assertThat(builds).hasValue(3);
+  }
+
+  @Test
+  public void dropFormatTakenBeforeInvalidation() {
+    FlatFormatCache cut = cache(10);
+
+    RMDataFormat stale = cut.apply("t1", FlatFormat.SIM_SDT, f -> {
+      cut.invalidate();
+      return f;
+    });
+
+    assertThat(get(cut, "t1", FlatFormat.SIM_SDT)).isNotSameAs(stale);
+    assertThat(builds).hasValue(2);
+  }
+
+  @Test
+  public void evictLeastRecentlyUsed() {
+    FlatFormatCache cut = cache(2);
+
+    get(cut, "t1", FlatFormat.SIM_SDT);
+    get(cut, "t2", FlatFormat.SIM_SDT);
+    get(cut, "t1", FlatFormat.SIM_SDT);
+    get(cut, "t3", FlatFormat.SIM_SDT);
+    get(cut, "t1", FlatFormat.SIM_SDT);
+    get(cut, "t2", FlatFormat.SIM_SDT);
+
+    assertThat(builds).hasValue(4);
+    assertThat(cut.size()).isEqualTo(2);
+  }
+
+  @Test
+  public void disabled() {
+    FlatFormatCache cut = cache(0);
+
+    get(cut, "t1", FlatFormat.SIM_SDT);
+    get(cut, "t1", FlatFormat.SIM_SDT);
+
+    assertThat(builds).hasValue(2);
+    assertThat(cut.size()).isZero();
+  }
+}
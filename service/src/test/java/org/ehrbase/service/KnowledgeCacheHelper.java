@@ -91,6 +91,11 @@ public class KnowledgeCacheHelper {
                 this.useJsQuery = b;
             }
 
+            @Override
+            public Integer getAqlStreamFetchSize() {
+                return 1000;
+            }
+
             @Override
             public boolean isDisableStrictValidation() {
                 return false;
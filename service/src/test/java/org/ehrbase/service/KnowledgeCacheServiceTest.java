@@ -19,15 +19,25 @@
 package org.ehrbase.service;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.clearInvocations;
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.spy;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
 
 import java.io.File;
+import java.time.Duration;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Set;
+import java.util.function.Function;
 import org.apache.commons.io.IOUtils;
 import org.ehrbase.aql.containment.JsonPathQueryResult;
 import org.ehrbase.cache.CacheOptions;
 import org.ehrbase.ehr.knowledge.TemplateMetaData;
 import org.ehrbase.ehr.knowledge.TemplateTestData;
+import org.ehrbase.serialisation.flatencoding.FlatFormat;
 import org.ehrbase.test_data.operationaltemplate.OperationalTemplateTestData;
 import org.ehrbase.webtemplate.parser.NodeId;
 import org.junit.Rule;
@@ -117,6 +127,175 @@ public class KnowledgeCacheServiceTest {
         () -> knowledgeCacheService.addOperationalTemplate(content));
   }
 
+  @Test
+  public void findTemplateIdsContaining() throws Exception {
+    KnowledgeCacheService knowledge = buildKnowledgeCache(testFolder, cacheRule);
+    knowledge.addOperationalTemplate(
+        IOUtils.toByteArray(TemplateTestData.NON_UNIQUE_AQL_PATH.getStream()));
+    knowledge.addOperationalTemplate(
+        IOUtils.toByteArray(OperationalTemplateTestData.BLOOD_PRESSURE_SIMPLE.getStream()));
+
+    assertThat(knowledge.findTemplateIdsContaining(
+        List.of(new NodeId("ACTION", "openEHR-EHR-ACTION.procedure.v1"))))
+        .containsExactly("non_unique_aql_paths");
+    assertThat(knowledge.findTemplateIdsContaining(List.of(
+        new NodeId("OBSERVATION", "openEHR-EHR-OBSERVATION.sample_blood_pressure.v1"),
+        new NodeId("ACTION", "openEHR-EHR-ACTION.procedure.v1"))))
+        .isEmpty();
+    assertThat(knowledge.findTemplateIdsContaining(
+        List.of(new NodeId("OBSERVATION", "openEHR-EHR-OBSERVATION.sample_blood_pressure.v1"))))
+        .containsExactly(OperationalTemplateTestData.BLOOD_PRESSURE_SIMPLE.getTemplateId());
+
+    knowledge.deleteOperationalTemplate(knowledge.retrieveOperationalTemplate(
+        OperationalTemplateTestData.BLOOD_PRESSURE_SIMPLE.getTemplateId()).get());
+    assertThat(knowledge.findTemplateIdsContaining(
+        List.of(new NodeId("OBSERVATION", "openEHR-EHR-OBSERVATION.sample_blood_pressure.v1"))))
+        .isEmpty();
+  }
+
+  @Test
+  public void findTemplateIdsUploadedThroughAnotherInstance() throws Exception {
+    File operationalTemplates = testFolder.newFolder("operational_templates");
+    TemplateFileStorageService templateFileStorageService = new TemplateFileStorageService();
+    templateFileStorageService.setOptPath(operationalTemplates.getPath());
+    KnowledgeCacheService knowledge = new KnowledgeCacheService(templateFileStorageService,
+        new ConcurrentMapCacheManager(), new CacheOptions());
+    KnowledgeCacheService other = new KnowledgeCacheService(templateFileStorageService,
+        new ConcurrentMapCacheManager(), new CacheOptions());
+    List<NodeId> nodeIds =
+        List.of(new NodeId("OBSERVATION", "openEHR-EHR-OBSERVATION.sample_blood_pressure.v1"));
+    assertThat(knowledge.findTemplateIdsContaining(nodeIds)).isEmpty();
+    long templateSetVersion = knowledge.getTemplateSetVersion();
+
+    other.addOperationalTemplate(
+        IOUtils.toByteArray(OperationalTemplateTestData.BLOOD_PRESSURE_SIMPLE.getStream()));
+
+    assertThat(knowledge.findTemplateIdsContaining(nodeIds))
+        .containsExactly(OperationalTemplateTestData.BLOOD_PRESSURE_SIMPLE.getTemplateId());
+    // the queries compiled without the template are invalidated
+    assertThat(knowledge.getTemplateSetVersion()).isGreaterThan(templateSetVersion);
+  }
+
+  @Test
+  public void listStoreOnceWithinRescanInterval() throws Exception {
+    File operationalTemplates = testFolder.newFolder("operational_templates");
+    TemplateFileStorageService templateFileStorageService = spy(new TemplateFileStorageService());
+    templateFileStorageService.setOptPath(operationalTemplates.getPath());
+    CacheOptions cacheOptions = new CacheOptions();
+    cacheOptions.setTemplateRescanInterval(Duration.ofHours(1));
+    KnowledgeCacheService knowledge = new KnowledgeCacheService(templateFileStorageService,
+        new ConcurrentMapCacheManager(), cacheOptions);
+    List<NodeId> nodeIds =
+        List.of(new NodeId("OBSERVATION", "openEHR-EHR-OBSERVATION.sample_blood_pressure.v1"));
+
+    for (int i = 0; i < 3; i++) {
+      assertThat(knowledge.findTemplateIdsContaining(nodeIds)).isEmpty();
+    }
+
+    // the initial indexing only
+    verify(templateFileStorageService, times(1)).findAllTemplateIds();
+  }
+
+  @Test
+  public void skipStoredTemplatesFailingToIndex() throws Exception {
+    File operationalTemplates = testFolder.newFolder("operational_templates");
+    TemplateFileStorageService templateFileStorageService = spy(new TemplateFileStorageService());
+    templateFileStorageService.setOptPath(operationalTemplates.getPath());
+    doReturn(Set.of("unknown")).when(templateFileStorageService).findAllTemplateIds();
+    KnowledgeCacheService knowledge = spy(new KnowledgeCacheService(templateFileStorageService,
+        new ConcurrentMapCacheManager(), new CacheOptions()));
+    List<NodeId> nodeIds =
+        List.of(new NodeId("OBSERVATION", "openEHR-EHR-OBSERVATION.sample_blood_pressure.v1"));
+    long templateSetVersion = knowledge.getTemplateSetVersion();
+
+    for (int i = 0; i < 3; i++) {
+      assertThat(knowledge.findTemplateIdsContaining(nodeIds)).isEmpty();
+    }
+
+    verify(knowledge, times(1)).getQueryOptMetaData("unknown");
+    // nothing was added
+    assertThat(knowledge.getTemplateSetVersion()).isEqualTo(templateSetVersion);
+  }
+
+  @Test
+  public void clearTheAqlPlansOnChange() throws Exception {
+    File operationalTemplates = testFolder.newFolder("operational_templates");
+    TemplateFileStorageService templateFileStorageService = new TemplateFileStorageService();
+    templateFileStorageService.setOptPath(operationalTemplates.getPath());
+    ConcurrentMapCacheManager cacheManager = new ConcurrentMapCacheManager();
+    KnowledgeCacheService knowledge = new KnowledgeCacheService(templateFileStorageService,
+        cacheManager, new CacheOptions());
+    String templateId = knowledge.addOperationalTemplate(
+        IOUtils.toByteArray(OperationalTemplateTestData.BLOOD_PRESSURE_SIMPLE.getStream()));
+    cacheManager.getCache(CacheOptions.AQL_PLAN_CACHE).put("0::select e from EHR e", "plan");
+
+    knowledge.deleteOperationalTemplate(knowledge.retrieveOperationalTemplate(templateId).get());
+
+    assertThat(cacheManager.getCache(CacheOptions.AQL_PLAN_CACHE).get("0::select e from EHR e"))
+        .isNull();
+  }
+
+  @Test
+  public void retrieveOperationalTemplateFromCache() throws Exception {
+    File operationalTemplates = testFolder.newFolder("operational_templates");
+    TemplateFileStorageService templateFileStorageService = spy(new TemplateFileStorageService());
+    templateFileStorageService.setOptPath(operationalTemplates.getPath());
+
+    KnowledgeCacheService cut = new KnowledgeCacheService(templateFileStorageService,
+        new ConcurrentMapCacheManager(), new CacheOptions());
+    String templateId = cut.addOperationalTemplate(
+        IOUtils.toByteArray(OperationalTemplateTestData.BLOOD_PRESSURE_SIMPLE.getStream()));
+    clearInvocations(templateFileStorageService);
+
+    assertThat(cut.retrieveOperationalTemplate(templateId)).isPresent();
+    assertThat(cut.retrieveOperationalTemplate(templateId)).isPresent();
+    verify(templateFileStorageService, never()).readOperationaltemplate(templateId);
+
+    // deletion evicts the template
+    cut.deleteOperationalTemplate(cut.retrieveOperationalTemplate(templateId).get());
+    assertThat(cut.retrieveOperationalTemplate(templateId)).isEmpty();
+    verify(templateFileStorageService).readOperationaltemplate(templateId);
+  }
+
+  @Test
+  public void retrieveOperationalTemplateWithoutCache() throws Exception {
+    File operationalTemplates = testFolder.newFolder("operational_templates");
+    TemplateFileStorageService templateFileStorageService = spy(new TemplateFileStorageService());
+    templateFileStorageService.setOptPath(operationalTemplates.getPath());
+
+    // the other caches only
+    KnowledgeCacheService cut = new KnowledgeCacheService(templateFileStorageService,
+        new ConcurrentMapCacheManager(CacheOptions.INTROSPECT_CACHE, CacheOptions.QUERY_CACHE,
+            CacheOptions.FIELDS_CACHE, CacheOptions.MULTI_VALUE_CACHE), new CacheOptions());
+    String templateId = cut.addOperationalTemplate(
+        IOUtils.toByteArray(OperationalTemplateTestData.BLOOD_PRESSURE_SIMPLE.getStream()));
+    clearInvocations(templateFileStorageService);
+
+    assertThat(cut.retrieveOperationalTemplate(templateId)).isPresent();
+    assertThat(cut.retrieveOperationalTemplate(templateId)).isPresent();
+    verify(templateFileStorageService, times(2)).readOperationaltemplate(templateId);
+  }
+
+  @Test
+  public void invalidateFlatFormatsOnTemplateUpdate() throws Exception {
+    File templates = testFolder.newFolder("flat_format_templates");
+    TemplateFileStorageService templateFileStorageService = new TemplateFileStorageService();
+    templateFileStorageService.setOptPath(templates.getPath());
+    CacheOptions cacheOptions = new CacheOptions();
+    cacheOptions.setFlatFormatCacheSize(10);
+    KnowledgeCacheService cut = new KnowledgeCacheService(templateFileStorageService,
+        new ConcurrentMapCacheManager(), cacheOptions);
+    byte[] content = IOUtils.toByteArray(
+        OperationalTemplateTestData.BLOOD_PRESSURE_SIMPLE.getStream());
+    String templateId = cut.addOperationalTemplate(content);
+
+    cut.getFlatFormatCache().apply(templateId, FlatFormat.SIM_SDT, Function.identity());
+    assertThat(cut.getFlatFormatCache().size()).isEqualTo(1);
+
+    cut.adminUpdateOperationalTemplate(content);
+    assertThat(cut.getFlatFormatCache().size()).isZero();
+  }
+
   public static KnowledgeCacheService buildKnowledgeCache(TemporaryFolder folder,
       CacheRule cacheRule) throws Exception {
 
@@ -0,0 +1,218 @@
+/*
+ * Copyright (c) 2022 Vitasystems GmbH and Hannover Medical School.
+ *
+ * This file is part of project EHRbase
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.ehrbase.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.ehrbase.jooq.pg.Tables.STORED_QUERY;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.util.Comparator;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+import org.ehrbase.aql.sql.AqlQueryPlan;
+import org.ehrbase.cache.CacheOptions;
+import org.ehrbase.dao.access.interfaces.I_StoredQueryAccess;
+import org.ehrbase.jooq.pg.tables.records.StoredQueryRecord;
+import org.jooq.DSLContext;
+import org.jooq.SQLDialect;
+import org.jooq.impl.DSL;
+import org.jooq.tools.jdbc.MockConnection;
+import org.jooq.tools.jdbc.MockResult;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.cache.concurrent.ConcurrentMapCacheManager;
+
+public class StoredQueryRegistryTest {
+
+  private static final Timestamp CREATED = Timestamp.valueOf("2022-05-04 13:41:50");
+
+  private final DSLContext create = DSL.using(SQLDialect.POSTGRES);
+
+  // the rows of the table by version
+  private final Map<String, StoredQueryRecord> rows = new TreeMap<>();
+
+  private final AtomicInteger loads = new AtomicInteger();
+  private final AtomicInteger lookups = new AtomicInteger();
+
+  private AqlPlanCache planCache;
+
+  private StoredQueryRegistry cut;
+
+  @Before
+  public void setUp() {
+    addRow("1.0.0", "select e from EHR e");
+    addRow("1.2.0", "select e/ehr_id from EHR e");
+    addRow("2.0.0", "select e/ehr_id/value from EHR e");
+
+    CacheOptions cacheOptions = new CacheOptions();
+    // only the pinned plans are kept
+    planCache = new AqlPlanCache(new ConcurrentMapCacheManager("other"));
+    cut = new StoredQueryRegistry(context(), planCache, cacheOptions);
+    cut.load();
+  }
+
+  private DSLContext context() {
+    return DSL.using(new MockConnection(ctx -> {
+      var result = create.newResult(STORED_QUERY);
+      if (ctx.sql().contains("where")) {
+        // the highest version of "org.example::ehrs", bound as name, id and version pattern
+        lookups.incrementAndGet();
+        String prefix = ctx.sql().contains(" like ")
+            ? ((String) ctx.bindings()[2]).replace("%", "")
+            : "";
+        if ("ehrs".equals(ctx.bindings()[1])) {
+          rows.values().stream()
+              .filter(r -> r.getSemver().startsWith(prefix))
+              .max(Comparator.comparing(StoredQueryRecord::getSemver))
+              .ifPresent(result::add);
+        }
+      } else {
+        loads.incrementAndGet();
+        result.addAll(rows.values());
+      }
+      return new MockResult[]{new MockResult(result.size(), result)};
+    }), SQLDialect.POSTGRES);
+  }
+
+  private void addRow(String semver, String query) {
+    rows.put(semver, storedQuery(semver, query));
+  }
+
+  private StoredQueryRecord storedQuery(String semver, String query) {
+    StoredQueryRecord storedQuery = create.newRecord(STORED_QUERY);
+    storedQuery.setReverseDomainName("org.example");
+    storedQuery.setSemanticId("ehrs");
+    storedQuery.setSemver(semver);
+    storedQuery.setQueryText(query);
+    storedQuery.setType("AQL");
+    storedQuery.setCreationDate(CREATED);
+    return storedQuery;
+  }
+
+  private static I_StoredQueryAccess access(String semanticId, String semver, String query) {
+    I_StoredQueryAccess access = mock(I_StoredQueryAccess.class);
+    when(access.getReverseDomainName()).thenReturn("org.example");
+    when(access.getSemanticId()).thenReturn(semanticId);
+    when(access.getSemver()).thenReturn(semver);
+    when(access.getQueryText()).thenReturn(query);
+    when(access.getQueryType()).thenReturn("AQL");
+    when(access.getCreationDate()).thenReturn(CREATED);
+    return access;
+  }
+
+  @Test
+  public void findVersion() {
+    assertThat(cut.find("org.example::ehrs").get().getSemver()).isEqualTo("2.0.0");
+    assertThat(cut.find("org.example::ehrs/LATEST").get().getSemver()).isEqualTo("2.0.0");
+    assertThat(cut.find("org.example::ehrs/1").get().getSemver()).isEqualTo("1.2.0");
+    assertThat(cut.find("org.example::ehrs/1.0.0").get().getQueryText())
+        .isEqualTo("select e from EHR e");
+    assertThat(cut.find("org.example::ehrs/3")).isEmpty();
+    assertThat(cut.find("org.example::other")).isEmpty();
+    assertThat(loads).hasValue(1);
+    // only the exact version is found without the DB
+    assertThat(lookups).hasValue(5);
+  }
+
+  @Test
+  public void findVersionsCreatedThroughAnotherInstance() {
+    addRow("2.1.0", "select e/time_created from EHR e");
+
+    assertThat(cut.find("org.example::ehrs").get().getSemver()).isEqualTo("2.1.0");
+    assertThat(cut.find("org.example::ehrs/2").get().getSemver()).isEqualTo("2.1.0");
+    assertThat(cut.find("org.example::ehrs/2.1.0").get().getQueryText())
+        .isEqualTo("select e/time_created from EHR e");
+    assertThat(lookups).hasValue(2);
+  }
+
+  @Test
+  public void dropVersionsDeletedThroughAnotherInstance() {
+    rows.remove("2.0.0");
+
+    assertThat(cut.find("org.example::ehrs").get().getSemver()).isEqualTo("1.2.0");
+    assertThat(cut.find("org.example::ehrs/2.0.0")).isEmpty();
+
+    rows.clear();
+
+    assertThat(cut.find("org.example::ehrs/LATEST")).isEmpty();
+    assertThat(cut.find("org.example::ehrs/1.0.0")).isEmpty();
+  }
+
+  @Test
+  public void findTheUpdatedLatestVersion() {
+    addRow("2.0.0", "select e/system_id from EHR e");
+
+    assertThat(cut.find("org.example::ehrs").get().getQueryText())
+        .isEqualTo("select e/system_id from EHR e");
+    assertThat(cut.find("org.example::ehrs/2.0.0").get().getQueryText())
+        .isEqualTo("select e/system_id from EHR e");
+  }
+
+  @Test
+  public void registerAndUnregister() {
+    I_StoredQueryAccess access = access("other", null, "select c from COMPOSITION c");
+
+    cut.register(access);
+    assertThat(cut.find("org.example::other/0.0.0").get().getQueryText())
+        .isEqualTo("select c from COMPOSITION c");
+
+    cut.unregister(access);
+    assertThat(cut.find("org.example::other/0.0.0")).isEmpty();
+    assertThat(cut.find("org.example::ehrs/2.0.0")).isPresent();
+    assertThat(lookups).hasValue(1);
+  }
+
+  @Test
+  public void pinPlans() {
+    AtomicInteger compilations = new AtomicInteger();
+    Supplier<AqlQueryPlan> compiler = () -> {
+      compilations.incrementAndGet();
+      return mock(AqlQueryPlan.class);
+    };
+    String storedQuery = cut.find("org.example::ehrs/1.0.0").get().getQueryText();
+
+    planCache.get(storedQuery, 0, compiler);
+    // the plans of ad-hoc queries are not cached
+    for (int i = 0; i < 20; i++) {
+      planCache.get("select e" + i + " from EHR e" + i, 0, compiler);
+    }
+    planCache.get(storedQuery, 0, compiler);
+
+    assertThat(compilations).hasValue(21);
+  }
+
+  @Test
+  public void reload() throws InterruptedException {
+    CacheOptions cacheOptions = new CacheOptions();
+    cacheOptions.setStoredQueryReloadInterval(Duration.ofMillis(50));
+    cut = new StoredQueryRegistry(context(), planCache, cacheOptions);
+    cut.load();
+
+    cut.find("org.example::ehrs");
+    Thread.sleep(100);
+    cut.find("org.example::ehrs");
+
+    assertThat(loads).hasValue(3);
+  }
+}
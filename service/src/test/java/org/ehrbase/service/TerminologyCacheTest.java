@@ -0,0 +1,123 @@
+/*
+ * Copyright (c) 2022 Vitasystems GmbH and Hannover Medical School.
+ *
+ * This file is part of project EHRbase
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.ehrbase.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.ehrbase.cache.CacheOptions;
+import org.junit.After;
+import org.junit.Test;
+import org.springframework.cache.concurrent.ConcurrentMapCacheManager;
+
+public class TerminologyCacheTest {
+
+  private TerminologyCache cut;
+
+  private final AtomicInteger loads = new AtomicInteger();
+
+  private static TerminologyCache cache(Duration refreshAfter) {
+    CacheOptions cacheOptions = new CacheOptions();
+    cacheOptions.setTerminologyCacheRefreshAfter(refreshAfter);
+    return new TerminologyCache(
+        new ConcurrentMapCacheManager(CacheOptions.TERMINOLOGY_CACHE), cacheOptions);
+  }
+
+  private String load() {
+    return "response " + loads.incrementAndGet();
+  }
+
+  private void awaitLoads(int count) throws InterruptedException {
+    for (int i = 0; i < 50 && loads.get() < count; i++) {
+      Thread.sleep(20);
+    }
+  }
+
+  @After
+  public void tearDown() {
+    cut.shutdown();
+  }
+
+  @Test
+  public void cachesResponsesByUrl() {
+    cut = cache(null);
+
+    assertThat(cut.get("expand", "url1", this::load)).isEqualTo("response 1");
+    assertThat(cut.get("expand", "url1", this::load)).isEqualTo("response 1");
+    assertThat(cut.get("expand", "url2", this::load)).isEqualTo("response 2");
+
+    assertThat(loads).hasValue(2);
+  }
+
+  @Test
+  public void refreshesInBackground() throws InterruptedException {
+    cut = cache(Duration.ofMillis(50));
+
+    cut.get("expand", "url1", this::load);
+    Thread.sleep(100);
+
+    // the cached response is returned while the refresh is running
+    assertThat(cut.get("expand", "url1", this::load)).isEqualTo("response 1");
+    awaitLoads(2);
+    Thread.sleep(20);
+    assertThat(cut.get("expand", "url1", this::load)).isEqualTo("response 2");
+  }
+
+  @Test
+  public void keepsTheResponseWhenTheRefreshFails() throws InterruptedException {
+    cut = cache(Duration.ofMillis(50));
+
+    cut.get("expand", "url1", this::load);
+    Thread.sleep(100);
+
+    cut.get("expand", "url1", () -> {
+      loads.incrementAndGet();
+      throw new IllegalStateException("terminology server unavailable");
+    });
+    awaitLoads(2);
+    Thread.sleep(20);
+
+    // the failed refresh is tried again on the next use
+    assertThat(cut.get("expand", "url1", this::load)).isEqualTo("response 1");
+    awaitLoads(3);
+    Thread.sleep(20);
+    assertThat(cut.get("expand", "url1", this::load)).isEqualTo("response 3");
+  }
+
+  @Test
+  public void invalidate() {
+    cut = cache(null);
+
+    cut.get("expand", "url1", this::load);
+    cut.invalidate();
+
+    assertThat(cut.get("expand", "url1", this::load)).isEqualTo("response 2");
+  }
+
+  @Test
+  public void disabled() {
+    cut = new TerminologyCache(new ConcurrentMapCacheManager("other"), new CacheOptions());
+
+    cut.get("expand", "url1", this::load);
+    cut.get("expand", "url1", this::load);
+
+    assertThat(loads).hasValue(2);
+  }
+}
@@ -0,0 +1,100 @@
+/*
+ * Copyright (c) 2022 Vitasystems GmbH and Hannover Medical School.
+ *
+ * This file is part of project EHRbase
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.ehrbase.util;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import org.ehrbase.response.ehrscape.CompositionFormat;
+import org.junit.Test;
+
+public class TemplateIdExtractorTest {
+
+  private static final String JSON_COMPOSITION = "{"
+      + "\"_type\": \"COMPOSITION\","
+      + "\"name\": {\"_type\": \"DV_TEXT\", \"value\": \"Vital Signs\"},"
+      + "\"content\": [{\"_type\": \"OBSERVATION\", \"archetype_details\": {"
+      + "  \"archetype_id\": {\"value\": \"openEHR-EHR-OBSERVATION.pulse.v1\"},"
+      + "  \"template_id\": {\"value\": \"nested\"}}}],"
+      + "\"archetype_details\": {"
+      + "  \"archetype_id\": {\"value\": \"openEHR-EHR-COMPOSITION.encounter.v1\"},"
+      + "  \"template_id\": {\"value\": \"Vital Signs\"},"
+      + "  \"rm_version\": \"1.0.4\"}"
+      + "}";
+
+  private static final String XML_COMPOSITION = "<?xml version=\"1.0\" encoding=\"UTF-8\"?>"
+      + "<composition xmlns=\"http://schemas.openehr.org/v1\" archetype_node_id=\"openEHR-EHR-COMPOSITION.encounter.v1\">"
+      + "<name><value>Vital Signs</value></name>"
+      + "<content><archetype_details><template_id><value>nested</value></template_id></archetype_details></content>"
+      + "<archetype_details>"
+      + "<archetype_id><value>openEHR-EHR-COMPOSITION.encounter.v1</value></archetype_id>"
+      + "<template_id><value>Vital Signs</value></template_id>"
+      + "<rm_version>1.0.4</rm_version>"
+      + "</archetype_details>"
+      + "</composition>";
+
+  @Test
+  public void fromJsonComposition() {
+    assertThat(TemplateIdExtractor.fromComposition(JSON_COMPOSITION, CompositionFormat.JSON))
+        .isEqualTo("Vital Signs");
+    assertThat(TemplateIdExtractor.fromComposition("{\"_type\": \"COMPOSITION\"}", CompositionFormat.JSON))
+        .isNull();
+  }
+
+  @Test
+  public void fromXmlComposition() {
+    assertThat(TemplateIdExtractor.fromComposition(XML_COMPOSITION, CompositionFormat.XML))
+        .isEqualTo("Vital Signs");
+    assertThat(TemplateIdExtractor.fromComposition("<composition><archetype_details/></composition>",
+        CompositionFormat.XML))
+        .isNull();
+  }
+
+  @Test
+  public void fromContribution() {
+    String contribution = "{"
+        + "\"versions\": ["
+        + "  {\"_type\": \"ORIGINAL_VERSION\", \"data\": " + JSON_COMPOSITION + "},"
+        + "  {\"_type\": \"ORIGINAL_VERSION\", \"data\": {\"archetype_details\": {\"template_id\": {\"value\": \"other\"}},"
+        + "    \"_type\": \"COMPOSITION\"}},"
+        + "  {\"_type\": \"ORIGINAL_VERSION\", \"lifecycle_state\": {\"value\": \"deleted\"}}"
+        + "],"
+        + "\"audit\": {\"_type\": \"AUDIT_DETAILS\"}"
+        + "}";
+
+    assertThat(TemplateIdExtractor.fromContribution(contribution, CompositionFormat.JSON))
+        .containsExactlyInAnyOrder("Vital Signs", "other");
+  }
+
+  @Test
+  public void fromContributionWithFolder() {
+    String contribution = "{\"versions\": [{\"data\": {\"_type\": \"FOLDER\"}}]}";
+
+    assertThatThrownBy(() -> TemplateIdExtractor.fromContribution(contribution, CompositionFormat.JSON))
+        .isInstanceOf(IllegalArgumentException.class);
+  }
+
+  @Test
+  public void malformedInput() {
+    assertThatThrownBy(() -> TemplateIdExtractor.fromComposition("{\"archetype_details\": ", CompositionFormat.JSON))
+        .isInstanceOf(IllegalArgumentException.class);
+    assertThatThrownBy(() -> TemplateIdExtractor.fromComposition("<composition>", CompositionFormat.XML))
+        .isInstanceOf(IllegalArgumentException.class);
+  }
+}